@@ -1,5 +1,7 @@
  package api;
 
+ import com.fasterxml.jackson.annotation.JsonIgnore;
+
  import javax.validation.Valid;
  import javax.validation.constraints.Size;
  import java.util.List;
@@ -23,6 +25,8 @@
 
     private String slackThreadId;
 
+    private Long createdAtMicros;
+
     @Valid
     @Size(max=5)
     private List<Tag> tags;
@@ -67,6 +71,19 @@
          this.title = title;
      }
 
+     /**
+      * The creation time of the question in microseconds since epoch, when selected by the listings
+      * that are paged with a cursor. Unlike {@link #getCreatedAt()} it does not depend on the time zone.
+      */
+     @JsonIgnore
+     public Long getCreatedAtMicros() {
+         return createdAtMicros;
+     }
+
+     public void setCreatedAtMicros(Long createdAtMicros) {
+         this.createdAtMicros = createdAtMicros;
+     }
+
      public List<Tag> getTags() {
          return tags;
      }
@@ -0,0 +1,66 @@
+package benchmarks;
+
+import api.Answer;
+import api.AnswerResource;
+import api.auth.Auth;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading the answers of a question and voting on answers through {@link AnswerResource}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnswerResourceBenchmark {
+
+    private AnswerResource answerResource;
+
+    @Setup(Level.Trial)
+    public void setup(Dataset dataset) {
+        answerResource = dataset.get(AnswerResource.class);
+    }
+
+    @Benchmark
+    public List<Answer> getAnswers(Dataset dataset, Voter voter) {
+        return answerResource.getAnswers(voter.auth, dataset.randomQuestionId()).toBlocking().single();
+    }
+
+    /**
+     * Votes a random answer up and removes the vote again, so that the votes stay as seeded.
+     */
+    @Benchmark
+    public void voteOnAnswer(Dataset dataset, Voter voter) {
+        long answerId = dataset.randomAnswerId();
+        answerResource.upVoteAnswer(voter.auth, answerId).toBlocking().lastOrDefault(null);
+        answerResource.downVoteAnswer(voter.auth, answerId).toBlocking().lastOrDefault(null);
+    }
+
+    /**
+     * A user of its own per thread, so that threads never vote as the same user.
+     */
+    @State(Scope.Thread)
+    public static class Voter {
+        private Auth auth;
+
+        @Setup(Level.Trial)
+        public void setup(Dataset dataset) throws Exception {
+            auth = new Auth(dataset.getDatabase().createVoter());
+        }
+    }
+}
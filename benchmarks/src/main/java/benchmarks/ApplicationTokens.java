@@ -0,0 +1,41 @@
+package benchmarks;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static auth.application.ApplicationTokenClaims.USER_ID;
+import static auth.openid.OpenIdClaims.EMAIL;
+import static auth.openid.OpenIdClaims.NAME;
+import static auth.openid.OpenIdClaims.PICTURE;
+
+/**
+ * Signs application tokens the way the application does when a user logs in, so that benchmarks can
+ * act as a logged in user without going through OpenId.
+ */
+public final class ApplicationTokens {
+
+    /**
+     * The application token secret configured by {@link BenchmarkDatabase}.
+     */
+    public static final String SECRET = "the-secret-used-by-the-benchmarks";
+
+    private ApplicationTokens() {
+    }
+
+    /**
+     * @return an application token for the given user, valid for a day
+     */
+    public static String create(long userId) {
+        return JWT.create()
+            .withClaim(NAME, "Benchmark User")
+            .withClaim(EMAIL, "benchmark" + userId + "@example.com")
+            .withClaim(USER_ID, userId)
+            .withClaim(PICTURE, "picture.jpg")
+            .withExpiresAt(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1)))
+            .withIssuer("rocket-fuel")
+            .sign(Algorithm.HMAC256(SECRET));
+    }
+}
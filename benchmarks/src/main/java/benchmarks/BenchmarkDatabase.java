@@ -0,0 +1,158 @@
+package benchmarks;
+
+import auth.openid.JwksKeyStore;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.name.Names;
+import com.google.inject.util.Modules;
+import datagen.DatasetConfig;
+import datagen.DatasetGenerator;
+import datagen.PostgresLoader;
+import org.mockito.stubbing.Answer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import se.fortnox.reactivewizard.binding.AutoBindModules;
+import se.fortnox.reactivewizard.config.ConfigFactory;
+import se.fortnox.reactivewizard.dbmigrate.LiquibaseConfig;
+import se.fortnox.reactivewizard.dbmigrate.LiquibaseMigrate;
+import slack.SlackRTMClient;
+import slack.SlackResource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mockito.Mockito.mock;
+import static rx.Observable.empty;
+
+/**
+ * A Postgres container migrated and loaded with a generated dataset of a given size, and the application
+ * wired against it. Slack is replaced by a mock that does nothing, so that only our own code and the
+ * database are measured.
+ *
+ * The dataset is generated by {@link DatasetGenerator} with its default shape and seed, so every run
+ * measures against the same rows.
+ */
+public class BenchmarkDatabase {
+
+    private final PostgreSQLContainer postgreSQLContainer;
+    private final Injector            injector;
+    private final int                 questions;
+    private       int                 answers;
+
+    public BenchmarkDatabase(int questions) throws Exception {
+        this(questions, 0);
+    }
+
+    /**
+     * @param serverPort the port to serve the API on, or 0 to only call the resources directly
+     */
+    public BenchmarkDatabase(int questions, int serverPort) throws Exception {
+        this.questions = questions;
+
+        postgreSQLContainer = new PostgreSQLContainer();
+        postgreSQLContainer.start();
+
+        ConfigFactory configFactory = new ConfigFactory(writeConfig(postgreSQLContainer, serverPort).toString());
+        new LiquibaseMigrate(configFactory.get(LiquibaseConfig.class)).run();
+        seed();
+
+        injector = Guice.createInjector(new AutoBindModules(Modules.override(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(String[].class).annotatedWith(Names.named("args")).toInstance(new String[0]);
+                bind(ConfigFactory.class).toInstance(configFactory);
+            }
+        }).with(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(SlackResource.class).toInstance(mock(SlackResource.class, (Answer)invocation -> empty()));
+                bind(SlackRTMClient.class).toInstance(mock(SlackRTMClient.class));
+                bind(JwksKeyStore.class).toInstance(mock(JwksKeyStore.class));
+            }
+        })));
+    }
+
+    public Injector getInjector() {
+        return injector;
+    }
+
+    /**
+     * @return the number of generated questions, whose ids are 1 up to and including this number
+     */
+    public int getQuestions() {
+        return questions;
+    }
+
+    /**
+     * @return the number of generated answers, whose ids are 1 up to and including this number
+     */
+    public int getAnswers() {
+        return answers;
+    }
+
+    /**
+     * Creates a user owning no questions or answers, so that any generated post can be voted on by it.
+     *
+     * @return the id of the created user
+     */
+    public long createVoter() throws SQLException {
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("INSERT INTO \"user\" (email, name) " +
+                 "VALUES ('voter-" + UUID.randomUUID() + "@example.com', 'Voter') RETURNING id")) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    public void stop() {
+        postgreSQLContainer.stop();
+    }
+
+    private void seed() throws SQLException {
+        DatasetConfig config = new DatasetConfig();
+        config.setQuestions(questions);
+        try (Connection connection = connect()) {
+            PostgresLoader.load(connection, config);
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM answer")) {
+                resultSet.next();
+                answers = resultSet.getInt(1);
+            }
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(postgreSQLContainer.getJdbcUrl(), postgreSQLContainer.getUsername(), postgreSQLContainer.getPassword());
+    }
+
+    private static Path writeConfig(PostgreSQLContainer postgreSQLContainer, int serverPort) throws IOException {
+        String database =
+            "  user: " + postgreSQLContainer.getUsername() + "\n" +
+            "  password: " + postgreSQLContainer.getPassword() + "\n" +
+            "  url: " + postgreSQLContainer.getJdbcUrl() + "\n" +
+            "  schema: public\n";
+        String config =
+            "liquibase-database:\n" + database +
+            "database:\n" + database +
+            "  poolSize: 10\n" +
+            "applicationTokenConfig:\n" +
+            "  secret: " + ApplicationTokens.SECRET + "\n" +
+            "server:\n" +
+            (serverPort > 0 ? "  enabled: true\n  port: " + serverPort + "\n" : "  enabled: false\n") +
+            "slack:\n" +
+            "  enabled: false\n";
+        Path path = Files.createTempFile("benchmark-config", ".yml");
+        path.toFile().deleteOnExit();
+        Files.write(path, config.getBytes(UTF_8));
+        return path;
+    }
+}
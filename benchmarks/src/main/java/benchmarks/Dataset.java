@@ -0,0 +1,55 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The generated database shared by all threads of a benchmark. Its size is chosen with the questions
+ * parameter, for example {@code -p questions=1000000}.
+ */
+@State(Scope.Benchmark)
+public class Dataset {
+
+    @Param({"10000", "100000"})
+    public int questions;
+
+    private BenchmarkDatabase database;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        database = new BenchmarkDatabase(questions);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.stop();
+    }
+
+    public <T> T get(Class<T> type) {
+        return database.getInjector().getInstance(type);
+    }
+
+    public BenchmarkDatabase getDatabase() {
+        return database;
+    }
+
+    /**
+     * @return the id of a random generated question
+     */
+    public long randomQuestionId() {
+        return 1 + ThreadLocalRandom.current().nextInt(questions);
+    }
+
+    /**
+     * @return the id of a random generated answer
+     */
+    public long randomAnswerId() {
+        return 1 + ThreadLocalRandom.current().nextInt(database.getAnswers());
+    }
+}
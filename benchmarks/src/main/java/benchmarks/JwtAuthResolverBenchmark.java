@@ -0,0 +1,63 @@
+package benchmarks;
+
+import api.auth.Auth;
+import auth.ApplicationTokenVerifier;
+import auth.ClockProvider;
+import auth.ClockProviderImpl;
+import auth.JwtAuthResolver;
+import auth.VerifiedTokenCache;
+import auth.VerifiedTokenCacheConfig;
+import auth.application.ApplicationTokenConfig;
+import dates.DateProviderImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures resolving the user of a request from its application token, which is done for every
+ * authenticated request, with and without the cache of verified tokens. Needs no database.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtAuthResolverBenchmark {
+
+    @Param({"false", "true"})
+    private boolean cached;
+
+    private JwtAuthResolver jwtAuthResolver;
+    private String          applicationToken;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ApplicationTokenConfig applicationTokenConfig = new ApplicationTokenConfig();
+        applicationTokenConfig.setSecret(ApplicationTokens.SECRET);
+        VerifiedTokenCacheConfig verifiedTokenCacheConfig = new VerifiedTokenCacheConfig();
+        verifiedTokenCacheConfig.setEnabled(cached);
+        ClockProvider clockProvider = new ClockProviderImpl();
+        jwtAuthResolver = new JwtAuthResolver(
+            new DateProviderImpl(),
+            new ApplicationTokenVerifier(clockProvider, applicationTokenConfig),
+            new VerifiedTokenCache(verifiedTokenCacheConfig, clockProvider));
+        applicationToken = ApplicationTokens.create(1);
+    }
+
+    @Benchmark
+    public Auth getAuth() {
+        return jwtAuthResolver.getAuth(applicationToken);
+    }
+}
@@ -0,0 +1,79 @@
+package benchmarks;
+
+import api.Question;
+import api.QuestionResource;
+import api.auth.Auth;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.fortnox.reactivewizard.CollectionOptions;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the question listings, search and voting through {@link QuestionResource}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuestionResourceBenchmark {
+
+    private QuestionResource questionResource;
+
+    @Setup(Level.Trial)
+    public void setup(Dataset dataset) {
+        questionResource = dataset.get(QuestionResource.class);
+    }
+
+    @Benchmark
+    public List<Question> getLatestQuestions() {
+        return questionResource.getLatestQuestions(new CollectionOptions()).toBlocking().single();
+    }
+
+    @Benchmark
+    public List<Question> getPopularQuestions() {
+        return questionResource.getPopularQuestions(new CollectionOptions()).toBlocking().single();
+    }
+
+    @Benchmark
+    public List<Question> getQuestionsBySearchQuery() {
+        String search = "word" + (100 + ThreadLocalRandom.current().nextInt(1000));
+        return questionResource.getQuestionsBySearchQuery(search, new CollectionOptions()).toBlocking().single();
+    }
+
+    /**
+     * Votes a random question up and removes the vote again, so that the votes stay as seeded.
+     */
+    @Benchmark
+    public void voteOnQuestion(Dataset dataset, Voter voter) {
+        long questionId = dataset.randomQuestionId();
+        questionResource.upVoteQuestion(voter.auth, questionId).toBlocking().lastOrDefault(null);
+        questionResource.downVoteQuestion(voter.auth, questionId).toBlocking().lastOrDefault(null);
+    }
+
+    /**
+     * A user of its own per thread, so that threads never vote as the same user.
+     */
+    @State(Scope.Thread)
+    public static class Voter {
+        private Auth auth;
+
+        @Setup(Level.Trial)
+        public void setup(Dataset dataset) throws Exception {
+            auth = new Auth(dataset.getDatabase().createVoter());
+        }
+    }
+}
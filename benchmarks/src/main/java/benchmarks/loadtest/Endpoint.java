@@ -0,0 +1,36 @@
+package benchmarks.loadtest;
+
+import java.net.http.HttpRequest;
+import java.util.SplittableRandom;
+import java.util.function.BiFunction;
+
+/**
+ * An endpoint of the API, how often it is called relative to the others, and how to build a request to it.
+ */
+class Endpoint {
+
+    private final String                                             name;
+    private final int                                                weight;
+    private final BiFunction<SplittableRandom, String, HttpRequest> requests;
+
+    /**
+     * @param requests builds a request from a random generator and the application token to send with it
+     */
+    Endpoint(String name, int weight, BiFunction<SplittableRandom, String, HttpRequest> requests) {
+        this.name = name;
+        this.weight = weight;
+        this.requests = requests;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getWeight() {
+        return weight;
+    }
+
+    HttpRequest request(SplittableRandom random, String applicationToken) {
+        return requests.apply(random, applicationToken);
+    }
+}
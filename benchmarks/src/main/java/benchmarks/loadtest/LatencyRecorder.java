@@ -0,0 +1,73 @@
+package benchmarks.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Records the latencies and failures of the requests to one endpoint during one step of a load test.
+ */
+class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+    private int    count;
+    private int    errors;
+    private int    dropped;
+
+    /**
+     * @param nanos from when the request should have been sent until its response was read
+     */
+    synchronized void success(long nanos) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+    }
+
+    /**
+     * Records a request that failed or got an error status.
+     */
+    synchronized void error() {
+        errors++;
+    }
+
+    /**
+     * Records a request that was never sent, because the load test already had as many requests in
+     * flight as it allows.
+     */
+    synchronized void dropped() {
+        dropped++;
+    }
+
+    synchronized void addTo(LatencyRecorder total) {
+        for (int index = 0; index < count; index++) {
+            total.success(latencies[index]);
+        }
+        total.errors += errors;
+        total.dropped += dropped;
+    }
+
+    synchronized int getCount() {
+        return count;
+    }
+
+    synchronized int getErrors() {
+        return errors;
+    }
+
+    synchronized int getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the latency of the given percentile in milliseconds, or 0 when nothing succeeded
+     */
+    synchronized double percentileMillis(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int index = (int)Math.ceil(percentile / 100 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,214 @@
+package benchmarks.loadtest;
+
+import benchmarks.ApplicationTokens;
+import benchmarks.BenchmarkDatabase;
+import se.fortnox.reactivewizard.server.RwServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Serves the API over HTTP against a generated dataset and calls it at a series of fixed arrival rates,
+ * to find how many requests per second one instance of the application handles.
+ *
+ * Requests are sent at the given rate whether or not earlier ones have been answered, the way users
+ * arrive, and their latency is measured from when they should have been sent. A slow server therefore
+ * shows up as latency rather than as a lower rate. At most the given number of requests are in flight at
+ * once, and requests beyond that are counted as dropped.
+ *
+ * Usage: java -cp benchmarks.jar benchmarks.loadtest.LoadTest [questions] [rates] [seconds per rate] [concurrency]
+ */
+public class LoadTest {
+
+    private static final int      VOTERS          = 100;
+    private static final Duration WARMUP          = Duration.ofSeconds(20);
+    private static final double   HELD_RATE_SHARE = 0.95;
+    private static final String   APPLICATION     = "application=";
+
+    private final HttpClient       httpClient;
+    private final List<Endpoint>   endpoints;
+    private final int              totalWeight;
+    private final String[]         applicationTokens;
+    private final int              concurrency;
+    private final SplittableRandom random = new SplittableRandom(1);
+
+    LoadTest(HttpClient httpClient, List<Endpoint> endpoints, String[] applicationTokens, int concurrency) {
+        this.httpClient = httpClient;
+        this.endpoints = endpoints;
+        this.totalWeight = endpoints.stream().mapToInt(Endpoint::getWeight).sum();
+        this.applicationTokens = applicationTokens;
+        this.concurrency = concurrency;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int   questions   = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int[] rates       = Arrays.stream((args.length > 1 ? args[1] : "50,100,200,400,800,1600").split(",")).mapToInt(Integer::parseInt).toArray();
+        int   seconds     = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int   concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 256;
+
+        int               port     = freePort();
+        BenchmarkDatabase database = new BenchmarkDatabase(questions, port);
+        ExecutorService   executor = Executors.newFixedThreadPool(Math.min(concurrency, 64));
+        try {
+            database.getInjector().getInstance(RwServer.class);
+
+            String[] applicationTokens = new String[VOTERS];
+            for (int index = 0; index < VOTERS; index++) {
+                applicationTokens[index] = ApplicationTokens.create(database.createVoter());
+            }
+            HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+            LoadTest loadTest = new LoadTest(httpClient, endpoints(URI.create("http://localhost:" + port + "/api/"), database), applicationTokens, concurrency);
+
+            System.out.printf("Warming up at %d requests/s for %d seconds%n", rates[0], WARMUP.getSeconds());
+            loadTest.run(rates[0], WARMUP);
+
+            int ceiling = 0;
+            for (int rate : rates) {
+                Map<String, LatencyRecorder> results = loadTest.run(rate, Duration.ofSeconds(seconds));
+                LatencyRecorder              total   = print(rate, seconds, results);
+                if (total.getErrors() == 0 && total.getDropped() == 0 && total.getCount() >= HELD_RATE_SHARE * rate * seconds) {
+                    ceiling = rate;
+                }
+            }
+            System.out.printf("%nHighest rate held without errors or dropped requests: %d requests/s%n", ceiling);
+        } finally {
+            executor.shutdownNow();
+            database.stop();
+        }
+        System.exit(0);
+    }
+
+    /**
+     * The endpoints called, weighted by how often the UI calls them.
+     */
+    static List<Endpoint> endpoints(URI api, BenchmarkDatabase database) {
+        int questions = database.getQuestions();
+        int answers   = database.getAnswers();
+        return Arrays.asList(
+            new Endpoint("latest", 25, (random, token) -> get(api.resolve("questions/latest"), token)),
+            new Endpoint("popular", 20, (random, token) -> get(api.resolve("questions/popular"), token)),
+            new Endpoint("search", 15, (random, token) -> get(api.resolve("questions?search=word" + (100 + random.nextInt(1000))), token)),
+            new Endpoint("answers", 25, (random, token) -> get(api.resolve("questions/" + (1 + random.nextInt(questions)) + "/answers"), token)),
+            new Endpoint("question vote", 10, (random, token) -> post(api.resolve("questions/" + (1 + random.nextInt(questions)) + vote(random)), token)),
+            new Endpoint("answer vote", 5, (random, token) -> post(api.resolve("answers/" + (1 + random.nextInt(answers)) + vote(random)), token)));
+    }
+
+    /**
+     * Sends requests at the given rate for the given duration, and waits for the last of them to be answered.
+     *
+     * @return the results per endpoint, in the order of the endpoints
+     */
+    Map<String, LatencyRecorder> run(int rate, Duration duration) throws InterruptedException {
+        Map<String, LatencyRecorder> results = new LinkedHashMap<>();
+        endpoints.forEach(endpoint -> results.put(endpoint.getName(), new LatencyRecorder()));
+
+        Semaphore inFlight = new Semaphore(concurrency);
+        long      interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long      start    = System.nanoTime();
+        long      end      = start + duration.toNanos();
+        for (long intended = start; intended < end; intended += interval) {
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Endpoint        endpoint = pick();
+            LatencyRecorder recorder = results.get(endpoint.getName());
+            if (!inFlight.tryAcquire()) {
+                recorder.dropped();
+                continue;
+            }
+            long sent = intended;
+            httpClient.sendAsync(endpoint.request(random, applicationTokens[random.nextInt(applicationTokens.length)]), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, throwable) -> {
+                    if (throwable != null || response.statusCode() >= 400) {
+                        recorder.error();
+                    } else {
+                        recorder.success(System.nanoTime() - sent);
+                    }
+                    inFlight.release();
+                });
+        }
+        inFlight.acquire(concurrency);
+        return results;
+    }
+
+    private Endpoint pick() {
+        int weight = random.nextInt(totalWeight);
+        for (Endpoint endpoint : endpoints) {
+            weight -= endpoint.getWeight();
+            if (weight < 0) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException("No endpoint for weight " + weight);
+    }
+
+    private static LatencyRecorder print(int rate, int seconds, Map<String, LatencyRecorder> results) {
+        System.out.printf("%n%d requests/s for %d seconds%n", rate, seconds);
+        System.out.printf("%-14s %9s %9s %8s %8s %9s %9s %9s%n", "endpoint", "ok", "req/s", "errors", "dropped", "p50 ms", "p99 ms", "p99.9 ms");
+        LatencyRecorder total = new LatencyRecorder();
+        for (Map.Entry<String, LatencyRecorder> result : results.entrySet()) {
+            print(result.getKey(), seconds, result.getValue());
+            result.getValue().addTo(total);
+        }
+        print("total", seconds, total);
+        return total;
+    }
+
+    private static void print(String name, int seconds, LatencyRecorder recorder) {
+        System.out.printf("%-14s %9d %9.1f %8d %8d %9.2f %9.2f %9.2f%n",
+            name,
+            recorder.getCount(),
+            (double)recorder.getCount() / seconds,
+            recorder.getErrors(),
+            recorder.getDropped(),
+            recorder.percentileMillis(50),
+            recorder.percentileMillis(99),
+            recorder.percentileMillis(99.9));
+    }
+
+    private static String vote(SplittableRandom random) {
+        return random.nextBoolean() ? "/upvote" : "/downvote";
+    }
+
+    private static HttpRequest get(URI uri, String applicationToken) {
+        return HttpRequest.newBuilder(uri)
+            .header("Cookie", APPLICATION + applicationToken)
+            .timeout(Duration.ofSeconds(10))
+            .GET()
+            .build();
+    }
+
+    private static HttpRequest post(URI uri, String applicationToken) {
+        return HttpRequest.newBuilder(uri)
+            .header("Cookie", APPLICATION + applicationToken)
+            .timeout(Duration.ofSeconds(10))
+            .POST(HttpRequest.BodyPublishers.noBody())
+            .build();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            return serverSocket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package datagen;
+
+import java.time.Instant;
+
+/**
+ * The shape of a generated dataset. Two datasets generated with the same configuration are identical.
+ */
+public class DatasetConfig {
+
+    /**
+     * Seed of all random choices
+     */
+    private long seed = 1;
+
+    /**
+     * Number of questions
+     */
+    private int questions = 100000;
+
+    /**
+     * Number of users, or 0 for one user per ten questions
+     */
+    private int users = 0;
+
+    /**
+     * Number of tags, or 0 for one tag per fifty questions
+     */
+    private int tags = 0;
+
+    /**
+     * Number of distinct words in questions and answers
+     */
+    private int vocabulary = 10000;
+
+    /**
+     * The most answers a question can get
+     */
+    private int maxAnswersPerQuestion = 20;
+
+    /**
+     * The most tags a question can have
+     */
+    private int maxTagsPerQuestion = 5;
+
+    /**
+     * The most votes a question or answer can get, limited by the number of users
+     */
+    private int maxVotesPerPost = 500;
+
+    /**
+     * How skewed votes, answers, tags, words and askers are, where larger is more skewed
+     */
+    private double zipfExponent = 1.1;
+
+    /**
+     * Share of answered questions that have an accepted answer
+     */
+    private double acceptedShare = 0.4;
+
+    /**
+     * Share of votes that are up votes
+     */
+    private double upVoteShare = 0.85;
+
+    /**
+     * Number of days the questions are spread over
+     */
+    private int days = 730;
+
+    /**
+     * When the newest question was asked. Fixed rather than now, so that the dataset does not depend
+     * on when it is generated.
+     */
+    private Instant end = Instant.parse("2020-01-01T00:00:00Z");
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getQuestions() {
+        return questions;
+    }
+
+    public void setQuestions(int questions) {
+        this.questions = questions;
+    }
+
+    public int getUsers() {
+        return users > 0 ? users : Math.max(100, questions / 10);
+    }
+
+    public void setUsers(int users) {
+        this.users = users;
+    }
+
+    public int getTags() {
+        return tags > 0 ? tags : Math.max(50, questions / 50);
+    }
+
+    public void setTags(int tags) {
+        this.tags = tags;
+    }
+
+    public int getVocabulary() {
+        return vocabulary;
+    }
+
+    public void setVocabulary(int vocabulary) {
+        this.vocabulary = vocabulary;
+    }
+
+    public int getMaxAnswersPerQuestion() {
+        return maxAnswersPerQuestion;
+    }
+
+    public void setMaxAnswersPerQuestion(int maxAnswersPerQuestion) {
+        this.maxAnswersPerQuestion = maxAnswersPerQuestion;
+    }
+
+    public int getMaxTagsPerQuestion() {
+        return maxTagsPerQuestion;
+    }
+
+    public void setMaxTagsPerQuestion(int maxTagsPerQuestion) {
+        this.maxTagsPerQuestion = maxTagsPerQuestion;
+    }
+
+    public int getMaxVotesPerPost() {
+        return maxVotesPerPost;
+    }
+
+    public void setMaxVotesPerPost(int maxVotesPerPost) {
+        this.maxVotesPerPost = maxVotesPerPost;
+    }
+
+    public double getZipfExponent() {
+        return zipfExponent;
+    }
+
+    public void setZipfExponent(double zipfExponent) {
+        this.zipfExponent = zipfExponent;
+    }
+
+    public double getAcceptedShare() {
+        return acceptedShare;
+    }
+
+    public void setAcceptedShare(double acceptedShare) {
+        this.acceptedShare = acceptedShare;
+    }
+
+    public double getUpVoteShare() {
+        return upVoteShare;
+    }
+
+    public void setUpVoteShare(double upVoteShare) {
+        this.upVoteShare = upVoteShare;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public void setDays(int days) {
+        this.days = days;
+    }
+
+    public Instant getEnd() {
+        return end;
+    }
+
+    public void setEnd(Instant end) {
+        this.end = end;
+    }
+}
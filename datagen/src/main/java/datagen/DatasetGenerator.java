@@ -0,0 +1,269 @@
+package datagen;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.SplittableRandom;
+
+/**
+ * Generates users, questions, answers, tags and votes shaped like those of a real site: a few users
+ * ask most questions, a few questions get most answers and votes, a few tags are on most questions and
+ * a few words make up most of the text. All of these follow a Zipf distribution.
+ *
+ * Every question, answer and set of votes is generated from a random generator seeded by the dataset
+ * seed and its own id, so the same configuration always generates the same rows, and a row can be
+ * generated again in a later pass without keeping earlier ones in memory.
+ *
+ * Ids start at 1 in every table. Users are named user&lt;id&gt;@example.com, tags tag&lt;id&gt;, the
+ * slack ids of questions and answers are question&lt;id&gt; and answer&lt;id&gt;, and the words beyond
+ * the common ones are word&lt;rank&gt;, where a lower rank is more frequent.
+ */
+public class DatasetGenerator {
+
+    private static final String[] COMMON_WORDS = {
+        "the", "how", "to", "in", "is", "a", "with", "java", "postgres", "query", "test", "build", "deploy",
+        "maven", "docker", "kubernetes", "slack", "error", "config", "service", "api", "index", "react",
+        "release", "version", "jenkins", "token", "database", "migration", "liquibase", "cache", "timeout"
+    };
+
+    private static final long QUESTION       = 1;
+    private static final long QUESTION_TEXT  = 2;
+    private static final long QUESTION_VOTES = 3;
+    private static final long ANSWER         = 4;
+    private static final long ANSWER_TEXT    = 5;
+    private static final long ANSWER_VOTES   = 6;
+
+    private static final Duration ANSWER_DELAY = Duration.ofDays(7);
+
+    private final DatasetConfig config;
+    private final int           users;
+    private final int           tags;
+    private final Instant       start;
+    private final long          questionSpacingMillis;
+    private final Zipf          askers;
+    private final Zipf          answerCounts;
+    private final Zipf          tagRanks;
+    private final Zipf          words;
+    private final Zipf          voteCounts;
+
+    public DatasetGenerator(DatasetConfig config) {
+        this.config = config;
+        this.users = config.getUsers();
+        this.tags = config.getTags();
+        this.start = config.getEnd().minus(Duration.ofDays(config.getDays()));
+        this.questionSpacingMillis = Math.max(1, Duration.ofDays(config.getDays()).toMillis() / config.getQuestions());
+        this.askers = new Zipf(users, config.getZipfExponent());
+        this.answerCounts = new Zipf(config.getMaxAnswersPerQuestion() + 1, config.getZipfExponent());
+        this.tagRanks = new Zipf(tags, config.getZipfExponent());
+        this.words = new Zipf(config.getVocabulary(), config.getZipfExponent());
+        this.voteCounts = new Zipf(Math.min(config.getMaxVotesPerPost(), users - 1) + 1, config.getZipfExponent());
+    }
+
+    /**
+     * Generates the whole dataset, writing the tables in an order that satisfies their foreign keys.
+     */
+    public void generate(RowSink sink) throws SQLException {
+        writeUsers(sink);
+        int[] tagUsages = writeQuestions(sink);
+        writeTags(sink, tagUsages);
+        writeQuestionTags(sink);
+        writeQuestionVotes(sink);
+        writeAnswers(sink);
+        writeAnswerVotes(sink);
+    }
+
+    private void writeUsers(RowSink sink) throws SQLException {
+        sink.begin("\"user\"", "id", "email", "name");
+        for (long userId = 1; userId <= users; userId++) {
+            sink.row(userId, "user" + userId + "@example.com", "User " + userId);
+        }
+        sink.end();
+    }
+
+    private int[] writeQuestions(RowSink sink) throws SQLException {
+        int[] tagUsages = new int[tags + 1];
+        sink.begin("question", "id", "title", "question", "bounty", "answer_accepted", "created_at", "user_id", "slack_id",
+            "votes", "answer_count", "accepted_at");
+        for (long questionId = 1; questionId <= config.getQuestions(); questionId++) {
+            QuestionPlan     question = new QuestionPlan(questionId);
+            SplittableRandom text     = random(QUESTION_TEXT, questionId);
+            for (int tagId : question.tagIds) {
+                tagUsages[tagId]++;
+            }
+            sink.row(questionId,
+                text(text, 4, 10) + "?",
+                text(text, 20, 80),
+                0,
+                question.acceptedAt != null,
+                question.createdAt,
+                question.userId,
+                "question" + questionId,
+                writeVotes(null, QUESTION_VOTES, questionId, question.userId, question.createdAt),
+                question.answers,
+                question.acceptedAt);
+        }
+        sink.end();
+        return tagUsages;
+    }
+
+    private void writeTags(RowSink sink, int[] tagUsages) throws SQLException {
+        sink.begin("tag", "id", "label", "usages");
+        for (int tagId = 1; tagId <= tags; tagId++) {
+            sink.row(tagId, "tag" + tagId, tagUsages[tagId]);
+        }
+        sink.end();
+    }
+
+    private void writeQuestionTags(RowSink sink) throws SQLException {
+        sink.begin("question_tag", "question_id", "tag_id");
+        for (long questionId = 1; questionId <= config.getQuestions(); questionId++) {
+            for (int tagId : new QuestionPlan(questionId).tagIds) {
+                sink.row(questionId, tagId);
+            }
+        }
+        sink.end();
+    }
+
+    private void writeQuestionVotes(RowSink sink) throws SQLException {
+        sink.begin("question_vote", "user_id", "question_id", "value", "created_at");
+        for (long questionId = 1; questionId <= config.getQuestions(); questionId++) {
+            QuestionPlan question = new QuestionPlan(questionId);
+            writeVotes(sink, QUESTION_VOTES, questionId, question.userId, question.createdAt);
+        }
+        sink.end();
+    }
+
+    private void writeAnswers(RowSink sink) throws SQLException {
+        sink.begin("answer", "id", "answer", "created_at", "question_id", "user_id", "slack_id", "accepted_at", "votes");
+        long answerId = 1;
+        for (long questionId = 1; questionId <= config.getQuestions(); questionId++) {
+            QuestionPlan question = new QuestionPlan(questionId);
+            for (int index = 0; index < question.answers; index++, answerId++) {
+                AnswerPlan answer = new AnswerPlan(answerId, question);
+                sink.row(answerId,
+                    text(random(ANSWER_TEXT, answerId), 10, 60),
+                    answer.createdAt,
+                    questionId,
+                    answer.userId,
+                    "answer" + answerId,
+                    index == question.acceptedAnswer ? question.acceptedAt : null,
+                    writeVotes(null, ANSWER_VOTES, answerId, answer.userId, answer.createdAt));
+            }
+        }
+        sink.end();
+    }
+
+    private void writeAnswerVotes(RowSink sink) throws SQLException {
+        sink.begin("answer_vote", "user_id", "answer_id", "value", "created_at");
+        long answerId = 1;
+        for (long questionId = 1; questionId <= config.getQuestions(); questionId++) {
+            QuestionPlan question = new QuestionPlan(questionId);
+            for (int index = 0; index < question.answers; index++, answerId++) {
+                AnswerPlan answer = new AnswerPlan(answerId, question);
+                writeVotes(sink, ANSWER_VOTES, answerId, answer.userId, answer.createdAt);
+            }
+        }
+        sink.end();
+    }
+
+    /**
+     * Generates the votes on a question or answer. The voters are consecutive users from a random one,
+     * so that no user votes twice on the same post, skipping the owner of the post.
+     *
+     * @param sink where to write the votes, or null to only sum them up
+     * @return the sum of the votes
+     */
+    private int writeVotes(RowSink sink, long kind, long postId, long ownerId, Instant createdAt) throws SQLException {
+        SplittableRandom random     = random(kind, postId);
+        int              count      = voteCounts.sample(random) - 1;
+        int              firstVoter = random.nextInt(users);
+        int              sum        = 0;
+        for (int index = 0; index < count; index++) {
+            long voterId = 1 + (firstVoter + index) % users;
+            int  value   = random.nextDouble() < config.getUpVoteShare() ? 1 : -1;
+            long delay   = random.nextLong(ANSWER_DELAY.toMillis());
+            if (voterId == ownerId) {
+                continue;
+            }
+            sum += value;
+            if (sink != null) {
+                sink.row(voterId, postId, value, createdAt.plusMillis(delay));
+            }
+        }
+        return sum;
+    }
+
+    private String text(SplittableRandom random, int minWords, int maxWords) {
+        int           count = minWords + random.nextInt(maxWords - minWords + 1);
+        StringBuilder text  = new StringBuilder();
+        for (int index = 0; index < count; index++) {
+            if (index > 0) {
+                text.append(' ');
+            }
+            int rank = words.sample(random);
+            text.append(rank <= COMMON_WORDS.length ? COMMON_WORDS[rank - 1] : "word" + rank);
+        }
+        return text.toString();
+    }
+
+    private SplittableRandom random(long kind, long id) {
+        return new SplittableRandom(config.getSeed() * 0x9E3779B97F4A7C15L + kind * 0xBF58476D1CE4E5B9L + id);
+    }
+
+    /**
+     * Everything about a question except its text and votes, cheap enough to generate in every pass.
+     */
+    private class QuestionPlan {
+        private final long    userId;
+        private final Instant createdAt;
+        private final int     answers;
+        private final int     acceptedAnswer;
+        private final Instant acceptedAt;
+        private final int[]   tagIds;
+
+        private QuestionPlan(long questionId) {
+            SplittableRandom random = random(QUESTION, questionId);
+            userId = askers.sample(random);
+            createdAt = start.plusMillis((questionId - 1) * questionSpacingMillis + random.nextLong(questionSpacingMillis));
+            answers = answerCounts.sample(random) - 1;
+            if (answers > 0 && random.nextDouble() < config.getAcceptedShare()) {
+                acceptedAnswer = random.nextInt(answers);
+                acceptedAt = createdAt.plus(ANSWER_DELAY).plusMillis(random.nextLong(ANSWER_DELAY.toMillis()));
+            } else {
+                acceptedAnswer = -1;
+                acceptedAt = null;
+            }
+            tagIds = new int[Math.min(tags, 1 + random.nextInt(config.getMaxTagsPerQuestion()))];
+            for (int index = 0; index < tagIds.length; index++) {
+                tagIds[index] = distinctTag(random, index);
+            }
+        }
+
+        private int distinctTag(SplittableRandom random, int count) {
+            while (true) {
+                int     tagId = tagRanks.sample(random);
+                boolean taken = false;
+                for (int index = 0; index < count; index++) {
+                    taken |= tagIds[index] == tagId;
+                }
+                if (!taken) {
+                    return tagId;
+                }
+            }
+        }
+    }
+
+    /**
+     * Everything about an answer except its text and votes.
+     */
+    private class AnswerPlan {
+        private final long    userId;
+        private final Instant createdAt;
+
+        private AnswerPlan(long answerId, QuestionPlan question) {
+            SplittableRandom random = random(ANSWER, answerId);
+            userId = askers.sample(random);
+            createdAt = question.createdAt.plusMillis(random.nextLong(ANSWER_DELAY.toMillis()));
+        }
+    }
+}
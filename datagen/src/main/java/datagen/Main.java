@@ -0,0 +1,33 @@
+package datagen;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+
+/**
+ * Loads a generated dataset into a database migrated by the application.
+ *
+ * Usage: java -jar datagen.jar &lt;jdbc url&gt; &lt;user&gt; &lt;password&gt; [questions] [seed]
+ */
+public class Main {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: java -jar datagen.jar <jdbc url> <user> <password> [questions] [seed]");
+            System.exit(1);
+        }
+        DatasetConfig config = new DatasetConfig();
+        if (args.length > 3) {
+            config.setQuestions(Integer.parseInt(args[3]));
+        }
+        if (args.length > 4) {
+            config.setSeed(Long.parseLong(args[4]));
+        }
+
+        long started = System.currentTimeMillis();
+        try (Connection connection = DriverManager.getConnection(args[0], args[1], args[2])) {
+            PostgresLoader.load(connection, config);
+        }
+        System.out.printf("Loaded %d questions with seed %d in %d seconds%n",
+            config.getQuestions(), config.getSeed(), (System.currentTimeMillis() - started) / 1000);
+    }
+}
@@ -0,0 +1,127 @@
+package datagen;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Bulk loads a generated dataset into a migrated and empty database with COPY, then fills in the
+ * columns derived from others and moves the id sequences past the loaded rows.
+ */
+public class PostgresLoader implements RowSink {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Connection    connection;
+    private final CopyManager   copyManager;
+    private final StringBuilder buffer = new StringBuilder(BUFFER_SIZE);
+    private       CopyIn        copyIn;
+
+    public PostgresLoader(Connection connection) throws SQLException {
+        this.connection = connection;
+        this.copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+    }
+
+    /**
+     * Generates the dataset of the given configuration and loads it.
+     */
+    public static void load(Connection connection, DatasetConfig config) throws SQLException {
+        PostgresLoader loader = new PostgresLoader(connection);
+        new DatasetGenerator(config).generate(loader);
+        loader.finish();
+    }
+
+    @Override
+    public void begin(String table, String... columns) throws SQLException {
+        copyIn = copyManager.copyIn("COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN");
+    }
+
+    @Override
+    public void row(Object... values) throws SQLException {
+        for (int index = 0; index < values.length; index++) {
+            if (index > 0) {
+                buffer.append('\t');
+            }
+            appendValue(values[index]);
+        }
+        buffer.append('\n');
+        if (buffer.length() >= BUFFER_SIZE) {
+            flush();
+        }
+    }
+
+    @Override
+    public void end() throws SQLException {
+        flush();
+        copyIn.endCopy();
+        copyIn = null;
+    }
+
+    /**
+     * Computes the search vectors, moves the id sequences past the loaded ids and updates the
+     * planner statistics.
+     */
+    public void finish() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("UPDATE question SET search_vector = " +
+                "setweight(to_tsvector('simple', COALESCE(title, '')), 'A') || " +
+                "setweight(to_tsvector('simple', COALESCE(question, '')), 'B')");
+            statement.execute("UPDATE answer SET search_vector = setweight(to_tsvector('simple', COALESCE(answer, '')), 'C')");
+            for (String table : new String[]{"\"user\"", "question", "answer", "tag"}) {
+                statement.execute("SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), " +
+                    "(SELECT COALESCE(MAX(id), 0) + 1 FROM " + table + "), false)");
+            }
+            statement.execute("VACUUM ANALYZE");
+        }
+    }
+
+    private void appendValue(Object value) {
+        if (value == null) {
+            buffer.append("\\N");
+        } else if (value instanceof Boolean) {
+            buffer.append((Boolean)value ? 't' : 'f');
+        } else if (value instanceof Instant || value instanceof Number) {
+            buffer.append(value);
+        } else {
+            appendText(value.toString());
+        }
+    }
+
+    /**
+     * Escapes text the way the text format of COPY expects it.
+     */
+    private void appendText(String text) {
+        for (int index = 0; index < text.length(); index++) {
+            char character = text.charAt(index);
+            switch (character) {
+                case '\\':
+                    buffer.append("\\\\");
+                    break;
+                case '\t':
+                    buffer.append("\\t");
+                    break;
+                case '\n':
+                    buffer.append("\\n");
+                    break;
+                case '\r':
+                    buffer.append("\\r");
+                    break;
+                default:
+                    buffer.append(character);
+            }
+        }
+    }
+
+    private void flush() throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+}
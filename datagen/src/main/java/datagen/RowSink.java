@@ -0,0 +1,24 @@
+package datagen;
+
+import java.sql.SQLException;
+
+/**
+ * Receives the generated rows, one table at a time.
+ */
+public interface RowSink {
+
+    /**
+     * Starts the rows of a table. Every following row has a value per column, in this order.
+     */
+    void begin(String table, String... columns) throws SQLException;
+
+    /**
+     * @param values the values of the row, where null is SQL NULL
+     */
+    void row(Object... values) throws SQLException;
+
+    /**
+     * Ends the rows of the table begun last.
+     */
+    void end() throws SQLException;
+}
@@ -0,0 +1,130 @@
+package datagen;
+
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DatasetGeneratorTest {
+
+    @Test
+    public void shouldGenerateTheSameRowsFromTheSameSeed() throws SQLException {
+        assertThat(generate(config(7)).tables).isEqualTo(generate(config(7)).tables);
+    }
+
+    @Test
+    public void shouldGenerateOtherRowsFromAnotherSeed() throws SQLException {
+        assertThat(generate(config(7)).tables.get("question")).isNotEqualTo(generate(config(8)).tables.get("question"));
+    }
+
+    @Test
+    public void shouldWriteTablesInForeignKeyOrder() throws SQLException {
+        assertThat(generate(config(1)).tables.keySet())
+            .containsExactly("\"user\"", "question", "tag", "question_tag", "question_vote", "answer", "answer_vote");
+    }
+
+    @Test
+    public void shouldKeepDenormalizedCountersConsistent() throws SQLException {
+        MemorySink sink = generate(config(1));
+
+        Map<Object, Integer> questionVotes = sum(sink.tables.get("question_vote"), 1, 2);
+        Map<Object, Integer> answerCounts  = count(sink.tables.get("answer"), 3);
+        for (List<Object> question : sink.tables.get("question")) {
+            assertThat(question.get(8)).isEqualTo(questionVotes.getOrDefault(question.get(0), 0));
+            assertThat(question.get(9)).isEqualTo(answerCounts.getOrDefault(question.get(0), 0));
+        }
+
+        Map<Object, Integer> answerVotes = sum(sink.tables.get("answer_vote"), 1, 2);
+        for (List<Object> answer : sink.tables.get("answer")) {
+            assertThat(answer.get(7)).isEqualTo(answerVotes.getOrDefault(answer.get(0), 0));
+        }
+
+        Map<Object, Integer> tagUsages = count(sink.tables.get("question_tag"), 1);
+        for (List<Object> tag : sink.tables.get("tag")) {
+            assertThat(tag.get(2)).isEqualTo(tagUsages.getOrDefault(tag.get(0), 0));
+        }
+    }
+
+    @Test
+    public void shouldNotLetUsersVoteTwiceOrOnTheirOwnPosts() throws SQLException {
+        MemorySink sink = generate(config(1));
+
+        Map<Object, Object> questionOwners = owners(sink.tables.get("question"), 6);
+        Set<List<Object>>   voters         = new HashSet<>();
+        for (List<Object> vote : sink.tables.get("question_vote")) {
+            assertThat(voters.add(vote.subList(0, 2))).isTrue();
+            assertThat(vote.get(0)).isNotEqualTo(questionOwners.get(vote.get(1)));
+        }
+    }
+
+    @Test
+    public void shouldSkewVotesTowardsFewQuestions() throws SQLException {
+        List<Integer> votes = new ArrayList<>();
+        count(generate(config(1)).tables.get("question_vote"), 1).values().forEach(votes::add);
+        votes.sort(null);
+
+        int top = votes.subList(votes.size() * 9 / 10, votes.size()).stream().mapToInt(Integer::intValue).sum();
+        int all = votes.stream().mapToInt(Integer::intValue).sum();
+        assertThat(top).isGreaterThan(all / 3);
+    }
+
+    private static DatasetConfig config(long seed) {
+        DatasetConfig config = new DatasetConfig();
+        config.setSeed(seed);
+        config.setQuestions(2000);
+        return config;
+    }
+
+    private static MemorySink generate(DatasetConfig config) throws SQLException {
+        MemorySink sink = new MemorySink();
+        new DatasetGenerator(config).generate(sink);
+        return sink;
+    }
+
+    private static Map<Object, Integer> sum(List<List<Object>> rows, int key, int value) {
+        Map<Object, Integer> sums = new HashMap<>();
+        rows.forEach(row -> sums.merge(row.get(key), (Integer)row.get(value), Integer::sum));
+        return sums;
+    }
+
+    private static Map<Object, Integer> count(List<List<Object>> rows, int key) {
+        Map<Object, Integer> counts = new HashMap<>();
+        rows.forEach(row -> counts.merge(row.get(key), 1, Integer::sum));
+        return counts;
+    }
+
+    private static Map<Object, Object> owners(List<List<Object>> rows, int owner) {
+        Map<Object, Object> owners = new HashMap<>();
+        rows.forEach(row -> owners.put(row.get(0), row.get(owner)));
+        return owners;
+    }
+
+    private static class MemorySink implements RowSink {
+        private final Map<String, List<List<Object>>> tables = new java.util.LinkedHashMap<>();
+        private       List<List<Object>>              rows;
+
+        @Override
+        public void begin(String table, String... columns) {
+            rows = new ArrayList<>();
+            tables.put(table, rows);
+        }
+
+        @Override
+        public void row(Object... values) {
+            rows.add(Arrays.asList(values));
+        }
+
+        @Override
+        public void end() {
+            rows = null;
+        }
+    }
+}
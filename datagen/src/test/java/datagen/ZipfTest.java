@@ -0,0 +1,55 @@
+package datagen;
+
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.within;
+
+public class ZipfTest {
+
+    @Test
+    public void shouldSampleRanksWithinBounds() {
+        Zipf             zipf   = new Zipf(10, 1.1);
+        SplittableRandom random = new SplittableRandom(1);
+
+        for (int i = 0; i < 10000; i++) {
+            assertThat(zipf.sample(random)).isBetween(1, 10);
+        }
+    }
+
+    @Test
+    public void shouldSampleLowRanksMostOften() {
+        Zipf             zipf   = new Zipf(1000, 1.0);
+        SplittableRandom random = new SplittableRandom(1);
+        int[]            counts = new int[1001];
+
+        for (int i = 0; i < 100000; i++) {
+            counts[zipf.sample(random)]++;
+        }
+
+        // with exponent 1, rank 1 is drawn twice as often as rank 2 and ten times as often as rank 10
+        assertThat((double)counts[1] / counts[2]).isCloseTo(2, within(0.2));
+        assertThat((double)counts[1] / counts[10]).isCloseTo(10, within(1.5));
+        assertThat(counts[1]).isGreaterThan(counts[100] * 50);
+    }
+
+    @Test
+    public void shouldSampleTheSameRanksFromTheSameSeed() {
+        Zipf             zipf   = new Zipf(100000, 1.1);
+        SplittableRandom first  = new SplittableRandom(42);
+        SplittableRandom second = new SplittableRandom(42);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(zipf.sample(first)).isEqualTo(zipf.sample(second));
+        }
+    }
+
+    @Test
+    public void shouldRejectInvalidParameters() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new Zipf(0, 1.1));
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new Zipf(10, 0));
+    }
+}
@@ -25,19 +25,30 @@ public class JwtAuthResolver {
 
 	private final DateProvider             dateProvider;
 	private final ApplicationTokenVerifier applicationTokenVerifier;
+	private final VerifiedTokenCache       verifiedTokenCache;
 
 	@Inject
-	public JwtAuthResolver(DateProvider dateProvider, ApplicationTokenVerifier applicationTokenVerifier) {
+	public JwtAuthResolver(DateProvider dateProvider, ApplicationTokenVerifier applicationTokenVerifier, VerifiedTokenCache verifiedTokenCache) {
 		this.dateProvider = dateProvider;
 		this.applicationTokenVerifier = applicationTokenVerifier;
+		this.verifiedTokenCache = verifiedTokenCache;
 	}
 
 	/**
-	 * Returns a auth instance from a jwt.
+	 * Returns a auth instance from a jwt. Tokens verified before are resolved from the {@link VerifiedTokenCache}.
 	 *
 	 * @return auth for the given user.
 	 */
 	public Auth getAuth(String rawApplicationJwt) {
+		return verifiedTokenCache.get(rawApplicationJwt, () -> verify(rawApplicationJwt));
+	}
+
+	/**
+	 * Verifies and decodes a jwt.
+	 *
+	 * @return auth for the given user.
+	 */
+	private Auth verify(String rawApplicationJwt) {
 		final DecodedJWT applicationTokenJwt;
 
 		try {
@@ -0,0 +1,96 @@
+package auth;
+
+import api.auth.Auth;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.function.Supplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Caches the users of application tokens that have been verified, so that a token presented again
+ * is resolved by a lookup instead of being verified and decoded again.
+ *
+ * Tokens are cached by their SHA-256 digest, so the tokens themselves are not kept in memory, and
+ * looking a token up compares digests and never the token with a cached one. A token is no longer
+ * served once it has expired. Only tokens that have been verified are cached.
+ */
+@Singleton
+public class VerifiedTokenCache {
+
+    private final VerifiedTokenCacheConfig config;
+    private final ClockProvider            clockProvider;
+    private final Cache<String, Auth>      users;
+
+    @Inject
+    public VerifiedTokenCache(VerifiedTokenCacheConfig config, ClockProvider clockProvider) {
+        this.config = config;
+        this.clockProvider = clockProvider;
+        this.users = CacheBuilder.newBuilder()
+            .maximumSize(config.getMaxEntries())
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Returns the user of a cached token, or verifies the token and caches its user.
+     *
+     * @param token    the raw application token
+     * @param verifier verifies the token and resolves its user, or throws if the token is not valid
+     * @return the user of the token
+     */
+    public Auth get(String token, Supplier<Auth> verifier) {
+        if (!config.isEnabled()) {
+            return verifier.get();
+        }
+        String digest = digestOf(token);
+        Auth   cached = users.getIfPresent(digest);
+        if (cached != null) {
+            if (!hasExpired(cached)) {
+                return copyOf(cached);
+            }
+            users.invalidate(digest);
+        }
+        Auth auth = verifier.get();
+        if (!hasExpired(auth)) {
+            users.put(digest, copyOf(auth));
+        }
+        return auth;
+    }
+
+    public CacheStats getStats() {
+        return users.stats();
+    }
+
+    private boolean hasExpired(Auth auth) {
+        return auth.getExpires().toInstant().toEpochMilli() <= clockProvider.getClock().getToday().getTime();
+    }
+
+    private static String digestOf(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * Callers get a copy of a cached user, since {@link Auth} can be modified.
+     */
+    private static Auth copyOf(Auth auth) {
+        Auth copy = new Auth(auth.getUserId());
+        copy.setEmail(auth.getEmail());
+        copy.setName(auth.getName());
+        copy.setExpires(auth.getExpires());
+        copy.setPicture(auth.getPicture());
+        return copy;
+    }
+}
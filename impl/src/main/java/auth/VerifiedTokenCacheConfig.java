@@ -0,0 +1,33 @@
+package auth;
+
+import se.fortnox.reactivewizard.config.Config;
+
+@Config("verifiedTokenCache")
+public class VerifiedTokenCacheConfig {
+
+    /**
+     * Whether verified application tokens are cached, or verified on every request
+     */
+    private boolean enabled = true;
+
+    /**
+     * The most tokens kept, which is roughly the number of users signed in at the same time
+     */
+    private long maxEntries = 10000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(long maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+}
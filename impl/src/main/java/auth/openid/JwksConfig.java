@@ -0,0 +1,62 @@
+package auth.openid;
+
+import se.fortnox.reactivewizard.config.Config;
+
+@Config("jwks")
+public class JwksConfig {
+
+    /**
+     * How long fetched keys are used before they are fetched again, when the provider does not say
+     * with a Cache-Control max-age
+     */
+    private long defaultMaxAgeSeconds = 3600;
+
+    /**
+     * The shortest time between two fetches, which limits how often a token signed by an unknown key
+     * can make the keys be fetched again
+     */
+    private long minRefetchIntervalSeconds = 30;
+
+    /**
+     * The time after a failed fetch until the keys are fetched again, while the keys fetched before
+     * are still used
+     */
+    private long retryDelaySeconds = 30;
+
+    /**
+     * The longest time to wait for the provider to answer
+     */
+    private long timeoutSeconds = 5;
+
+    public long getDefaultMaxAgeSeconds() {
+        return defaultMaxAgeSeconds;
+    }
+
+    public void setDefaultMaxAgeSeconds(long defaultMaxAgeSeconds) {
+        this.defaultMaxAgeSeconds = defaultMaxAgeSeconds;
+    }
+
+    public long getMinRefetchIntervalSeconds() {
+        return minRefetchIntervalSeconds;
+    }
+
+    public void setMinRefetchIntervalSeconds(long minRefetchIntervalSeconds) {
+        this.minRefetchIntervalSeconds = minRefetchIntervalSeconds;
+    }
+
+    public long getRetryDelaySeconds() {
+        return retryDelaySeconds;
+    }
+
+    public void setRetryDelaySeconds(long retryDelaySeconds) {
+        this.retryDelaySeconds = retryDelaySeconds;
+    }
+
+    public long getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public void setTimeoutSeconds(long timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+}
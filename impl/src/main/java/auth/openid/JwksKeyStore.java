@@ -0,0 +1,222 @@
+package auth.openid;
+
+import auth.Jwk;
+import auth.JwkResponse;
+import com.auth0.jwk.InvalidPublicKeyException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.Subscription;
+import rx.schedulers.Schedulers;
+import se.fortnox.reactivewizard.jaxrs.WebException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.Collections.emptyMap;
+import static rx.Observable.defer;
+import static rx.Observable.error;
+import static rx.Observable.fromCallable;
+import static rx.Observable.just;
+
+/**
+ * Keeps the public keys of the OpenID provider in memory, parsed and by key id ( kid ), so that a
+ * sign-in does not wait for the provider.
+ *
+ * The keys are fetched on first use, and then again in the background once they are as old as the
+ * max-age of the Cache-Control header the provider sent them with. A token signed by an unknown key
+ * makes the keys be fetched again at once, since the provider may have rotated its keys, but no more
+ * often than the configured interval. When a fetch fails the keys fetched before are still used and
+ * the fetch is retried after a delay, so that sign-in keeps working while the provider is down.
+ */
+@Singleton
+public class JwksKeyStore {
+
+    private static final Logger  LOG               = LoggerFactory.getLogger(JwksKeyStore.class);
+    private static final Pattern MAX_AGE           = Pattern.compile("(?:^|,)\\s*max-age\\s*=\\s*(\\d+)", Pattern.CASE_INSENSITIVE);
+    private static final String  CACHE_CONTROL     = "Cache-Control";
+    static final         String  JWK_KEY_NOT_FOUND = "jwk.key.not.found";
+
+    private final    JwksConfig                config;
+    private final    OpenIdConfiguration       openIdConfiguration;
+    private final    ObjectMapper              objectMapper;
+    private final    HttpClient                httpClient;
+    private volatile Map<String, RSAPublicKey> keys = emptyMap();
+    private volatile long                      lastFetchMillis;
+    private          Observable<Fetched>       fetching;
+    private          Subscription              scheduledRefresh;
+
+    @Inject
+    public JwksKeyStore(JwksConfig config, OpenIdConfiguration openIdConfiguration, ObjectMapper objectMapper) {
+        this.config = config;
+        this.openIdConfiguration = openIdConfiguration;
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(config.getTimeoutSeconds()))
+            .build();
+    }
+
+    /**
+     * Returns the public key with the given id, fetching the keys again if it is not known.
+     *
+     * @param keyId the id of the key ( kid ) that signed a token
+     * @return the key, or an UNAUTHORIZED error if the provider has no such key
+     */
+    public Observable<RSAPublicKey> getKey(String keyId) {
+        return defer(() -> {
+            RSAPublicKey key = keys.get(keyId);
+            if (key != null) {
+                return just(key);
+            }
+            Observable<Map<String, RSAPublicKey>> refetched = refetch();
+            if (refetched == null) {
+                return error(new WebException(HttpResponseStatus.UNAUTHORIZED, JWK_KEY_NOT_FOUND));
+            }
+            return refetched.concatMap(fetchedKeys -> fetchedKeys.containsKey(keyId)
+                ? just(fetchedKeys.get(keyId))
+                : error(new WebException(HttpResponseStatus.UNAUTHORIZED, JWK_KEY_NOT_FOUND)));
+        });
+    }
+
+    /**
+     * @return the ids of the keys fetched last
+     */
+    Set<String> getKeyIds() {
+        return keys.keySet();
+    }
+
+    /**
+     * Fetches the keys, unless they are being fetched already.
+     *
+     * @return the fetched keys
+     */
+    synchronized Observable<Map<String, RSAPublicKey>> refresh() {
+        if (fetching == null) {
+            lastFetchMillis = System.currentTimeMillis();
+            fetching = fetch().cache();
+            fetching.subscribe(this::fetched, this::failed);
+        }
+        return fetching.map(fetched -> fetched.keys);
+    }
+
+    /**
+     * @return the keys being fetched, or fetched anew if the last fetch was long enough ago, or null
+     * if the keys may not be fetched yet
+     */
+    private synchronized Observable<Map<String, RSAPublicKey>> refetch() {
+        if (fetching == null && System.currentTimeMillis() - lastFetchMillis < TimeUnit.SECONDS.toMillis(config.getMinRefetchIntervalSeconds())) {
+            return null;
+        }
+        return refresh();
+    }
+
+    private synchronized void fetched(Fetched fetched) {
+        keys = fetched.keys;
+        fetching = null;
+        scheduleRefresh(Math.max(fetched.maxAgeSeconds, config.getMinRefetchIntervalSeconds()));
+    }
+
+    private synchronized void failed(Throwable throwable) {
+        LOG.warn("Failed to fetch the keys of the OpenID provider, using the {} keys fetched before", keys.size(), throwable);
+        fetching = null;
+        scheduleRefresh(config.getRetryDelaySeconds());
+    }
+
+    private void scheduleRefresh(long delaySeconds) {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.unsubscribe();
+        }
+        scheduledRefresh = Observable.timer(delaySeconds, TimeUnit.SECONDS)
+            .subscribe(tick -> refresh());
+    }
+
+    private Observable<Fetched> fetch() {
+        return fromCallable(() -> {
+            URI uri = URI.create(openIdConfiguration.getJwksUri());
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(config.getTimeoutSeconds()))
+                .GET()
+                .build();
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != HttpResponseStatus.OK.code()) {
+                throw new IOException("Unexpected status " + response.statusCode() + " from " + uri);
+            }
+            JwkResponse jwks = objectMapper.readValue(response.body(), JwkResponse.class);
+            return new Fetched(publicKeysOf(jwks), maxAgeOf(response.headers().firstValue(CACHE_CONTROL).orElse(null)));
+        }).subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * @return the max-age of a Cache-Control header, or the configured default if it has none
+     */
+    long maxAgeOf(String cacheControl) {
+        if (cacheControl != null) {
+            Matcher matcher = MAX_AGE.matcher(cacheControl);
+            if (matcher.find()) {
+                return Long.parseLong(matcher.group(1));
+            }
+        }
+        return config.getDefaultMaxAgeSeconds();
+    }
+
+    private static Map<String, RSAPublicKey> publicKeysOf(JwkResponse response) {
+        Map<String, RSAPublicKey> publicKeys = new HashMap<>();
+        if (response.getKeys() == null) {
+            return publicKeys;
+        }
+        for (Jwk jwk : response.getKeys()) {
+            try {
+                publicKeys.put(jwk.getId(), publicKeyOf(jwk));
+            } catch (InvalidPublicKeyException e) {
+                LOG.warn("Ignoring the key {} of the OpenID provider", jwk.getId(), e);
+            }
+        }
+        return publicKeys;
+    }
+
+    /**
+     * Parses a key of the provider. Only RSA keys are supported.
+     */
+    static RSAPublicKey publicKeyOf(Jwk jwk) throws InvalidPublicKeyException {
+        PublicKey publicKey = new com.auth0.jwk.Jwk(
+            jwk.getId(),
+            jwk.getType(),
+            jwk.getAlgorithm(),
+            jwk.getUsage(),
+            jwk.getOperations(),
+            jwk.getCertificateUrl(),
+            jwk.getCertificateChain(),
+            jwk.getCertificateThumbprint(),
+            jwk.getAdditionalAttributes()).getPublicKey();
+        if (!(publicKey instanceof RSAPublicKey)) {
+            throw new InvalidPublicKeyException("The key is not of type RSA");
+        }
+        return (RSAPublicKey)publicKey;
+    }
+
+    private static class Fetched {
+        private final Map<String, RSAPublicKey> keys;
+        private final long                      maxAgeSeconds;
+
+        private Fetched(Map<String, RSAPublicKey> keys, long maxAgeSeconds) {
+            this.keys = keys;
+            this.maxAgeSeconds = maxAgeSeconds;
+        }
+    }
+}
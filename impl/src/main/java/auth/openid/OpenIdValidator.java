@@ -1,10 +1,6 @@
 package auth.openid;
 
 import auth.ClockProvider;
-import auth.JwkResource;
-import auth.JwkResponse;
-import com.auth0.jwk.InvalidPublicKeyException;
-import com.auth0.jwk.Jwk;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
@@ -18,17 +14,13 @@ import se.fortnox.reactivewizard.jaxrs.WebException;
 
 import javax.validation.constraints.NotNull;
 import java.security.interfaces.RSAPublicKey;
-import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import static auth.openid.OpenIdClaims.*;
-import static rx.Observable.just;
 import static se.fortnox.reactivewizard.util.rx.RxUtils.exception;
 
 /**
  * Validates openIds. A jwk endpoint must be provided in the @{@link OpenIdConfiguration}
- * so that the validation can be performed.
+ * so that the validation can be performed. The keys are kept by the {@link JwksKeyStore}.
  *
  * Only SHA256withRSA ( specified as RS256 in jwt) is supported.
  *
@@ -40,13 +32,13 @@ public class OpenIdValidator {
     private static final Logger LOG = LoggerFactory.getLogger(OpenIdValidator.class);
     private static final long LEEWAY_SECONDS = 60;
 
-    private final JwkResource         jwkResource;
+    private final JwksKeyStore        jwksKeyStore;
     private final OpenIdConfiguration openIdConfiguration;
     private final ClockProvider       clockProvider;
 
     @Inject
-    public OpenIdValidator(OpenIdConfiguration openIdConfiguration, JwkResource jwkResource, ClockProvider clockProvider) {
-        this.jwkResource = jwkResource;
+    public OpenIdValidator(OpenIdConfiguration openIdConfiguration, JwksKeyStore jwksKeyStore, ClockProvider clockProvider) {
+        this.jwksKeyStore = jwksKeyStore;
         this.openIdConfiguration = openIdConfiguration;
         this.clockProvider = clockProvider;
     }
@@ -81,11 +73,7 @@ public class OpenIdValidator {
     private Observable<DecodedJWT> verify(String token) {
         final String issuer = openIdConfiguration.getIssuer();
         final String keyId = JWT.decode(token).getKeyId();
-        return jwkResource.getJWks()
-                .doOnError(e -> LOG.error("failed to get jwks to verify token", e))
-                .map(OpenIdValidator::getJwksOrderedById)
-                .doOnError(e -> LOG.error("failed to order jwks", e))
-                .flatMap(jwksById -> getPublicKeyByKeyId(keyId, jwksById))
+        return jwksKeyStore.getKey(keyId)
                 .doOnError(e -> LOG.info("failed to get jwk by kid", e))
                 .map(publicKey -> getJwtVerifier(issuer, publicKey))
                 .doOnError(e -> LOG.info("failed to create jwt verifier", e))
@@ -101,33 +89,4 @@ public class OpenIdValidator {
                 .acceptLeeway(LEEWAY_SECONDS);
         return verification.build(clockProvider.getClock());
     }
-
-    /**
-     * constructs a map where the key is the id ( kid ) of the jwt.
-     */
-    private static Map<String, Jwk> getJwksOrderedById(JwkResponse response) {
-        return response.getKeys().stream()
-                .map(jwk -> new Jwk(
-                        jwk.getId(),
-                        jwk.getType(),
-                        jwk.getAlgorithm(),
-                        jwk.getUsage(),
-                        jwk.getOperations(),
-                        jwk.getCertificateUrl(),
-                        jwk.getCertificateChain(),
-                        jwk.getCertificateThumbprint(),
-                        jwk.getAdditionalAttributes()))
-                .collect(Collectors.toMap(Jwk::getId, Function.identity()));
-    }
-
-    private static Observable<RSAPublicKey> getPublicKeyByKeyId(String keyId, Map<String, Jwk> jwksById) {
-        try {
-            if (!jwksById.containsKey(keyId)) {
-                return Observable.error(new WebException(HttpResponseStatus.UNAUTHORIZED, "jwk.key.not.found"));
-            }
-            return just((RSAPublicKey) jwksById.get(keyId).getPublicKey());
-        } catch (InvalidPublicKeyException e) {
-            return Observable.error(new WebException(HttpResponseStatus.UNAUTHORIZED, e));
-        }
-    }
 }
@@ -0,0 +1,199 @@
+package cache;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import dao.InvalidationDao;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.functions.Action1;
+import se.fortnox.reactivewizard.db.config.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells the in-memory caches of every replica that entities has changed, using Postgres LISTEN/NOTIFY.
+ *
+ * A published change is handled by the subscribers of this replica directly and sent to the other
+ * replicas as a notification, which their subscribers handle as soon as it is received. Notifications
+ * sent while a replica is not listening are lost, so every subscriber is told that everything may have
+ * changed when a replica starts listening again after losing its connection.
+ */
+@Singleton
+public class InvalidationBus {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InvalidationBus.class);
+
+    static final String CHANNEL = "rocket_fuel_invalidation";
+
+    private static final String ALL                 = "*";
+    private static final String SEPARATOR           = " ";
+    private static final int    POLL_TIMEOUT_MILLIS = 10000;
+
+    /**
+     * The kinds of entities that can change
+     */
+    public enum Topic {
+        /**
+         * A question, including its votes, tags and answers
+         */
+        QUESTION,
+        /**
+         * The votes of a question, when nothing else of it has changed
+         */
+        VOTE,
+        /**
+         * The set of tags or their usages
+         */
+        TAG
+    }
+
+    private final    InvalidationBusConfig           config;
+    private final    DatabaseConfig                  databaseConfig;
+    private final    InvalidationDao                 invalidationDao;
+    private final    String                          instanceId  = UUID.randomUUID().toString();
+    private final    Map<Topic, List<Action1<Long>>> subscribers = new ConcurrentHashMap<>();
+    private volatile boolean                         running;
+    private volatile boolean                         listening;
+
+    @Inject
+    public InvalidationBus(InvalidationBusConfig config, DatabaseConfig databaseConfig, InvalidationDao invalidationDao) {
+        this.config = config;
+        this.databaseConfig = databaseConfig;
+        this.invalidationDao = invalidationDao;
+
+        if (config.isEnabled()) {
+            running = true;
+            Thread listener = new Thread(this::listen, "invalidation-bus");
+            listener.setDaemon(true);
+            listener.start();
+        }
+    }
+
+    /**
+     * Registers a subscriber for changes of the given topic.
+     *
+     * @param topic      the kind of entities to subscribe to
+     * @param subscriber called with the id of the changed entity, or with null when any entity may have changed
+     */
+    public void subscribe(Topic topic, Action1<Long> subscriber) {
+        subscribers.computeIfAbsent(topic, key -> new CopyOnWriteArrayList<>()).add(subscriber);
+    }
+
+    /**
+     * Publishes that an entity has changed, to be called once the change has been committed.
+     *
+     * @param topic the kind of entity that changed
+     * @param id    the id of the entity, or null if any entity may have changed
+     */
+    public void publish(Topic topic, Long id) {
+        dispatch(topic, id);
+
+        if (!config.isEnabled()) {
+            return;
+        }
+        String payload = String.join(SEPARATOR, instanceId, topic.name(), id == null ? ALL : id.toString());
+        invalidationDao.sendNotification(CHANNEL, payload)
+            .subscribe(sent -> {}, throwable -> LOG.warn("Failed to publish invalidation " + payload, throwable));
+    }
+
+    /**
+     * @return true when notifications from other replicas are being received
+     */
+    public boolean isListening() {
+        return listening;
+    }
+
+    /**
+     * Stops receiving notifications from other replicas.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    void received(String payload) {
+        String[] parts = payload.split(SEPARATOR);
+        if (parts.length != 3) {
+            LOG.warn("Ignoring malformed invalidation {}", payload);
+            return;
+        }
+        if (parts[0].equals(instanceId)) {
+            return;
+        }
+        try {
+            dispatch(Topic.valueOf(parts[1]), ALL.equals(parts[2]) ? null : Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Ignoring unknown invalidation {}", payload);
+        }
+    }
+
+    private void dispatch(Topic topic, Long id) {
+        for (Action1<Long> subscriber : subscribers.getOrDefault(topic, List.of())) {
+            try {
+                subscriber.call(id);
+            } catch (RuntimeException e) {
+                LOG.error("Failed to invalidate " + topic + " " + id, e);
+            }
+        }
+    }
+
+    private void dispatchAll() {
+        for (Topic topic : Topic.values()) {
+            dispatch(topic, null);
+        }
+    }
+
+    private void listen() {
+        boolean listenedBefore = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(databaseConfig.getUrl(), databaseConfig.getUser(), databaseConfig.getPassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                listening = true;
+                if (listenedBefore) {
+                    // changes may have been missed while reconnecting
+                    dispatchAll();
+                }
+                listenedBefore = true;
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            received(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                LOG.warn("Lost connection for receiving invalidations, listening again in " + config.getReconnectDelaySeconds() + " seconds", e);
+            } finally {
+                listening = false;
+            }
+            sleepBeforeReconnecting();
+        }
+    }
+
+    private void sleepBeforeReconnecting() {
+        if (!running) {
+            return;
+        }
+        try {
+            TimeUnit.SECONDS.sleep(config.getReconnectDelaySeconds());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package cache;
+
+import se.fortnox.reactivewizard.config.Config;
+
+@Config("invalidationBus")
+public class InvalidationBusConfig {
+
+    /**
+     * Defines if invalidations should be sent to and received from other replicas
+     */
+    private boolean enabled = true;
+
+    /**
+     * The time to wait before listening again when the connection to the database has been lost
+     */
+    private long reconnectDelaySeconds = 5;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getReconnectDelaySeconds() {
+        return reconnectDelaySeconds;
+    }
+
+    public void setReconnectDelaySeconds(long reconnectDelaySeconds) {
+        this.reconnectDelaySeconds = reconnectDelaySeconds;
+    }
+}
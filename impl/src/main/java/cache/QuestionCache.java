@@ -0,0 +1,112 @@
+package cache;
+
+import api.Question;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import rx.Observable;
+import rx.functions.Action1;
+import rx.functions.Func0;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static cache.InvalidationBus.Topic.QUESTION;
+import static cache.InvalidationBus.Topic.VOTE;
+import static rx.Observable.defer;
+import static rx.Observable.just;
+
+/**
+ * Caches questions fetched by id. Cached questions are shared between callers and must not be modified.
+ *
+ * A question is evicted when it has been cached for the configured time or when a change of it is
+ * published on the {@link InvalidationBus}, which should be done whenever the question, its votes or
+ * its tags has changed.
+ */
+@Singleton
+public class QuestionCache {
+
+    /**
+     * The weight of a question, on top of the length of its texts
+     */
+    private static final int BASE_WEIGHT = 200;
+
+    private final QuestionCacheConfig   config;
+    private final Cache<Long, Question> questions;
+    private final AtomicLong            generation = new AtomicLong();
+
+    @Inject
+    public QuestionCache(QuestionCacheConfig config, InvalidationBus invalidationBus) {
+        this.config = config;
+        this.questions = CacheBuilder.newBuilder()
+            .expireAfterWrite(config.getExpireAfterWriteSeconds(), TimeUnit.SECONDS)
+            .maximumWeight(config.getMaxWeight())
+            .weigher((Long questionId, Question question) -> weightOf(question))
+            .recordStats()
+            .build();
+
+        Action1<Long> invalidator = questionId -> {
+            if (questionId == null) {
+                invalidateAll();
+            } else {
+                invalidate(questionId);
+            }
+        };
+        invalidationBus.subscribe(QUESTION, invalidator);
+        invalidationBus.subscribe(VOTE, invalidator);
+    }
+
+    /**
+     * Returns the cached question, or loads and caches it if it is not cached.
+     *
+     * @param questionId the id of the question
+     * @param loader     loads the question from the database
+     * @return the question, or empty if it does not exist
+     */
+    public Observable<Question> get(long questionId, Func0<Observable<Question>> loader) {
+        if (!config.isEnabled()) {
+            return loader.call();
+        }
+        return defer(() -> {
+            Question cached = questions.getIfPresent(questionId);
+            if (cached != null) {
+                return just(cached);
+            }
+            // a question loaded while it was invalidated may already be outdated, and is not cached
+            long loadedGeneration = generation.get();
+            return loader.call()
+                .doOnNext(question -> {
+                    if (generation.get() == loadedGeneration) {
+                        questions.put(questionId, question);
+                    }
+                });
+        });
+    }
+
+    public void invalidate(long questionId) {
+        generation.incrementAndGet();
+        questions.invalidate(questionId);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        questions.invalidateAll();
+    }
+
+    /**
+     * @return the hits, misses and evictions of the cache
+     */
+    public CacheStats getStats() {
+        return questions.stats();
+    }
+
+    private static int weightOf(Question question) {
+        return BASE_WEIGHT + lengthOf(question.getTitle()) + lengthOf(question.getQuestion());
+    }
+
+    private static int lengthOf(String text) {
+        return text == null ? 0 : text.length();
+    }
+}
@@ -0,0 +1,46 @@
+package cache;
+
+import se.fortnox.reactivewizard.config.Config;
+
+@Config("questionCache")
+public class QuestionCacheConfig {
+
+    /**
+     * Defines if questions fetched by id should be cached
+     */
+    private boolean enabled = true;
+
+    /**
+     * The longest time a question is kept in the cache
+     */
+    private long expireAfterWriteSeconds = 60;
+
+    /**
+     * The approximate number of characters of cached questions to keep in memory
+     */
+    private long maxWeight = 5_000_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getExpireAfterWriteSeconds() {
+        return expireAfterWriteSeconds;
+    }
+
+    public void setExpireAfterWriteSeconds(long expireAfterWriteSeconds) {
+        this.expireAfterWriteSeconds = expireAfterWriteSeconds;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+}
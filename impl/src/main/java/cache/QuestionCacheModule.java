@@ -0,0 +1,44 @@
+package cache;
+
+import com.google.inject.Binder;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.name.Names;
+import dao.CachingQuestionDao;
+import dao.QuestionDao;
+import se.fortnox.reactivewizard.binding.AutoBindModule;
+import se.fortnox.reactivewizard.db.DbProxy;
+
+/**
+ * Puts {@link CachingQuestionDao} in front of the database backed {@link QuestionDao}, which is still
+ * available when annotated with {@code @Named("uncached")}.
+ */
+public class QuestionCacheModule implements AutoBindModule {
+
+    @Override
+    public void configure(Binder binder) {
+        binder.bind(QuestionDao.class)
+            .annotatedWith(Names.named(CachingQuestionDao.UNCACHED))
+            .toProvider(UncachedQuestionDaoProvider.class);
+        binder.bind(QuestionDao.class).to(CachingQuestionDao.class);
+    }
+
+    @Override
+    public Integer getPrio() {
+        return 200;
+    }
+
+    static class UncachedQuestionDaoProvider implements Provider<QuestionDao> {
+        private final DbProxy dbProxy;
+
+        @Inject
+        UncachedQuestionDaoProvider(DbProxy dbProxy) {
+            this.dbProxy = dbProxy;
+        }
+
+        @Override
+        public QuestionDao get() {
+            return dbProxy.create(QuestionDao.class);
+        }
+    }
+}
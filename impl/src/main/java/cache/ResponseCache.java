@@ -0,0 +1,276 @@
+package cache;
+
+import cache.InvalidationBus.Topic;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import jaxrs.CursorCollectionOptions;
+import rx.Observable;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.functions.Func2;
+import se.fortnox.reactivewizard.CollectionOptions;
+import se.fortnox.reactivewizard.jaxrs.WebException;
+
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_MODIFIED;
+import static rx.Observable.defer;
+import static rx.Observable.error;
+import static rx.Observable.just;
+
+/**
+ * Caches the listings that are the same for every user, like the latest questions and the popular tags,
+ * and tags every listing with a strong ETag computed from its serialized content. A request whose
+ * If-None-Match header matches the ETag of the cached listing is answered with 304 Not Modified without
+ * loading anything.
+ *
+ * A listing is evicted when it has been cached for the configured time, or when a change it depends on
+ * is published on the {@link InvalidationBus}. The resources register which topics each of their
+ * listings depends on with {@link #evictOn}, optionally only for the pages that contain the changed
+ * entity, so that a vote on one question does not evict every listing.
+ *
+ * The ETag and Cache-Control headers of a listing are added to its response by
+ * {@link ResponseCacheTransformerFactory}, which finds them by the identity of the listing. Cached
+ * listings are shared between callers and must not be modified.
+ */
+@Singleton
+public class ResponseCache {
+
+    public static final String ETAG          = "ETag";
+    public static final String CACHE_CONTROL = "Cache-Control";
+
+    /**
+     * The number of bytes of the content digest used in an ETag
+     */
+    private static final int    ETAG_BYTES = 16;
+    private static final String ANY        = "*";
+    private static final String WEAK       = "W/";
+
+    private static final Func2<Object, Long, Boolean> ALWAYS = (content, id) -> true;
+
+    private final ResponseCacheConfig                config;
+    private final ObjectMapper                       objectMapper;
+    private final Cache<String, CachedResponse>      responses;
+    private final Cache<Object, Map<String, Object>> headers;
+    private final String                             cacheControl;
+    private final AtomicLong                         generation  = new AtomicLong();
+    private final LongAdder                          notModified = new LongAdder();
+
+    /**
+     * The listings to evict on each topic, by path, with what pages are affected by a change
+     */
+    private final Map<Topic, Map<String, Func2<Object, Long, Boolean>>> evictions       = new EnumMap<>(Topic.class);
+    private final Map<String, AtomicLong>                              pathGenerations = new ConcurrentHashMap<>();
+
+    @Inject
+    public ResponseCache(ResponseCacheConfig config, ObjectMapper objectMapper, InvalidationBus invalidationBus) {
+        this.config = config;
+        this.objectMapper = objectMapper;
+        this.responses = CacheBuilder.newBuilder()
+            .expireAfterWrite(config.getExpireAfterWriteSeconds(), TimeUnit.SECONDS)
+            .maximumSize(config.getMaxEntries())
+            .recordStats()
+            .build();
+        // weak keys are compared by identity, and are dropped once the response has been written
+        this.headers = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+        this.cacheControl = "public, max-age=" + config.getMaxAgeSeconds();
+
+        for (Topic topic : Topic.values()) {
+            evictions.put(topic, new ConcurrentHashMap<>());
+            invalidationBus.subscribe(topic, id -> evict(topic, id));
+        }
+    }
+
+    /**
+     * Evicts every page of the listings at a path when a change is published on a topic.
+     *
+     * @param topic the topic of the changes the listings depend on
+     * @param path  the path of the listings, as passed to {@link #key(String, CollectionOptions)}
+     */
+    public void evictOn(Topic topic, String path) {
+        evictions.get(topic).put(path, ALWAYS);
+    }
+
+    /**
+     * Evicts the pages of the listings at a path that are affected by a change published on a topic. A
+     * change of any entity, published without an id, evicts every page.
+     *
+     * A page that was loading when the change of an entity was published is still cached, and may show the
+     * previous state of the entity until it expires.
+     *
+     * @param topic   the topic of the changes the listings depend on
+     * @param path    the path of the listings, as passed to {@link #key(String, CollectionOptions)}
+     * @param affects if a cached page is affected by the change of the entity with an id
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <T> void evictOn(Topic topic, String path, Func2<T, Long, Boolean> affects) {
+        evictions.get(topic).put(path, (Func2<Object, Long, Boolean>)(Func2)affects);
+    }
+
+    /**
+     * @return the key of a listing, from its path and the collection options of the request
+     */
+    public static String key(String path, CollectionOptions options) {
+        if (options == null) {
+            return path;
+        }
+        String cursor = options instanceof CursorCollectionOptions ? ((CursorCollectionOptions)options).getCursor() : null;
+        return path +
+            "?limit=" + options.getLimit() +
+            "&offset=" + options.getOffset() +
+            "&sortby=" + options.getSortBy() +
+            "&order=" + options.getOrder() +
+            "&cursor=" + cursor;
+    }
+
+    /**
+     * Returns the cached listing, or loads and caches it if it is not cached.
+     *
+     * @param key         the key of the listing, see {@link #key(String, CollectionOptions)}
+     * @param ifNoneMatch the If-None-Match header of the request, or null
+     * @param loader      loads the listing from the database
+     * @param headersOf   other headers of the response, derived from the listing
+     * @return the listing, or a 304 Not Modified error if it matches the If-None-Match header
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Observable<T> get(String key, String ifNoneMatch, Func0<Observable<T>> loader, Func1<T, Map<String, Object>> headersOf) {
+        if (!config.isEnabled()) {
+            return loader.call()
+                .doOnNext(content -> headers.put(content, headersOf.call(content)));
+        }
+        return defer(() -> {
+            CachedResponse cached = responses.getIfPresent(key);
+            if (cached != null) {
+                return respond((T)cached.content, cached.etag, ifNoneMatch);
+            }
+            // a listing loaded while it was invalidated may already be outdated, and is not cached
+            AtomicLong pathGeneration       = generationOf(pathOf(key));
+            long       loadedGeneration     = generation.get();
+            long       loadedPathGeneration = pathGeneration.get();
+            return loader.call()
+                .concatMap(content -> {
+                    String              etag            = etagOf(content);
+                    Map<String, Object> responseHeaders = new LinkedHashMap<>(headersOf.call(content));
+                    responseHeaders.put(ETAG, etag);
+                    responseHeaders.put(CACHE_CONTROL, cacheControl);
+                    headers.put(content, responseHeaders);
+                    if (generation.get() == loadedGeneration && pathGeneration.get() == loadedPathGeneration) {
+                        responses.put(key, new CachedResponse(content, etag));
+                    }
+                    return respond(content, etag, ifNoneMatch);
+                });
+        });
+    }
+
+    /**
+     * @return the headers of a listing returned by {@link #get}, or null if it was not
+     */
+    public Map<String, Object> headersOf(Object content) {
+        return headers.getIfPresent(content);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        responses.invalidateAll();
+    }
+
+    private void evict(Topic topic, Long id) {
+        evictions.get(topic).forEach((path, affects) -> {
+            if (id == null || affects == ALWAYS) {
+                generationOf(path).incrementAndGet();
+            }
+            responses.asMap().entrySet().removeIf(entry -> pathOf(entry.getKey()).equals(path)
+                && (id == null || affects.call(entry.getValue().content, id)));
+        });
+    }
+
+    private AtomicLong generationOf(String path) {
+        return pathGenerations.computeIfAbsent(path, unused -> new AtomicLong());
+    }
+
+    private static String pathOf(String key) {
+        int query = key.indexOf('?');
+        return query < 0 ? key : key.substring(0, query);
+    }
+
+    /**
+     * @return the hits, misses and evictions of the cache
+     */
+    public CacheStats getStats() {
+        return responses.stats();
+    }
+
+    /**
+     * @return the number of requests answered with 304 Not Modified
+     */
+    public long getNotModified() {
+        return notModified.sum();
+    }
+
+    /**
+     * @return if the If-None-Match header matches the ETag, where a weak tag matches its strong
+     * equivalent as RFC 7232 requires for If-None-Match
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith(WEAK)) {
+                tag = tag.substring(WEAK.length());
+            }
+            if (tag.equals(ANY) || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private <T> Observable<T> respond(T content, String etag, String ifNoneMatch) {
+        if (matches(ifNoneMatch, etag)) {
+            notModified.increment();
+            return error(new WebException(NOT_MODIFIED));
+        }
+        return just(content);
+    }
+
+    private String etagOf(Object content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(content));
+            return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, ETAG_BYTES)) + '"';
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class CachedResponse {
+        private final Object content;
+        private final String etag;
+
+        private CachedResponse(Object content, String etag) {
+            this.content = content;
+            this.etag = etag;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package cache;
+
+import se.fortnox.reactivewizard.config.Config;
+
+@Config("responseCache")
+public class ResponseCacheConfig {
+
+    /**
+     * Defines if the listings that are the same for every user should be cached
+     */
+    private boolean enabled = true;
+
+    /**
+     * The longest time a listing is kept in the cache
+     */
+    private long expireAfterWriteSeconds = 10;
+
+    /**
+     * The most listings kept in the cache, where every page and sort order is a listing of its own
+     */
+    private long maxEntries = 1000;
+
+    /**
+     * The max-age of the Cache-Control header, for how long clients may use a listing without asking
+     * whether it has changed
+     */
+    private long maxAgeSeconds = 0;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getExpireAfterWriteSeconds() {
+        return expireAfterWriteSeconds;
+    }
+
+    public void setExpireAfterWriteSeconds(long expireAfterWriteSeconds) {
+        this.expireAfterWriteSeconds = expireAfterWriteSeconds;
+    }
+
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(long maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public long getMaxAgeSeconds() {
+        return maxAgeSeconds;
+    }
+
+    public void setMaxAgeSeconds(long maxAgeSeconds) {
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+}
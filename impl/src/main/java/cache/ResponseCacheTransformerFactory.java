@@ -0,0 +1,36 @@
+package cache;
+
+import se.fortnox.reactivewizard.jaxrs.JaxRsResource;
+import se.fortnox.reactivewizard.jaxrs.response.ResultTransformer;
+import se.fortnox.reactivewizard.jaxrs.response.ResultTransformerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Map;
+
+/**
+ * Adds the ETag, Cache-Control and other headers of listings returned by the {@link ResponseCache} to
+ * their responses.
+ */
+@Singleton
+public class ResponseCacheTransformerFactory implements ResultTransformerFactory {
+
+    private final ResponseCache responseCache;
+
+    @Inject
+    public ResponseCacheTransformerFactory(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public <T> ResultTransformer<T> create(JaxRsResource<T> jaxRsResource) {
+        return (result, args) -> result.doOnOutput(output -> {
+            if (output != null) {
+                Map<String, Object> headers = responseCache.headersOf(output);
+                if (headers != null) {
+                    headers.forEach(result::addHeader);
+                }
+            }
+        });
+    }
+}
@@ -2,7 +2,6 @@ package dao;
 
 import api.Answer;
 import rx.Observable;
-import se.fortnox.reactivewizard.db.GeneratedKey;
 import se.fortnox.reactivewizard.db.Query;
 import se.fortnox.reactivewizard.db.Update;
 
@@ -26,7 +25,7 @@ public interface AnswerDao {
             "answer.slack_id, " +
             "answer.question_id, " +
             "\"user\".name AS created_by, " +
-            "(SELECT COALESCE(SUM(answer_vote.value), 0) FROM answer_vote WHERE answer_vote.answer_id = answer.id) AS votes " +
+            "answer.votes " +
         "FROM answer " +
             "INNER JOIN \"user\" on \"user\".id = answer.user_id " +
         "WHERE question_id=:questionId"
@@ -44,16 +43,14 @@ public interface AnswerDao {
             "answer.slack_id, " +
             "answer.question_id, " +
             "\"user\".name AS created_by, " +
-            "(SELECT COALESCE(SUM(answer_vote.value), 0) " +
-                "FROM answer_vote " +
-                "WHERE answer_vote.answer_id = answer.id) AS votes, " +
+            "answer.votes, " +
             "(SELECT COALESCE(SUM(answer_vote.value), 0) " +
                 "FROM answer_vote " +
                 "WHERE answer_vote.answer_id = answer.id AND answer_vote.user_id = :userId) AS current_user_vote " +
         "FROM answer " +
             "INNER JOIN \"user\" on \"user\".id = answer.user_id " +
         "WHERE question_id=:questionId " +
-        "ORDER BY answer.accepted_at desc NULLS LAST, \"votes\" desc, answer.created_at desc"
+        "ORDER BY answer.accepted_at desc NULLS LAST, answer.votes desc, answer.created_at desc"
     )
     Observable<Answer> getAnswersWithUserVotes(long userId, long questionId);
 
@@ -69,40 +66,77 @@ public interface AnswerDao {
             "answer.slack_id, " +
             "answer.question_id, " +
             "\"user\".name AS created_by, " +
-            "(SELECT COALESCE(SUM(answer_vote.value), 0) FROM answer_vote WHERE answer_vote.answer_id = answer.id) AS votes " +
+            "answer.votes " +
         "FROM answer " +
             "INNER JOIN \"user\" on \"user\".id = answer.user_id " +
         "WHERE slack_id=:slackId"
     )
     Observable<Answer> getAnswer(String slackId);
 
-    @Update(
-        "INSERT INTO answer " +
-            "(" +
-                "answer, " +
-                "created_at, " +
-                "question_id, " +
-                "user_id, " +
-                "slack_id" +
-            ")" +
-            "VALUES(" +
-                ":answer.answer, " +
-                "NOW(), " +
-                ":questionId, " +
-                ":userId, " +
-                ":answer.slackId" +
-            ")")
-    Observable<GeneratedKey<Long>> createAnswer(long userId, long questionId, Answer answer);
+    /**
+     * Creates an answer and counts it on the question it answers. Unless the answer is by the owner of
+     * the question, a notification of it is added to the Slack outbox.
+     *
+     * @return the id of the created answer, or nothing if there is no such question
+     */
+    @Query(
+        "WITH counted AS (" +
+            "UPDATE question SET answer_count = answer_count + 1 WHERE question.id = :questionId RETURNING question.id, question.user_id" +
+        "), inserted AS (" +
+            "INSERT INTO answer " +
+                "(" +
+                    "answer, " +
+                    "created_at, " +
+                    "question_id, " +
+                    "user_id, " +
+                    "slack_id, " +
+                    "search_vector" +
+                ")" +
+                "SELECT " +
+                    ":answer.answer, " +
+                    "NOW(), " +
+                    "counted.id, " +
+                    ":userId, " +
+                    ":answer.slackId, " +
+                    "setweight(to_tsvector('simple', COALESCE(:answer.answer, '')), 'C') " +
+                "FROM counted " +
+            "RETURNING answer.id, answer.question_id" +
+        "), notified AS (" +
+            "INSERT INTO slack_outbox (kind, question_id, answer_id) " +
+            "SELECT '" + SlackNotification.ANSWER_CREATED + "', inserted.question_id, inserted.id " +
+            "FROM inserted JOIN counted ON counted.id = inserted.question_id " +
+            "WHERE counted.user_id <> :userId" +
+        ") " +
+        "SELECT inserted.id FROM inserted")
+    Observable<Long> createAnswer(long userId, long questionId, Answer answer);
 
 
-    @Update(
-        "UPDATE answer SET " +
-            "answer=:answer.answer, " +
-            "accepted_at=:answer.acceptedAt " +
-        "WHERE " +
-            "answer.id=:answerId " +
-            "AND answer.user_id=:userId")
-    Observable<Void> updateAnswer(long userId, long answerId, Answer answer);
+    /**
+     * Updates an answer owned by the given user, and moves the time the question got its latest
+     * accepted answer along with its accepted_at.
+     *
+     * @return the id of the question of the answer, or nothing if the user has no such answer
+     */
+    @Query(
+        "WITH updated AS (" +
+            "UPDATE answer SET " +
+                "answer=:answer.answer, " +
+                "accepted_at=:answer.acceptedAt, " +
+                "search_vector=setweight(to_tsvector('simple', COALESCE(:answer.answer, '')), 'C') " +
+            "WHERE " +
+                "answer.id=:answerId " +
+                "AND answer.user_id=:userId " +
+            "RETURNING answer.id, answer.question_id, answer.accepted_at" +
+        ") " +
+        "UPDATE question SET " +
+            "accepted_at = GREATEST(updated.accepted_at, (" +
+                "SELECT MAX(answer.accepted_at) FROM answer " +
+                "WHERE answer.question_id = question.id AND answer.id != updated.id" +
+            ")) " +
+        "FROM updated " +
+        "WHERE question.id = updated.question_id " +
+        "RETURNING question.id")
+    Observable<Long> updateAnswer(long userId, long answerId, Answer answer);
 
     @Query(
         "SELECT " +
@@ -116,17 +150,95 @@ public interface AnswerDao {
             "answer.question_id, " +
             "\"user\".name AS created_by, " +
             "question.user_id AS \"question.user_id\", " +
-            "(SELECT COALESCE(SUM(answer_vote.value), 0) FROM answer_vote WHERE answer_vote.answer_id = answer.id) AS votes " +
+            "answer.votes " +
         "FROM answer " +
             "INNER JOIN \"user\" on \"user\".id = answer.user_id " +
             "INNER JOIN question on question.id = answer.question_id " +
         "WHERE answer.id=:id")
     Observable<AnswerInternal> getAnswerById(long id);
 
-    @Update(
-        "DELETE FROM " +
+    /**
+     * Fetches only the ids of an answer, its owner and its question, for checking that it exists and who may change it.
+     */
+    @Query(
+        "SELECT " +
+            "answer.id, " +
+            "answer.user_id, " +
+            "answer.question_id " +
+        "FROM " +
+            "answer " +
+        "WHERE " +
+            "answer.id=:answerId")
+    Observable<PostReference> getAnswerReference(long answerId);
+
+    /**
+     * Locks the answers whose votes counter differs from the votes stored in answer_vote, like
+     * {@link QuestionDao#lockDriftingVotes(long)}.
+     *
+     * @param lockKey the advisory lock of the reconciliation
+     * @return the ids of the locked answers
+     */
+    @Query(
+        "SELECT " +
+            "answer.id " +
+        "FROM " +
             "answer " +
         "WHERE " +
-            "answer.user_id = :userId AND answer.id = :answerId")
-    Observable<Void> deleteAnswer(long userId, long answerId);
+            "(SELECT pg_try_advisory_xact_lock(:lockKey)) " +
+            "AND answer.votes != (" +
+                "SELECT COALESCE(SUM(answer_vote.value), 0) FROM answer_vote WHERE answer_vote.answer_id = answer.id" +
+            ") " +
+        "FOR UPDATE OF answer")
+    Observable<Long> lockDriftingVotes(long lockKey);
+
+    /**
+     * Repairs any drift between the denormalized votes counter and the votes stored in answer_vote,
+     * like {@link QuestionDao#reconcileVotes(long)}.
+     *
+     * @param lockKey the advisory lock of the reconciliation, already held by the transaction
+     */
+    @Update(value =
+        "UPDATE " +
+            "answer " +
+        "SET " +
+            "votes = counted.votes " +
+        "FROM (" +
+            "SELECT answer.id, COALESCE(SUM(answer_vote.value), 0) AS votes " +
+            "FROM answer " +
+            "LEFT JOIN answer_vote ON answer_vote.answer_id = answer.id " +
+            "GROUP BY answer.id" +
+        ") counted " +
+        "WHERE " +
+            "(SELECT pg_try_advisory_xact_lock(:lockKey)) " +
+            "AND answer.id = counted.id AND answer.votes != counted.votes",
+        minimumAffected = 0)
+    Observable<Integer> reconcileVotes(long lockKey);
+
+    /**
+     * Deletes an answer owned by the given user, and counts it off the question it answered.
+     *
+     * @return the deleted answer, or nothing if the user has no such answer
+     */
+    @Query(
+        "WITH deleted AS (" +
+            "DELETE FROM " +
+                "answer " +
+            "WHERE " +
+                "answer.user_id = :userId AND answer.id = :answerId " +
+            "RETURNING " +
+                "answer.id, " +
+                "answer.user_id, " +
+                "answer.question_id" +
+        "), counted AS (" +
+            "UPDATE question SET " +
+                "answer_count = answer_count - 1, " +
+                "accepted_at = (" +
+                    "SELECT MAX(answer.accepted_at) FROM answer " +
+                    "WHERE answer.question_id = question.id AND answer.id != deleted.id" +
+                ") " +
+            "FROM deleted " +
+            "WHERE question.id = deleted.question_id" +
+        ") " +
+        "SELECT id, user_id, question_id FROM deleted")
+    Observable<PostReference> deleteAnswer(long userId, long answerId);
 }
@@ -4,6 +4,8 @@ import rx.Observable;
 import se.fortnox.reactivewizard.db.Query;
 import se.fortnox.reactivewizard.db.Update;
 
+import java.util.List;
+
 public interface AnswerVoteDao {
 
     @Query(
@@ -19,6 +21,105 @@ public interface AnswerVoteDao {
     )
     Observable<AnswerVote> findVote(long userId, long answerId);
 
+    /**
+     * Casts a vote in a single statement. A vote opposite to the existing vote of the user removes
+     * it, a vote when the user has not voted is added, and the votes counter of the answer follows.
+     * Concurrent votes by the same user are resolved by the unique constraint rather than failing.
+     *
+     * @return the answer with its new votes, with null votes if the vote was rejected because the
+     * user owns the answer or has already voted this way, or nothing if there is no such answer
+     */
+    @Query(
+        "WITH target AS (" +
+            "SELECT answer.id FROM answer " +
+            "WHERE answer.id = :vote.answerId AND answer.user_id != :vote.userId" +
+        "), removed AS (" +
+            "DELETE FROM answer_vote " +
+            "USING target " +
+            "WHERE answer_vote.answer_id = target.id " +
+                "AND answer_vote.user_id = :vote.userId " +
+                "AND answer_vote.value + :vote.value = 0 " +
+            "RETURNING answer_vote.value" +
+        "), added AS (" +
+            "INSERT INTO answer_vote (user_id, answer_id, value, created_at) " +
+            "SELECT :vote.userId, target.id, :vote.value, NOW() " +
+            "FROM target " +
+            "WHERE NOT EXISTS (" +
+                "SELECT 1 FROM answer_vote " +
+                "WHERE answer_vote.answer_id = target.id AND answer_vote.user_id = :vote.userId" +
+            ") " +
+            "ON CONFLICT ON CONSTRAINT c_answervote_answer_user DO NOTHING " +
+            "RETURNING answer_vote.value" +
+        "), counted AS (" +
+            "UPDATE answer " +
+            "SET votes = votes + :vote.value " +
+            "FROM target " +
+            "WHERE answer.id = target.id " +
+                "AND (EXISTS (SELECT 1 FROM removed) OR EXISTS (SELECT 1 FROM added)) " +
+            "RETURNING answer.votes" +
+        ") " +
+        "SELECT answer.id, (SELECT votes FROM counted) AS votes " +
+        "FROM answer " +
+        "WHERE answer.id = :vote.answerId"
+    )
+    Observable<VoteResult> castVote(AnswerVote vote);
+
+    /**
+     * Applies buffered vote changes in a single statement. Each change moves the vote of a user on an
+     * answer by a delta and keeps it between a floor and a ceiling, no wider than a single down or up
+     * vote, and the votes counters follow. Changes on an answer of the voting user are ignored. There
+     * must be at most one change per user and answer.
+     *
+     * @param userIds   the voting users
+     * @param answerIds the answers voted on, in the same order as the users
+     * @param deltas    the change of each vote, in the same order as the users
+     * @param floors    the lowest each vote may become, in the same order as the users
+     * @param ceilings  the highest each vote may become, in the same order as the users
+     * @return the ids of the answers whose votes changed
+     */
+    @Query(
+        "WITH pending AS (" +
+            "SELECT pending.user_id, pending.answer_id, pending.delta, pending.floor, pending.ceiling " +
+            "FROM unnest(CAST(:userIds AS BIGINT[]), CAST(:answerIds AS BIGINT[]), CAST(:deltas AS INTEGER[]), CAST(:floors AS INTEGER[]), CAST(:ceilings AS INTEGER[])) " +
+                "AS pending(user_id, answer_id, delta, floor, ceiling) " +
+            "INNER JOIN answer ON answer.id = pending.answer_id AND answer.user_id != pending.user_id" +
+        "), changed AS (" +
+            "SELECT " +
+                "pending.user_id, " +
+                "pending.answer_id, " +
+                "COALESCE(answer_vote.value, 0) AS old_value, " +
+                "GREATEST(pending.floor, LEAST(pending.ceiling, COALESCE(answer_vote.value, 0) + pending.delta)) AS new_value " +
+            "FROM pending " +
+            "LEFT JOIN answer_vote ON answer_vote.answer_id = pending.answer_id AND answer_vote.user_id = pending.user_id" +
+        "), removed AS (" +
+            "DELETE FROM answer_vote " +
+            "USING changed " +
+            "WHERE answer_vote.answer_id = changed.answer_id " +
+                "AND answer_vote.user_id = changed.user_id " +
+                "AND changed.new_value = 0 " +
+                "AND changed.old_value != 0 " +
+            "RETURNING answer_vote.answer_id" +
+        "), stored AS (" +
+            "INSERT INTO answer_vote (user_id, answer_id, value, created_at) " +
+            "SELECT changed.user_id, changed.answer_id, changed.new_value, NOW() " +
+            "FROM changed " +
+            "WHERE changed.new_value != 0 AND changed.new_value != changed.old_value " +
+            "ON CONFLICT ON CONSTRAINT c_answervote_answer_user DO UPDATE SET value = EXCLUDED.value " +
+            "RETURNING answer_vote.answer_id" +
+        ") " +
+        "UPDATE answer " +
+        "SET votes = answer.votes + totals.delta " +
+        "FROM (" +
+            "SELECT changed.answer_id, SUM(changed.new_value - changed.old_value) AS delta " +
+            "FROM changed " +
+            "GROUP BY changed.answer_id " +
+            "HAVING SUM(changed.new_value - changed.old_value) != 0" +
+        ") totals " +
+        "WHERE answer.id = totals.answer_id " +
+        "RETURNING answer.id"
+    )
+    Observable<Long> applyVotes(List<Long> userIds, List<Long> answerIds, List<Integer> deltas, List<Integer> floors, List<Integer> ceilings);
+
     @Update(
         "INSERT INTO " +
             "answer_vote " +
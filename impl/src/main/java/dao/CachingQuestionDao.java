@@ -0,0 +1,135 @@
+package dao;
+
+import api.Question;
+import cache.QuestionCache;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import impl.QuestionSearchOptions;
+import rx.Observable;
+import se.fortnox.reactivewizard.CollectionOptions;
+
+/**
+ * Serves {@link #getQuestion(long)} from the {@link QuestionCache} and passes every other call,
+ * including all writes, unchanged to the database. Writes are passed unchanged so that they can
+ * still be executed in transactions, which means that the cache must be invalidated by the caller.
+ */
+@Singleton
+public class CachingQuestionDao implements QuestionDao {
+
+    public static final String UNCACHED = "uncached";
+
+    private final QuestionDao   questionDao;
+    private final QuestionCache questionCache;
+
+    @Inject
+    public CachingQuestionDao(@Named(UNCACHED) QuestionDao questionDao, QuestionCache questionCache) {
+        this.questionDao = questionDao;
+        this.questionCache = questionCache;
+    }
+
+    @Override
+    public Observable<Question> getQuestion(long questionId) {
+        return questionCache.get(questionId, () -> questionDao.getQuestion(questionId));
+    }
+
+    @Override
+    public Observable<Question> getQuestions(long userId, CollectionOptions options) {
+        return questionDao.getQuestions(userId, options);
+    }
+
+    @Override
+    public Observable<Question> getQuestionsAfter(long userId, QuestionCursor cursor, CollectionOptions options) {
+        return questionDao.getQuestionsAfter(userId, cursor, options);
+    }
+
+    @Override
+    public Observable<Question> getLatestQuestions(CollectionOptions options) {
+        return questionDao.getLatestQuestions(options);
+    }
+
+    @Override
+    public Observable<Question> getLatestQuestionsAfter(QuestionCursor cursor, CollectionOptions options) {
+        return questionDao.getLatestQuestionsAfter(cursor, options);
+    }
+
+    @Override
+    public Observable<Question> getPopularQuestions(CollectionOptions options) {
+        return questionDao.getPopularQuestions(options);
+    }
+
+    @Override
+    public Observable<Question> getPopularQuestionsAfter(QuestionCursor cursor, CollectionOptions options) {
+        return questionDao.getPopularQuestionsAfter(cursor, options);
+    }
+
+    @Override
+    public Observable<Question> getPopularUnansweredQuestions(CollectionOptions options) {
+        return questionDao.getPopularUnansweredQuestions(options);
+    }
+
+    @Override
+    public Observable<Question> getPopularUnansweredQuestionsAfter(QuestionCursor cursor, CollectionOptions options) {
+        return questionDao.getPopularUnansweredQuestionsAfter(cursor, options);
+    }
+
+    @Override
+    public Observable<Question> getRecentlyAcceptedQuestions(CollectionOptions options) {
+        return questionDao.getRecentlyAcceptedQuestions(options);
+    }
+
+    @Override
+    public Observable<Long> addQuestion(long userId, Question question) {
+        return questionDao.addQuestion(userId, question);
+    }
+
+    @Override
+    public Observable<Integer> updateQuestion(long userId, long questionId, Question question) {
+        return questionDao.updateQuestion(userId, questionId, question);
+    }
+
+    @Override
+    public Observable<Question> getQuestion(long userId, long questionId) {
+        return questionDao.getQuestion(userId, questionId);
+    }
+
+    @Override
+    public Observable<PostReference> getQuestionReference(long questionId) {
+        return questionDao.getQuestionReference(questionId);
+    }
+
+    @Override
+    public Observable<Integer> markAsAnswered(long userId, long questionId) {
+        return questionDao.markAsAnswered(userId, questionId);
+    }
+
+    @Override
+    public Observable<Long> lockDriftingVotes(long lockKey) {
+        return questionDao.lockDriftingVotes(lockKey);
+    }
+
+    @Override
+    public Observable<Integer> reconcileVotes(long lockKey) {
+        return questionDao.reconcileVotes(lockKey);
+    }
+
+    @Override
+    public Observable<Question> getQuestionBySlackThreadId(String slackId) {
+        return questionDao.getQuestionBySlackThreadId(slackId);
+    }
+
+    @Override
+    public Observable<Integer> deleteQuestion(long userId, long questionId) {
+        return questionDao.deleteQuestion(userId, questionId);
+    }
+
+    @Override
+    public Observable<Question> getQuestions(QuestionSearchOptions questionSearchOptions, CollectionOptions options) {
+        return questionDao.getQuestions(questionSearchOptions, options);
+    }
+
+    @Override
+    public Observable<Question> getQuestionsByTags(QuestionSearchOptions questionSearchOptions, CollectionOptions options) {
+        return questionDao.getQuestionsByTags(questionSearchOptions, options);
+    }
+}
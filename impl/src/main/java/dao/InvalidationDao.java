@@ -0,0 +1,15 @@
+package dao;
+
+import rx.Observable;
+import se.fortnox.reactivewizard.db.Query;
+
+public interface InvalidationDao {
+
+    /**
+     * Sends a notification to every connection listening on the channel.
+     *
+     * @return the number of notifications sent, which is always one
+     */
+    @Query("SELECT COUNT(*) FROM (SELECT pg_notify(:channel, :payload)) notified")
+    Observable<Integer> sendNotification(String channel, String payload);
+}
@@ -0,0 +1,39 @@
+package dao;
+
+/**
+ * The ids of a question or answer and of its owner, which is all that is needed to check
+ * that a post exists and who may change it.
+ */
+public class PostReference {
+
+    private long id;
+    private long userId;
+    private long questionId;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(long userId) {
+        this.userId = userId;
+    }
+
+    /**
+     * @return the id of the question itself, or of the question an answer belongs to
+     */
+    public long getQuestionId() {
+        return questionId;
+    }
+
+    public void setQuestionId(long questionId) {
+        this.questionId = questionId;
+    }
+}
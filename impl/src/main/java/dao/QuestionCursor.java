@@ -0,0 +1,85 @@
+package dao;
+
+import api.Question;
+
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A position in a question listing, used to fetch the questions after it without
+ * scanning the questions before it.
+ *
+ * Listings ordered by creation use created_at and id. Listings ordered by votes use
+ * votes, created_at and id. The creation time is kept as the microseconds since epoch the
+ * listing selected, so that it does not depend on the time zone of the JVM or the database.
+ */
+public class QuestionCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private final Integer votes;
+    private final long    createdAt;
+    private final long    id;
+
+    private QuestionCursor(Integer votes, long createdAt, long id) {
+        this.votes = votes;
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public Integer getVotes() {
+        return votes;
+    }
+
+    /**
+     * @return the creation time of the question, in microseconds since epoch
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Creates a cursor pointing at the given question.
+     *
+     * @param question      the last question of a page, with {@link Question#getCreatedAtMicros()} selected
+     * @param rankedByVotes if the listing is ordered by votes
+     * @return a cursor to the question
+     */
+    public static QuestionCursor of(Question question, boolean rankedByVotes) {
+        return new QuestionCursor(rankedByVotes ? question.getVotes() : null,
+            question.getCreatedAtMicros(),
+            question.getId());
+    }
+
+    public String encode() {
+        String cursor = (votes == null ? "" : votes) + SEPARATOR + createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(UTF_8));
+    }
+
+    /**
+     * Decodes a cursor previously created by {@link #encode()}.
+     *
+     * @param cursor        the encoded cursor
+     * @param rankedByVotes if the listing is ordered by votes
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the cursor is malformed or not created for this kind of listing
+     */
+    public static QuestionCursor decode(String cursor, boolean rankedByVotes) {
+        String[] parts = new String(Base64.getUrlDecoder().decode(cursor), UTF_8).split(SEPARATOR, -1);
+        if (parts.length != 3 || parts[0].isEmpty() == rankedByVotes) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+        try {
+            return new QuestionCursor(rankedByVotes ? Integer.valueOf(parts[0]) : null,
+                Long.parseLong(parts[1]),
+                Long.parseLong(parts[2]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor, e);
+        }
+    }
+}
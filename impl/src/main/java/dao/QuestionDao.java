@@ -4,7 +4,6 @@ import api.Question;
 import impl.QuestionSearchOptions;
 import rx.Observable;
 import se.fortnox.reactivewizard.CollectionOptions;
-import se.fortnox.reactivewizard.db.GeneratedKey;
 import se.fortnox.reactivewizard.db.Query;
 import se.fortnox.reactivewizard.db.Update;
 
@@ -19,16 +18,18 @@ public interface QuestionDao {
             "question.title, " +
             "question.bounty, " +
             "question.created_at, " +
+            "EXTRACT(EPOCH FROM date_trunc('second', question.created_at))::BIGINT * 1000000 + EXTRACT(MICROSECONDS FROM question.created_at)::BIGINT % 1000000 AS created_at_micros, " +
             "question.user_id, " +
             "question.slack_id, \"user\".picture, \"user\".name as created_by, " +
-            "(SELECT COALESCE(SUM(question_vote.value), 0) FROM question_vote WHERE question_vote.question_id = question.id) AS votes, " +
+            "question.votes, " +
             "(SELECT COALESCE(jsonb_agg(tag ORDER BY label), '[]') FROM question_tag RIGHT JOIN tag ON question_tag.tag_id = tag.id WHERE question_tag.question_id = question.id) AS tags " +
         "FROM " +
             "question " +
         "INNER JOIN " +
             "\"user\" on \"user\".id = question.user_id WHERE question.user_id=:userId " +
         "ORDER BY " +
-            "question.created_at DESC ",
+            "question.created_at DESC, " +
+            "question.id DESC ",
         defaultLimit = 10,
         maxLimit = 50)
     Observable<Question> getQuestions(long userId, CollectionOptions options);
@@ -42,18 +43,47 @@ public interface QuestionDao {
             "question.title, " +
             "question.bounty, " +
             "question.created_at, " +
+            "EXTRACT(EPOCH FROM date_trunc('second', question.created_at))::BIGINT * 1000000 + EXTRACT(MICROSECONDS FROM question.created_at)::BIGINT % 1000000 AS created_at_micros, " +
+            "question.user_id, " +
+            "question.slack_id, \"user\".picture, \"user\".name as created_by, " +
+            "question.votes, " +
+            "(SELECT COALESCE(jsonb_agg(tag ORDER BY label), '[]') FROM question_tag RIGHT JOIN tag ON question_tag.tag_id = tag.id WHERE question_tag.question_id = question.id) AS tags " +
+        "FROM " +
+            "question " +
+        "INNER JOIN " +
+            "\"user\" on \"user\".id = question.user_id WHERE question.user_id=:userId " +
+        "AND " +
+            "(question.created_at, question.id) < (TIMESTAMPTZ 'epoch' + :cursor.createdAt * INTERVAL '1 microsecond', :cursor.id) " +
+        "ORDER BY " +
+            "question.created_at DESC, " +
+            "question.id DESC ",
+        defaultLimit = 10,
+        maxLimit = 50)
+    Observable<Question> getQuestionsAfter(long userId, QuestionCursor cursor, CollectionOptions options);
+
+    @Query(
+        value =
+        "SELECT " +
+            "question.id, " +
+            "question.question, " +
+            "answer_accepted, " +
+            "question.title, " +
+            "question.bounty, " +
+            "question.created_at, " +
+            "EXTRACT(EPOCH FROM date_trunc('second', question.created_at))::BIGINT * 1000000 + EXTRACT(MICROSECONDS FROM question.created_at)::BIGINT % 1000000 AS created_at_micros, " +
             "question.user_id, " +
             "question.slack_id, " +
             "\"user\".picture, " +
             "\"user\".name as created_by, " +
-            "(SELECT COALESCE(SUM(question_vote.value), 0) FROM question_vote WHERE question_vote.question_id = question.id) AS votes, " +
+            "question.votes, " +
             "(SELECT COALESCE(jsonb_agg(tag ORDER BY label), '[]') FROM question_tag RIGHT JOIN tag ON question_tag.tag_id = tag.id WHERE question_tag.question_id = question.id) AS tags " +
             "FROM " +
             "question " +
         "INNER JOIN " +
             "\"user\" on \"user\".id = question.user_id " +
         "ORDER BY " +
-            "question.created_at DESC ",
+            "question.created_at DESC, " +
+            "question.id DESC ",
         defaultLimit = 10,
         maxLimit = 50)
     Observable<Question> getLatestQuestions(CollectionOptions options);
@@ -67,19 +97,50 @@ public interface QuestionDao {
             "question.title, " +
             "question.bounty, " +
             "question.created_at, " +
+            "EXTRACT(EPOCH FROM date_trunc('second', question.created_at))::BIGINT * 1000000 + EXTRACT(MICROSECONDS FROM question.created_at)::BIGINT % 1000000 AS created_at_micros, " +
             "question.user_id, " +
             "question.slack_id, " +
             "\"user\".picture, " +
             "\"user\".name as created_by, " +
-            "(SELECT COALESCE(SUM(question_vote.value), 0) FROM question_vote WHERE question_vote.question_id = question.id) AS votes, " +
+            "question.votes, " +
             "(SELECT COALESCE(jsonb_agg(tag ORDER BY label), '[]') FROM question_tag RIGHT JOIN tag ON question_tag.tag_id = tag.id WHERE question_tag.question_id = question.id) AS tags " +
             "FROM " +
             "question " +
         "INNER JOIN " +
             "\"user\" on \"user\".id = question.user_id " +
+        "WHERE " +
+            "(question.created_at, question.id) < (TIMESTAMPTZ 'epoch' + :cursor.createdAt * INTERVAL '1 microsecond', :cursor.id) " +
         "ORDER BY " +
-            "votes DESC NULLS LAST, " +
-            "question.created_at DESC ",
+            "question.created_at DESC, " +
+            "question.id DESC ",
+        defaultLimit = 10,
+        maxLimit = 50)
+    Observable<Question> getLatestQuestionsAfter(QuestionCursor cursor, CollectionOptions options);
+
+    @Query(
+        value =
+        "SELECT " +
+            "question.id, " +
+            "question.question, " +
+            "answer_accepted, " +
+            "question.title, " +
+            "question.bounty, " +
+            "question.created_at, " +
+            "EXTRACT(EPOCH FROM date_trunc('second', question.created_at))::BIGINT * 1000000 + EXTRACT(MICROSECONDS FROM question.created_at)::BIGINT % 1000000 AS created_at_micros, " +
+            "question.user_id, " +
+            "question.slack_id, " +
+            "\"user\".picture, " +
+            "\"user\".name as created_by, " +
+            "question.votes, " +
+            "(SELECT COALESCE(jsonb_agg(tag ORDER BY label), '[]') FROM question_tag RIGHT JOIN tag ON question_tag.tag_id = tag.id WHERE question_tag.question_id = question.id) AS tags " +
+            "FROM " +
+            "question " +
+        "INNER JOIN " +
+            "\"user\" on \"user\".id = question.user_id " +
+        "ORDER BY " +
+            "question.votes DESC, " +
+            "question.created_at DESC, " +
+            "question.id DESC ",
         defaultLimit = 10,
         maxLimit = 50)
     Observable<Question> getPopularQuestions(CollectionOptions options);
@@ -93,23 +154,53 @@ public interface QuestionDao {
             "question.title, " +
             "question.bounty, " +
             "question.created_at, " +
+            "EXTRACT(EPOCH FROM date_trunc('second', question.created_at))::BIGINT * 1000000 + EXTRACT(MICROSECONDS FROM question.created_at)::BIGINT % 1000000 AS created_at_micros, " +
             "question.user_id, " +
             "question.slack_id, " +
             "\"user\".picture, " +
             "\"user\".name as created_by, " +
-            "(SELECT COALESCE(SUM(question_vote.value), 0) FROM question_vote WHERE question_vote.question_id = question.id) AS votes, " +
+            "question.votes, " +
+            "(SELECT COALESCE(jsonb_agg(tag ORDER BY label), '[]') FROM question_tag RIGHT JOIN tag ON question_tag.tag_id = tag.id WHERE question_tag.question_id = question.id) AS tags " +
+            "FROM " +
+            "question " +
+        "INNER JOIN " +
+            "\"user\" on \"user\".id = question.user_id " +
+        "WHERE " +
+            "(question.votes, question.created_at, question.id) < (:cursor.votes, TIMESTAMPTZ 'epoch' + :cursor.createdAt * INTERVAL '1 microsecond', :cursor.id) " +
+        "ORDER BY " +
+            "question.votes DESC, " +
+            "question.created_at DESC, " +
+            "question.id DESC ",
+        defaultLimit = 10,
+        maxLimit = 50)
+    Observable<Question> getPopularQuestionsAfter(QuestionCursor cursor, CollectionOptions options);
+
+    @Query(
+        value =
+        "SELECT " +
+            "question.id, " +
+            "question.question, " +
+            "answer_accepted, " +
+            "question.title, " +
+            "question.bounty, " +
+            "question.created_at, " +
+            "EXTRACT(EPOCH FROM date_trunc('second', question.created_at))::BIGINT * 1000000 + EXTRACT(MICROSECONDS FROM question.created_at)::BIGINT % 1000000 AS created_at_micros, " +
+            "question.user_id, " +
+            "question.slack_id, " +
+            "\"user\".picture, " +
+            "\"user\".name as created_by, " +
+            "question.votes, " +
             "(SELECT COALESCE(jsonb_agg(tag ORDER BY label), '[]') FROM question_tag RIGHT JOIN tag ON question_tag.tag_id = tag.id WHERE question_tag.question_id = question.id) AS tags " +
             "FROM " +
             "question " +
         "INNER JOIN " +
             "\"user\" on \"user\".id = question.user_id " +
-        "LEFT JOIN " +
-            "answer on answer.question_id = question.id " +
         "WHERE " +
-            "answer IS NULL " +
+            "question.answer_count = 0 " +
         "ORDER BY " +
-            "votes DESC NULLS LAST, " +
-            "question.created_at DESC ",
+            "question.votes DESC, " +
+            "question.created_at DESC, " +
+            "question.id DESC ",
         defaultLimit = 10,
         maxLimit = 50)
     Observable<Question> getPopularUnansweredQuestions(CollectionOptions options);
@@ -123,48 +214,97 @@ public interface QuestionDao {
             "question.title, " +
             "question.bounty, " +
             "question.created_at, " +
+            "EXTRACT(EPOCH FROM date_trunc('second', question.created_at))::BIGINT * 1000000 + EXTRACT(MICROSECONDS FROM question.created_at)::BIGINT % 1000000 AS created_at_micros, " +
             "question.user_id, " +
             "question.slack_id, " +
             "\"user\".picture, " +
             "\"user\".name as created_by, " +
-            "(SELECT COALESCE(SUM(question_vote.value), 0) FROM question_vote WHERE question_vote.question_id = question.id) AS votes, " +
+            "question.votes, " +
             "(SELECT COALESCE(jsonb_agg(tag ORDER BY label), '[]') FROM question_tag RIGHT JOIN tag ON question_tag.tag_id = tag.id WHERE question_tag.question_id = question.id) AS tags " +
             "FROM " +
             "question " +
         "INNER JOIN " +
             "\"user\" on \"user\".id = question.user_id " +
-        "LEFT JOIN " +
-            "answer on answer.question_id = question.id " +
         "WHERE " +
-            "answer.accepted_at IS NOT NULL " +
+            "question.answer_count = 0 " +
+        "AND " +
+            "(question.votes, question.created_at, question.id) < (:cursor.votes, TIMESTAMPTZ 'epoch' + :cursor.createdAt * INTERVAL '1 microsecond', :cursor.id) " +
         "ORDER BY " +
-            "answer.accepted_at DESC NULLS LAST ",
+            "question.votes DESC, " +
+            "question.created_at DESC, " +
+            "question.id DESC ",
+        defaultLimit = 10,
+        maxLimit = 50)
+    Observable<Question> getPopularUnansweredQuestionsAfter(QuestionCursor cursor, CollectionOptions options);
+
+    @Query(
+        value =
+        "SELECT " +
+            "question.id, " +
+            "question.question, " +
+            "answer_accepted, " +
+            "question.title, " +
+            "question.bounty, " +
+            "question.created_at, " +
+            "question.user_id, " +
+            "question.slack_id, " +
+            "\"user\".picture, " +
+            "\"user\".name as created_by, " +
+            "question.votes, " +
+            "(SELECT COALESCE(jsonb_agg(tag ORDER BY label), '[]') FROM question_tag RIGHT JOIN tag ON question_tag.tag_id = tag.id WHERE question_tag.question_id = question.id) AS tags " +
+            "FROM " +
+            "question " +
+        "INNER JOIN " +
+            "\"user\" on \"user\".id = question.user_id " +
+        "WHERE " +
+            "question.accepted_at IS NOT NULL " +
+        "ORDER BY " +
+            "question.accepted_at DESC, " +
+            "question.id DESC ",
         defaultLimit = 10,
         maxLimit = 50)
     Observable<Question> getRecentlyAcceptedQuestions(CollectionOptions options);
 
-    @Update(
-        "INSERT INTO " +
-            "question (" +
-            "question, " +
-            "title, " +
-            "bounty, " +
-            "created_at, " +
-            "user_id, " +
-            "slack_id) " +
-      " VALUES" +
-            "(" +
-            ":question.question, " +
-            ":question.title, " +
-            ":question.bounty, " +
-            "NOW(), " +
-            ":userId, " +
-            ":question.slackId" +
-            ")")
-    Observable<GeneratedKey<Long>> addQuestion(long userId, Question question);
+    /**
+     * Creates a question and adds a notification of it to the Slack outbox.
+     *
+     * @return the id of the created question
+     */
+    @Query(
+        "WITH inserted AS (" +
+            "INSERT INTO " +
+                "question (" +
+                "question, " +
+                "title, " +
+                "bounty, " +
+                "created_at, " +
+                "user_id, " +
+                "slack_id, " +
+                "search_vector) " +
+            " VALUES" +
+                "(" +
+                ":question.question, " +
+                ":question.title, " +
+                ":question.bounty, " +
+                "NOW(), " +
+                ":userId, " +
+                ":question.slackId, " +
+                "setweight(to_tsvector('simple', COALESCE(:question.title, '')), 'A') || " +
+                "setweight(to_tsvector('simple', COALESCE(:question.question, '')), 'B')" +
+                ") " +
+            "RETURNING question.id" +
+        "), notified AS (" +
+            "INSERT INTO slack_outbox (kind, question_id) " +
+            "SELECT '" + SlackNotification.QUESTION_CREATED + "', inserted.id FROM inserted" +
+        ") " +
+        "SELECT inserted.id FROM inserted")
+    Observable<Long> addQuestion(long userId, Question question);
 
     @Update("UPDATE question " +
-            "SET question=:question.question, title=:question.title " +
+            "SET question=:question.question, title=:question.title, " +
+            "search_vector=" +
+                "setweight(to_tsvector('simple', COALESCE(:question.title, '')), 'A') || " +
+                "setweight(to_tsvector('simple', COALESCE(:question.question, '')), 'B') " +
             "WHERE question.id=:questionId AND question.user_id=:userId")
     Observable<Integer> updateQuestion(long userId, long questionId, Question question);
 
@@ -180,7 +320,7 @@ public interface QuestionDao {
             "user_id, " +
             "slack_id, " +
             "\"user\".picture, " +
-            "(SELECT COALESCE(SUM(question_vote.value), 0) FROM question_vote WHERE question_vote.question_id = question.id) AS votes, " +
+            "question.votes, " +
             "(SELECT COALESCE(SUM(question_vote.value), 0) " +
                 "FROM question_vote " +
                 "WHERE question_vote.question_id = question.id AND question_vote.user_id = :userId) AS current_user_vote, " +
@@ -206,7 +346,7 @@ public interface QuestionDao {
             "u.id AS user_id, " +
             "u.name as created_by, " +
             "u.picture as picture, " +
-            "(SELECT COALESCE(SUM(question_vote.value), 0) FROM question_vote WHERE question_vote.question_id = question.id) AS votes, " +
+            "question.votes, " +
             "(SELECT COALESCE(jsonb_agg(tag ORDER BY label), '[]') FROM question_tag RIGHT JOIN tag ON question_tag.tag_id = tag.id WHERE question_tag.question_id = question.id) AS tags " +
         "FROM " +
             "question " +
@@ -216,15 +356,76 @@ public interface QuestionDao {
             "question.id=:questionId")
     Observable<Question> getQuestion(long questionId);
 
+    /**
+     * Fetches only the ids of a question and its owner, for checking that it exists and who may change it.
+     */
+    @Query(
+        "SELECT " +
+            "question.id, " +
+            "question.user_id, " +
+            "question.id AS question_id " +
+        "FROM " +
+            "question " +
+        "WHERE " +
+            "question.id=:questionId")
+    Observable<PostReference> getQuestionReference(long questionId);
+
     @Update(
         "UPDATE " +
             "question " +
         "SET " +
-            "answer_accepted=true " +
+            "answer_accepted=true, " +
+            "accepted_at=NOW() " +
         "WHERE " +
             "question.id=:questionId AND question.user_id=:userId")
     Observable<Integer> markAsAnswered(long userId, long questionId);
 
+    /**
+     * Locks the questions whose votes counter differs from the votes stored in question_vote, so that no
+     * vote on them can change the counter until the transaction ends. Nothing is locked unless the
+     * transaction holds the advisory lock, so that only one replica reconciles at a time.
+     *
+     * @param lockKey the advisory lock of the reconciliation
+     * @return the ids of the locked questions
+     */
+    @Query(
+        "SELECT " +
+            "question.id " +
+        "FROM " +
+            "question " +
+        "WHERE " +
+            "(SELECT pg_try_advisory_xact_lock(:lockKey)) " +
+            "AND question.votes != (" +
+                "SELECT COALESCE(SUM(question_vote.value), 0) FROM question_vote WHERE question_vote.question_id = question.id" +
+            ") " +
+        "FOR UPDATE OF question")
+    Observable<Long> lockDriftingVotes(long lockKey);
+
+    /**
+     * Repairs any drift between the denormalized votes counter and the votes stored in question_vote.
+     * Run after {@link #lockDriftingVotes(long)} in the same transaction, so that the votes are summed
+     * from a snapshot taken after the drifting questions were locked, and no vote can be counted
+     * between the sum and the write of it.
+     *
+     * @param lockKey the advisory lock of the reconciliation, already held by the transaction
+     */
+    @Update(value =
+        "UPDATE " +
+            "question " +
+        "SET " +
+            "votes = counted.votes " +
+        "FROM (" +
+            "SELECT question.id, COALESCE(SUM(question_vote.value), 0) AS votes " +
+            "FROM question " +
+            "LEFT JOIN question_vote ON question_vote.question_id = question.id " +
+            "GROUP BY question.id" +
+        ") counted " +
+        "WHERE " +
+            "(SELECT pg_try_advisory_xact_lock(:lockKey)) " +
+            "AND question.id = counted.id AND question.votes != counted.votes",
+        minimumAffected = 0)
+    Observable<Integer> reconcileVotes(long lockKey);
+
     @Query(
         "SELECT " +
             "id, question, " +
@@ -232,7 +433,7 @@ public interface QuestionDao {
             "answer_accepted, " +
             "created_at, user_id, " +
             "slack_id, " +
-            "(SELECT COALESCE(SUM(question_vote.value), 0) FROM question_vote WHERE question_vote.question_id = question.id) AS votes " +
+            "votes " +
         "FROM " +
             "question " +
         "WHERE slack_id = :slackId")
@@ -245,58 +446,84 @@ public interface QuestionDao {
             "question.user_id = :userId AND question.id = :questionId")
     Observable<Integer> deleteQuestion(long userId, long questionId);
 
+    /**
+     * Searches questions by the text of the question and its answers, best matches first.
+     * Only questions having all tags of the search options are returned.
+     */
     @Query(
         value =
-        "WITH cte AS ( " +
-            "SELECT " +
-                "question.id, " +
-                "answer_accepted, " +
-                "question.question, " +
-                "question.title, " +
-                "question.bounty, " +
-                "question.created_at, " +
-                "question.user_id, " +
-                "\"user\".name as created_by, " +
-                "(SELECT COALESCE(SUM(question_vote.value), 0) FROM question_vote WHERE question_vote.question_id = question.id) AS votes, " +
-                "(SELECT COALESCE(jsonb_agg(tag ORDER BY label), '[]') FROM question_tag RIGHT JOIN tag ON question_tag.tag_id = tag.id WHERE question_tag.question_id = question.id) AS tags, " +
-                "ARRAY(SELECT tag.label FROM question_tag RIGHT JOIN tag ON question_tag.tag_id = tag.id WHERE question_tag.question_id = question.id ORDER BY tag.label) AS tag_labels, " +
-                "COALESCE(question.title, '') || ' ' || COALESCE(question.question, '') || ' ' || COALESCE(answer.answer, '') AS search_body " +
-            "FROM " +
-                "question " +
-            "INNER JOIN " +
-                "\"user\" on \"user\".id = question.user_id " +
-            "LEFT JOIN " +
-                "answer on answer.question_id = question.id " +
-            ") " +
-            "SELECT DISTINCT " +
-                "cte.id, " +
-                "cte.answer_accepted, " +
-                "cte.title, " +
-                "cte.bounty, " +
-                "cte.created_at, " +
-                "cte.question, " +
-                "cte.user_id, " +
-                "cte.created_by, " +
-                "cte.votes, " +
-                "cte.tags " +
-            "FROM " +
-                "cte " +
-            "WHERE " +
-                "( " +
-                    ":questionSearchOptions.contentSearch = '' AND tag_labels @> :questionSearchOptions.tags " +
-                ") " +
-                "OR " +
-                "( " +
-                    ":questionSearchOptions.contentSearch != '' AND '{}' = :questionSearchOptions.tags AND search_body ILIKE ('%' || :questionSearchOptions.contentSearch || '%')" +
-                ") " +
-                "OR " +
-                "( " +
-                    ":questionSearchOptions.contentSearch != '' AND tag_labels @> :questionSearchOptions.tags AND search_body ILIKE ('%' || :questionSearchOptions.contentSearch || '%')" +
-                ") " +
-            "ORDER BY " +
-                "votes desc, " +
-                "created_at desc",
+        "SELECT " +
+            "question.id, " +
+            "question.answer_accepted, " +
+            "question.title, " +
+            "question.bounty, " +
+            "question.created_at, " +
+            "question.question, " +
+            "question.user_id, " +
+            "\"user\".name as created_by, " +
+            "question.votes, " +
+            "(SELECT COALESCE(jsonb_agg(tag ORDER BY label), '[]') FROM question_tag RIGHT JOIN tag ON question_tag.tag_id = tag.id WHERE question_tag.question_id = question.id) AS tags " +
+        "FROM (" +
+            "SELECT id, MAX(rank) AS rank FROM (" +
+                "SELECT question.id, ts_rank(question.search_vector, search_query) AS rank " +
+                "FROM question, to_tsquery('simple', :questionSearchOptions.textQuery) search_query " +
+                "WHERE question.search_vector @@ search_query " +
+                "UNION ALL " +
+                "SELECT answer.question_id, ts_rank(answer.search_vector, search_query) AS rank " +
+                "FROM answer, to_tsquery('simple', :questionSearchOptions.textQuery) search_query " +
+                "WHERE answer.search_vector @@ search_query" +
+            ") matches " +
+            "GROUP BY id" +
+        ") ranked " +
+        "INNER JOIN " +
+            "question ON question.id = ranked.id " +
+        "INNER JOIN " +
+            "\"user\" on \"user\".id = question.user_id " +
+        "WHERE " +
+            "ARRAY(SELECT tag.label FROM question_tag INNER JOIN tag ON question_tag.tag_id = tag.id WHERE question_tag.question_id = question.id) @> :questionSearchOptions.tags " +
+        "ORDER BY " +
+            "ranked.rank DESC, " +
+            "question.votes DESC, " +
+            "question.created_at DESC, " +
+            "question.id DESC",
         defaultLimit = 50,
         maxLimit = 50)
     Observable<Question> getQuestions(QuestionSearchOptions questionSearchOptions, CollectionOptions options);
+
+    /**
+     * Returns the questions having all tags of the search options, ignoring its text.
+     */
+    @Query(
+        value =
+        "SELECT " +
+            "question.id, " +
+            "question.answer_accepted, " +
+            "question.title, " +
+            "question.bounty, " +
+            "question.created_at, " +
+            "question.question, " +
+            "question.user_id, " +
+            "\"user\".name as created_by, " +
+            "question.votes, " +
+            "(SELECT COALESCE(jsonb_agg(tag ORDER BY label), '[]') FROM question_tag RIGHT JOIN tag ON question_tag.tag_id = tag.id WHERE question_tag.question_id = question.id) AS tags " +
+        "FROM " +
+            "question " +
+        "INNER JOIN " +
+            "\"user\" on \"user\".id = question.user_id " +
+        "WHERE " +
+            "question.id IN (" +
+                "SELECT question_tag.question_id " +
+                "FROM question_tag " +
+                "INNER JOIN tag ON question_tag.tag_id = tag.id " +
+                "WHERE tag.label = ANY(:questionSearchOptions.tags) " +
+                "GROUP BY question_tag.question_id " +
+                "HAVING COUNT(*) = CARDINALITY(:questionSearchOptions.tags)" +
+            ") " +
+        "ORDER BY " +
+            "question.votes DESC, " +
+            "question.created_at DESC, " +
+            "question.id DESC",
+        defaultLimit = 50,
+        maxLimit = 50)
+    Observable<Question> getQuestionsByTags(QuestionSearchOptions questionSearchOptions, CollectionOptions options);
 }
@@ -4,6 +4,8 @@ import rx.Observable;
 import se.fortnox.reactivewizard.db.Query;
 import se.fortnox.reactivewizard.db.Update;
 
+import java.util.List;
+
 public interface QuestionVoteDao {
 
     @Query(
@@ -19,6 +21,105 @@ public interface QuestionVoteDao {
     )
     Observable<QuestionVote> findVote(long userId, long questionId);
 
+    /**
+     * Casts a vote in a single statement. A vote opposite to the existing vote of the user removes
+     * it, a vote when the user has not voted is added, and the votes counter of the question follows.
+     * Concurrent votes by the same user are resolved by the unique constraint rather than failing.
+     *
+     * @return the question with its new votes, with null votes if the vote was rejected because the
+     * user owns the question or has already voted this way, or nothing if there is no such question
+     */
+    @Query(
+        "WITH target AS (" +
+            "SELECT question.id FROM question " +
+            "WHERE question.id = :vote.questionId AND question.user_id != :vote.userId" +
+        "), removed AS (" +
+            "DELETE FROM question_vote " +
+            "USING target " +
+            "WHERE question_vote.question_id = target.id " +
+                "AND question_vote.user_id = :vote.userId " +
+                "AND question_vote.value + :vote.value = 0 " +
+            "RETURNING question_vote.value" +
+        "), added AS (" +
+            "INSERT INTO question_vote (user_id, question_id, value, created_at) " +
+            "SELECT :vote.userId, target.id, :vote.value, NOW() " +
+            "FROM target " +
+            "WHERE NOT EXISTS (" +
+                "SELECT 1 FROM question_vote " +
+                "WHERE question_vote.question_id = target.id AND question_vote.user_id = :vote.userId" +
+            ") " +
+            "ON CONFLICT ON CONSTRAINT c_questionvote_question_user DO NOTHING " +
+            "RETURNING question_vote.value" +
+        "), counted AS (" +
+            "UPDATE question " +
+            "SET votes = votes + :vote.value " +
+            "FROM target " +
+            "WHERE question.id = target.id " +
+                "AND (EXISTS (SELECT 1 FROM removed) OR EXISTS (SELECT 1 FROM added)) " +
+            "RETURNING question.votes" +
+        ") " +
+        "SELECT question.id, (SELECT votes FROM counted) AS votes " +
+        "FROM question " +
+        "WHERE question.id = :vote.questionId"
+    )
+    Observable<VoteResult> castVote(QuestionVote vote);
+
+    /**
+     * Applies buffered vote changes in a single statement. Each change moves the vote of a user on a
+     * question by a delta and keeps it between a floor and a ceiling, no wider than a single down or up
+     * vote, and the votes counters follow. Changes on a question of the voting user are ignored. There
+     * must be at most one change per user and question.
+     *
+     * @param userIds     the voting users
+     * @param questionIds the questions voted on, in the same order as the users
+     * @param deltas      the change of each vote, in the same order as the users
+     * @param floors      the lowest each vote may become, in the same order as the users
+     * @param ceilings    the highest each vote may become, in the same order as the users
+     * @return the ids of the questions whose votes changed
+     */
+    @Query(
+        "WITH pending AS (" +
+            "SELECT pending.user_id, pending.question_id, pending.delta, pending.floor, pending.ceiling " +
+            "FROM unnest(CAST(:userIds AS BIGINT[]), CAST(:questionIds AS BIGINT[]), CAST(:deltas AS INTEGER[]), CAST(:floors AS INTEGER[]), CAST(:ceilings AS INTEGER[])) " +
+                "AS pending(user_id, question_id, delta, floor, ceiling) " +
+            "INNER JOIN question ON question.id = pending.question_id AND question.user_id != pending.user_id" +
+        "), changed AS (" +
+            "SELECT " +
+                "pending.user_id, " +
+                "pending.question_id, " +
+                "COALESCE(question_vote.value, 0) AS old_value, " +
+                "GREATEST(pending.floor, LEAST(pending.ceiling, COALESCE(question_vote.value, 0) + pending.delta)) AS new_value " +
+            "FROM pending " +
+            "LEFT JOIN question_vote ON question_vote.question_id = pending.question_id AND question_vote.user_id = pending.user_id" +
+        "), removed AS (" +
+            "DELETE FROM question_vote " +
+            "USING changed " +
+            "WHERE question_vote.question_id = changed.question_id " +
+                "AND question_vote.user_id = changed.user_id " +
+                "AND changed.new_value = 0 " +
+                "AND changed.old_value != 0 " +
+            "RETURNING question_vote.question_id" +
+        "), stored AS (" +
+            "INSERT INTO question_vote (user_id, question_id, value, created_at) " +
+            "SELECT changed.user_id, changed.question_id, changed.new_value, NOW() " +
+            "FROM changed " +
+            "WHERE changed.new_value != 0 AND changed.new_value != changed.old_value " +
+            "ON CONFLICT ON CONSTRAINT c_questionvote_question_user DO UPDATE SET value = EXCLUDED.value " +
+            "RETURNING question_vote.question_id" +
+        ") " +
+        "UPDATE question " +
+        "SET votes = question.votes + totals.delta " +
+        "FROM (" +
+            "SELECT changed.question_id, SUM(changed.new_value - changed.old_value) AS delta " +
+            "FROM changed " +
+            "GROUP BY changed.question_id " +
+            "HAVING SUM(changed.new_value - changed.old_value) != 0" +
+        ") totals " +
+        "WHERE question.id = totals.question_id " +
+        "RETURNING question.id"
+    )
+    Observable<Long> applyVotes(List<Long> userIds, List<Long> questionIds, List<Integer> deltas, List<Integer> floors, List<Integer> ceilings);
+
     @Update(
         "INSERT INTO " +
             "question_vote " +
@@ -0,0 +1,72 @@
+package dao;
+
+/**
+ * A notification in the Slack outbox, waiting to be sent.
+ */
+public class SlackNotification {
+
+    /**
+     * The feed channel is told about a new question
+     */
+    public static final String QUESTION_CREATED = "QUESTION_CREATED";
+
+    /**
+     * The owner of a question is told about a new answer to it
+     */
+    public static final String ANSWER_CREATED = "ANSWER_CREATED";
+
+    private long   id;
+    private String kind;
+    private long   questionId;
+    private Long   answerId;
+    private int    attempts;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    /**
+     * @return what happened, one of {@link #QUESTION_CREATED} and {@link #ANSWER_CREATED}
+     */
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public long getQuestionId() {
+        return questionId;
+    }
+
+    public void setQuestionId(long questionId) {
+        this.questionId = questionId;
+    }
+
+    /**
+     * @return the id of the answer, or null if the notification is about a question
+     */
+    public Long getAnswerId() {
+        return answerId;
+    }
+
+    public void setAnswerId(Long answerId) {
+        this.answerId = answerId;
+    }
+
+    /**
+     * @return the number of times the notification has been claimed to be sent, including this time
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+}
@@ -0,0 +1,52 @@
+package dao;
+
+import rx.Observable;
+import se.fortnox.reactivewizard.db.Query;
+import se.fortnox.reactivewizard.db.Update;
+
+import java.util.List;
+
+/**
+ * The notifications waiting to be sent to Slack. They are added by the statements that create the
+ * questions and answers they are about, so that a notification exists if and only if its question
+ * or answer was stored.
+ */
+public interface SlackOutboxDao {
+
+    /**
+     * Claims notifications that are due to be sent, by postponing them for the given lease. A replica
+     * that dies while sending leaves its notifications to be claimed again once the lease has passed,
+     * and replicas claiming at the same time skip each other's notifications instead of waiting.
+     *
+     * @param limit        the most notifications to claim
+     * @param leaseSeconds the time the notifications are left to this replica
+     * @return the claimed notifications, oldest first
+     */
+    @Query(
+        "WITH due AS (" +
+            "SELECT id FROM slack_outbox " +
+            "WHERE next_attempt_at <= NOW() " +
+            "ORDER BY next_attempt_at, id " +
+            "LIMIT :limit " +
+            "FOR UPDATE SKIP LOCKED" +
+        ") " +
+        "UPDATE slack_outbox " +
+        "SET attempts = slack_outbox.attempts + 1, " +
+            "next_attempt_at = NOW() + :leaseSeconds * INTERVAL '1 second' " +
+        "FROM due " +
+        "WHERE slack_outbox.id = due.id " +
+        "RETURNING slack_outbox.id, slack_outbox.kind, slack_outbox.question_id, slack_outbox.answer_id, slack_outbox.attempts")
+    Observable<SlackNotification> claimNotifications(int limit, long leaseSeconds);
+
+    /**
+     * Removes notifications that have been sent, or that will never be.
+     */
+    @Update(value = "DELETE FROM slack_outbox WHERE id = ANY(CAST(:ids AS BIGINT[]))", minimumAffected = 0)
+    Observable<Integer> deleteNotifications(List<Long> ids);
+
+    /**
+     * Postpones a notification that could not be sent.
+     */
+    @Update(value = "UPDATE slack_outbox SET next_attempt_at = NOW() + :delaySeconds * INTERVAL '1 second' WHERE id = :id", minimumAffected = 0)
+    Observable<Integer> retryNotificationLater(long id, long delaySeconds);
+}
@@ -9,21 +9,91 @@ import java.util.List;
 
 public interface TagDao {
 
-    @Query("SELECT label FROM tag WHERE label ILIKE ( '%' || :search || '%')")
-    Observable<Tag> getTagsContaining(String search);
+    /**
+     * Returns the most used tags whose label matches the given LIKE pattern, ignoring case.
+     */
+    @Query(
+        "SELECT id, label " +
+        "FROM tag " +
+        "WHERE label ILIKE :pattern " +
+        "ORDER BY usages DESC, label " +
+        "LIMIT :limit")
+    Observable<Tag> getTagsMatching(String pattern, int limit);
 
-    @Update(value = "INSERT INTO question_tag (SELECT DISTINCT :questionId, id FROM tag WHERE label IN (:labels)) ON CONFLICT DO NOTHING", minimumAffected = 0)
-    Observable<Integer> associateTagsWithQuestion(Long questionId, List<String> labels);
+    @Query("SELECT id, label, usages FROM tag")
+    Observable<TagUsage> getTagUsages();
 
-    @Query("SELECT id, label FROM tag_usage ORDER BY usages DESC LIMIT 10")
-    Observable<Tag> getPopularTags();
+    @Query("SELECT id, label, usages FROM tag WHERE id = ANY(CAST(:ids AS BIGINT[]))")
+    Observable<TagUsage> getTagUsagesByIds(List<Long> ids);
+
+    @Query("SELECT tag_id FROM question_tag WHERE question_id = :questionId")
+    Observable<Long> getTagIdsOfQuestion(long questionId);
 
-    @Update(value = "INSERT INTO tag (label) VALUES (:tag) ON CONFLICT DO NOTHING", minimumAffected = 0)
-    Observable<Integer> mergeTag(String tag);
+    /**
+     * Makes the tags with the given labels the only tags of the question, in one statement. Missing tags are
+     * created and the usages of every tag that is added to or removed from the question is updated. Usages are
+     * only counted for associations that are actually inserted, so that racing updates of the question do not
+     * count a tag twice. Tags that are no longer used are left for {@link #deleteUnusedTags()}.
+     *
+     * @param questionId the question to tag
+     * @param labels     the lowercased labels of all tags the question should have
+     * @return the number of tags added to or removed from the question
+     */
+    @Query(
+        "WITH wanted AS (" +
+            "SELECT DISTINCT unnest(:labels) AS label" +
+        "), " +
+        "removed AS (" +
+            "DELETE FROM question_tag USING tag " +
+            "WHERE question_tag.tag_id = tag.id " +
+            "AND question_tag.question_id = :questionId " +
+            "AND tag.label NOT IN (SELECT label FROM wanted) " +
+            "RETURNING question_tag.tag_id" +
+        "), " +
+        "released AS (" +
+            "UPDATE tag SET usages = usages - 1 WHERE id IN (SELECT tag_id FROM removed)" +
+        "), " +
+        "added AS (" +
+            "SELECT label FROM wanted WHERE NOT EXISTS (" +
+                "SELECT 1 FROM question_tag INNER JOIN tag ON tag.id = question_tag.tag_id " +
+                "WHERE question_tag.question_id = :questionId AND tag.label = wanted.label" +
+            ")" +
+        "), " +
+        "created AS (" +
+            "INSERT INTO tag (label, usages) SELECT label, 1 FROM added " +
+            "ON CONFLICT (label) DO NOTHING " +
+            "RETURNING id" +
+        "), " +
+        "associated AS (" +
+            "INSERT INTO question_tag (question_id, tag_id) " +
+            "SELECT :questionId, id FROM created " +
+            "UNION " +
+            "SELECT :questionId, tag.id FROM tag INNER JOIN added ON tag.label = added.label " +
+            "ON CONFLICT DO NOTHING " +
+            "RETURNING tag_id" +
+        "), " +
+        "counted AS (" +
+            "UPDATE tag SET usages = usages + 1 " +
+            "WHERE id IN (SELECT tag_id FROM associated) AND id NOT IN (SELECT id FROM created)" +
+        ") " +
+        "SELECT (SELECT COUNT(*) FROM removed) + (SELECT COUNT(*) FROM associated)")
+    Observable<Integer> replaceTagsOnQuestion(long questionId, List<String> labels);
+
+    @Query("SELECT id, label FROM tag ORDER BY usages DESC, label LIMIT 10")
+    Observable<Tag> getPopularTags();
 
-    @Update(value = "DELETE FROM tag WHERE id IN (SELECT id FROM tag_usage WHERE usages = 0)", minimumAffected = 0)
+    @Update(value = "DELETE FROM tag WHERE usages = 0", minimumAffected = 0)
     Observable<Integer> deleteUnusedTags();
 
-    @Update(value = "DELETE FROM question_tag WHERE question_id=:id", minimumAffected = 0)
+    /**
+     * Removes all tags from the question, counting each removed association off the usages of the tag.
+     * Must be called before the question is deleted, since deleting it removes the associations without doing so.
+     */
+    @Update(value =
+        "WITH removed AS (" +
+            "DELETE FROM question_tag WHERE question_id=:id RETURNING tag_id" +
+        ") " +
+        "UPDATE tag SET usages = usages - 1 WHERE id IN (SELECT tag_id FROM removed)",
+        minimumAffected = 0)
     Observable<Integer> removeTagAssociationFromQuestion(Long id);
 }
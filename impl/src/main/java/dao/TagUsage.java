@@ -0,0 +1,35 @@
+package dao;
+
+/**
+ * A tag together with the number of questions it is used on.
+ */
+public class TagUsage {
+
+    private long   id;
+    private String label;
+    private int    usages;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    public int getUsages() {
+        return usages;
+    }
+
+    public void setUsages(int usages) {
+        this.usages = usages;
+    }
+}
@@ -0,0 +1,32 @@
+package dao;
+
+/**
+ * The outcome of casting a vote on a question or answer.
+ */
+public class VoteResult {
+
+    private long    id;
+    private Integer votes;
+
+    /**
+     * @return the id of the question or answer voted on
+     */
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    /**
+     * @return the votes of the question or answer after the vote, or null if the vote was rejected
+     */
+    public Integer getVotes() {
+        return votes;
+    }
+
+    public void setVotes(Integer votes) {
+        this.votes = votes;
+    }
+}
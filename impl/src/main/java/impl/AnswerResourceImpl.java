@@ -2,12 +2,8 @@ package impl;
 
 import api.Answer;
 import api.AnswerResource;
-import api.Question;
-import api.UserResource;
 import api.auth.Auth;
-import com.github.seratch.jslack.api.model.block.LayoutBlock;
-import com.github.seratch.jslack.api.model.block.SectionBlock;
-import com.github.seratch.jslack.api.model.block.composition.MarkdownTextObject;
+import cache.InvalidationBus;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import dao.AnswerDao;
@@ -18,23 +14,22 @@ import io.netty.handler.codec.http.HttpResponseStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Observable;
-import rx.functions.Func1;
 import se.fortnox.reactivewizard.db.transactions.DaoTransactions;
 import se.fortnox.reactivewizard.jaxrs.WebException;
-import slack.SlackResource;
 
 import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Objects;
 
+import static cache.InvalidationBus.Topic.QUESTION;
+import static impl.QuestionResourceImpl.QUESTION_NOT_FOUND;
 import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
 import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
 import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
-import static java.util.Arrays.asList;
+import static rx.Observable.defer;
 import static rx.Observable.empty;
 import static rx.Observable.error;
 import static se.fortnox.reactivewizard.util.rx.RxUtils.exception;
-import static se.fortnox.reactivewizard.util.rx.RxUtils.first;
 
 @Singleton
 public class AnswerResourceImpl implements AnswerResource {
@@ -51,31 +46,24 @@ public class AnswerResourceImpl implements AnswerResource {
 
     private static final Logger LOG = LoggerFactory.getLogger(AnswerResourceImpl.class);
 
-    private final AnswerDao         answerDao;
-    private final QuestionDao       questionDao;
-    private final DaoTransactions   daoTransactions;
-    private final SlackResource     slackResource;
-    private final UserResource      userResource;
-    private final ApplicationConfig applicationConfig;
-    private final AnswerVoteDao     answerVoteDao;
+    private final AnswerDao               answerDao;
+    private final QuestionDao             questionDao;
+    private final DaoTransactions         daoTransactions;
+    private final AnswerVoteDao           answerVoteDao;
+    private final InvalidationBus         invalidationBus;
 
     @Inject
     public AnswerResourceImpl(AnswerDao answerDao,
         QuestionDao questionDao,
         DaoTransactions daoTransactions,
-        SlackResource slackResource,
-        UserResource userResource,
-        ApplicationConfig applicationConfig,
-        AnswerVoteDao answerVoteDao
-
+        AnswerVoteDao answerVoteDao,
+        InvalidationBus invalidationBus
     ) {
         this.answerDao = answerDao;
         this.questionDao = questionDao;
         this.daoTransactions = daoTransactions;
-        this.slackResource = slackResource;
-        this.userResource = userResource;
-        this.applicationConfig = applicationConfig;
         this.answerVoteDao = answerVoteDao;
+        this.invalidationBus = invalidationBus;
 
     }
 
@@ -84,52 +72,13 @@ public class AnswerResourceImpl implements AnswerResource {
         Objects.requireNonNull(answer.getAnswer());
 
         return this.answerDao.createAnswer(auth.getUserId(), questionId, answer)
-            .flatMap(generatedKey -> {
-                answer.setId(generatedKey.getKey());
-                return first(notifyQuestionOwner(auth, answer, questionId)).thenReturn(answer);
+            .map(answerId -> {
+                answer.setId(answerId);
+                invalidationBus.publish(QUESTION, questionId);
+                return answer;
             }).onErrorResumeNext(throwable ->
-                error(new WebException(INTERNAL_SERVER_ERROR, ERROR_ANSWER_NOT_CREATED, throwable)));
-    }
-
-    /**
-     * Notifies the owner of the question unless the questioner and answerer is the same user
-     *
-     * @param answer     the answer created
-     * @param questionId the id of the question
-     */
-    private Observable<Void> notifyQuestionOwner(Auth auth, Answer answer, long questionId) {
-        return questionDao.getQuestion(questionId)
-            .flatMap(question -> {
-                if (!question.getUserId().equals(auth.getUserId())) {
-                    return userResource.getUserById(question.getUserId())
-                        .flatMap(user -> slackResource.getUserId(user.getEmail()))
-                        .filter(userId -> !userId.equals(String.valueOf(answer.getUserId()))) //Don't notify if question owner writes a response
-                        .flatMap(slackUserId -> slackResource.postMessageToSlackAsBotUser(slackUserId, notificationMessage(answer, question)))
-                        .onErrorResumeNext(throwable -> {
-                            LOG.warn("Could not notify question owner: " + question.getUserId(), throwable);
-                            return empty();
-                        });
-                }
-                return empty();
-            });
-    }
-
-    private List<LayoutBlock> notificationMessage(Answer answer, Question question) {
-        return asList(SectionBlock.builder()
-                .text(markdownText("Your question: *%s* got an answer:", question.getTitle()))
-                .build(),
-            SectionBlock.builder()
-                .text(markdownText(answer.getAnswer()))
-                .build(),
-            SectionBlock.builder()
-                .text(markdownText("Head over to %s to accept the answer", slackUrl(question.getId(), answer.getId(), applicationConfig)))
-                .build());
-    }
-
-    private static MarkdownTextObject markdownText(String string, String... args) {
-        return MarkdownTextObject.builder()
-            .text(String.format(string, args))
-            .build();
+                error(new WebException(INTERNAL_SERVER_ERROR, ERROR_ANSWER_NOT_CREATED, throwable)))
+            .switchIfEmpty(exception(() -> new WebException(NOT_FOUND, QUESTION_NOT_FOUND)));
     }
 
     /**
@@ -174,29 +123,39 @@ public class AnswerResourceImpl implements AnswerResource {
 
     @Override
     public Observable<Void> updateAnswer(Auth auth, long answerId, Answer answer) {
-        return answerDao.getAnswerById(answerId)
-            .onErrorResumeNext(throwable -> error(new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_GET_ANSWER_FROM_DATABASE, throwable)))
-            .switchIfEmpty(exception(() -> new WebException(HttpResponseStatus.NOT_FOUND, ANSWER_NOT_FOUND)))
-            .flatMap(storedAnswer -> {
-                if (auth.getUserId() != storedAnswer.getUserId()) {
-                    return error(new WebException(HttpResponseStatus.FORBIDDEN, NOT_OWNER_OF_ANSWER));
-                }
-                return answerDao.updateAnswer(auth.getUserId(), answerId, answer)
-                    .onErrorResumeNext(throwable -> error(new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_UPDATE_ANSWER, throwable)));
-            });
+        return answerDao.updateAnswer(auth.getUserId(), answerId, answer)
+            .onErrorResumeNext(throwable -> error(new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_UPDATE_ANSWER, throwable)))
+            .switchIfEmpty(defer(() -> explainFailedWrite(auth, answerId, new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_UPDATE_ANSWER))))
+            .doOnNext(questionId -> invalidationBus.publish(QUESTION, questionId))
+            .ignoreElements()
+            .cast(Void.class);
     }
 
     @Override
     public Observable<Void> deleteAnswer(Auth auth, long answerId) {
-        return answerDao.getAnswerById(answerId)
+        return answerDao.deleteAnswer(auth.getUserId(), answerId)
+            .onErrorResumeNext(throwable -> error(new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_DELETE_ANSWER, throwable)))
+            .switchIfEmpty(defer(() -> explainFailedWrite(auth, answerId, new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_DELETE_ANSWER))))
+            .doOnNext(deletedAnswer -> invalidationBus.publish(QUESTION, deletedAnswer.getQuestionId()))
+            .ignoreElements()
+            .cast(Void.class);
+    }
+
+    /**
+     * Finds out why a write restricted to the answers of the user did not change the answer. Only
+     * done when the write fails, so that a successful write needs no lookup of the answer.
+     *
+     * @param failure the error to respond with if the answer exists and is owned by the user
+     */
+    private <T> Observable<T> explainFailedWrite(Auth auth, long answerId, WebException failure) {
+        return answerDao.getAnswerReference(answerId)
             .onErrorResumeNext(throwable -> error(new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_GET_ANSWER_FROM_DATABASE, throwable)))
             .switchIfEmpty(exception(() -> new WebException(HttpResponseStatus.NOT_FOUND, ANSWER_NOT_FOUND)))
             .flatMap(storedAnswer -> {
                 if (auth.getUserId() != storedAnswer.getUserId()) {
                     return error(new WebException(HttpResponseStatus.FORBIDDEN, NOT_OWNER_OF_ANSWER));
                 }
-                return answerDao.deleteAnswer(auth.getUserId(), answerId)
-                    .onErrorResumeNext(throwable -> error(new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_DELETE_ANSWER, throwable)));
+                return error(failure);
             });
     }
 
@@ -220,37 +179,20 @@ public class AnswerResourceImpl implements AnswerResource {
                 }
                 Observable<Integer> markAnswerAsAccepted   = answerDao.markAsAccepted(answerId);
                 Observable<Integer> markQuestionAsAnswered = questionDao.markAsAnswered(auth.getUserId(), answer.getQuestionId());
-                return daoTransactions.executeTransaction(markAnswerAsAccepted, markQuestionAsAnswered);
+                return daoTransactions.executeTransaction(markAnswerAsAccepted, markQuestionAsAnswered)
+                    .doOnCompleted(() -> invalidationBus.publish(QUESTION, answer.getQuestionId()));
             });
     }
 
 
     private Observable<Void> handleVote(AnswerVote newVote) {
-        return answerDao.getAnswerById(newVote.getAnswerId())
-            .flatMap(validateAnswerAndGetExistingVote(newVote))
-            .flatMap(validateVoteAndRemoveIfZero(newVote))
-            .switchIfEmpty(answerVoteDao.createVote(newVote).map(i -> newVote))
-            .ignoreElements()
-            .cast(Void.class);
-    }
-
-    private Func1<Answer, Observable<AnswerVote>> validateAnswerAndGetExistingVote(AnswerVote newVote) {
-        return answer -> {
-            if (answer.getUserId() == newVote.getUserId()) { // no voting for your own answer
-                return error(new WebException(BAD_REQUEST, INVALID_VOTE));
-            }
-            return answerVoteDao.findVote(newVote.getUserId(), newVote.getAnswerId());
-        };
-    }
-
-    private Func1<AnswerVote, Observable<AnswerVote>> validateVoteAndRemoveIfZero(AnswerVote newVote) {
-        return existingVote -> {
-            int totalVote = newVote.getValue() + existingVote.getValue();
-            if (totalVote == 0) {
-                return answerVoteDao.deleteVote(existingVote.getUserId(), existingVote.getAnswerId())
-                    .map(i -> existingVote);
-            }
-            return error(new WebException(BAD_REQUEST, INVALID_VOTE));
-        };
+        return answerVoteDao.castVote(newVote)
+            .switchIfEmpty(exception(() -> new WebException(NOT_FOUND, ANSWER_NOT_FOUND)))
+            .flatMap(result -> {
+                if (result.getVotes() == null) { // own answer, or already voted this way
+                    return error(new WebException(BAD_REQUEST, INVALID_VOTE));
+                }
+                return empty();
+            });
     }
 }
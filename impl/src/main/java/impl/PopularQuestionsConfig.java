@@ -0,0 +1,46 @@
+package impl;
+
+import se.fortnox.reactivewizard.config.Config;
+
+@Config("popularQuestions")
+public class PopularQuestionsConfig {
+
+    /**
+     * Defines if popular questions should be served from an in-memory ranking
+     */
+    private boolean enabled = true;
+
+    /**
+     * The longest time a ranking may be served before it is refreshed from the database
+     */
+    private long maxStalenessSeconds = 30;
+
+    /**
+     * The shortest time between two refreshes of a ranking, however often questions, answers or votes change
+     */
+    private long minRefreshIntervalSeconds = 5;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaxStalenessSeconds() {
+        return maxStalenessSeconds;
+    }
+
+    public void setMaxStalenessSeconds(long maxStalenessSeconds) {
+        this.maxStalenessSeconds = maxStalenessSeconds;
+    }
+
+    public long getMinRefreshIntervalSeconds() {
+        return minRefreshIntervalSeconds;
+    }
+
+    public void setMinRefreshIntervalSeconds(long minRefreshIntervalSeconds) {
+        this.minRefreshIntervalSeconds = minRefreshIntervalSeconds;
+    }
+}
@@ -0,0 +1,193 @@
+package impl;
+
+import api.Question;
+import cache.InvalidationBus;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import dao.QuestionDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.functions.Func1;
+import se.fortnox.reactivewizard.CollectionOptions;
+import se.fortnox.reactivewizard.db.paging.CollectionOptionsWithResult;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static cache.InvalidationBus.Topic.QUESTION;
+import static cache.InvalidationBus.Topic.VOTE;
+import static rx.Observable.defer;
+import static rx.Observable.from;
+import static rx.Observable.just;
+
+/**
+ * Keeps the top of the popular and popular unanswered listings in memory, so that the
+ * listings shown on every page load does not have to hit the database.
+ *
+ * A ranking is refreshed from the database when it is older than the configured staleness
+ * bound or when a change of a question has been published on the {@link InvalidationBus} since it
+ * was loaded. As every vote publishes a change, a changed ranking is refreshed at most once per
+ * configured refresh interval. Pages beyond what is kept in memory are fetched from the database.
+ */
+@Singleton
+public class PopularQuestionsRanking {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PopularQuestionsRanking.class);
+
+    /**
+     * Must match the limits of the listings in {@link QuestionDao}
+     */
+    static final int DEFAULT_LIMIT = 10;
+    static final int MAX_LIMIT     = 50;
+
+    private final PopularQuestionsConfig config;
+    private final AtomicLong             generation        = new AtomicLong();
+    private final AtomicLong             refreshCount      = new AtomicLong();
+    private final AtomicLong             refreshTimeMillis = new AtomicLong();
+    private final Ranking                popular;
+    private final Ranking                popularUnanswered;
+
+    @Inject
+    public PopularQuestionsRanking(QuestionDao questionDao, PopularQuestionsConfig config, InvalidationBus invalidationBus) {
+        this.config = config;
+        this.popular = new Ranking("popular", questionDao::getPopularQuestions);
+        this.popularUnanswered = new Ranking("popular unanswered", questionDao::getPopularUnansweredQuestions);
+
+        invalidationBus.subscribe(QUESTION, changed -> invalidate());
+        invalidationBus.subscribe(VOTE, changed -> invalidate());
+    }
+
+    public Observable<Question> getPopularQuestions(CollectionOptions options) {
+        return popular.get(options);
+    }
+
+    public Observable<Question> getPopularUnansweredQuestions(CollectionOptions options) {
+        return popularUnanswered.get(options);
+    }
+
+    /**
+     * Marks the rankings as outdated, to be called when votes, questions or answers has changed.
+     * They are refreshed once the refresh interval has passed since they were loaded.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * @return the number of times a ranking has been loaded from the database
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * @return the total time spent loading rankings from the database
+     */
+    public long getRefreshTimeMillis() {
+        return refreshTimeMillis.get();
+    }
+
+    private class Ranking {
+        private final String                                          name;
+        private final Func1<CollectionOptions, Observable<Question>> source;
+        private volatile Snapshot                                     snapshot;
+        private          Observable<Snapshot>                         refreshing;
+
+        private Ranking(String name, Func1<CollectionOptions, Observable<Question>> source) {
+            this.name = name;
+            this.source = source;
+        }
+
+        private Observable<Question> get(CollectionOptions options) {
+            if (!config.isEnabled()) {
+                return source.call(options);
+            }
+            int limit  = limitOf(options);
+            int offset = options == null || options.getOffset() == null ? 0 : options.getOffset();
+
+            return current().concatMap(current -> {
+                // one more than the limit is fetched, to tell if there are more questions
+                if (!current.complete && offset + limit + 1 > current.questions.size()) {
+                    return source.call(options);
+                }
+                List<Question> page = current.questions.subList(
+                    Math.min(offset, current.questions.size()),
+                    Math.min(offset + limit + 1, current.questions.size()));
+
+                if (options instanceof CollectionOptionsWithResult) {
+                    ((CollectionOptionsWithResult)options).setLastRecord(page.size() <= limit);
+                    page = page.subList(0, Math.min(limit, page.size()));
+                }
+                return from(page);
+            });
+        }
+
+        private Observable<Snapshot> current() {
+            return defer(() -> {
+                Snapshot current = snapshot;
+                if (current != null && current.isFresh()) {
+                    return just(current);
+                }
+                return refresh();
+            });
+        }
+
+        private synchronized Observable<Snapshot> refresh() {
+            if (refreshing == null) {
+                long loadedGeneration = generation.get();
+                long startTime        = System.currentTimeMillis();
+                CollectionOptionsWithResult options = new CollectionOptionsWithResult(MAX_LIMIT, null, null, null);
+
+                refreshing = source.call(options)
+                    .toList()
+                    .map(questions -> new Snapshot(questions, options.isLastRecord(), loadedGeneration, System.currentTimeMillis()))
+                    .doOnNext(loaded -> {
+                        snapshot = loaded;
+                        long time = loaded.loadedAt - startTime;
+                        refreshCount.incrementAndGet();
+                        refreshTimeMillis.addAndGet(time);
+                        LOG.debug("Refreshed {} ranking with {} questions in {} ms", name, loaded.questions.size(), time);
+                    })
+                    .doOnTerminate(this::refreshed)
+                    .cache();
+            }
+            return refreshing;
+        }
+
+        private synchronized void refreshed() {
+            refreshing = null;
+        }
+    }
+
+    private class Snapshot {
+        private final List<Question> questions;
+        private final boolean        complete;
+        private final long           generation;
+        private final long           loadedAt;
+
+        private Snapshot(List<Question> questions, boolean complete, long generation, long loadedAt) {
+            this.questions = questions;
+            this.complete = complete;
+            this.generation = generation;
+            this.loadedAt = loadedAt;
+        }
+
+        private boolean isFresh() {
+            long age = System.currentTimeMillis() - loadedAt;
+            if (age < TimeUnit.SECONDS.toMillis(config.getMinRefreshIntervalSeconds())) {
+                return true;
+            }
+            return generation == PopularQuestionsRanking.this.generation.get()
+                && age < TimeUnit.SECONDS.toMillis(config.getMaxStalenessSeconds());
+        }
+    }
+
+    private static int limitOf(CollectionOptions options) {
+        if (options == null || options.getLimit() == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(options.getLimit(), MAX_LIMIT);
+    }
+}
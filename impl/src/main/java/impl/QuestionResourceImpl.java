@@ -4,29 +4,33 @@ import api.Question;
 import api.QuestionResource;
 import api.Tag;
 import api.auth.Auth;
-import com.github.seratch.jslack.api.model.block.LayoutBlock;
-import com.github.seratch.jslack.api.model.block.SectionBlock;
-import com.github.seratch.jslack.api.model.block.composition.MarkdownTextObject;
+import cache.InvalidationBus;
+import cache.ResponseCache;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import dao.QuestionCursor;
 import dao.QuestionDao;
 import dao.QuestionVote;
 import dao.QuestionVoteDao;
 import dao.TagDao;
+import jaxrs.CursorCollectionOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Observable;
+import rx.functions.Func0;
 import rx.functions.Func1;
 import se.fortnox.reactivewizard.CollectionOptions;
 import se.fortnox.reactivewizard.db.transactions.DaoTransactions;
 import se.fortnox.reactivewizard.jaxrs.WebException;
-import slack.SlackConfig;
-import slack.SlackResource;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+import static cache.InvalidationBus.Topic.QUESTION;
+import static cache.InvalidationBus.Topic.TAG;
+import static cache.InvalidationBus.Topic.VOTE;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
 import static io.netty.handler.codec.http.HttpResponseStatus.FORBIDDEN;
@@ -34,6 +38,8 @@ import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERR
 import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
 import static rx.Observable.empty;
 import static rx.Observable.error;
 import static rx.Observable.just;
@@ -57,26 +63,42 @@ public class QuestionResourceImpl implements QuestionResource {
     public static final  String FAILED_TO_GET_RECENTLY_ACCEPTED_QUESTIONS  = "failed.to.get.recently.accepted.questions";
     public static final  String FAILED_TO_ADD_QUESTION_TO_DATABASE         = "failed.to.add.question.to.database";
     public static final  String FAILED_TO_UPDATE_TAGS_ON_QUESTION          = "failed.to.update.tags.on.question";
+    public static final  String INVALID_CURSOR                             = "invalid.cursor";
+    public static final  String NEXT_CURSOR_HEADER                         = "X-Next-Cursor";
+
+    private static final String LATEST_QUESTIONS_PATH            = "questions/latest";
+    private static final String POPULAR_QUESTIONS_PATH           = "questions/popular";
+    private static final String RECENTLY_ACCEPTED_QUESTIONS_PATH = "questions/recentlyaccepted";
 
     private final QuestionDao       questionDao;
     private final QuestionVoteDao   questionVoteDao;
-    private final SlackResource     slackResource;
-    private final SlackConfig       slackConfig;
-    private final ApplicationConfig applicationConfig;
     private final TagDao            tagDao;
     private final DaoTransactions daoTransactions;
+    private final PopularQuestionsRanking popularQuestionsRanking;
+    private final ResponseHeaderHolder responseHeaderHolder;
+    private final InvalidationBus invalidationBus;
+    private final ResponseCache responseCache;
 
     @Inject
     public QuestionResourceImpl(QuestionDao questionDao, QuestionVoteDao questionVoteDao,
-                                SlackResource slackResource, SlackConfig slackConfig, ApplicationConfig applicationConfig,
-                                TagDao tagDao, DaoTransactions daoTransactions) {
+                                TagDao tagDao, DaoTransactions daoTransactions, PopularQuestionsRanking popularQuestionsRanking,
+                                ResponseHeaderHolder responseHeaderHolder, InvalidationBus invalidationBus, ResponseCache responseCache) {
         this.questionDao = questionDao;
         this.questionVoteDao = questionVoteDao;
-        this.slackResource = slackResource;
-        this.slackConfig = slackConfig;
-        this.applicationConfig = applicationConfig;
         this.tagDao = tagDao;
         this.daoTransactions = daoTransactions;
+        this.popularQuestionsRanking = popularQuestionsRanking;
+        this.responseHeaderHolder = responseHeaderHolder;
+        this.invalidationBus = invalidationBus;
+        this.responseCache = responseCache;
+
+        // a vote may reorder the popular questions, but only changes the other listings on the pages showing the question
+        responseCache.evictOn(QUESTION, LATEST_QUESTIONS_PATH);
+        responseCache.evictOn(QUESTION, POPULAR_QUESTIONS_PATH);
+        responseCache.evictOn(QUESTION, RECENTLY_ACCEPTED_QUESTIONS_PATH);
+        responseCache.evictOn(VOTE, POPULAR_QUESTIONS_PATH);
+        responseCache.evictOn(VOTE, LATEST_QUESTIONS_PATH, QuestionResourceImpl::contains);
+        responseCache.evictOn(VOTE, RECENTLY_ACCEPTED_QUESTIONS_PATH, QuestionResourceImpl::contains);
     }
 
     @Override
@@ -102,42 +124,45 @@ public class QuestionResourceImpl implements QuestionResource {
 
     @Override
     public Observable<List<Question>> getLatestQuestions(CollectionOptions options) {
-        return handleError(questionDao.getLatestQuestions(options), FAILED_TO_GET_LATEST_QUESTIONS);
+        return listCachedQuestions(LATEST_QUESTIONS_PATH, options, false,
+            () -> questionDao.getLatestQuestions(options),
+            cursor -> questionDao.getLatestQuestionsAfter(cursor, options),
+            FAILED_TO_GET_LATEST_QUESTIONS);
     }
 
     @Override
     public Observable<List<Question>> getPopularQuestions(CollectionOptions options) {
-        return handleError(questionDao.getPopularQuestions(options), FAILED_TO_GET_POPULAR_QUESTIONS);
+        return listCachedQuestions(POPULAR_QUESTIONS_PATH, options, true,
+            () -> popularQuestionsRanking.getPopularQuestions(options),
+            cursor -> questionDao.getPopularQuestionsAfter(cursor, options),
+            FAILED_TO_GET_POPULAR_QUESTIONS);
     }
 
     @Override
     public Observable<List<Question>> getPopularUnansweredQuestions(CollectionOptions options) {
-        return handleError(questionDao.getPopularUnansweredQuestions(options), FAILED_TO_GET_POPULAR_UNANSWERED_QUESTIONS);
+        return listQuestions(options, true,
+            () -> popularQuestionsRanking.getPopularUnansweredQuestions(options),
+            cursor -> questionDao.getPopularUnansweredQuestionsAfter(cursor, options),
+            FAILED_TO_GET_POPULAR_UNANSWERED_QUESTIONS);
     }
 
     @Override
     public Observable<List<Question>> getRecentlyAcceptedQuestions(CollectionOptions options) {
-        return handleError(questionDao.getRecentlyAcceptedQuestions(options), FAILED_TO_GET_RECENTLY_ACCEPTED_QUESTIONS);
+        return responseCache.get(ResponseCache.key(RECENTLY_ACCEPTED_QUESTIONS_PATH, options), ifNoneMatch(options),
+            () -> handleError(questionDao.getRecentlyAcceptedQuestions(options), FAILED_TO_GET_RECENTLY_ACCEPTED_QUESTIONS),
+            questions -> emptyMap());
     }
 
     @Override
     public Observable<Question> createQuestion(Auth auth, Question question) {
         return this.questionDao
             .addQuestion(auth.getUserId(), question)
-            .map(longGeneratedKey -> {
-                question.setId(longGeneratedKey.getKey());
+            .map(questionId -> {
+                question.setId(questionId);
+                invalidationBus.publish(QUESTION, question.getId());
                 return question;
             })
             .onErrorResumeNext(throwable -> error(new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_ADD_QUESTION_TO_DATABASE, throwable)))
-            .concatMap(savedQuestion -> {
-                return slackResource.postMessageToSlack(slackConfig.getFeedChannel(), notificationMessage(question))
-                    .onErrorResumeNext(e -> {
-                        LOG.error("failed to notify by slack that question has been added", e);
-                        return empty();
-                    })
-                    .cast(Question.class)
-                    .switchIfEmpty(just(savedQuestion));
-            })
             .concatMap(savedQuestion -> {
                 return associateTagsWithCreatedQuestion(savedQuestion, question.getTags())
                     .cast(Question.class)
@@ -145,7 +170,8 @@ public class QuestionResourceImpl implements QuestionResource {
                         questionDao.getQuestion(savedQuestion.getId())
                             .onErrorResumeNext(throwable ->
                                 error(new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_GET_QUESTION_FROM_DATABASE, throwable)))
-                    );
+                    )
+                    .doOnNext(storedQuestion -> publishTagChanges(tagIdsOf(storedQuestion)));
 
             });
     }
@@ -158,34 +184,12 @@ public class QuestionResourceImpl implements QuestionResource {
             .stream()
             .map(tag -> tag.getLabel().toLowerCase())
             .collect(Collectors.toList());
-        List<Observable<Integer>> daoCalls = lowerCasedTags
-            .stream()
-            .map(tagDao::mergeTag)
-            .collect(Collectors.toList());
-        daoCalls.add(tagDao.associateTagsWithQuestion(question.getId(), lowerCasedTags));
-        daoCalls.add(tagDao.deleteUnusedTags());
-        return daoTransactions
-            .executeTransaction(daoCalls)
-            .onErrorResumeNext(throwable -> error(new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_UPDATE_TAGS_ON_QUESTION, throwable)));
-    }
-
-    private List<LayoutBlock> notificationMessage(Question question) {
-        return asList(SectionBlock.builder()
-                .text(markdownText("A new question: *%s* was submitted.", question.getTitle()))
-                .build(),
-            SectionBlock.builder()
-                .text(markdownText("Head over to %s to view the question.", questionUrl(question.getId())))
-                .build());
-    }
-
-    private String questionUrl(long questionId) {
-        return "<" + applicationConfig.getBaseUrl() + "/question/" + questionId + "|rocket-fuel>";
-    }
-
-    private static MarkdownTextObject markdownText(String string, String... args) {
-        return MarkdownTextObject.builder()
-            .text(String.format(string, args))
-            .build();
+        // a new question has no tags to remove, so no tag can become unused
+        return tagDao.replaceTagsOnQuestion(question.getId(), lowerCasedTags)
+            .ignoreElements()
+            .cast(Void.class)
+            .onErrorResumeNext(throwable -> error(new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_UPDATE_TAGS_ON_QUESTION, throwable)))
+            .doOnCompleted(() -> invalidationBus.publish(QUESTION, question.getId()));
     }
 
     @Override
@@ -194,7 +198,15 @@ public class QuestionResourceImpl implements QuestionResource {
             return just(emptyList());
         }
         QuestionSearchOptions questionSearchOptions = QuestionSearchOptions.from(searchQuery);
-        return questionDao.getQuestions(questionSearchOptions, options)
+        Observable<Question>  questions;
+        if (!questionSearchOptions.getTextQuery().isEmpty()) {
+            questions = questionDao.getQuestions(questionSearchOptions, options);
+        } else if (!questionSearchOptions.getTags().isEmpty()) {
+            questions = questionDao.getQuestionsByTags(questionSearchOptions, options);
+        } else {
+            return just(emptyList());
+        }
+        return questions
             .onErrorResumeNext(e -> {
                 LOG.error("failed to search for questions with search query: [{}]", searchQuery);
                 return error(new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_SEARCH_FOR_QUESTIONS, e));
@@ -203,65 +215,119 @@ public class QuestionResourceImpl implements QuestionResource {
 
     @Override
     public Observable<List<Question>> getQuestions(long userId, CollectionOptions options) {
-        return handleError(questionDao.getQuestions(userId, options), FAILED_TO_GET_QUESTIONS_FROM_DATABASE);
+        return listQuestions(options, false,
+            () -> questionDao.getQuestions(userId, options),
+            cursor -> questionDao.getQuestionsAfter(userId, cursor, options),
+            FAILED_TO_GET_QUESTIONS_FROM_DATABASE);
     }
 
     @Override
     public Observable<Question> updateQuestion(Auth auth, long questionId, Question question) {
-        return questionDao.getQuestion(questionId)
+        if (question.getTags() == null) { // Null means we shouldn't touch existing tags
+            return updateQuestion(auth, questionId, question, emptyList());
+        }
+        return tagDao.getTagIdsOfQuestion(questionId)
+            .toList()
             .onErrorResumeNext(throwable -> error(new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_GET_QUESTION_FROM_DATABASE, throwable)))
-            .switchIfEmpty(exception(() -> new WebException(NOT_FOUND, QUESTION_NOT_FOUND)))
-            .concatMap(storedQuestion -> {
-                if (auth.getUserId() != storedQuestion.getUserId()) {
-                    return error(new WebException(FORBIDDEN, NOT_OWNER_OF_QUESTION));
-                }
-                List<Observable<Integer>> daoCalls = new ArrayList<>();
-                daoCalls.add(questionDao.updateQuestion(auth.getUserId(), questionId, question));
-                if(question.getTags() != null) { // Null means we shouldn't touch existing tags
-                    List<String> labels = question
-                        .getTags()
-                        .stream()
-                        .map(tag -> tag.getLabel().toLowerCase())
-                        .collect(Collectors.toList());
-                    for (Tag tag : question.getTags()) {
-                        daoCalls.add(tagDao.mergeTag(tag.getLabel()));
-                    }
-                    daoCalls.add(tagDao.removeTagAssociationFromQuestion(storedQuestion.getId()));
-                    daoCalls.add(tagDao.associateTagsWithQuestion(storedQuestion.getId(), labels));
-                    daoCalls.add(tagDao.deleteUnusedTags());
-                }
+            .concatMap(previousTagIds -> updateQuestion(auth, questionId, question, previousTagIds));
+    }
 
-                return daoTransactions
-                    .executeTransaction(daoCalls)
-                    .ignoreElements()
-                    .cast(Question.class)
-                    .onErrorResumeNext(throwable -> error(new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_UPDATE_QUESTION_TO_DATABASE, throwable)))
-                    .concatWith(
-                        questionDao.getQuestion(storedQuestion.getId())
-                            .onErrorResumeNext(throwable -> error(new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_GET_QUESTION_FROM_DATABASE, throwable)))
-                            .switchIfEmpty(exception(() -> new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_GET_QUESTION_FROM_DATABASE)))
-                    )
-                    .last();
+    private Observable<Question> updateQuestion(Auth auth, long questionId, Question question, List<Long> previousTagIds) {
+        // the update only affects questions owned by the user, which fails the transaction otherwise
+        List<Observable<Integer>> daoCalls = new ArrayList<>();
+        daoCalls.add(questionDao.updateQuestion(auth.getUserId(), questionId, question));
+        if(question.getTags() != null) {
+            List<String> labels = question
+                .getTags()
+                .stream()
+                .map(tag -> tag.getLabel().toLowerCase())
+                .collect(Collectors.toList());
+            daoCalls.add(tagDao.replaceTagsOnQuestion(questionId, labels));
+            daoCalls.add(tagDao.deleteUnusedTags());
+        }
+
+        return daoTransactions
+            .executeTransaction(daoCalls)
+            .ignoreElements()
+            .cast(Question.class)
+            .onErrorResumeNext(throwable -> explainFailedWrite(auth, questionId, new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_UPDATE_QUESTION_TO_DATABASE, throwable)))
+            .doOnCompleted(() -> {
+                invalidationBus.publish(QUESTION, questionId);
+                publishTagChanges(previousTagIds);
+            })
+            .concatWith(
+                questionDao.getQuestion(questionId)
+                    .onErrorResumeNext(throwable -> error(new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_GET_QUESTION_FROM_DATABASE, throwable)))
+                    .switchIfEmpty(exception(() -> new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_GET_QUESTION_FROM_DATABASE)))
+            )
+            .last()
+            .doOnNext(updatedQuestion -> {
+                if (question.getTags() != null) {
+                    List<Long> addedTagIds = tagIdsOf(updatedQuestion);
+                    addedTagIds.removeAll(previousTagIds);
+                    publishTagChanges(addedTagIds);
+                }
             });
     }
 
     @Override
     public Observable<Void> deleteQuestion(Auth auth, long questionId) {
-        return questionDao.getQuestion(questionId)
+        return tagDao.getTagIdsOfQuestion(questionId)
+            .toList()
+            .onErrorResumeNext(throwable -> error(new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_DELETE_QUESTION, throwable)))
+            .concatMap(previousTagIds -> deleteQuestion(auth, questionId, previousTagIds));
+    }
+
+    private Observable<Void> deleteQuestion(Auth auth, long questionId, List<Long> previousTagIds) {
+        // the delete only affects questions owned by the user, which fails the transaction otherwise
+        List<Observable<Integer>> daoCalls = asList(
+            tagDao.removeTagAssociationFromQuestion(questionId),
+            questionDao.deleteQuestion(auth.getUserId(), questionId),
+            tagDao.deleteUnusedTags()
+        );
+        return daoTransactions
+            .executeTransaction(daoCalls)
+            .ignoreElements()
+            .onErrorResumeNext(throwable -> explainFailedWrite(auth, questionId, new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_DELETE_QUESTION, throwable)))
+            .doOnCompleted(() -> {
+                invalidationBus.publish(QUESTION, questionId);
+                publishTagChanges(previousTagIds);
+            });
+    }
+
+    /**
+     * Publishes the tags that may have been created, deleted, added to or removed from a question,
+     * so that the tag index updates just those tags.
+     */
+    private void publishTagChanges(List<Long> tagIds) {
+        tagIds.forEach(tagId -> invalidationBus.publish(TAG, tagId));
+    }
+
+    private static List<Long> tagIdsOf(Question question) {
+        if (question.getTags() == null) {
+            return new ArrayList<>();
+        }
+        return question.getTags()
+            .stream()
+            .map(Tag::getId)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds out why a write restricted to the questions of the user failed. Only done when the write
+     * fails, so that a successful write needs no lookup of the question.
+     *
+     * @param failure the error to respond with if the question exists and is owned by the user
+     */
+    private <T> Observable<T> explainFailedWrite(Auth auth, long questionId, WebException failure) {
+        return questionDao.getQuestionReference(questionId)
             .onErrorResumeNext(throwable -> error(new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_GET_QUESTION_FROM_DATABASE, throwable)))
             .switchIfEmpty(exception(() -> new WebException(NOT_FOUND, QUESTION_NOT_FOUND)))
             .concatMap(storedQuestion -> {
                 if (auth.getUserId() != storedQuestion.getUserId()) {
                     return error(new WebException(FORBIDDEN, NOT_OWNER_OF_QUESTION));
                 }
-                List<Observable<Integer>> daoCalls = asList(
-                    questionDao.deleteQuestion(auth.getUserId(), questionId),
-                    tagDao.deleteUnusedTags()
-                );
-                return daoTransactions
-                    .executeTransaction(daoCalls)
-                    .ignoreElements()
-                    .onErrorResumeNext(throwable -> error(new WebException(INTERNAL_SERVER_ERROR, FAILED_TO_DELETE_QUESTION, throwable)));
+                return error(failure);
             });
     }
 
@@ -276,32 +342,90 @@ public class QuestionResourceImpl implements QuestionResource {
     }
 
     private Observable<Void> handleVote(QuestionVote newVote) {
-        return questionDao.getQuestion(newVote.getQuestionId())
-            .flatMap(validateQuestionAndGetExistingVote(newVote))
-            .flatMap(validateVoteAndRemoveIfZero(newVote))
-            .switchIfEmpty(questionVoteDao.createVote(newVote).map(i -> newVote))
-            .ignoreElements()
-            .cast(Void.class);
+        return questionVoteDao.castVote(newVote)
+            .switchIfEmpty(exception(() -> new WebException(NOT_FOUND, QUESTION_NOT_FOUND)))
+            .flatMap(result -> {
+                if (result.getVotes() == null) { // own question, or already voted this way
+                    return error(new WebException(BAD_REQUEST, INVALID_VOTE));
+                }
+                invalidationBus.publish(VOTE, newVote.getQuestionId());
+                return empty();
+            });
     }
 
-    private Func1<Question, Observable<QuestionVote>> validateQuestionAndGetExistingVote(QuestionVote newVote) {
-        return question -> {
-            if (question.getUserId() == newVote.getUserId()) { // no voting for your own question
-                return error(new WebException(BAD_REQUEST, INVALID_VOTE));
-            }
-            return questionVoteDao.findVote(newVote.getUserId(), newVote.getQuestionId());
-        };
+    /**
+     * Lists questions from the start, or after the cursor when the request has one. The cursor to the
+     * next page is returned in a response header.
+     *
+     * @param options       the collection options of the request
+     * @param rankedByVotes if the listing is ordered by votes rather than creation
+     * @param fromStart     the questions from the start of the listing
+     * @param afterCursor   the questions after a cursor
+     * @param errorCode     the error to respond with when the questions cannot be fetched
+     */
+    private Observable<List<Question>> listQuestions(CollectionOptions options, boolean rankedByVotes,
+                                                     Func0<Observable<Question>> fromStart,
+                                                     Func1<QuestionCursor, Observable<Question>> afterCursor,
+                                                     String errorCode) {
+        return pageOfQuestions(options, rankedByVotes, fromStart, afterCursor, errorCode)
+            .doOnNext(page -> {
+                Map<String, Object> headers = nextCursorHeader(options, page, rankedByVotes);
+                if (!headers.isEmpty()) {
+                    responseHeaderHolder.addHeaders(page, headers);
+                }
+            });
+    }
+
+    /**
+     * Lists questions like {@link #listQuestions}, for listings that are the same for every user and are
+     * served from the {@link ResponseCache}.
+     *
+     * @param path the path of the listing, which together with the collection options is its cache key
+     */
+    private Observable<List<Question>> listCachedQuestions(String path, CollectionOptions options, boolean rankedByVotes,
+                                                           Func0<Observable<Question>> fromStart,
+                                                           Func1<QuestionCursor, Observable<Question>> afterCursor,
+                                                           String errorCode) {
+        return responseCache.get(ResponseCache.key(path, options), ifNoneMatch(options),
+            () -> pageOfQuestions(options, rankedByVotes, fromStart, afterCursor, errorCode),
+            page -> nextCursorHeader(options, page, rankedByVotes));
     }
 
-    private Func1<QuestionVote, Observable<QuestionVote>> validateVoteAndRemoveIfZero(QuestionVote newVote) {
-        return existingVote -> {
-            int totalVote = newVote.getValue() + existingVote.getValue();
-            if (totalVote == 0) {
-                return questionVoteDao.deleteVote(existingVote.getUserId(), existingVote.getQuestionId())
-                    .map(i -> existingVote);
+    private static Observable<List<Question>> pageOfQuestions(CollectionOptions options, boolean rankedByVotes,
+                                                              Func0<Observable<Question>> fromStart,
+                                                              Func1<QuestionCursor, Observable<Question>> afterCursor,
+                                                              String errorCode) {
+        if (!(options instanceof CursorCollectionOptions)) {
+            return handleError(fromStart.call(), errorCode);
+        }
+        String               encodedCursor = ((CursorCollectionOptions)options).getCursor();
+        Observable<Question> questions;
+        if (encodedCursor == null) {
+            questions = fromStart.call();
+        } else {
+            try {
+                questions = afterCursor.call(QuestionCursor.decode(encodedCursor, rankedByVotes));
+            } catch (IllegalArgumentException e) {
+                return error(new WebException(BAD_REQUEST, INVALID_CURSOR, e));
             }
-            return error(new WebException(BAD_REQUEST, INVALID_VOTE));
-        };
+        }
+        return handleError(questions, errorCode);
+    }
+
+    private static Map<String, Object> nextCursorHeader(CollectionOptions options, List<Question> page, boolean rankedByVotes) {
+        if (!(options instanceof CursorCollectionOptions) || page.isEmpty() || ((CursorCollectionOptions)options).isLastRecord()) {
+            return emptyMap();
+        }
+        Question last = page.get(page.size() - 1);
+        return singletonMap(NEXT_CURSOR_HEADER, QuestionCursor.of(last, rankedByVotes).encode());
+    }
+
+    private static boolean contains(List<Question> page, Long questionId) {
+        return page.stream().anyMatch(question -> questionId.equals(question.getId()));
+    }
+
+    private static String ifNoneMatch(CollectionOptions options) {
+        return options instanceof CursorCollectionOptions ? ((CursorCollectionOptions)options).getIfNoneMatch() : null;
     }
 
     private static Observable<List<Question>> handleError(Observable<Question> questions, String errorCode) {
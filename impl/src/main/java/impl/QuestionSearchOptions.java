@@ -6,11 +6,13 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import static api.Tag.LABEL_PATTERN;
 
 public class QuestionSearchOptions {
-    private static final Pattern TAG_PATTERN = Pattern.compile("^#(" + LABEL_PATTERN + ")$");
+    private static final Pattern TAG_PATTERN         = Pattern.compile("^#(" + LABEL_PATTERN + ")$");
+    private static final Pattern NON_WORD_CHARACTERS = Pattern.compile("[^\\p{L}\\p{N}]+");
     private       String         contentSearch;
     private       List<String>   tags       = new ArrayList<>();
 
@@ -24,7 +26,9 @@ public class QuestionSearchOptions {
             .forEach(item -> {
                 Matcher matcher = TAG_PATTERN.matcher(item);
                 if(matcher.matches()) {
-                    questionSearchOptions.getTags().add(matcher.group(1));
+                    if (!questionSearchOptions.getTags().contains(matcher.group(1))) {
+                        questionSearchOptions.getTags().add(matcher.group(1));
+                    }
                     return;
                 }
                 searchStringBuilder.append(item).append(" ");
@@ -48,4 +52,21 @@ public class QuestionSearchOptions {
     public void setContentSearch(String contentSearch) {
         this.contentSearch = contentSearch;
     }
+
+    /**
+     * Returns the content search as a Postgres tsquery, where every word must be present, either
+     * completely or as the beginning of a longer word. Characters that are not letters or digits
+     * separate words, in the same way as they do when the searched texts are indexed.
+     *
+     * @return the tsquery, or an empty string if the content search has no words
+     */
+    public String getTextQuery() {
+        if (contentSearch == null) {
+            return "";
+        }
+        return NON_WORD_CHARACTERS.splitAsStream(contentSearch)
+            .filter(word -> !word.isEmpty())
+            .map(word -> word + ":*")
+            .collect(Collectors.joining(" & "));
+    }
 }
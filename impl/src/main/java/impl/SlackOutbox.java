@@ -0,0 +1,185 @@
+package impl;
+
+import api.Answer;
+import api.Question;
+import api.UserResource;
+import com.github.seratch.jslack.api.model.block.LayoutBlock;
+import com.github.seratch.jslack.api.model.block.SectionBlock;
+import com.github.seratch.jslack.api.model.block.composition.MarkdownTextObject;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import dao.AnswerDao;
+import dao.QuestionDao;
+import dao.SlackNotification;
+import dao.SlackOutboxDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import slack.SlackConfig;
+import slack.SlackResource;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static impl.AnswerResourceImpl.slackUrl;
+import static java.util.Arrays.asList;
+import static rx.Observable.empty;
+import static rx.Observable.just;
+
+/**
+ * Sends the notifications waiting in the Slack outbox. The statements that create questions and
+ * answers add their notifications to the outbox, so that creating them never waits for Slack, and a
+ * notification is neither lost when Slack is unavailable nor sent for a question that was not stored.
+ *
+ * Notifications are claimed in batches and deleted once sent. A notification that could not be sent
+ * is tried again later, waiting longer for each attempt, until Slack refuses it or it has been tried
+ * {@link SlackOutboxConfig#getMaxAttempts()} times. A notification may be sent more than once, if the
+ * replica sending it dies or cannot delete it after it was sent.
+ */
+@Singleton
+public class SlackOutbox {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SlackOutbox.class);
+
+    private final SlackOutboxConfig config;
+    private final SlackOutboxDao    slackOutboxDao;
+    private final QuestionDao       questionDao;
+    private final AnswerDao         answerDao;
+    private final UserResource      userResource;
+    private final SlackResource     slackResource;
+    private final SlackConfig       slackConfig;
+    private final ApplicationConfig applicationConfig;
+
+    @Inject
+    public SlackOutbox(SlackOutboxConfig config, SlackOutboxDao slackOutboxDao, QuestionDao questionDao, AnswerDao answerDao,
+                       UserResource userResource, SlackResource slackResource, SlackConfig slackConfig, ApplicationConfig applicationConfig) {
+        this.config = config;
+        this.slackOutboxDao = slackOutboxDao;
+        this.questionDao = questionDao;
+        this.answerDao = answerDao;
+        this.userResource = userResource;
+        this.slackResource = slackResource;
+        this.slackConfig = slackConfig;
+        this.applicationConfig = applicationConfig;
+
+        if (!config.isEnabled()) {
+            return;
+        }
+
+        Observable.interval(config.getPollIntervalMillis(), config.getPollIntervalMillis(), TimeUnit.MILLISECONDS)
+            .onBackpressureDrop()
+            .concatMap(tick -> dispatch())
+            .subscribe();
+    }
+
+    /**
+     * Claims a batch of the notifications that are due and sends them.
+     *
+     * @return the number of notifications that were sent or given up on
+     */
+    public Observable<Integer> dispatch() {
+        return slackOutboxDao.claimNotifications(config.getBatchSize(), config.getLeaseSeconds())
+            .flatMap(this::dispatch, config.getMaxConcurrentSends())
+            .toList()
+            .concatMap(this::delete)
+            .onErrorResumeNext(throwable -> {
+                LOG.error("Failed to dispatch Slack notifications", throwable);
+                return empty();
+            });
+    }
+
+    /**
+     * @return the id of the notification if it is done with, or nothing if it has been postponed
+     */
+    private Observable<Long> dispatch(SlackNotification notification) {
+        return send(notification)
+            .ignoreElements()
+            .cast(Long.class)
+            .concatWith(just(notification.getId()))
+            .onErrorResumeNext(throwable -> failed(notification, throwable));
+    }
+
+    private Observable<Void> send(SlackNotification notification) {
+        switch (notification.getKind()) {
+            case SlackNotification.QUESTION_CREATED:
+                return questionDao.getQuestion(notification.getQuestionId())
+                    .concatMap(question -> slackResource.postMessageToSlack(slackConfig.getFeedChannel(), questionMessage(question)));
+            case SlackNotification.ANSWER_CREATED:
+                return answerDao.getAnswerById(notification.getAnswerId())
+                    .concatMap(answer -> questionDao.getQuestion(answer.getQuestionId())
+                        .concatMap(question -> userResource.getUserById(question.getUserId())
+                            .concatMap(user -> slackResource.getUserId(user.getEmail()))
+                            .concatMap(slackUserId -> slackResource.postMessageToSlackAsBotUser(slackUserId, answerMessage(answer, question)))));
+            default:
+                LOG.warn("Dropping Slack notification {} of unknown kind {}", notification.getId(), notification.getKind());
+                return empty();
+        }
+    }
+
+    private Observable<Long> failed(SlackNotification notification, Throwable throwable) {
+        // the Slack responses that are not ok are turned into IllegalStateException, and will not become ok
+        if (throwable instanceof IllegalStateException) {
+            LOG.warn("Slack refused notification {} of kind {}, giving up", notification.getId(), notification.getKind(), throwable);
+            return just(notification.getId());
+        }
+        if (notification.getAttempts() >= config.getMaxAttempts()) {
+            LOG.error("Failed to send Slack notification {} of kind {} in {} attempts, giving up",
+                notification.getId(), notification.getKind(), notification.getAttempts(), throwable);
+            return just(notification.getId());
+        }
+        long backoffSeconds = backoffSeconds(notification.getAttempts());
+        LOG.warn("Failed to send Slack notification {} of kind {}, trying again in {} seconds",
+            notification.getId(), notification.getKind(), backoffSeconds, throwable);
+        return slackOutboxDao.retryNotificationLater(notification.getId(), backoffSeconds)
+            .ignoreElements()
+            .cast(Long.class)
+            .onErrorResumeNext(e -> {
+                // the notification is tried again once its lease has passed
+                LOG.error("Failed to postpone Slack notification {}", notification.getId(), e);
+                return empty();
+            });
+    }
+
+    /**
+     * @param attempts the number of times the notification has been tried, at least 1
+     */
+    long backoffSeconds(int attempts) {
+        int doublings = Math.min(attempts - 1, 30);
+        return Math.min(config.getMaxBackoffSeconds(), config.getInitialBackoffSeconds() << doublings);
+    }
+
+    private Observable<Integer> delete(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return just(0);
+        }
+        return slackOutboxDao.deleteNotifications(ids)
+            .map(deleted -> ids.size());
+    }
+
+    private List<LayoutBlock> questionMessage(Question question) {
+        return asList(SectionBlock.builder()
+                .text(markdownText("A new question: *%s* was submitted.", question.getTitle()))
+                .build(),
+            SectionBlock.builder()
+                .text(markdownText("Head over to %s to view the question.", slackUrl(question.getId(), null, applicationConfig)))
+                .build());
+    }
+
+    private List<LayoutBlock> answerMessage(Answer answer, Question question) {
+        return asList(SectionBlock.builder()
+                .text(markdownText("Your question: *%s* got an answer:", question.getTitle()))
+                .build(),
+            SectionBlock.builder()
+                .text(markdownText("%s", answer.getAnswer()))
+                .build(),
+            SectionBlock.builder()
+                .text(markdownText("Head over to %s to accept the answer", slackUrl(question.getId(), answer.getId(), applicationConfig)))
+                .build());
+    }
+
+    private static MarkdownTextObject markdownText(String string, String... args) {
+        return MarkdownTextObject.builder()
+            .text(String.format(string, args))
+            .build();
+    }
+}
@@ -0,0 +1,111 @@
+package impl;
+
+import se.fortnox.reactivewizard.config.Config;
+
+@Config("slackOutbox")
+public class SlackOutboxConfig {
+
+    /**
+     * Defines if this replica should send the notifications waiting in the Slack outbox
+     */
+    private boolean enabled = true;
+
+    /**
+     * Milliseconds between each look for notifications that are due to be sent
+     */
+    private long pollIntervalMillis = 1000;
+
+    /**
+     * The most notifications claimed at a time
+     */
+    private int batchSize = 20;
+
+    /**
+     * The most notifications of a batch that are sent at once
+     */
+    private int maxConcurrentSends = 4;
+
+    /**
+     * Seconds before claimed notifications that were neither sent nor postponed are claimed again
+     */
+    private long leaseSeconds = 60;
+
+    /**
+     * The number of times a notification is tried before it is given up on
+     */
+    private int maxAttempts = 10;
+
+    /**
+     * Seconds before a notification that could not be sent is tried again, doubled for each attempt
+     */
+    private long initialBackoffSeconds = 5;
+
+    /**
+     * The most seconds before a notification that could not be sent is tried again
+     */
+    private long maxBackoffSeconds = 600;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getPollIntervalMillis() {
+        return pollIntervalMillis;
+    }
+
+    public void setPollIntervalMillis(long pollIntervalMillis) {
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxConcurrentSends() {
+        return maxConcurrentSends;
+    }
+
+    public void setMaxConcurrentSends(int maxConcurrentSends) {
+        this.maxConcurrentSends = maxConcurrentSends;
+    }
+
+    public long getLeaseSeconds() {
+        return leaseSeconds;
+    }
+
+    public void setLeaseSeconds(long leaseSeconds) {
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getInitialBackoffSeconds() {
+        return initialBackoffSeconds;
+    }
+
+    public void setInitialBackoffSeconds(long initialBackoffSeconds) {
+        this.initialBackoffSeconds = initialBackoffSeconds;
+    }
+
+    public long getMaxBackoffSeconds() {
+        return maxBackoffSeconds;
+    }
+
+    public void setMaxBackoffSeconds(long maxBackoffSeconds) {
+        this.maxBackoffSeconds = maxBackoffSeconds;
+    }
+}
@@ -0,0 +1,11 @@
+package impl;
+
+import com.google.inject.Binder;
+import se.fortnox.reactivewizard.binding.AutoBindModule;
+
+public class SlackOutboxModule implements AutoBindModule {
+    @Override
+    public void configure(Binder binder) {
+        binder.bind(SlackOutbox.class).asEagerSingleton();
+    }
+}
@@ -0,0 +1,285 @@
+package impl;
+
+import api.Tag;
+import cache.InvalidationBus;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import dao.TagDao;
+import dao.TagUsage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static cache.InvalidationBus.Topic.TAG;
+import static rx.Observable.defer;
+import static rx.Observable.from;
+import static rx.Observable.just;
+
+/**
+ * Keeps all tags in memory, ordered by how many questions they are used on, so that tag
+ * autocomplete can be answered without a database round trip.
+ *
+ * The index is loaded at startup and reloaded when it is older than the configured staleness
+ * bound or when a change of any tag has been published on the {@link InvalidationBus} since it
+ * was loaded. A change of a single tag only reloads that tag, on the next lookup. Lookups go to the
+ * database when the index is disabled or cannot be loaded.
+ */
+@Singleton
+public class TagIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TagIndex.class);
+
+    private static final Comparator<TagUsage> MOST_USED_FIRST = Comparator
+        .comparingInt(TagUsage::getUsages).reversed()
+        .thenComparing(TagUsage::getLabel);
+
+    private final TagDao         tagDao;
+    private final TagIndexConfig config;
+    private final AtomicLong     generation    = new AtomicLong();
+    private final Set<Long>      changedTagIds = ConcurrentHashMap.newKeySet();
+    private volatile Snapshot    snapshot;
+    private Observable<Snapshot> refreshing;
+    private Observable<Snapshot> applying;
+
+    @Inject
+    public TagIndex(TagDao tagDao, TagIndexConfig config, InvalidationBus invalidationBus) {
+        this.tagDao = tagDao;
+        this.config = config;
+
+        invalidationBus.subscribe(TAG, tagId -> {
+            if (tagId == null) {
+                invalidate();
+            } else {
+                update(tagId);
+            }
+        });
+
+        if (config.isEnabled()) {
+            refresh().subscribe(loaded -> {}, throwable -> LOG.warn("Failed to load tag index, it will be loaded on first lookup", throwable));
+        }
+    }
+
+    /**
+     * Finds the most used tags containing the given text.
+     *
+     * @param search the text to look for, or null to get the most used tags
+     * @return at most the configured number of tags, most used first
+     */
+    public Observable<Tag> getTagsContaining(String search) {
+        String normalized = search == null ? "" : search.trim().toLowerCase(Locale.ROOT);
+        if (!config.isEnabled()) {
+            return getTagsContainingFromDatabase(normalized);
+        }
+        return current()
+            .concatMap(current -> from(current.search(normalized, config.getMaxResults())))
+            .onErrorResumeNext(throwable -> {
+                LOG.warn("Tag index unavailable, looking up tags in the database", throwable);
+                return getTagsContainingFromDatabase(normalized);
+            });
+    }
+
+    /**
+     * Marks the index as outdated, to be called when tags or their usage have changed.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Marks a tag as changed, to be called when it has been created, deleted or added to or removed from a
+     * question. Changed tags are loaded on the next lookup, without reloading the other tags.
+     *
+     * @param tagId the id of the changed tag
+     */
+    public void update(long tagId) {
+        changedTagIds.add(tagId);
+    }
+
+    private Observable<Tag> getTagsContainingFromDatabase(String search) {
+        return tagDao.getTagsMatching("%" + escapeLikePattern(search) + "%", config.getMaxResults());
+    }
+
+    private Observable<Snapshot> current() {
+        return defer(() -> {
+            Snapshot current = snapshot;
+            if (current == null || !current.isFresh()) {
+                return refresh();
+            }
+            if (changedTagIds.isEmpty()) {
+                return just(current);
+            }
+            return applyChanges();
+        });
+    }
+
+    private synchronized Observable<Snapshot> refresh() {
+        if (refreshing == null) {
+            long loadedGeneration = generation.get();
+            long startTime        = System.currentTimeMillis();
+            // the reload reads the tags as they are after every change published so far
+            changedTagIds.clear();
+
+            refreshing = tagDao.getTagUsages()
+                .toList()
+                .map(tagUsages -> new Snapshot(tagUsages, loadedGeneration, System.currentTimeMillis()))
+                .doOnNext(loaded -> {
+                    snapshot = loaded;
+                    LOG.debug("Loaded tag index with {} tags in {} ms", loaded.mostUsedFirst.length, loaded.loadedAt - startTime);
+                })
+                .doOnTerminate(this::refreshed)
+                .cache();
+        }
+        return refreshing;
+    }
+
+    private synchronized void refreshed() {
+        refreshing = null;
+    }
+
+    private synchronized Observable<Snapshot> applyChanges() {
+        if (refreshing != null) {
+            // the changes are applied on a later lookup, if the reload started before they were made
+            return refreshing;
+        }
+        if (applying == null) {
+            List<Long> tagIds = new ArrayList<>(changedTagIds);
+            changedTagIds.removeAll(tagIds);
+
+            applying = tagDao.getTagUsagesByIds(tagIds)
+                .toList()
+                .map(tagUsages -> snapshot.with(tagIds, tagUsages))
+                .doOnNext(updated -> {
+                    snapshot = updated;
+                    LOG.debug("Updated {} tags in tag index", tagIds.size());
+                })
+                .doOnError(throwable -> changedTagIds.addAll(tagIds))
+                .doOnTerminate(this::applied)
+                .cache();
+        }
+        return applying;
+    }
+
+    private synchronized void applied() {
+        applying = null;
+    }
+
+    static String escapeLikePattern(String search) {
+        return search
+            .replace("\\", "\\\\")
+            .replace("%", "\\%")
+            .replace("_", "\\_");
+    }
+
+    /**
+     * All tags, most used first, with every suffix of their lowercased labels sorted, so that the tags
+     * containing a text are found by looking up the suffixes starting with it.
+     */
+    private class Snapshot {
+        private final TagUsage[] mostUsedFirst;
+        private final Suffix[]   suffixes;
+        private final long       generation;
+        private final long       loadedAt;
+
+        private Snapshot(List<TagUsage> tagUsages, long generation, long loadedAt) {
+            this.mostUsedFirst = tagUsages.toArray(new TagUsage[0]);
+            Arrays.sort(mostUsedFirst, MOST_USED_FIRST);
+
+            List<Suffix> suffixes = new ArrayList<>();
+            for (int rank = 0; rank < mostUsedFirst.length; rank++) {
+                String label = mostUsedFirst[rank].getLabel().toLowerCase(Locale.ROOT);
+                for (int start = 0; start < label.length(); start++) {
+                    suffixes.add(new Suffix(label.substring(start), rank));
+                }
+            }
+            this.suffixes = suffixes.toArray(new Suffix[0]);
+            Arrays.sort(this.suffixes, Comparator.comparing((Suffix suffix) -> suffix.text));
+
+            this.generation = generation;
+            this.loadedAt = loadedAt;
+        }
+
+        private List<Tag> search(String search, int maxResults) {
+            List<Tag> found = new ArrayList<>(maxResults);
+            if (search.isEmpty()) {
+                for (int rank = 0; rank < mostUsedFirst.length && found.size() < maxResults; rank++) {
+                    found.add(tag(mostUsedFirst[rank]));
+                }
+                return found;
+            }
+            // a tag may contain the text more than once, the ranks of the tags are collected in order
+            BitSet ranks = new BitSet(mostUsedFirst.length);
+            for (int i = firstSuffixNotBefore(search); i < suffixes.length && suffixes[i].text.startsWith(search); i++) {
+                ranks.set(suffixes[i].rank);
+            }
+            for (int rank = ranks.nextSetBit(0); rank >= 0 && found.size() < maxResults; rank = ranks.nextSetBit(rank + 1)) {
+                found.add(tag(mostUsedFirst[rank]));
+            }
+            return found;
+        }
+
+        private int firstSuffixNotBefore(String search) {
+            int low  = 0;
+            int high = suffixes.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (suffixes[middle].text.compareTo(search) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @param tagIds    the ids of the changed tags
+         * @param tagUsages the changed tags that still exist
+         * @return a snapshot with the changed tags replaced, loaded at the same time as this one
+         */
+        private Snapshot with(Collection<Long> tagIds, List<TagUsage> tagUsages) {
+            Set<Long>      changed = new HashSet<>(tagIds);
+            List<TagUsage> updated = new ArrayList<>(mostUsedFirst.length + tagUsages.size());
+            for (TagUsage existing : mostUsedFirst) {
+                if (!changed.contains(existing.getId())) {
+                    updated.add(existing);
+                }
+            }
+            updated.addAll(tagUsages);
+            return new Snapshot(updated, generation, loadedAt);
+        }
+
+        private boolean isFresh() {
+            return generation == TagIndex.this.generation.get()
+                && System.currentTimeMillis() - loadedAt < TimeUnit.SECONDS.toMillis(config.getMaxStalenessSeconds());
+        }
+    }
+
+    private static class Suffix {
+        private final String text;
+        private final int    rank;
+
+        private Suffix(String text, int rank) {
+            this.text = text;
+            this.rank = rank;
+        }
+    }
+
+    private static Tag tag(TagUsage tagUsage) {
+        Tag tag = new Tag(tagUsage.getLabel());
+        tag.setId(tagUsage.getId());
+        return tag;
+    }
+}
@@ -0,0 +1,46 @@
+package impl;
+
+import se.fortnox.reactivewizard.config.Config;
+
+@Config("tagIndex")
+public class TagIndexConfig {
+
+    /**
+     * Defines if tag lookups should be served from an in-memory index
+     */
+    private boolean enabled = true;
+
+    /**
+     * The longest time the index may be served before it is reloaded from the database
+     */
+    private long maxStalenessSeconds = 300;
+
+    /**
+     * The maximum number of tags returned by a lookup
+     */
+    private int maxResults = 20;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaxStalenessSeconds() {
+        return maxStalenessSeconds;
+    }
+
+    public void setMaxStalenessSeconds(long maxStalenessSeconds) {
+        this.maxStalenessSeconds = maxStalenessSeconds;
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    public void setMaxResults(int maxResults) {
+        this.maxResults = maxResults;
+    }
+}
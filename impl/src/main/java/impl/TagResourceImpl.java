@@ -2,6 +2,7 @@ package impl;
 
 import api.Tag;
 import api.TagResource;
+import cache.ResponseCache;
 import com.google.inject.Inject;
 import dao.TagDao;
 import rx.Observable;
@@ -9,23 +10,36 @@ import rx.Observable;
 import javax.inject.Singleton;
 import java.util.List;
 
+import static cache.InvalidationBus.Topic.TAG;
+import static java.util.Collections.emptyMap;
+
 @Singleton
 public class TagResourceImpl implements TagResource {
-    private final TagDao tagDao;
+    private static final String POPULAR_TAGS_PATH = "tags/popular";
+
+    private final TagDao        tagDao;
+    private final TagIndex      tagIndex;
+    private final ResponseCache responseCache;
 
     @Inject
-    public TagResourceImpl(TagDao tagDao) {
+    public TagResourceImpl(TagDao tagDao, TagIndex tagIndex, ResponseCache responseCache) {
         this.tagDao = tagDao;
+        this.tagIndex = tagIndex;
+        this.responseCache = responseCache;
+
+        responseCache.evictOn(TAG, POPULAR_TAGS_PATH);
     }
 
     public Observable<List<Tag>> queryTags(String searchQuery) {
-        return tagDao.getTagsContaining(searchQuery)
+        return tagIndex.getTagsContaining(searchQuery)
             .toList();
     }
 
     @Override
     public Observable<List<Tag>> getPopularTags() {
-        return tagDao.getPopularTags()
-            .toList();
+        // the listing has no collection options to resolve If-None-Match into, and is sent with its ETag
+        return responseCache.get(POPULAR_TAGS_PATH, null,
+            () -> tagDao.getPopularTags().toList(),
+            tags -> emptyMap());
     }
 }
@@ -0,0 +1,317 @@
+package impl;
+
+import cache.InvalidationBus;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import dao.AnswerVoteDao;
+import dao.QuestionVoteDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.subjects.AsyncSubject;
+import rx.subjects.PublishSubject;
+import rx.subjects.Subject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static cache.InvalidationBus.Topic.VOTE;
+import static impl.VoteBufferConfig.Durability.FLUSHED;
+import static rx.Observable.defer;
+import static rx.Observable.empty;
+
+/**
+ * Buffers votes and stores them in batches, so that a burst of Slack reactions turns into a few
+ * statements instead of one vote pipeline per reaction.
+ *
+ * Votes by the same user on the same question or answer are combined while buffered into a single
+ * change, which leaves the stored vote as casting the votes one at a time would. Buffered votes are
+ * flushed at the configured interval, when too many votes are buffered, and a last time when the
+ * replica is closed. Flushes are done one at a time. Votes that could not be stored are buffered
+ * again for the next flush, unless that would buffer more than the most pending votes.
+ */
+@Singleton
+public class VoteBuffer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VoteBuffer.class);
+
+    private final QuestionVoteDao     questionVoteDao;
+    private final AnswerVoteDao       answerVoteDao;
+    private final InvalidationBus     invalidationBus;
+    private final VoteBufferConfig    config;
+    private final Subject<Long, Long> flushRequests = PublishSubject.<Long>create().toSerialized();
+    private final Subject<Long, Long> closeRequests = PublishSubject.<Long>create().toSerialized();
+    private final AsyncSubject<Void>  closed        = AsyncSubject.create();
+    private       Batch               batch         = new Batch(AsyncSubject.create());
+
+    @Inject
+    public VoteBuffer(QuestionVoteDao questionVoteDao, AnswerVoteDao answerVoteDao, InvalidationBus invalidationBus, VoteBufferConfig config) {
+        this.questionVoteDao = questionVoteDao;
+        this.answerVoteDao = answerVoteDao;
+        this.invalidationBus = invalidationBus;
+        this.config = config;
+
+        if (!config.isEnabled()) {
+            return;
+        }
+
+        // the last flush is queued after the flushes requested before it, and stops the flushes at the interval
+        Observable.interval(config.getFlushIntervalMillis(), config.getFlushIntervalMillis(), TimeUnit.MILLISECONDS)
+            .mergeWith(flushRequests)
+            .onBackpressureDrop()
+            .map(tick -> false)
+            .mergeWith(closeRequests.take(1).map(request -> true))
+            .takeUntil(last -> last)
+            .concatMap(last -> flush(!last)
+                .onErrorResumeNext(empty())
+                .doOnCompleted(() -> {
+                    if (last) {
+                        closed.onCompleted();
+                    }
+                }))
+            .subscribe();
+    }
+
+    /**
+     * @return true if votes should be cast through the buffer
+     */
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Buffers a vote on a question.
+     *
+     * @param value 1 for an up vote and -1 for a down vote, where a vote opposite to the current vote of the user removes it
+     * @return completes when the vote has been buffered or stored, depending on the configured durability
+     */
+    public Observable<Void> voteOnQuestion(long userId, long questionId, int value) {
+        return add(userId, questionId, value, true);
+    }
+
+    /**
+     * Buffers a vote on an answer.
+     *
+     * @param value 1 for an up vote and -1 for a down vote, where a vote opposite to the current vote of the user removes it
+     * @return completes when the vote has been buffered or stored, depending on the configured durability
+     */
+    public Observable<Void> voteOnAnswer(long userId, long answerId, int value) {
+        return add(userId, answerId, value, false);
+    }
+
+    /**
+     * Stores the buffered votes. Votes that could not be stored are buffered again, if there is room for them.
+     *
+     * @return completes when the votes have been stored
+     */
+    public Observable<Void> flush() {
+        return flush(true);
+    }
+
+    /**
+     * Stores the votes still buffered, after the flushes already requested, and stops flushing. Meant to
+     * be called when the replica shuts down and no more votes are cast.
+     *
+     * @return completes when the last flush is done, whether or not its votes could be stored
+     */
+    public Observable<Void> close() {
+        if (!config.isEnabled()) {
+            return empty();
+        }
+        closeRequests.onNext(0L);
+        return closed;
+    }
+
+    /**
+     * @param requeue if votes that could not be stored should be buffered again for the next flush
+     */
+    private Observable<Void> flush(boolean requeue) {
+        return defer(() -> {
+            Batch flushing;
+            synchronized (this) {
+                flushing = batch;
+                batch = new Batch(AsyncSubject.create());
+            }
+
+            Map<Voter, Change> questionVotes   = flushing.questionVotes;
+            Map<Voter, Change> answerVotes     = flushing.answerVotes;
+            AtomicBoolean      questionsStored = new AtomicBoolean(questionVotes.isEmpty());
+            Observable<Long> questions = questionVotes.isEmpty() ? empty() : questionVoteDao
+                .applyVotes(userIds(questionVotes), targetIds(questionVotes),
+                    changes(questionVotes, change -> change.delta), changes(questionVotes, change -> change.floor), changes(questionVotes, change -> change.ceiling))
+                .doOnNext(questionId -> invalidationBus.publish(VOTE, questionId))
+                .doOnCompleted(() -> questionsStored.set(true));
+            Observable<Long> answers = answerVotes.isEmpty() ? empty() : answerVoteDao
+                .applyVotes(userIds(answerVotes), targetIds(answerVotes),
+                    changes(answerVotes, change -> change.delta), changes(answerVotes, change -> change.floor), changes(answerVotes, change -> change.ceiling));
+
+            return questions.concatWith(answers)
+                .ignoreElements()
+                .cast(Void.class)
+                .doOnError(throwable -> failed(flushing, questionsStored.get(), requeue, throwable))
+                .doOnCompleted(flushing.stored::onCompleted);
+        });
+    }
+
+    private void failed(Batch flushing, boolean questionsStored, boolean requeue, Throwable throwable) {
+        if (questionsStored) {
+            // the changes are not idempotent, so the stored votes on questions must not be applied again
+            flushing.questionVotes.clear();
+        }
+        boolean requeued = false;
+        if (requeue) {
+            synchronized (this) {
+                Batch merged = flushing.followedBy(batch);
+                if (merged.size() <= config.getMaxPendingVotes()) {
+                    batch = merged;
+                    requeued = true;
+                }
+            }
+        }
+        if (requeued) {
+            LOG.warn("Failed to store {} buffered votes, trying again with the next flush", flushing.size(), throwable);
+        } else {
+            LOG.error("Failed to store {} buffered votes", flushing.size(), throwable);
+            flushing.stored.onError(throwable);
+        }
+    }
+
+    private Observable<Void> add(long userId, long targetId, int value, boolean onQuestion) {
+        Batch current;
+        boolean full;
+        synchronized (this) {
+            current = batch;
+            current.add(onQuestion ? current.questionVotes : current.answerVotes, new Voter(userId, targetId), Change.of(value));
+            full = current.size() >= config.getMaxPendingVotes();
+        }
+        if (full) {
+            flushRequests.onNext(0L);
+        }
+        return config.getDurability() == FLUSHED ? current.stored : empty();
+    }
+
+    private static List<Long> userIds(Map<Voter, Change> votes) {
+        return listOf(votes.keySet(), voter -> voter.userId);
+    }
+
+    private static List<Long> targetIds(Map<Voter, Change> votes) {
+        return listOf(votes.keySet(), voter -> voter.targetId);
+    }
+
+    private static List<Integer> changes(Map<Voter, Change> votes, Function<Change, Integer> part) {
+        return listOf(votes.values(), part);
+    }
+
+    private static <T, R> List<R> listOf(Collection<T> items, Function<T, R> mapper) {
+        List<R> list = new ArrayList<>(items.size());
+        items.forEach(item -> list.add(mapper.apply(item)));
+        return list;
+    }
+
+    /**
+     * The votes buffered between two flushes, as the change of each vote.
+     */
+    private static class Batch {
+        private final Map<Voter, Change> questionVotes = new LinkedHashMap<>();
+        private final Map<Voter, Change> answerVotes   = new LinkedHashMap<>();
+        private final AsyncSubject<Void> stored;
+
+        private Batch(AsyncSubject<Void> stored) {
+            this.stored = stored;
+        }
+
+        private void add(Map<Voter, Change> votes, Voter voter, Change change) {
+            votes.merge(voter, change, Change::then);
+        }
+
+        /**
+         * @return the votes of this batch followed by the votes of the later batch, stored along with the later batch
+         */
+        private Batch followedBy(Batch later) {
+            Batch merged = new Batch(later.stored);
+            questionVotes.forEach((voter, change) -> merged.add(merged.questionVotes, voter, change));
+            answerVotes.forEach((voter, change) -> merged.add(merged.answerVotes, voter, change));
+            later.questionVotes.forEach((voter, change) -> merged.add(merged.questionVotes, voter, change));
+            later.answerVotes.forEach((voter, change) -> merged.add(merged.answerVotes, voter, change));
+            later.stored.subscribe(stored);
+            return merged;
+        }
+
+        private int size() {
+            return questionVotes.size() + answerVotes.size();
+        }
+    }
+
+    /**
+     * The change of a vote by the votes of a user on a question or answer. A vote moves the stored vote by
+     * its value and keeps it between a down vote and an up vote, so votes in a row move it by the sum of
+     * their values and keep it between a floor and a ceiling that depend on their order.
+     */
+    static class Change {
+        private final int delta;
+        private final int floor;
+        private final int ceiling;
+
+        private Change(int delta, int floor, int ceiling) {
+            this.delta = delta;
+            this.floor = floor;
+            this.ceiling = ceiling;
+        }
+
+        static Change of(int value) {
+            return new Change(value, -1, 1);
+        }
+
+        /**
+         * @return this change followed by the next
+         */
+        Change then(Change next) {
+            return new Change(delta + next.delta, next.applyTo(floor), next.applyTo(ceiling));
+        }
+
+        /**
+         * @param vote the stored vote, 0 when there is none
+         * @return the vote after the change
+         */
+        int applyTo(int vote) {
+            return Math.max(floor, Math.min(ceiling, vote + delta));
+        }
+    }
+
+    /**
+     * A user voting on a question or answer.
+     */
+    private static class Voter {
+        private final long userId;
+        private final long targetId;
+
+        private Voter(long userId, long targetId) {
+            this.userId = userId;
+            this.targetId = targetId;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Voter)) {
+                return false;
+            }
+            Voter voter = (Voter)other;
+            return userId == voter.userId && targetId == voter.targetId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, targetId);
+        }
+    }
+}
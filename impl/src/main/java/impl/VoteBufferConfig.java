@@ -0,0 +1,74 @@
+package impl;
+
+import se.fortnox.reactivewizard.config.Config;
+
+@Config("voteBuffer")
+public class VoteBufferConfig {
+
+    /**
+     * How long a vote cast through the buffer may take to be stored
+     */
+    public enum Durability {
+        /**
+         * A vote is acknowledged as soon as it is buffered, and is lost if the replica dies before the next flush
+         */
+        BUFFERED,
+        /**
+         * A vote is acknowledged when the flush it is part of has been stored
+         */
+        FLUSHED
+    }
+
+    /**
+     * Defines if votes from Slack reactions should be buffered and stored in batches
+     */
+    private boolean enabled = false;
+
+    /**
+     * Milliseconds between each flush of the buffered votes
+     */
+    private long flushIntervalMillis = 1000;
+
+    /**
+     * The number of buffered votes that causes a flush before the interval has passed, and the most
+     * votes kept buffered when a flush fails
+     */
+    private int maxPendingVotes = 500;
+
+    /**
+     * When a buffered vote is acknowledged
+     */
+    private Durability durability = Durability.FLUSHED;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public int getMaxPendingVotes() {
+        return maxPendingVotes;
+    }
+
+    public void setMaxPendingVotes(int maxPendingVotes) {
+        this.maxPendingVotes = maxPendingVotes;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public void setDurability(Durability durability) {
+        this.durability = durability;
+    }
+}
@@ -0,0 +1,12 @@
+package impl;
+
+import com.google.inject.Binder;
+import se.fortnox.reactivewizard.binding.AutoBindModule;
+
+public class VoteBufferModule implements AutoBindModule {
+    @Override
+    public void configure(Binder binder) {
+        binder.bind(VoteBuffer.class).asEagerSingleton();
+        binder.bind(VoteBufferShutdown.class).asEagerSingleton();
+    }
+}
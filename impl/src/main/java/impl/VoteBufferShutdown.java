@@ -0,0 +1,24 @@
+package impl;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import se.fortnox.reactivewizard.server.RwServer;
+
+/**
+ * Closes the {@link VoteBuffer} when the server shuts down, once it has stopped taking requests, so that
+ * the votes still buffered are stored before the replica stops.
+ */
+@Singleton
+public class VoteBufferShutdown {
+
+    @Inject
+    public VoteBufferShutdown(VoteBuffer voteBuffer) {
+        if (!voteBuffer.isEnabled()) {
+            return;
+        }
+        RwServer.registerShutdownDependency(() -> {
+            voteBuffer.close().toBlocking().lastOrDefault(null);
+            return true;
+        });
+    }
+}
@@ -0,0 +1,33 @@
+package impl;
+
+import se.fortnox.reactivewizard.config.Config;
+
+@Config("voteReconciliation")
+public class VoteReconciliationConfig {
+
+    /**
+     * Defines if the denormalized vote counters should be reconciled periodically
+     */
+    private boolean enabled = true;
+
+    /**
+     * Minutes between each reconciliation
+     */
+    private long intervalMinutes = 60;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getIntervalMinutes() {
+        return intervalMinutes;
+    }
+
+    public void setIntervalMinutes(long intervalMinutes) {
+        this.intervalMinutes = intervalMinutes;
+    }
+}
@@ -0,0 +1,88 @@
+package impl;
+
+import cache.InvalidationBus;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import dao.AnswerDao;
+import dao.QuestionDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import se.fortnox.reactivewizard.db.transactions.DaoTransactions;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static cache.InvalidationBus.Topic.VOTE;
+import static java.util.Arrays.asList;
+
+/**
+ * Periodically repairs drift between the votes counters on question and answer and the
+ * votes stored in question_vote and answer_vote.
+ *
+ * A reconciliation is one transaction, which first locks the drifting questions and answers and then
+ * sums their votes in a second statement. A vote cast while the votes are summed therefore waits for
+ * the repaired counter instead of being overwritten by it. The transaction takes an advisory lock, so
+ * that only one replica at a time does the work and the others skip it.
+ */
+@Singleton
+public class VoteReconciliationJob {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VoteReconciliationJob.class);
+
+    /**
+     * The key of the advisory lock held by the transaction reconciling the counters
+     */
+    static final long LOCK_KEY = 0x766f746573L;
+
+    private final QuestionDao     questionDao;
+    private final AnswerDao       answerDao;
+    private final DaoTransactions daoTransactions;
+    private final InvalidationBus invalidationBus;
+
+    @Inject
+    public VoteReconciliationJob(QuestionDao questionDao, AnswerDao answerDao, DaoTransactions daoTransactions, InvalidationBus invalidationBus,
+                                 VoteReconciliationConfig config) {
+        this.questionDao = questionDao;
+        this.answerDao = answerDao;
+        this.daoTransactions = daoTransactions;
+        this.invalidationBus = invalidationBus;
+
+        if (!config.isEnabled()) {
+            return;
+        }
+
+        Observable.interval(config.getIntervalMinutes(), config.getIntervalMinutes(), TimeUnit.MINUTES)
+            .onBackpressureDrop()
+            .concatMap(tick -> reconcile())
+            .subscribe();
+    }
+
+    /**
+     * Reconciles the question and answer counters, unless another replica is reconciling them.
+     *
+     * @return nothing, once the transaction has been committed
+     */
+    public Observable<Void> reconcile() {
+        List<Observable<Object>> daoCalls = asList(
+            untyped(questionDao.lockDriftingVotes(LOCK_KEY)),
+            untyped(answerDao.lockDriftingVotes(LOCK_KEY)),
+            untyped(questionDao.reconcileVotes(LOCK_KEY)),
+            untyped(answerDao.reconcileVotes(LOCK_KEY)));
+        return daoTransactions.executeTransaction(daoCalls)
+            // the repaired counters are not known outside the transaction, so every cached question may be stale
+            .doOnCompleted(() -> invalidationBus.publish(VOTE, null))
+            .onErrorResumeNext(throwable -> {
+                LOG.error("Failed to reconcile votes counters", throwable);
+                return Observable.empty();
+            });
+    }
+
+    /**
+     * @return the dao call itself, typed so that the locks returning ids and the repairs returning counts share a transaction
+     */
+    @SuppressWarnings("unchecked")
+    private static Observable<Object> untyped(Observable<?> daoCall) {
+        return (Observable<Object>)daoCall;
+    }
+}
@@ -25,5 +25,11 @@ public class CollectionOptionsRequestParameterSerializer implements RequestParam
         if (param.getOrder() != null) {
             request.addQueryParam("order", param.getOrder().name());
         }
+        if (param instanceof CursorCollectionOptions && ((CursorCollectionOptions)param).getCursor() != null) {
+            request.addQueryParam("cursor", ((CursorCollectionOptions)param).getCursor());
+        }
+        if (param instanceof CursorCollectionOptions && ((CursorCollectionOptions)param).getIfNoneMatch() != null) {
+            request.addHeader("If-None-Match", ((CursorCollectionOptions)param).getIfNoneMatch());
+        }
     }
 }
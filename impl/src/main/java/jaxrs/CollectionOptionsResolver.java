@@ -2,7 +2,6 @@ package jaxrs;
 
 import rx.Observable;
 import se.fortnox.reactivewizard.CollectionOptions;
-import se.fortnox.reactivewizard.db.paging.CollectionOptionsWithResult;
 import se.fortnox.reactivewizard.jaxrs.JaxRsRequest;
 import se.fortnox.reactivewizard.jaxrs.params.ParamResolver;
 
@@ -12,10 +11,12 @@ public class CollectionOptionsResolver implements ParamResolver<CollectionOption
 
 	@Override
 	public Observable<CollectionOptions> resolve(JaxRsRequest request) {
-		return just(new CollectionOptionsWithResult(getQueryParamAsInteger(request, "limit"),
+		return just(new CursorCollectionOptions(getQueryParamAsInteger(request, "limit"),
 				getQueryParamAsInteger(request, "offset"),
 				request.getQueryParam("sortby"),
-				getQueryParamAsSortOrder(request, "order")));
+				getQueryParamAsSortOrder(request, "order"),
+				request.getQueryParam("cursor"),
+				request.getHeader("If-None-Match")));
 	}
 
 	private CollectionOptions.SortOrder getQueryParamAsSortOrder(JaxRsRequest request, String key) {
@@ -0,0 +1,32 @@
+package jaxrs;
+
+import se.fortnox.reactivewizard.db.paging.CollectionOptionsWithResult;
+
+/**
+ * Collection options that may carry an opaque cursor, pointing out where the next page starts.
+ * When a cursor is given the offset is ignored. The If-None-Match header of the request is kept along,
+ * for the listings answered from the response cache.
+ */
+public class CursorCollectionOptions extends CollectionOptionsWithResult {
+
+    private final String cursor;
+    private final String ifNoneMatch;
+
+    public CursorCollectionOptions(Integer limit, Integer offset, String sortBy, SortOrder order, String cursor) {
+        this(limit, offset, sortBy, order, cursor, null);
+    }
+
+    public CursorCollectionOptions(Integer limit, Integer offset, String sortBy, SortOrder order, String cursor, String ifNoneMatch) {
+        super(limit, cursor == null ? offset : null, sortBy, order);
+        this.cursor = cursor;
+        this.ifNoneMatch = ifNoneMatch;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public String getIfNoneMatch() {
+        return ifNoneMatch;
+    }
+}
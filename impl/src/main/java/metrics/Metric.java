@@ -0,0 +1,41 @@
+package metrics;
+
+/**
+ * The timed metrics, each with one label telling what was timed.
+ */
+public enum Metric {
+    HTTP_REQUESTS("http_server_requests", "resource", "Time from subscribing to the result of a resource method until it completes", false),
+    DAO_CALLS("dao_calls", "method", "Time of the statements of a dao method from executing them until their rows are read, and of transactions until they complete", true),
+    SLACK_CALLS("slack_calls", "method", "Time from subscribing to a call to Slack until it completes", false);
+
+    private final String  name;
+    private final String  label;
+    private final String  help;
+    private final boolean countsRows;
+
+    Metric(String name, String label, String help, boolean countsRows) {
+        this.name = name;
+        this.label = label;
+        this.help = help;
+        this.countsRows = countsRows;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getHelp() {
+        return help;
+    }
+
+    /**
+     * @return true if the number of items emitted by the timed calls is written as well
+     */
+    public boolean isCountsRows() {
+        return countsRows;
+    }
+}
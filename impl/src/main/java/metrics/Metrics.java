@@ -0,0 +1,106 @@
+package metrics;
+
+import com.google.inject.Singleton;
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Holds the timers of the application and writes them in the text format of Prometheus. The latencies
+ * are written as cumulative histograms, so that Prometheus can compute percentiles over any period and
+ * across instances.
+ */
+@Singleton
+public class Metrics {
+
+    private static final double[] BUCKETS_SECONDS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private final Map<Metric, ConcurrentMap<String, Timer>> timers = new EnumMap<>(Metric.class);
+
+    public Metrics() {
+        for (Metric metric : Metric.values()) {
+            timers.put(metric, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    /**
+     * @param labelValue what is timed, like the name of a method
+     * @return the timer of the given metric and label value, created when first asked for
+     */
+    public Timer timer(Metric metric, String labelValue) {
+        return timers.get(metric).computeIfAbsent(labelValue, value -> new Timer());
+    }
+
+    /**
+     * @return every timer in the text format of Prometheus
+     */
+    public String scrape() {
+        StringBuilder text = new StringBuilder();
+        for (Metric metric : Metric.values()) {
+            writeHistograms(text, metric);
+            writeErrors(text, metric);
+            if (metric.isCountsRows()) {
+                writeRows(text, metric);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Writes a counter without labels in the text format of Prometheus.
+     */
+    public static void writeCounter(StringBuilder text, String name, String help, long value) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" counter\n");
+        text.append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Writes a counter of seconds without labels in the text format of Prometheus.
+     */
+    public static void writeSecondsCounter(StringBuilder text, String name, String help, long millis) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" counter\n");
+        text.append(name).append(' ').append(String.format(Locale.ROOT, "%.3f", millis / 1000.0)).append('\n');
+    }
+
+    private void writeHistograms(StringBuilder text, Metric metric) {
+        String name = metric.getName() + "_seconds";
+        text.append("# HELP ").append(name).append(' ').append(metric.getHelp()).append('\n');
+        text.append("# TYPE ").append(name).append(" histogram\n");
+        timers.get(metric).forEach((labelValue, timer) -> {
+            Histogram histogram = timer.getHistogram();
+            String    labels    = metric.getLabel() + "=\"" + labelValue + "\"";
+            for (double bucket : BUCKETS_SECONDS) {
+                long micros = (long)(bucket * 1_000_000);
+                text.append(name).append("_bucket{").append(labels).append(",le=\"").append(bucket).append("\"} ")
+                    .append(histogram.getCountBetweenValues(0, micros)).append('\n');
+            }
+            text.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(histogram.getTotalCount()).append('\n');
+            text.append(name).append("_sum{").append(labels).append("} ").append(String.format(Locale.ROOT, "%.6f", timer.getTotalMicros() / 1_000_000.0)).append('\n');
+            text.append(name).append("_count{").append(labels).append("} ").append(histogram.getTotalCount()).append('\n');
+        });
+    }
+
+    private void writeErrors(StringBuilder text, Metric metric) {
+        String name = metric.getName() + "_errors_total";
+        text.append("# HELP ").append(name).append(" Number of failures by kind, like status code or exception\n");
+        text.append("# TYPE ").append(name).append(" counter\n");
+        timers.get(metric).forEach((labelValue, timer) -> timer.getErrors().forEach((error, count) ->
+            text.append(name).append('{').append(metric.getLabel()).append("=\"").append(labelValue).append("\",error=\"").append(error).append("\"} ")
+                .append(count).append('\n')));
+    }
+
+    private void writeRows(StringBuilder text, Metric metric) {
+        String name = metric.getName() + "_rows_total";
+        text.append("# HELP ").append(name).append(" Number of rows returned\n");
+        text.append("# TYPE ").append(name).append(" counter\n");
+        timers.get(metric).forEach((labelValue, timer) ->
+            text.append(name).append('{').append(metric.getLabel()).append("=\"").append(labelValue).append("\"} ")
+                .append(timer.getRows()).append('\n'));
+    }
+}
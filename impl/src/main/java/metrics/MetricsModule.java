@@ -0,0 +1,16 @@
+package metrics;
+
+import com.google.inject.Binder;
+import com.google.inject.TypeLiteral;
+import com.google.inject.multibindings.Multibinder;
+import se.fortnox.reactivewizard.binding.AutoBindModule;
+import se.fortnox.reactivewizard.jaxrs.response.ResultTransformerFactory;
+
+public class MetricsModule implements AutoBindModule {
+    @Override
+    public void configure(Binder binder) {
+        Multibinder.newSetBinder(binder, TypeLiteral.get(ResultTransformerFactory.class))
+            .addBinding()
+            .to(MetricsTransformerFactory.class);
+    }
+}
@@ -0,0 +1,21 @@
+package metrics;
+
+import rx.Observable;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN;
+
+/**
+ * Serves the metrics of the application to Prometheus. It is outside of /api, so that it is only
+ * reachable from within the cluster.
+ */
+@Path("metrics")
+public interface MetricsResource {
+
+    @GET
+    @Produces(TEXT_PLAIN)
+    Observable<String> getMetrics();
+}
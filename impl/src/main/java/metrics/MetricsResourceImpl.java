@@ -0,0 +1,61 @@
+package metrics;
+
+import auth.VerifiedTokenCache;
+import cache.QuestionCache;
+import cache.ResponseCache;
+import com.google.common.cache.CacheStats;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import impl.PopularQuestionsRanking;
+import rx.Observable;
+import slack.SlackIdentityCache;
+
+import static rx.Observable.fromCallable;
+
+@Singleton
+public class MetricsResourceImpl implements MetricsResource {
+
+    private final Metrics                 metrics;
+    private final QuestionCache           questionCache;
+    private final ResponseCache           responseCache;
+    private final VerifiedTokenCache      verifiedTokenCache;
+    private final SlackIdentityCache      slackIdentityCache;
+    private final PopularQuestionsRanking popularQuestionsRanking;
+
+    @Inject
+    public MetricsResourceImpl(Metrics metrics, QuestionCache questionCache, ResponseCache responseCache, VerifiedTokenCache verifiedTokenCache, SlackIdentityCache slackIdentityCache,
+                               PopularQuestionsRanking popularQuestionsRanking) {
+        this.metrics = metrics;
+        this.questionCache = questionCache;
+        this.responseCache = responseCache;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.slackIdentityCache = slackIdentityCache;
+        this.popularQuestionsRanking = popularQuestionsRanking;
+    }
+
+    @Override
+    public Observable<String> getMetrics() {
+        return fromCallable(() -> {
+            StringBuilder text  = new StringBuilder(metrics.scrape());
+            CacheStats    stats = questionCache.getStats();
+            Metrics.writeCounter(text, "question_cache_hits_total", "Questions served from the question cache", stats.hitCount());
+            Metrics.writeCounter(text, "question_cache_misses_total", "Questions loaded into the question cache", stats.missCount());
+            Metrics.writeCounter(text, "question_cache_evictions_total", "Questions evicted from the question cache", stats.evictionCount());
+            CacheStats responseStats = responseCache.getStats();
+            Metrics.writeCounter(text, "response_cache_hits_total", "Listings served from the response cache", responseStats.hitCount());
+            Metrics.writeCounter(text, "response_cache_misses_total", "Listings loaded into the response cache", responseStats.missCount());
+            Metrics.writeCounter(text, "response_cache_not_modified_total", "Listings answered with 304 Not Modified", responseCache.getNotModified());
+            CacheStats tokenStats = verifiedTokenCache.getStats();
+            Metrics.writeCounter(text, "verified_token_cache_hits_total", "Application tokens resolved from the verified token cache", tokenStats.hitCount());
+            Metrics.writeCounter(text, "verified_token_cache_misses_total", "Application tokens verified and decoded", tokenStats.missCount());
+            Metrics.writeCounter(text, "verified_token_cache_evictions_total", "Application tokens evicted from the verified token cache", tokenStats.evictionCount());
+            CacheStats identityStats = slackIdentityCache.getStats();
+            Metrics.writeCounter(text, "slack_identity_cache_hits_total", "Slack users and their emails served from the identity cache", identityStats.hitCount());
+            Metrics.writeCounter(text, "slack_identity_cache_misses_total", "Slack users and their emails looked up in Slack or the database", identityStats.missCount());
+            Metrics.writeCounter(text, "popular_questions_refresh_total", "Popular question rankings loaded from the database", popularQuestionsRanking.getRefreshCount());
+            Metrics.writeSecondsCounter(text, "popular_questions_refresh_seconds_total", "Time spent loading popular question rankings from the database",
+                popularQuestionsRanking.getRefreshTimeMillis());
+            return text.toString();
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package metrics;
+
+import se.fortnox.reactivewizard.jaxrs.JaxRsResource;
+import se.fortnox.reactivewizard.jaxrs.WebException;
+import se.fortnox.reactivewizard.jaxrs.response.ResultTransformer;
+import se.fortnox.reactivewizard.jaxrs.response.ResultTransformerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.lang.reflect.Method;
+
+import static metrics.Metric.HTTP_REQUESTS;
+
+/**
+ * Times the result of every resource method, named after the resource interface and method, like
+ * {@code QuestionResource.getLatestQuestions}. Failures are counted by the status code they are
+ * answered with.
+ */
+@Singleton
+public class MetricsTransformerFactory implements ResultTransformerFactory {
+
+    private static final String INTERNAL_SERVER_ERROR = "500";
+
+    private final Metrics metrics;
+
+    @Inject
+    public MetricsTransformerFactory(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public <T> ResultTransformer<T> create(JaxRsResource<T> jaxRsResource) {
+        Method method = jaxRsResource.getResourceMethod();
+        Timer  timer  = metrics.timer(HTTP_REQUESTS, method.getDeclaringClass().getSimpleName() + "." + method.getName());
+        return (result, args) -> result.map(output -> timer.time(output, MetricsTransformerFactory::status));
+    }
+
+    static String status(Throwable throwable) {
+        if (throwable instanceof WebException) {
+            return String.valueOf(((WebException)throwable).getStatus().code());
+        }
+        return INTERNAL_SERVER_ERROR;
+    }
+}
@@ -0,0 +1,33 @@
+package metrics;
+
+import se.fortnox.reactivewizard.config.Config;
+
+@Config("slowQueries")
+public class SlowQueryConfig {
+
+    /**
+     * Defines if dao calls slower than the threshold should be logged
+     */
+    private boolean enabled = true;
+
+    /**
+     * Milliseconds from subscribing to a dao call until it completes, above which the call is logged
+     */
+    private long thresholdMillis = 250;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getThresholdMillis() {
+        return thresholdMillis;
+    }
+
+    public void setThresholdMillis(long thresholdMillis) {
+        this.thresholdMillis = thresholdMillis;
+    }
+}
@@ -0,0 +1,78 @@
+package metrics;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.fortnox.reactivewizard.CollectionOptions;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs the statements and transactions that take longer than {@link SlowQueryConfig#getThresholdMillis()}.
+ * The parameters are logged by their shape, like {@code String(12)} or {@code List(3)}, rather than by
+ * value, so that no question text or email address ends up in the log.
+ */
+@Singleton
+public class SlowQueryLog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private final SlowQueryConfig config;
+    private final long            thresholdNanos;
+
+    @Inject
+    public SlowQueryLog(SlowQueryConfig config) {
+        this.config = config;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(config.getThresholdMillis());
+    }
+
+    /**
+     * Logs the call if it was slow.
+     *
+     * @param method the dao and method called, like {@code QuestionDao.getQuestion}
+     */
+    public void record(String method, Object[] args, long nanos, long rows) {
+        if (isSlow(nanos)) {
+            LOG.warn("Slow query {}({}) took {} ms and returned {} rows", method, shapes(args), TimeUnit.NANOSECONDS.toMillis(nanos), rows);
+        }
+    }
+
+    boolean isSlow(long nanos) {
+        return config.isEnabled() && nanos >= thresholdNanos;
+    }
+
+    static String shapes(Object[] args) {
+        StringJoiner shapes = new StringJoiner(", ");
+        if (args != null) {
+            for (Object arg : args) {
+                shapes.add(shape(arg));
+            }
+        }
+        return shapes.toString();
+    }
+
+    private static String shape(Object arg) {
+        if (arg == null) {
+            return "null";
+        }
+        if (arg instanceof CharSequence) {
+            return "String(" + ((CharSequence)arg).length() + ")";
+        }
+        if (arg instanceof Collection) {
+            return (arg instanceof List ? "List(" : "Collection(") + ((Collection<?>)arg).size() + ")";
+        }
+        if (arg.getClass().isArray()) {
+            return arg.getClass().getComponentType().getSimpleName() + "[" + Array.getLength(arg) + "]";
+        }
+        if (arg instanceof CollectionOptions) {
+            CollectionOptions options = (CollectionOptions)arg;
+            return "CollectionOptions(limit=" + options.getLimit() + ", offset=" + options.getOffset() + ")";
+        }
+        return arg.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,85 @@
+package metrics;
+
+import se.fortnox.reactivewizard.db.Query;
+import se.fortnox.reactivewizard.db.Update;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Names the statements sent to the database after the dao method they come from, like
+ * {@code QuestionDao.getQuestion}, by the query of its {@link Query} or {@link Update} annotation. The
+ * named parameters of a query are sent as {@code ?}, and the paging of a listing is appended to it, so a
+ * statement is named after the longest query it starts with.
+ */
+class StatementNames {
+
+    static final String UNKNOWN = "unknown";
+
+    private static final Pattern WHITESPACE      = Pattern.compile("\\s+");
+    private static final Pattern NAMED_PARAMETER = Pattern.compile("(?<!:):[A-Za-z_][\\w.]*");
+    private static final int     MAX_CACHED      = 1000;
+
+    private final Map<String, String> queries = new LinkedHashMap<>();
+    private final Map<String, String> cached  = new ConcurrentHashMap<>();
+
+    StatementNames(Class<?>... daos) {
+        for (Class<?> dao : daos) {
+            for (Method method : dao.getMethods()) {
+                String query = queryOf(method);
+                if (query != null) {
+                    queries.putIfAbsent(normalize(NAMED_PARAMETER.matcher(query).replaceAll("?")),
+                        dao.getSimpleName() + "." + method.getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * @param sql a statement prepared by a dao
+     * @return the dao and method the statement comes from, or {@link #UNKNOWN}
+     */
+    String nameOf(String sql) {
+        String name = cached.get(sql);
+        if (name != null) {
+            return name;
+        }
+        name = find(normalize(sql));
+        if (cached.size() < MAX_CACHED) {
+            cached.put(sql, name);
+        }
+        return name;
+    }
+
+    private String find(String statement) {
+        String name = queries.get(statement);
+        if (name != null) {
+            return name;
+        }
+        int longest = 0;
+        name = UNKNOWN;
+        for (Map.Entry<String, String> query : queries.entrySet()) {
+            if (query.getKey().length() > longest && statement.startsWith(query.getKey())) {
+                longest = query.getKey().length();
+                name = query.getValue();
+            }
+        }
+        return name;
+    }
+
+    private static String queryOf(Method method) {
+        Query query = method.getAnnotation(Query.class);
+        if (query != null) {
+            return query.value();
+        }
+        Update update = method.getAnnotation(Update.class);
+        return update == null ? null : update.value();
+    }
+
+    private static String normalize(String sql) {
+        return WHITESPACE.matcher(sql).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,163 @@
+package metrics;
+
+import se.fortnox.reactivewizard.db.ConnectionProvider;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static metrics.Metric.DAO_CALLS;
+
+/**
+ * Hands out the connections of the pool with their prepared statements timed, each with a {@link Timer}
+ * named after the dao method the statement comes from. A statement is timed from when it is executed until
+ * its rows have been read, so the statements of a transaction are timed one by one, like any other. Slow
+ * statements are logged by the {@link SlowQueryLog} with the shapes of their parameters.
+ */
+public class TimedConnectionProvider implements ConnectionProvider {
+
+    private final ConnectionProvider connectionProvider;
+    private final Metrics            metrics;
+    private final SlowQueryLog       slowQueryLog;
+    private final StatementNames     statementNames;
+
+    TimedConnectionProvider(ConnectionProvider connectionProvider, Metrics metrics, SlowQueryLog slowQueryLog, StatementNames statementNames) {
+        this.connectionProvider = connectionProvider;
+        this.metrics = metrics;
+        this.slowQueryLog = slowQueryLog;
+        this.statementNames = statementNames;
+    }
+
+    @Override
+    public Connection get() {
+        Connection connection = connectionProvider.get();
+        return proxy(Connection.class, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (method.getName().equals("prepareStatement")) {
+                return proxy(PreparedStatement.class, new TimedStatement((PreparedStatement)result, (String)args[0]));
+            }
+            return result;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Times the executions of a prepared statement. Like the statement itself, it is used by one thread at a time.
+     */
+    private class TimedStatement implements InvocationHandler {
+        private final PreparedStatement    statement;
+        private final String               name;
+        private final Timer                timer;
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+        private       boolean              executing;
+        private       long                 start;
+        private       long                 rows;
+
+        private TimedStatement(PreparedStatement statement, String sql) {
+            this.statement = statement;
+            this.name = statementNames.nameOf(sql);
+            this.timer = metrics.timer(DAO_CALLS, name);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            if (methodName.startsWith("execute")) {
+                return execute(method, args);
+            }
+            if (methodName.equals("getResultSet")) {
+                return counted((ResultSet)TimedConnectionProvider.invoke(statement, method, args));
+            }
+            if (methodName.equals("setNull") && args.length >= 2) {
+                parameters.put((Integer)args[0], null);
+            } else if (methodName.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                parameters.put((Integer)args[0], args[1]);
+            } else if (methodName.equals("clearParameters")) {
+                parameters.clear();
+            } else if (methodName.equals("close")) {
+                stop();
+            }
+            return TimedConnectionProvider.invoke(statement, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            stop();
+            executing = true;
+            rows = 0;
+            start = System.nanoTime();
+            Object result;
+            try {
+                result = TimedConnectionProvider.invoke(statement, method, args);
+            } catch (Throwable throwable) {
+                timer.error(throwable.getClass().getSimpleName());
+                stop();
+                throw throwable;
+            }
+            if (result instanceof ResultSet) {
+                // stopped when the result set is closed
+                return counted((ResultSet)result);
+            }
+            if (result instanceof Number) {
+                rows = ((Number)result).longValue();
+            } else if (result instanceof int[]) {
+                for (int updated : (int[])result) {
+                    rows += Math.max(0, updated);
+                }
+            } else if (result instanceof long[]) {
+                for (long updated : (long[])result) {
+                    rows += Math.max(0, updated);
+                }
+            } else if (Boolean.TRUE.equals(result)) {
+                // a result set, that is stopped when it is closed
+                return result;
+            } else if (Boolean.FALSE.equals(result)) {
+                rows = Math.max(0, statement.getUpdateCount());
+            }
+            stop();
+            return result;
+        }
+
+        private ResultSet counted(ResultSet resultSet) {
+            if (resultSet == null) {
+                return null;
+            }
+            return proxy(ResultSet.class, (proxy, method, args) -> {
+                Object result = TimedConnectionProvider.invoke(resultSet, method, args);
+                if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                    rows++;
+                } else if (method.getName().equals("close")) {
+                    stop();
+                }
+                return result;
+            });
+        }
+
+        private void stop() {
+            if (!executing) {
+                return;
+            }
+            executing = false;
+            long nanos = System.nanoTime() - start;
+            timer.record(nanos, rows);
+            slowQueryLog.record(name, parameters.values().toArray(), nanos, rows);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package metrics;
+
+import rx.Observable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decorates an interface whose methods return observables, timing every call with a {@link Timer}
+ * named after the interface and method, like {@code QuestionDao.getQuestion}.
+ */
+public final class TimedProxy {
+
+    private TimedProxy() {
+    }
+
+    public static <T> T create(Class<T> type, T target, Metrics metrics, Metric metric) {
+        return create(type, target, metrics, metric, null);
+    }
+
+    /**
+     * @param slowQueryLog where to log the calls that are slow, or null to not log them
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T create(Class<T> type, T target, Metrics metrics, Metric metric, SlowQueryLog slowQueryLog) {
+        Map<Method, String> names  = new ConcurrentHashMap<>();
+        Map<Method, Timer>  timers = new ConcurrentHashMap<>();
+        return (T)Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (!(result instanceof Observable)) {
+                return result;
+            }
+            String name  = names.computeIfAbsent(method, timed -> type.getSimpleName() + "." + timed.getName());
+            Timer  timer = timers.computeIfAbsent(method, timed -> metrics.timer(metric, name));
+            return timer.time((Observable<?>)result, throwable -> throwable.getClass().getSimpleName(), (nanos, rows) -> {
+                if (slowQueryLog != null) {
+                    slowQueryLog.record(name, args, nanos, rows);
+                }
+            });
+        });
+    }
+}
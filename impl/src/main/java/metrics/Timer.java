@@ -0,0 +1,116 @@
+package metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Action2;
+import rx.functions.Func1;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static rx.Observable.defer;
+
+/**
+ * Records how long something takes in a histogram, and how often it fails. Recording never blocks,
+ * so that it can be done on the event loop.
+ */
+public class Timer {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder                         recorder    = new Recorder(SIGNIFICANT_DIGITS);
+    private final Histogram                        total       = new Histogram(SIGNIFICANT_DIGITS);
+    private final LongAdder                        totalMicros = new LongAdder();
+    private final LongAdder                        rows        = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> errors      = new ConcurrentHashMap<>();
+
+    /**
+     * Times the given observable from when it is subscribed to until it completes, fails or is
+     * unsubscribed from.
+     *
+     * @param errorName names the kind of a failure, like its status code
+     */
+    public <T> Observable<T> time(Observable<T> observable, Func1<Throwable, String> errorName) {
+        return time(observable, errorName, (nanos, rows) -> {
+        });
+    }
+
+    /**
+     * Times the given observable like {@link #time(Observable, Func1)}, and counts what it emits.
+     *
+     * @param onStop called once with the nanoseconds taken and the number of emitted items
+     */
+    public <T> Observable<T> time(Observable<T> observable, Func1<Throwable, String> errorName, Action2<Long, Long> onStop) {
+        return defer(() -> {
+            long          start   = System.nanoTime();
+            AtomicLong    emitted = new AtomicLong();
+            AtomicBoolean stopped = new AtomicBoolean();
+            Action0       stop    = () -> {
+                if (stopped.compareAndSet(false, true)) {
+                    long nanos = System.nanoTime() - start;
+                    record(nanos, emitted.get());
+                    onStop.call(nanos, emitted.get());
+                }
+            };
+            return observable
+                .doOnNext(item -> emitted.incrementAndGet())
+                .doOnError(throwable -> error(errorName.call(throwable)))
+                .doOnTerminate(stop)
+                .doOnUnsubscribe(stop);
+        });
+    }
+
+    public void record(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        recorder.recordValue(micros);
+        totalMicros.add(micros);
+    }
+
+    /**
+     * Records something that took the given time and returned the given number of rows.
+     */
+    public void record(long nanos, long rows) {
+        record(nanos);
+        this.rows.add(rows);
+    }
+
+    public void error(String errorName) {
+        errors.computeIfAbsent(errorName, name -> new LongAdder()).increment();
+    }
+
+    /**
+     * @return everything recorded since the application started
+     */
+    synchronized Histogram getHistogram() {
+        total.add(recorder.getIntervalHistogram());
+        return total.copy();
+    }
+
+    long getTotalMicros() {
+        return totalMicros.sum();
+    }
+
+    /**
+     * @return the number of items emitted by the timed observables, and of rows recorded
+     */
+    long getRows() {
+        return rows.sum();
+    }
+
+    /**
+     * @return the number of failures per kind of failure, ordered by kind
+     */
+    Map<String, Long> getErrors() {
+        Map<String, Long> counts = new TreeMap<>();
+        errors.forEach((name, count) -> counts.put(name, count.sum()));
+        return counts;
+    }
+}
@@ -0,0 +1,70 @@
+package metrics;
+
+import com.google.inject.Binder;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import dao.AnswerDao;
+import dao.AnswerVoteDao;
+import dao.InvalidationDao;
+import dao.QuestionDao;
+import dao.QuestionVoteDao;
+import dao.SlackOutboxDao;
+import dao.TagDao;
+import dao.UserDao;
+import se.fortnox.reactivewizard.binding.AutoBindModule;
+import se.fortnox.reactivewizard.db.ConnectionProvider;
+import se.fortnox.reactivewizard.db.ConnectionProviderImpl;
+import se.fortnox.reactivewizard.db.transactions.DaoTransactions;
+import se.fortnox.reactivewizard.db.transactions.DaoTransactionsImpl;
+import slack.SlackResource;
+import slack.SlackResourceImpl;
+
+import static metrics.Metric.DAO_CALLS;
+import static metrics.Metric.SLACK_CALLS;
+
+/**
+ * Times the statements sent to the database with a {@link TimedConnectionProvider}, and puts a
+ * {@link TimedProxy} in front of the transactions and Slack, so that the time spent in the database
+ * and in Slack can be told apart from the time of the requests. Statements are named after the dao
+ * method they come from, which works for the daos listed here. Slow statements and transactions are
+ * logged by the {@link SlowQueryLog}.
+ */
+public class TimingModule implements AutoBindModule {
+
+    @Override
+    public void configure(Binder binder) {
+        Provider<Metrics>      metrics      = binder.getProvider(Metrics.class);
+        Provider<SlowQueryLog> slowQueryLog = binder.getProvider(SlowQueryLog.class);
+
+        Provider<ConnectionProviderImpl> connectionProvider = binder.getProvider(ConnectionProviderImpl.class);
+        binder.bind(ConnectionProvider.class)
+            .toProvider(() -> new TimedConnectionProvider(connectionProvider.get(), metrics.get(), slowQueryLog.get(), new StatementNames(
+                AnswerDao.class,
+                AnswerVoteDao.class,
+                InvalidationDao.class,
+                QuestionDao.class,
+                QuestionVoteDao.class,
+                SlackOutboxDao.class,
+                TagDao.class,
+                UserDao.class)))
+            .in(Singleton.class);
+
+        Provider<DaoTransactionsImpl> daoTransactions = binder.getProvider(DaoTransactionsImpl.class);
+        binder.bind(DaoTransactions.class)
+            .toProvider(() -> TimedProxy.create(DaoTransactions.class, daoTransactions.get(), metrics.get(), DAO_CALLS, slowQueryLog.get()))
+            .in(Singleton.class);
+
+        Provider<SlackResourceImpl> slackResource = binder.getProvider(SlackResourceImpl.class);
+        binder.bind(SlackResource.class)
+            .toProvider(() -> TimedProxy.create(SlackResource.class, slackResource.get(), metrics.get(), SLACK_CALLS))
+            .in(Singleton.class);
+    }
+
+    /**
+     * Runs after the modules whose bindings are replaced here.
+     */
+    @Override
+    public Integer getPrio() {
+        return 300;
+    }
+}
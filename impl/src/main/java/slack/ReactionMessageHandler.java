@@ -11,6 +11,7 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import impl.VoteBuffer;
 import rx.Observable;
 import rx.functions.Func1;
 import se.fortnox.reactivewizard.jaxrs.WebException;
@@ -44,18 +45,21 @@ public class ReactionMessageHandler implements SlackMessageHandler {
     private final        AnswerResource       answerResource;
     private final        SlackResource        slackResource;
     private final        QuestionResource userQuestionResource;
+    private final        VoteBuffer           voteBuffer;
 
     @Inject
     public ReactionMessageHandler(SlackResource slackResource,
         QuestionResource questionResource,
         AnswerResource answerResource,
-        QuestionResource userQuestionResource
+        QuestionResource userQuestionResource,
+        VoteBuffer voteBuffer
     ) {
 
         this.slackResource = slackResource;
         this.questionResource = questionResource;
         this.answerResource = answerResource;
         this.userQuestionResource = userQuestionResource;
+        this.voteBuffer = voteBuffer;
     }
 
     @Override
@@ -101,6 +105,9 @@ public class ReactionMessageHandler implements SlackMessageHandler {
     private Func1<Question, Observable<Void>> voteOnQuestion(boolean upVote, User user) {
         Auth auth = new Auth(user.getId());
         return question -> {
+            if (voteBuffer.isEnabled()) {
+                return voteBuffer.voteOnQuestion(user.getId(), question.getId(), upVote ? 1 : -1);
+            }
             if (upVote) {
                 return userQuestionResource.upVoteQuestion(auth, question.getId());
             }
@@ -111,6 +118,9 @@ public class ReactionMessageHandler implements SlackMessageHandler {
     private Func1<Answer, Observable<Void>> voteOnAnswer(boolean upVote, User user) {
         Auth auth = new Auth(user.getId());
         return answer -> {
+            if (voteBuffer.isEnabled()) {
+                return voteBuffer.voteOnAnswer(user.getId(), answer.getId(), upVote ? 1 : -1);
+            }
             if (upVote) {
                 return answerResource.upVoteAnswer(auth, answer.getId());
             }
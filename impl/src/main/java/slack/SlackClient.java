@@ -0,0 +1,165 @@
+package slack;
+
+import com.github.seratch.jslack.common.json.GsonFactory;
+import com.google.gson.Gson;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.subscriptions.Subscriptions;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static rx.Observable.defer;
+import static rx.Observable.error;
+import static rx.Observable.fromCallable;
+import static rx.Observable.just;
+import static rx.Observable.range;
+
+/**
+ * Calls the Slack Web API without blocking the calling thread. The calls share one pool of
+ * connections to Slack, and the responses are handled on the threads of the http client, never on
+ * the thread that made the call.
+ *
+ * Each method has a {@link TokenBucket} with the rate Slack allows for it, and calls beyond that rate
+ * are delayed rather than sent to be refused. When Slack still refuses a call with 429 Too Many
+ * Requests, no more calls of that method are made for the time given in its Retry-After header, and
+ * the call is made again after it.
+ */
+@Singleton
+public class SlackClient {
+
+    private static final Logger LOG                         = LoggerFactory.getLogger(SlackClient.class);
+    private static final String RETRY_AFTER                 = "Retry-After";
+    private static final long   DEFAULT_RETRY_AFTER_SECONDS = 1;
+
+    private final SlackConfig                   slackConfig;
+    private final HttpClient                    httpClient;
+    private final Gson                          gson;
+    private final Map<SlackMethod, TokenBucket> buckets = new EnumMap<>(SlackMethod.class);
+
+    @Inject
+    public SlackClient(SlackConfig slackConfig) {
+        this.slackConfig = slackConfig;
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(slackConfig.getTimeoutSeconds()))
+            .build();
+        this.gson = GsonFactory.createSnakeCase();
+        for (SlackMethod method : SlackMethod.values()) {
+            buckets.put(method, new TokenBucket(method.getPermitsPerMinute(), method.getBurst(), System::currentTimeMillis));
+        }
+    }
+
+    /**
+     * Calls a method of the Slack Web API.
+     *
+     * @param method       the method
+     * @param token        the token to call the method with
+     * @param parameters   the parameters of the method, of which null values are left out
+     * @param responseType the type of the response of the method
+     * @return the response, which tells whether the call succeeded, or an error if Slack could not be called
+     */
+    <T> Observable<T> call(SlackMethod method, String token, Map<String, Object> parameters, Class<T> responseType) {
+        return defer(() -> send(method, token, parameters))
+            .retryWhen(errors -> errors.zipWith(range(1, slackConfig.getMaxRetries() + 1), (throwable, attempt) ->
+                throwable instanceof RateLimitedException && attempt <= slackConfig.getMaxRetries()
+                    ? just(attempt)
+                    : Observable.<Integer>error(throwable))
+                .concatMap(retry -> retry))
+            .concatMap(body -> fromCallable(() -> gson.fromJson(body, responseType)));
+    }
+
+    private Observable<String> send(SlackMethod method, String token, Map<String, Object> parameters) {
+        TokenBucket bucket = buckets.get(method);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(slackConfig.getApiUrl() + method.getName()))
+            .timeout(Duration.ofSeconds(slackConfig.getTimeoutSeconds()))
+            .header("Authorization", "Bearer " + token)
+            .header("Content-Type", "application/x-www-form-urlencoded; charset=utf-8")
+            .POST(HttpRequest.BodyPublishers.ofString(formOf(parameters), UTF_8))
+            .build();
+
+        Observable<String> sent = fromFuture(() -> httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString(UTF_8)))
+            .concatMap(response -> {
+                if (response.statusCode() == HttpResponseStatus.TOO_MANY_REQUESTS.code()) {
+                    long retryAfterSeconds = retryAfterOf(response);
+                    LOG.warn("Slack rate limited {}, waiting {} seconds", method.getName(), retryAfterSeconds);
+                    bucket.pause(TimeUnit.SECONDS.toMillis(retryAfterSeconds));
+                    return error(new RateLimitedException(method));
+                }
+                if (response.statusCode() != HttpResponseStatus.OK.code()) {
+                    return error(new IOException("Unexpected status " + response.statusCode() + " from Slack method " + method.getName()));
+                }
+                return just(response.body());
+            });
+
+        long delayMillis = bucket.reserve();
+        return delayMillis == 0 ? sent : sent.delaySubscription(delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private String formOf(Map<String, Object> parameters) {
+        return parameters.entrySet()
+            .stream()
+            .filter(parameter -> parameter.getValue() != null)
+            .map(parameter -> URLEncoder.encode(parameter.getKey(), UTF_8) + "=" + URLEncoder.encode(format(parameter.getValue()), UTF_8))
+            .collect(Collectors.joining("&"));
+    }
+
+    /**
+     * @return the parameter as sent to Slack, which is json unless it is a string
+     */
+    private String format(Object parameter) {
+        return parameter instanceof String ? (String)parameter : gson.toJson(parameter);
+    }
+
+    private static long retryAfterOf(HttpResponse<?> response) {
+        return response.headers()
+            .firstValue(RETRY_AFTER)
+            .map(retryAfter -> {
+                try {
+                    return Long.parseLong(retryAfter.trim());
+                } catch (NumberFormatException e) {
+                    return DEFAULT_RETRY_AFTER_SECONDS;
+                }
+            })
+            .orElse(DEFAULT_RETRY_AFTER_SECONDS);
+    }
+
+    private static <T> Observable<T> fromFuture(Supplier<CompletableFuture<T>> futureSupplier) {
+        return Observable.create(subscriber -> {
+            CompletableFuture<T> future = futureSupplier.get();
+            subscriber.add(Subscriptions.create(() -> future.cancel(true)));
+            future.whenComplete((value, throwable) -> {
+                if (throwable != null) {
+                    subscriber.onError(throwable);
+                } else {
+                    subscriber.onNext(value);
+                    subscriber.onCompleted();
+                }
+            });
+        });
+    }
+
+    /**
+     * Slack refused a call with 429 Too Many Requests.
+     */
+    static class RateLimitedException extends RuntimeException {
+        RateLimitedException(SlackMethod method) {
+            super("Slack rate limited " + method.getName());
+        }
+    }
+}
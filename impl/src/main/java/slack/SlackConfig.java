@@ -31,6 +31,21 @@ public class SlackConfig {
     @NotNull
     private boolean enabled = false;
 
+    /**
+     * The url of the Slack Web API, which the names of the methods are appended to
+     */
+    private String apiUrl = "https://slack.com/api/";
+
+    /**
+     * The longest time to wait for Slack to answer a call
+     */
+    private long timeoutSeconds = 10;
+
+    /**
+     * How many times a call that Slack has rate limited is made again, after the time Slack asks for
+     */
+    private int maxRetries = 3;
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -66,4 +81,28 @@ public class SlackConfig {
     public void setFeedChannel(String feedChannel) {
         this.feedChannel = feedChannel;
     }
+
+    public String getApiUrl() {
+        return apiUrl;
+    }
+
+    public void setApiUrl(String apiUrl) {
+        this.apiUrl = apiUrl;
+    }
+
+    public long getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public void setTimeoutSeconds(long timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
 }
@@ -0,0 +1,148 @@
+package slack;
+
+import api.User;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import rx.Observable;
+import rx.functions.Action1;
+import rx.functions.Func0;
+
+import java.util.concurrent.TimeUnit;
+
+import static rx.Observable.defer;
+import static rx.Observable.error;
+import static rx.Observable.just;
+
+/**
+ * Caches who Slack users are: the email of a Slack user id, the Slack user id of an email and the
+ * user of an email. Cached users are shared between callers and must not be modified.
+ *
+ * A lookup that Slack answered with an error, such as an email that has no Slack user, is remembered
+ * for a shorter time and fails again without asking Slack. Lookups that could not be made at all,
+ * because Slack could not be reached or rate limited the call, are not remembered.
+ */
+@Singleton
+public class SlackIdentityCache {
+
+    private final SlackIdentityCacheConfig config;
+    private final Cache<String, String>    emailsBySlackUserId;
+    private final Cache<String, String>    slackUserIdsByEmail;
+    private final Cache<String, User>      usersByEmail;
+    private final Cache<String, String>    failedEmailLookups;
+    private final Cache<String, String>    failedSlackUserIdLookups;
+
+    @Inject
+    public SlackIdentityCache(SlackIdentityCacheConfig config) {
+        this.config = config;
+        this.emailsBySlackUserId = build(config.getExpireAfterWriteSeconds());
+        this.slackUserIdsByEmail = build(config.getExpireAfterWriteSeconds());
+        this.usersByEmail = build(config.getExpireAfterWriteSeconds());
+        this.failedEmailLookups = build(config.getNegativeExpireAfterWriteSeconds());
+        this.failedSlackUserIdLookups = build(config.getNegativeExpireAfterWriteSeconds());
+    }
+
+    /**
+     * Returns the cached email of a Slack user, or looks it up and caches it.
+     *
+     * @param slackUserId the id of the Slack user
+     * @param loader      looks the email up in Slack
+     * @return the email
+     */
+    public Observable<String> getEmail(String slackUserId, Func0<Observable<String>> loader) {
+        return get(emailsBySlackUserId, failedEmailLookups, slackUserId, loader, email -> slackUserIdsByEmail.put(email, slackUserId));
+    }
+
+    /**
+     * Returns the cached Slack user id of an email, or looks it up and caches it.
+     *
+     * @param email  the email of the Slack user
+     * @param loader looks the Slack user up in Slack
+     * @return the Slack user id
+     */
+    public Observable<String> getSlackUserId(String email, Func0<Observable<String>> loader) {
+        return get(slackUserIdsByEmail, failedSlackUserIdLookups, email, loader, slackUserId -> emailsBySlackUserId.put(slackUserId, email));
+    }
+
+    /**
+     * Returns the cached user of an email, or loads and caches it.
+     *
+     * @param email  the email of the user
+     * @param loader loads the user from the database
+     * @return the user
+     */
+    public Observable<User> getUser(String email, Func0<Observable<User>> loader) {
+        return get(usersByEmail, null, email, loader, user -> { });
+    }
+
+    /**
+     * Caches the email of a Slack user that is already known, such as from a listing of the Slack users.
+     */
+    public void put(String slackUserId, String email) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        emailsBySlackUserId.put(slackUserId, email);
+        slackUserIdsByEmail.put(email, slackUserId);
+        failedEmailLookups.invalidate(slackUserId);
+        failedSlackUserIdLookups.invalidate(email);
+    }
+
+    public void invalidateAll() {
+        emailsBySlackUserId.invalidateAll();
+        slackUserIdsByEmail.invalidateAll();
+        usersByEmail.invalidateAll();
+        failedEmailLookups.invalidateAll();
+        failedSlackUserIdLookups.invalidateAll();
+    }
+
+    /**
+     * @return the statistics of the identities, not counting the lookups that failed
+     */
+    public CacheStats getStats() {
+        return emailsBySlackUserId.stats()
+            .plus(slackUserIdsByEmail.stats())
+            .plus(usersByEmail.stats());
+    }
+
+    /**
+     * @param failedLookups the lookups that Slack answered with an error, or null if they are not remembered
+     * @param loaded        called with a value that was loaded, to cache it the other way around
+     */
+    private <T> Observable<T> get(Cache<String, T> cache, Cache<String, String> failedLookups, String key, Func0<Observable<T>> loader, Action1<T> loaded) {
+        if (!config.isEnabled()) {
+            return loader.call();
+        }
+        return defer(() -> {
+            T cached = cache.getIfPresent(key);
+            if (cached != null) {
+                return just(cached);
+            }
+            String failure = failedLookups == null ? null : failedLookups.getIfPresent(key);
+            if (failure != null) {
+                return error(new IllegalStateException(failure));
+            }
+            return loader.call()
+                .doOnNext(value -> {
+                    cache.put(key, value);
+                    loaded.call(value);
+                })
+                .doOnError(throwable -> {
+                    // the Slack responses that are not ok are turned into IllegalStateException
+                    if (failedLookups != null && throwable instanceof IllegalStateException) {
+                        failedLookups.put(key, String.valueOf(throwable.getMessage()));
+                    }
+                });
+        });
+    }
+
+    private <T> Cache<String, T> build(long expireAfterWriteSeconds) {
+        return CacheBuilder.newBuilder()
+            .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+            .maximumSize(config.getMaxEntries())
+            .recordStats()
+            .build();
+    }
+}
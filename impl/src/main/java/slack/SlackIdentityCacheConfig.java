@@ -0,0 +1,74 @@
+package slack;
+
+import se.fortnox.reactivewizard.config.Config;
+
+@Config("slackIdentityCache")
+public class SlackIdentityCacheConfig {
+
+    /**
+     * Defines if the emails, Slack ids and users of Slack users should be cached
+     */
+    private boolean enabled = true;
+
+    /**
+     * The longest time an identity is cached
+     */
+    private long expireAfterWriteSeconds = 3600;
+
+    /**
+     * The longest time a lookup that Slack answered with an error is remembered, such as an email
+     * without a Slack user, before Slack is asked again
+     */
+    private long negativeExpireAfterWriteSeconds = 300;
+
+    /**
+     * The maximum number of identities cached of each kind
+     */
+    private long maxEntries = 10000;
+
+    /**
+     * The time between fetching all the users of the Slack workspace into the cache, or 0 to only
+     * cache the users that are looked up
+     */
+    private long warmIntervalMinutes = 0;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getExpireAfterWriteSeconds() {
+        return expireAfterWriteSeconds;
+    }
+
+    public void setExpireAfterWriteSeconds(long expireAfterWriteSeconds) {
+        this.expireAfterWriteSeconds = expireAfterWriteSeconds;
+    }
+
+    public long getNegativeExpireAfterWriteSeconds() {
+        return negativeExpireAfterWriteSeconds;
+    }
+
+    public void setNegativeExpireAfterWriteSeconds(long negativeExpireAfterWriteSeconds) {
+        this.negativeExpireAfterWriteSeconds = negativeExpireAfterWriteSeconds;
+    }
+
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(long maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public long getWarmIntervalMinutes() {
+        return warmIntervalMinutes;
+    }
+
+    public void setWarmIntervalMinutes(long warmIntervalMinutes) {
+        this.warmIntervalMinutes = warmIntervalMinutes;
+    }
+}
@@ -0,0 +1,86 @@
+package slack;
+
+import com.github.seratch.jslack.api.methods.response.users.UsersListResponse;
+import com.github.seratch.jslack.api.model.User;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static rx.Observable.defer;
+import static rx.Observable.empty;
+import static rx.Observable.error;
+import static rx.Observable.from;
+import static slack.SlackMethod.USERS_LIST;
+
+/**
+ * Periodically fetches all the users of the Slack workspace into the {@link SlackIdentityCache}, so
+ * that users are found in the cache the first time they are looked up as well.
+ */
+@Singleton
+public class SlackIdentityWarmer {
+
+    private static final Logger LOG       = LoggerFactory.getLogger(SlackIdentityWarmer.class);
+    private static final int    PAGE_SIZE = 200;
+
+    private final SlackClient        slackClient;
+    private final SlackConfig        slackConfig;
+    private final SlackIdentityCache slackIdentityCache;
+
+    @Inject
+    public SlackIdentityWarmer(SlackClient slackClient, SlackConfig slackConfig, SlackIdentityCacheConfig config, SlackIdentityCache slackIdentityCache) {
+        this.slackClient = slackClient;
+        this.slackConfig = slackConfig;
+        this.slackIdentityCache = slackIdentityCache;
+
+        if (!slackConfig.isEnabled() || !config.isEnabled() || config.getWarmIntervalMinutes() <= 0) {
+            return;
+        }
+
+        Observable.interval(0, config.getWarmIntervalMinutes(), TimeUnit.MINUTES)
+            .onBackpressureDrop()
+            .concatMap(tick -> warm())
+            .subscribe();
+    }
+
+    /**
+     * Caches the email of every Slack user that has one.
+     *
+     * @return the number of users cached
+     */
+    public Observable<Integer> warm() {
+        return listUsers(null)
+            .filter(user -> !user.isDeleted() && user.getProfile() != null && user.getProfile().getEmail() != null)
+            .doOnNext(user -> slackIdentityCache.put(user.getId(), user.getProfile().getEmail()))
+            .count()
+            .doOnNext(cached -> LOG.info("Cached the emails of {} Slack users", cached))
+            .onErrorResumeNext(throwable -> {
+                LOG.warn("Failed to cache the users of Slack", throwable);
+                return empty();
+            });
+    }
+
+    private Observable<User> listUsers(String cursor) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("limit", String.valueOf(PAGE_SIZE));
+        parameters.put("cursor", cursor);
+        return slackClient.call(USERS_LIST, slackConfig.getApiToken(), parameters, UsersListResponse.class)
+            .concatMap(response -> {
+                if (!response.isOk()) {
+                    return error(new IllegalStateException("Could not list the users of slack: " + response.getError()));
+                }
+                Observable<User> members = response.getMembers() == null ? empty() : from(response.getMembers());
+                String nextCursor = response.getResponseMetadata() == null ? null : response.getResponseMetadata().getNextCursor();
+                if (isNullOrEmpty(nextCursor)) {
+                    return members;
+                }
+                return members.concatWith(defer(() -> listUsers(nextCursor)));
+            });
+    }
+}
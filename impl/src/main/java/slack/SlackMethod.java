@@ -0,0 +1,35 @@
+package slack;
+
+/**
+ * The methods of the Slack Web API that are called, with the rate Slack allows for them. The rates
+ * are the lower bounds of the rate limit tiers Slack documents for the methods.
+ */
+enum SlackMethod {
+    CHAT_POST_MESSAGE("chat.postMessage", 60, 5),
+    USERS_INFO("users.info", 100, 20),
+    USERS_LOOKUP_BY_EMAIL("users.lookupByEmail", 50, 10),
+    CHANNELS_REPLIES("channels.replies", 50, 10),
+    USERS_LIST("users.list", 20, 2);
+
+    private final String name;
+    private final int    permitsPerMinute;
+    private final int    burst;
+
+    SlackMethod(String name, int permitsPerMinute, int burst) {
+        this.name = name;
+        this.permitsPerMinute = permitsPerMinute;
+        this.burst = burst;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getPermitsPerMinute() {
+        return permitsPerMinute;
+    }
+
+    int getBurst() {
+        return burst;
+    }
+}
@@ -27,6 +27,8 @@ public class SlackModule implements AutoBindModule {
 
         slackMessageHandlerScanner.getMessageHandlers().forEach(aClass -> slackMessageHandlerMultibinder.addBinding().to(aClass));
 
+        binder.bind(SlackIdentityWarmer.class).asEagerSingleton();
+
         /*
          SlackConfig#isEnabled is used for deciding if notifications
          should be sent and if a websocket to Slack should be established.
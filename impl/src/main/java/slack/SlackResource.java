@@ -22,4 +22,6 @@ public interface SlackResource {
     Observable<Message> getMessageFromSlack(String channel, String mainMessageId);
 
     Observable<User> getUser(Message mainMessage);
+
+    Observable<User> getUserBySlackId(String userId);
 }
@@ -2,11 +2,6 @@ package slack;
 
 import api.User;
 import api.UserResource;
-import com.github.seratch.jslack.Slack;
-import com.github.seratch.jslack.api.methods.request.channels.ChannelsRepliesRequest;
-import com.github.seratch.jslack.api.methods.request.chat.ChatPostMessageRequest;
-import com.github.seratch.jslack.api.methods.request.users.UsersInfoRequest;
-import com.github.seratch.jslack.api.methods.request.users.UsersLookupByEmailRequest;
 import com.github.seratch.jslack.api.methods.response.channels.ChannelsRepliesResponse;
 import com.github.seratch.jslack.api.methods.response.channels.UsersLookupByEmailResponse;
 import com.github.seratch.jslack.api.methods.response.chat.ChatPostMessageResponse;
@@ -19,26 +14,32 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Observable;
 
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.Callable;
+import java.util.Map;
 
 import static rx.Observable.empty;
 import static rx.Observable.error;
-import static rx.Observable.fromCallable;
+import static slack.SlackMethod.CHANNELS_REPLIES;
+import static slack.SlackMethod.CHAT_POST_MESSAGE;
+import static slack.SlackMethod.USERS_INFO;
+import static slack.SlackMethod.USERS_LOOKUP_BY_EMAIL;
 
 @Singleton
 public class SlackResourceImpl implements SlackResource {
 
     private static final Logger LOG = LoggerFactory.getLogger(SlackResourceImpl.class);
-    private final Slack slack;
+    private final SlackClient slackClient;
     private final SlackConfig slackConfig;
     private final UserResource userResource;
+    private final SlackIdentityCache slackIdentityCache;
 
     @Inject
-    public SlackResourceImpl(SlackConfig slackConfig, UserResource userResource) {
-        slack = new Slack();
+    public SlackResourceImpl(SlackClient slackClient, SlackConfig slackConfig, UserResource userResource, SlackIdentityCache slackIdentityCache) {
+        this.slackClient = slackClient;
         this.slackConfig = slackConfig;
         this.userResource = userResource;
+        this.slackIdentityCache = slackIdentityCache;
     }
 
     static String handleUserInfoResponse(UsersInfoResponse usersInfoResponse) {
@@ -79,21 +80,17 @@ public class SlackResourceImpl implements SlackResource {
 
     @Override
     public Observable<String> getUserEmail(String userId) {
-        return callSlack(() -> {
-
-            final UsersInfoRequest slackRequest = UsersInfoRequest
-                .builder()
-                .user(userId)
-                .token(slackConfig.getApiToken())
-                .build();
-
-            return slack.methods().usersInfo(slackRequest);
-        }).map(SlackResourceImpl::handleUserInfoResponse);
+        return slackIdentityCache.getEmail(userId, () -> {
+            Map<String, Object> parameters = new LinkedHashMap<>();
+            parameters.put("user", userId);
+            return callSlack(USERS_INFO, slackConfig.getApiToken(), parameters, UsersInfoResponse.class)
+                .map(SlackResourceImpl::handleUserInfoResponse);
+        });
     }
 
-    private <T> Observable<T> callSlack(Callable<T> callable) {
+    private <T> Observable<T> callSlack(SlackMethod method, String token, Map<String, Object> parameters, Class<T> responseType) {
         if(slackConfig.isEnabled()) {
-            return fromCallable(callable);
+            return slackClient.call(method, token, parameters, responseType);
         }
         LOG.info("Request to Slack was ignored as the configuration has disabled interaction.");
         return empty();
@@ -101,76 +98,61 @@ public class SlackResourceImpl implements SlackResource {
 
     @Override
     public Observable<String> getUserId(String email) {
-        return callSlack(() -> {
-            final UsersLookupByEmailRequest requestByEmail = UsersLookupByEmailRequest
-                .builder()
-                .email(email)
-                .token(slackConfig.getBotUserToken())
-                .build();
-            return slack.methods().usersLookupByEmail(requestByEmail);
-        }).map(SlackResourceImpl::handleUserByEmailResponse);
+        return slackIdentityCache.getSlackUserId(email, () -> {
+            Map<String, Object> parameters = new LinkedHashMap<>();
+            parameters.put("email", email);
+            return callSlack(USERS_LOOKUP_BY_EMAIL, slackConfig.getBotUserToken(), parameters, UsersLookupByEmailResponse.class)
+                .map(SlackResourceImpl::handleUserByEmailResponse);
+        });
     }
 
     @Override
     public Observable<Void> postMessageToSlack(String channel, String message, String threadId) {
-        return callSlack(() -> {
-            final ChatPostMessageRequest chatPostMessageRequest = ChatPostMessageRequest
-                .builder()
-                .channel(channel)
-                .threadTs(threadId)
-                .text(message)
-                .token(slackConfig.getApiToken())
-                .build();
-
-            return slack.methods().chatPostMessage(chatPostMessageRequest);
-        }).flatMap(SlackResourceImpl::handleChatPostMessageResponse);
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("channel", channel);
+        parameters.put("thread_ts", threadId);
+        parameters.put("text", message);
+        return callSlack(CHAT_POST_MESSAGE, slackConfig.getApiToken(), parameters, ChatPostMessageResponse.class)
+            .flatMap(SlackResourceImpl::handleChatPostMessageResponse);
     }
 
     @Override
     public Observable<Void> postMessageToSlackAsBotUser(String channel, List<LayoutBlock> message) {
-        return callSlack(() -> {
-            final ChatPostMessageRequest chatPostMessageRequest = ChatPostMessageRequest
-                .builder()
-                .channel(channel)
-                .blocks(message)
-                .asUser(true)
-                .token(slackConfig.getBotUserToken())
-                .build();
-            return slack.methods().chatPostMessage(chatPostMessageRequest);
-        }).flatMap(SlackResourceImpl::handleChatPostMessageResponse);
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("channel", channel);
+        parameters.put("blocks", message);
+        parameters.put("as_user", "true");
+        return callSlack(CHAT_POST_MESSAGE, slackConfig.getBotUserToken(), parameters, ChatPostMessageResponse.class)
+            .flatMap(SlackResourceImpl::handleChatPostMessageResponse);
     }
 
     @Override
     public Observable<Void> postMessageToSlack(String channel, List<LayoutBlock> message) {
-        return callSlack(() -> {
-            final ChatPostMessageRequest chatPostMessageRequest = ChatPostMessageRequest
-                .builder()
-                .channel(channel)
-                .blocks(message)
-                .token(slackConfig.getApiToken())
-                .build();
-
-            return slack.methods().chatPostMessage(chatPostMessageRequest);
-        }).flatMap(SlackResourceImpl::handleChatPostMessageResponse);
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("channel", channel);
+        parameters.put("blocks", message);
+        return callSlack(CHAT_POST_MESSAGE, slackConfig.getApiToken(), parameters, ChatPostMessageResponse.class)
+            .flatMap(SlackResourceImpl::handleChatPostMessageResponse);
     }
 
 
     @Override
     public Observable<Message> getMessageFromSlack(String channel, String messageId) {
-        return callSlack(() -> {
-            final ChannelsRepliesRequest getMessageFromSlack = ChannelsRepliesRequest
-                .builder()
-                .channel(channel)
-                .threadTs(messageId)
-                .token(slackConfig.getApiToken())
-                .build();
-            return slack.methods().channelsReplies(getMessageFromSlack);
-        }).map(SlackResourceImpl::handleGetMessageResponse);
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("channel", channel);
+        parameters.put("thread_ts", messageId);
+        return callSlack(CHANNELS_REPLIES, slackConfig.getApiToken(), parameters, ChannelsRepliesResponse.class)
+            .map(SlackResourceImpl::handleGetMessageResponse);
     }
 
     @Override
     public Observable<User> getUser(Message mainMessage) {
-        return getUserEmail(mainMessage.getUser())
-            .flatMap(email -> userResource.getUserByEmail(email, true));
+        return getUserBySlackId(mainMessage.getUser());
+    }
+
+    @Override
+    public Observable<User> getUserBySlackId(String userId) {
+        return getUserEmail(userId)
+            .flatMap(email -> slackIdentityCache.getUser(email, () -> userResource.getUserByEmail(email, true)));
     }
 }
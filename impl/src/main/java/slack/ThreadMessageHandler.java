@@ -4,7 +4,6 @@ import api.Answer;
 import api.AnswerResource;
 import api.Question;
 import api.QuestionResource;
-import api.UserResource;
 import api.auth.Auth;
 import com.google.gson.JsonObject;
 import com.google.inject.Inject;
@@ -36,7 +35,6 @@ public class ThreadMessageHandler implements SlackMessageHandler {
     private static final int    DEFAULT_BOUNTY  = 50;
 
     private final SlackResource     slackResource;
-    private final UserResource      userResource;
     private final QuestionResource  questionResource;
     private final AnswerResource    answerResource;
     private final ApplicationConfig applicationConfig;
@@ -44,12 +42,10 @@ public class ThreadMessageHandler implements SlackMessageHandler {
     @Inject
     public ThreadMessageHandler(QuestionResource questionResource,
         SlackResource slackResource,
-        UserResource userResource,
         AnswerResource answerResource,
         ApplicationConfig applicationConfig
     ) {
         this.slackResource = slackResource;
-        this.userResource = userResource;
         this.questionResource = questionResource;
         this.answerResource = answerResource;
         this.applicationConfig = applicationConfig;
@@ -152,7 +148,7 @@ public class ThreadMessageHandler implements SlackMessageHandler {
     private Observable<Void> createAnswer(JsonObject message) {
         return merge(
             zip(
-                slackResource.getUserEmail(message.get("user").getAsString()).flatMap(email -> userResource.getUserByEmail(email, true)),
+                slackResource.getUserBySlackId(message.get("user").getAsString()),
                 questionResource.getQuestionBySlackThreadId(message.get(SLACK_THREAD_ID).getAsString()),
 
                 (user, question) -> {
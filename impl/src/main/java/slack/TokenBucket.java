@@ -0,0 +1,52 @@
+package slack;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the rate of calls to a Slack method. The bucket holds at most a burst of permits and is
+ * refilled at the rate of the method. A call that finds the bucket empty is not refused but told how
+ * long to wait for its permit, so that it can be delayed without blocking a thread.
+ */
+class TokenBucket {
+
+    private final double       capacity;
+    private final double       permitsPerMilli;
+    private final LongSupplier clock;
+    private       double       permits;
+    private       long         refilledAtMillis;
+    private       long         pausedUntilMillis;
+
+    /**
+     * @param permitsPerMinute the sustained rate of calls
+     * @param burst            the most calls that may be made at once after a quiet period
+     * @param clock            the current time in milliseconds
+     */
+    TokenBucket(int permitsPerMinute, int burst, LongSupplier clock) {
+        this.capacity = burst;
+        this.permitsPerMilli = permitsPerMinute / 60000d;
+        this.clock = clock;
+        this.permits = burst;
+        this.refilledAtMillis = clock.getAsLong();
+    }
+
+    /**
+     * Takes a permit, which may not be available yet.
+     *
+     * @return the milliseconds to wait before making the call, 0 if it can be made at once
+     */
+    synchronized long reserve() {
+        long now = clock.getAsLong();
+        permits = Math.min(capacity, permits + (now - refilledAtMillis) * permitsPerMilli);
+        refilledAtMillis = now;
+        permits--;
+        long untilRefilled = permits >= 0 ? 0 : (long)Math.ceil(-permits / permitsPerMilli);
+        return Math.max(untilRefilled, pausedUntilMillis - now);
+    }
+
+    /**
+     * Makes no calls be made for the given time, as asked by Slack in a Retry-After header.
+     */
+    synchronized void pause(long millis) {
+        pausedUntilMillis = Math.max(pausedUntilMillis, clock.getAsLong() + millis);
+    }
+}
@@ -34,7 +34,7 @@ public class JwtAuthenticatorTest {
 		final String pastTime = "2019-01-25T13:00:47+01:00";
 		when(dateProvider.getOffsetDateTime()).thenReturn(OffsetDateTime.parse(pastTime));
 		when(dateProvider.getDefaultZone()).thenReturn(ZoneId.of("Z"));
-		jwtAuthResolver = new JwtAuthResolver(dateProvider, applicationTokenVerifier);
+		jwtAuthResolver = new JwtAuthResolver(dateProvider, applicationTokenVerifier, new VerifiedTokenCache(new VerifiedTokenCacheConfig(), new ClockProviderImpl()));
 	}
 
 	@Test
@@ -0,0 +1,110 @@
+package auth;
+
+import api.auth.Auth;
+import org.junit.Before;
+import org.junit.Test;
+import se.fortnox.reactivewizard.jaxrs.WebException;
+
+import java.time.OffsetDateTime;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.UNAUTHORIZED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class VerifiedTokenCacheTest {
+
+    private static final OffsetDateTime EXPIRES = OffsetDateTime.parse("2019-01-25T13:00:47Z");
+
+    private VerifiedTokenCacheConfig config;
+    private AtomicInteger            verifications;
+    private volatile Date            now;
+    private ClockProvider            clockProvider;
+
+    @Before
+    public void beforeEach() {
+        config = new VerifiedTokenCacheConfig();
+        verifications = new AtomicInteger();
+        now = Date.from(EXPIRES.minusMinutes(30).toInstant());
+        clockProvider = () -> () -> now;
+    }
+
+    @Test
+    public void shouldVerifyTokenOnce() {
+        VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache(config, clockProvider);
+
+        Auth first  = get(verifiedTokenCache, "token");
+        Auth second = get(verifiedTokenCache, "token");
+
+        assertThat(second.getUserId()).isEqualTo(first.getUserId());
+        assertThat(second.getExpires()).isEqualTo(EXPIRES);
+        assertThat(verifications.get()).isEqualTo(1);
+        assertThat(verifiedTokenCache.getStats().hitCount()).isEqualTo(1);
+        assertThat(verifiedTokenCache.getStats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldVerifyOtherTokensSeparately() {
+        VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache(config, clockProvider);
+
+        get(verifiedTokenCache, "token");
+        get(verifiedTokenCache, "other token");
+
+        assertThat(verifications.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldNotServeTokenAfterItHasExpired() {
+        VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache(config, clockProvider);
+        get(verifiedTokenCache, "token");
+
+        now = Date.from(EXPIRES.toInstant());
+
+        assertThatExceptionOfType(WebException.class)
+            .isThrownBy(() -> verifiedTokenCache.get("token", () -> {
+                throw new WebException(UNAUTHORIZED);
+            }));
+    }
+
+    @Test
+    public void shouldNotCacheTokensThatFailVerification() {
+        VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache(config, clockProvider);
+
+        assertThatExceptionOfType(WebException.class)
+            .isThrownBy(() -> verifiedTokenCache.get("token", () -> {
+                throw new WebException(UNAUTHORIZED);
+            }));
+        get(verifiedTokenCache, "token");
+
+        assertThat(verifications.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotShareCachedUserBetweenCallers() {
+        VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache(config, clockProvider);
+        get(verifiedTokenCache, "token").setUserId(2);
+
+        assertThat(get(verifiedTokenCache, "token").getUserId()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldVerifyEveryTimeWhenDisabled() {
+        config.setEnabled(false);
+        VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache(config, clockProvider);
+
+        get(verifiedTokenCache, "token");
+        get(verifiedTokenCache, "token");
+
+        assertThat(verifications.get()).isEqualTo(2);
+    }
+
+    private Auth get(VerifiedTokenCache verifiedTokenCache, String token) {
+        return verifiedTokenCache.get(token, () -> {
+            verifications.incrementAndGet();
+            Auth auth = new Auth(1);
+            auth.setExpires(EXPIRES);
+            return auth;
+        });
+    }
+}
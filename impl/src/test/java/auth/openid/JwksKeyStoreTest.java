@@ -0,0 +1,170 @@
+package auth.openid;
+
+import auth.Jwk;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import se.fortnox.reactivewizard.jaxrs.WebException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.UNAUTHORIZED;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static rx.Observable.empty;
+
+public class JwksKeyStoreTest {
+
+    private static final String KEY_ID = OpenIdValidatorTest.getValidJwk().getId();
+
+    private HttpServer          provider;
+    private AtomicInteger       requests;
+    private volatile int        status;
+    private volatile String     cacheControl;
+    private volatile String     keyIds;
+    private JwksConfig          config;
+    private OpenIdConfiguration openIdConfiguration;
+
+    @Before
+    public void beforeEach() throws IOException {
+        requests = new AtomicInteger();
+        status = 200;
+        cacheControl = "public, max-age=3600, must-revalidate, no-transform";
+        keyIds = KEY_ID;
+
+        provider = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        provider.createContext("/oauth2/v3/certs", exchange -> {
+            requests.incrementAndGet();
+            byte[] body = jwks(keyIds.split(",")).getBytes(UTF_8);
+            exchange.getResponseHeaders().add("Cache-Control", cacheControl);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        provider.start();
+
+        config = new JwksConfig();
+        openIdConfiguration = OpenIdValidatorTest.getValidOpenIdConfiguration();
+        openIdConfiguration.setJwksUri("http://localhost:" + provider.getAddress().getPort() + "/oauth2/v3/certs");
+    }
+
+    @After
+    public void afterEach() {
+        provider.stop(0);
+    }
+
+    @Test
+    public void shouldFetchKeysOnceAndKeepThem() {
+        JwksKeyStore jwksKeyStore = new JwksKeyStore(config, openIdConfiguration, new ObjectMapper());
+
+        RSAPublicKey key = jwksKeyStore.getKey(KEY_ID).toBlocking().single();
+
+        assertThat(jwksKeyStore.getKey(KEY_ID).toBlocking().single()).isSameAs(key);
+        assertThat(requests.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldFetchKeysAgainForUnknownKeyAtMostOncePerInterval() {
+        JwksKeyStore jwksKeyStore = new JwksKeyStore(config, openIdConfiguration, new ObjectMapper());
+        jwksKeyStore.getKey(KEY_ID).toBlocking().single();
+
+        assertUnknown(jwksKeyStore, "rotated");
+        assertUnknown(jwksKeyStore, "rotated");
+
+        assertThat(requests.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldFindRotatedKeyByFetchingAgain() {
+        config.setMinRefetchIntervalSeconds(0);
+        JwksKeyStore jwksKeyStore = new JwksKeyStore(config, openIdConfiguration, new ObjectMapper());
+        jwksKeyStore.getKey(KEY_ID).toBlocking().single();
+
+        keyIds = KEY_ID + ",rotated";
+
+        assertThat(jwksKeyStore.getKey("rotated").toBlocking().single()).isNotNull();
+        assertThat(requests.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldKeepUsingKeysWhileProviderIsDown() {
+        JwksKeyStore jwksKeyStore = new JwksKeyStore(config, openIdConfiguration, new ObjectMapper());
+        RSAPublicKey key          = jwksKeyStore.getKey(KEY_ID).toBlocking().single();
+
+        status = 503;
+        jwksKeyStore.refresh().onErrorResumeNext(empty()).toBlocking().lastOrDefault(null);
+
+        assertThat(requests.get()).isEqualTo(2);
+        assertThat(jwksKeyStore.getKey(KEY_ID).toBlocking().single()).isSameAs(key);
+    }
+
+    @Test
+    public void shouldFailWhenProviderIsDownAndNoKeysAreKnown() {
+        status = 503;
+        JwksKeyStore jwksKeyStore = new JwksKeyStore(config, openIdConfiguration, new ObjectMapper());
+
+        assertThatExceptionOfType(RuntimeException.class)
+            .isThrownBy(() -> jwksKeyStore.getKey(KEY_ID).toBlocking().single());
+    }
+
+    @Test
+    public void shouldRefreshKeysInTheBackgroundOnceTheyReachMaxAge() throws InterruptedException {
+        config.setMinRefetchIntervalSeconds(0);
+        cacheControl = "max-age=1";
+        JwksKeyStore jwksKeyStore = new JwksKeyStore(config, openIdConfiguration, new ObjectMapper());
+        jwksKeyStore.getKey(KEY_ID).toBlocking().single();
+
+        keyIds = KEY_ID + ",rotated";
+        cacheControl = "max-age=3600";
+        for (int attempt = 0; attempt < 50 && !jwksKeyStore.getKeyIds().contains("rotated"); attempt++) {
+            Thread.sleep(100);
+        }
+
+        assertThat(jwksKeyStore.getKeyIds()).containsExactlyInAnyOrder(KEY_ID, "rotated");
+        assertThat(requests.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldReadMaxAgeFromCacheControl() {
+        JwksKeyStore jwksKeyStore = new JwksKeyStore(config, openIdConfiguration, new ObjectMapper());
+
+        assertThat(jwksKeyStore.maxAgeOf("public, max-age=19553, must-revalidate, no-transform")).isEqualTo(19553);
+        assertThat(jwksKeyStore.maxAgeOf("Max-Age = 60")).isEqualTo(60);
+        assertThat(jwksKeyStore.maxAgeOf("public, s-maxage=60")).isEqualTo(config.getDefaultMaxAgeSeconds());
+        assertThat(jwksKeyStore.maxAgeOf(null)).isEqualTo(config.getDefaultMaxAgeSeconds());
+    }
+
+    private static void assertUnknown(JwksKeyStore jwksKeyStore, String keyId) {
+        assertThatExceptionOfType(WebException.class)
+            .isThrownBy(() -> jwksKeyStore.getKey(keyId).toBlocking().single())
+            .satisfies(e -> {
+                assertThat(e.getStatus()).isEqualTo(UNAUTHORIZED);
+                assertThat(e.getError()).isEqualTo(JwksKeyStore.JWK_KEY_NOT_FOUND);
+            });
+    }
+
+    private static String jwks(String... keyIds) {
+        StringBuilder json = new StringBuilder("{\"keys\": [");
+        for (int index = 0; index < keyIds.length; index++) {
+            Jwk                 jwk        = OpenIdValidatorTest.getValidJwk();
+            Map<String, Object> attributes = jwk.getAdditionalAttributes();
+            if (index > 0) {
+                json.append(',');
+            }
+            json.append("{\"kid\": \"").append(keyIds[index])
+                .append("\", \"kty\": \"RSA\", \"alg\": \"RS256\", \"use\": \"sig\", \"n\": \"").append(attributes.get("n"))
+                .append("\", \"e\": \"").append(attributes.get("e")).append("\"}");
+        }
+        return json.append("]}").toString();
+    }
+}
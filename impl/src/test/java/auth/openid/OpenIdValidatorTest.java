@@ -2,11 +2,8 @@ package auth.openid;
 
 import auth.ClockProvider;
 import auth.Jwk;
-import auth.JwkResource;
-import auth.JwkResponse;
 import com.auth0.jwt.exceptions.InvalidClaimException;
 import com.auth0.jwt.interfaces.Clock;
-import com.google.common.collect.ImmutableList;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import org.apache.log4j.Appender;
 import org.junit.After;
@@ -17,15 +14,16 @@ import se.fortnox.reactivewizard.test.LoggingMockUtil;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.Collections;
 import java.util.Date;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static rx.Observable.error;
 import static rx.Observable.just;
 import static se.fortnox.reactivewizard.test.TestUtil.matches;
 
@@ -45,21 +43,20 @@ public class OpenIdValidatorTest {
         "v42mN9wsap7oY1D1Xy_4-KWxujBuaLHhXjxv4My_MLR5crw1qeLotE1S4hI8edgYwntUz9Txd3wBfT-oVKFBbagMA81F5XMd9E" +
         "vDhiKjgg-Naz05ptZoOcvQJ4rWAqaXfmuejq4u1AKqHiMQ";
 
-    private JwkResource         jwkResource = mock(JwkResource.class);
+    private JwksKeyStore        jwksKeyStore = mock(JwksKeyStore.class);
     private Appender            appender;
     private OpenIdConfiguration openIdConfiguration;
     private ClockProvider       clockProvider;
 
     @Before
-    public void beforeEach() throws NoSuchFieldException, IllegalAccessException {
+    public void beforeEach() throws Exception {
         appender = LoggingMockUtil.createMockedLogAppender(OpenIdValidator.class);
         openIdConfiguration = getValidOpenIdConfiguration();
         Date currentTime = getValidTimeInterval();
         clockProvider = () -> (Clock)() -> currentTime;
 
-        JwkResponse jwkResponse = new JwkResponse();
-        jwkResponse.setKeys(ImmutableList.of(getValidJwk()));
-        when(jwkResource.getJWks()).thenReturn(just(jwkResponse));
+        Jwk validJwk = getValidJwk();
+        when(jwksKeyStore.getKey(validJwk.getId())).thenReturn(just(JwksKeyStore.publicKeyOf(validJwk)));
     }
 
     @After
@@ -70,7 +67,7 @@ public class OpenIdValidatorTest {
     @Test
     public void shouldValidateSimpleJWT() {
         // given a valid config and a valid key
-        OpenIdValidator openIdValidator = new OpenIdValidator(openIdConfiguration, jwkResource, clockProvider);
+        OpenIdValidator openIdValidator = new OpenIdValidator(openIdConfiguration, jwksKeyStore, clockProvider);
 
         // when
         ImmutableOpenIdToken token = openIdValidator.validate(OPEN_ID).toBlocking().single();
@@ -91,7 +88,7 @@ public class OpenIdValidatorTest {
         ClockProvider clockProvider = () -> (Clock)() -> currentTime;
 
         // when
-        OpenIdValidator openIdValidator = new OpenIdValidator(openIdConfiguration, jwkResource, clockProvider);
+        OpenIdValidator openIdValidator = new OpenIdValidator(openIdConfiguration, jwksKeyStore, clockProvider);
         validateWithExpectedUnauthorized(openIdValidator);
 
         // then we should log that we could not verify the token
@@ -108,7 +105,7 @@ public class OpenIdValidatorTest {
         Date toEarly      = new Date(milliseconds);
         ClockProvider clockProvider = () -> (Clock)() -> toEarly;
 
-        OpenIdValidator openIdValidator = new OpenIdValidator(openIdConfiguration, jwkResource, clockProvider);
+        OpenIdValidator openIdValidator = new OpenIdValidator(openIdConfiguration, jwksKeyStore, clockProvider);
 
         // when
         openIdValidator.validate(OPEN_ID).toBlocking().single();
@@ -126,7 +123,7 @@ public class OpenIdValidatorTest {
         ClockProvider clockProvider = () -> (Clock)() -> toEarly;
 
         // when
-        OpenIdValidator openIdValidator = new OpenIdValidator(openIdConfiguration, jwkResource, clockProvider);
+        OpenIdValidator openIdValidator = new OpenIdValidator(openIdConfiguration, jwksKeyStore, clockProvider);
 
         try {
             openIdValidator.validate(OPEN_ID).toBlocking().single();
@@ -152,12 +149,10 @@ public class OpenIdValidatorTest {
     @Test
     public void shouldNotValidateJwkWhenKeyCannotBeVerified() {
         // given no keys
-        JwkResponse jwkResponse = new JwkResponse();
-        jwkResponse.setKeys(Collections.emptyList());
-        when(jwkResource.getJWks()).thenReturn(just(jwkResponse));
+        when(jwksKeyStore.getKey(anyString())).thenReturn(error(new WebException(HttpResponseStatus.UNAUTHORIZED, JwksKeyStore.JWK_KEY_NOT_FOUND)));
 
         // when
-        OpenIdValidator openIdValidator = new OpenIdValidator(openIdConfiguration, jwkResource, clockProvider);
+        OpenIdValidator openIdValidator = new OpenIdValidator(openIdConfiguration, jwksKeyStore, clockProvider);
         validateWithExpectedUnauthorized(openIdValidator);
 
         // then we should log that we failed to get jwk by kid
@@ -173,7 +168,7 @@ public class OpenIdValidatorTest {
         openIdConfiguration.setIssuer("wrong issuer");
 
         // when
-        OpenIdValidator openIdValidator = new OpenIdValidator(openIdConfiguration, jwkResource, clockProvider);
+        OpenIdValidator openIdValidator = new OpenIdValidator(openIdConfiguration, jwksKeyStore, clockProvider);
         validateWithExpectedUnauthorized(openIdValidator);
 
         // then we should log that we could not verify the token
@@ -192,7 +187,7 @@ public class OpenIdValidatorTest {
         };
 
         // when
-        OpenIdValidator openIdValidator = new OpenIdValidator(openIdConfiguration, jwkResource, clockProvider);
+        OpenIdValidator openIdValidator = new OpenIdValidator(openIdConfiguration, jwksKeyStore, clockProvider);
         validateWithExpectedUnauthorized(openIdValidator);
 
         // then we should log that we could not verify the token
@@ -202,7 +197,7 @@ public class OpenIdValidatorTest {
         }));
     }
 
-    private OpenIdConfiguration getValidOpenIdConfiguration() {
+    static OpenIdConfiguration getValidOpenIdConfiguration() {
         OpenIdConfiguration openIdConfiguration = new OpenIdConfiguration();
         openIdConfiguration.setClientId("921310387394-ci437tfrcc4r1o30hqs3mrnmrpp40oj0.apps.googleusercontent.com");
         openIdConfiguration.setJwksUri("https://www.googleapis.com/oauth2/v3/certs");
@@ -210,7 +205,7 @@ public class OpenIdValidatorTest {
         return openIdConfiguration;
     }
 
-    private Jwk getValidJwk() {
+    static Jwk getValidJwk() {
         Jwk jwk = new Jwk();
         jwk.setId("7d680d8c70d44e947133cbd499ebc1a61c3d5abc");
         jwk.setType("RSA");
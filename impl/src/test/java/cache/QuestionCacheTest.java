@@ -0,0 +1,133 @@
+package cache;
+
+import api.Question;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observable;
+import rx.subjects.PublishSubject;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static rx.Observable.just;
+
+public class QuestionCacheTest {
+
+    private QuestionCacheConfig config;
+    private InvalidationBus     invalidationBus;
+    private AtomicInteger       loads;
+
+    @Before
+    public void beforeEach() {
+        config = new QuestionCacheConfig();
+        InvalidationBusConfig invalidationBusConfig = new InvalidationBusConfig();
+        invalidationBusConfig.setEnabled(false);
+        invalidationBus = new InvalidationBus(invalidationBusConfig, null, null);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    public void shouldLoadQuestionOnce() {
+        QuestionCache questionCache = new QuestionCache(config, invalidationBus);
+
+        assertThat(get(questionCache, 1)).isSameAs(get(questionCache, 1));
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(questionCache.getStats().hitCount()).isEqualTo(1);
+        assertThat(questionCache.getStats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReloadInvalidatedQuestion() {
+        QuestionCache questionCache = new QuestionCache(config, invalidationBus);
+        get(questionCache, 1);
+        get(questionCache, 2);
+
+        questionCache.invalidate(1);
+        get(questionCache, 1);
+        get(questionCache, 2);
+
+        assertThat(loads.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldReloadQuestionsChangedOnOtherReplicas() {
+        QuestionCache questionCache = new QuestionCache(config, invalidationBus);
+        get(questionCache, 1);
+        get(questionCache, 2);
+
+        invalidationBus.received("other-replica QUESTION 1");
+        get(questionCache, 1);
+        get(questionCache, 2);
+        assertThat(loads.get()).isEqualTo(3);
+
+        invalidationBus.received("other-replica QUESTION *");
+        get(questionCache, 1);
+        get(questionCache, 2);
+        assertThat(loads.get()).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldNotCacheQuestionLoadedDuringInvalidation() {
+        QuestionCache            questionCache = new QuestionCache(config, invalidationBus);
+        PublishSubject<Question> slowLoad      = PublishSubject.create();
+        Observable<Question>     loading       = questionCache.get(1, () -> slowLoad);
+
+        loading.subscribe();
+        questionCache.invalidate(1);
+        slowLoad.onNext(question(1));
+        slowLoad.onCompleted();
+
+        get(questionCache, 1);
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotCacheMissingQuestion() {
+        QuestionCache questionCache = new QuestionCache(config, invalidationBus);
+
+        questionCache.get(1, Observable::empty).toBlocking().singleOrDefault(null);
+        get(questionCache, 1);
+
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldAlwaysLoadWhenDisabled() {
+        config.setEnabled(false);
+        QuestionCache questionCache = new QuestionCache(config, invalidationBus);
+
+        get(questionCache, 1);
+        get(questionCache, 1);
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldEvictWhenTooHeavy() {
+        config.setMaxWeight(300);
+        QuestionCache questionCache = new QuestionCache(config, invalidationBus);
+
+        get(questionCache, 1);
+        get(questionCache, 2);
+        get(questionCache, 1);
+        get(questionCache, 2);
+
+        assertThat(questionCache.getStats().evictionCount()).isPositive();
+    }
+
+    private Question get(QuestionCache questionCache, long questionId) {
+        return questionCache.get(questionId, () -> {
+            loads.incrementAndGet();
+            return just(question(questionId));
+        }).toBlocking().single();
+    }
+
+    private static Question question(long questionId) {
+        Question question = new Question();
+        question.setId(questionId);
+        question.setTitle("title");
+        question.setQuestion("question");
+        return question;
+    }
+}
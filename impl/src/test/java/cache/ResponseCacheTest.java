@@ -0,0 +1,175 @@
+package cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jaxrs.CursorCollectionOptions;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observable;
+import se.fortnox.reactivewizard.CollectionOptions;
+import se.fortnox.reactivewizard.jaxrs.WebException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static cache.InvalidationBus.Topic.QUESTION;
+import static cache.InvalidationBus.Topic.TAG;
+import static cache.InvalidationBus.Topic.VOTE;
+import static cache.ResponseCache.CACHE_CONTROL;
+import static cache.ResponseCache.ETAG;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_MODIFIED;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static rx.Observable.just;
+
+public class ResponseCacheTest {
+
+    private ResponseCacheConfig config;
+    private InvalidationBus     invalidationBus;
+    private AtomicInteger       loads;
+    private List<String>        content;
+
+    @Before
+    public void beforeEach() {
+        config = new ResponseCacheConfig();
+        InvalidationBusConfig invalidationBusConfig = new InvalidationBusConfig();
+        invalidationBusConfig.setEnabled(false);
+        invalidationBus = new InvalidationBus(invalidationBusConfig, null, null);
+        loads = new AtomicInteger();
+        content = asList("first", "second");
+    }
+
+    @Test
+    public void shouldLoadListingOnce() {
+        ResponseCache responseCache = new ResponseCache(config, new ObjectMapper(), invalidationBus);
+
+        assertThat(get(responseCache, "latest", null)).isSameAs(get(responseCache, "latest", null));
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(responseCache.getStats().hitCount()).isEqualTo(1);
+        assertThat(responseCache.getStats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldAddEtagAndCacheControlToOtherHeaders() {
+        ResponseCache responseCache = new ResponseCache(config, new ObjectMapper(), invalidationBus);
+
+        Map<String, Object> headers = responseCache.headersOf(get(responseCache, "latest", null));
+
+        assertThat(headers).containsEntry("X-Next-Cursor", "cursor");
+        assertThat(headers).containsEntry(CACHE_CONTROL, "public, max-age=0");
+        assertThat((String)headers.get(ETAG)).matches("\"[A-Za-z0-9_-]+\"");
+    }
+
+    @Test
+    public void shouldTagDifferentContentDifferently() {
+        ResponseCache responseCache = new ResponseCache(config, new ObjectMapper(), invalidationBus);
+        Object        first         = get(responseCache, "first", null);
+        content = asList("first", "third");
+        Object        second        = get(responseCache, "second", null);
+
+        assertThat(responseCache.headersOf(first).get(ETAG)).isNotEqualTo(responseCache.headersOf(second).get(ETAG));
+    }
+
+    @Test
+    public void shouldAnswerMatchingIfNoneMatchWithNotModifiedWithoutLoading() {
+        ResponseCache responseCache = new ResponseCache(config, new ObjectMapper(), invalidationBus);
+        String        etag          = (String)responseCache.headersOf(get(responseCache, "latest", null)).get(ETAG);
+
+        assertThatExceptionOfType(WebException.class)
+            .isThrownBy(() -> get(responseCache, "latest", "W/\"other\", " + etag))
+            .satisfies(e -> assertThat(e.getStatus()).isEqualTo(NOT_MODIFIED));
+        assertThat(get(responseCache, "latest", "\"other\"")).isEqualTo(content);
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(responseCache.getNotModified()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReloadListingsWhenTheirTopicsChange() {
+        ResponseCache responseCache = new ResponseCache(config, new ObjectMapper(), invalidationBus);
+        responseCache.evictOn(QUESTION, "latest");
+        responseCache.evictOn(TAG, "tags");
+        get(responseCache, "latest?limit=10", null);
+        get(responseCache, "tags", null);
+
+        invalidationBus.publish(QUESTION, 1L);
+        get(responseCache, "latest?limit=10", null);
+        get(responseCache, "tags", null);
+        assertThat(loads.get()).isEqualTo(3);
+
+        invalidationBus.received("other-replica TAG *");
+        get(responseCache, "latest?limit=10", null);
+        get(responseCache, "tags", null);
+        assertThat(loads.get()).isEqualTo(4);
+
+        invalidationBus.publish(VOTE, 1L);
+        get(responseCache, "latest?limit=10", null);
+        get(responseCache, "tags", null);
+        assertThat(loads.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldReloadOnlyThePagesAffectedByAChange() {
+        ResponseCache responseCache = new ResponseCache(config, new ObjectMapper(), invalidationBus);
+        responseCache.evictOn(VOTE, "latest", (List<String> page, Long questionId) -> page.contains(questionId.toString()));
+        content = asList("1", "2");
+        get(responseCache, "latest?cursor=a", null);
+        content = asList("3", "4");
+        get(responseCache, "latest?cursor=b", null);
+
+        invalidationBus.publish(VOTE, 3L);
+        get(responseCache, "latest?cursor=a", null);
+        get(responseCache, "latest?cursor=b", null);
+        assertThat(loads.get()).isEqualTo(3);
+
+        invalidationBus.received("other-replica VOTE *");
+        get(responseCache, "latest?cursor=a", null);
+        get(responseCache, "latest?cursor=b", null);
+        assertThat(loads.get()).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldNotCacheWhenDisabled() {
+        config.setEnabled(false);
+        ResponseCache responseCache = new ResponseCache(config, new ObjectMapper(), invalidationBus);
+
+        Object listing = get(responseCache, "latest", null);
+        get(responseCache, "latest", null);
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(responseCache.headersOf(listing)).containsOnlyKeys("X-Next-Cursor");
+    }
+
+    @Test
+    public void shouldKeyListingsByPathAndCollectionOptions() {
+        assertThat(ResponseCache.key("questions/latest", null)).isEqualTo("questions/latest");
+        assertThat(ResponseCache.key("questions/latest", new CollectionOptions(5, 10)))
+            .isEqualTo("questions/latest?limit=5&offset=10&sortby=null&order=null&cursor=null");
+        assertThat(ResponseCache.key("questions/latest", new CursorCollectionOptions(5, 10, null, null, "abc", "\"etag\"")))
+            .isEqualTo("questions/latest?limit=5&offset=null&sortby=null&order=null&cursor=abc");
+    }
+
+    @Test
+    public void shouldMatchIfNoneMatch() {
+        assertThat(ResponseCache.matches(null, "\"a\"")).isFalse();
+        assertThat(ResponseCache.matches("\"b\"", "\"a\"")).isFalse();
+        assertThat(ResponseCache.matches("\"a\"", "\"a\"")).isTrue();
+        assertThat(ResponseCache.matches("W/\"a\"", "\"a\"")).isTrue();
+        assertThat(ResponseCache.matches("\"b\", \"a\"", "\"a\"")).isTrue();
+        assertThat(ResponseCache.matches("*", "\"a\"")).isTrue();
+    }
+
+    private Object get(ResponseCache responseCache, String key, String ifNoneMatch) {
+        return responseCache.get(key, ifNoneMatch, this::load, listing -> singletonMap("X-Next-Cursor", (Object)"cursor"))
+            .toBlocking()
+            .single();
+    }
+
+    private Observable<List<String>> load() {
+        loads.incrementAndGet();
+        return just(content);
+    }
+}
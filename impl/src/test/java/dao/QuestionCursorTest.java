@@ -0,0 +1,58 @@
+package dao;
+
+import api.Question;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class QuestionCursorTest {
+
+    @Test
+    public void shouldRoundTripVoteOrderedCursor() {
+        QuestionCursor cursor = QuestionCursor.decode(QuestionCursor.of(question(), true).encode(), true);
+
+        assertThat(cursor.getVotes()).isEqualTo(-3);
+        assertThat(cursor.getId()).isEqualTo(42L);
+        assertThat(cursor.getCreatedAt()).isEqualTo(QuestionCursor.of(question(), false).getCreatedAt());
+    }
+
+    @Test
+    public void shouldRoundTripTimeOrderedCursor() {
+        QuestionCursor cursor = QuestionCursor.decode(QuestionCursor.of(question(), false).encode(), false);
+
+        assertThat(cursor.getVotes()).isNull();
+        assertThat(cursor.getId()).isEqualTo(42L);
+    }
+
+    @Test
+    public void shouldCarryCreationTimeInMicroseconds() {
+        QuestionCursor cursor = QuestionCursor.decode(QuestionCursor.of(question(), false).encode(), false);
+
+        assertThat(cursor.getCreatedAt()).isEqualTo(1556886615123456L);
+    }
+
+    @Test
+    public void shouldRejectCursorForOtherOrdering() {
+        String timeOrdered = QuestionCursor.of(question(), false).encode();
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> QuestionCursor.decode(timeOrdered, true));
+    }
+
+    @Test
+    public void shouldRejectGarbage() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> QuestionCursor.decode("not a cursor", false));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+            .isThrownBy(() -> QuestionCursor.decode("YTpiOmM", true));
+    }
+
+    private static Question question() {
+        Question question = new Question();
+        question.setId(42L);
+        question.setVotes(-3);
+        question.setCreatedAtMicros(1556886615123456L);
+        return question;
+    }
+}
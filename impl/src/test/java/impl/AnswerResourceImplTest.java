@@ -1,11 +1,12 @@
 package impl;
 
 import api.AnswerResource;
-import api.UserResource;
 import api.auth.Auth;
+import cache.InvalidationBus;
 import dao.AnswerDao;
 import dao.AnswerInternal;
 import dao.AnswerVoteDao;
+import dao.PostReference;
 import dao.QuestionDao;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import org.assertj.core.api.ThrowableAssert;
@@ -14,10 +15,10 @@ import org.junit.Test;
 import org.mockito.Mock;
 import se.fortnox.reactivewizard.db.transactions.DaoTransactions;
 import se.fortnox.reactivewizard.jaxrs.WebException;
-import slack.SlackResource;
 
 import java.sql.SQLException;
 
+import static cache.InvalidationBus.Topic.QUESTION;
 import static impl.AnswerResourceImpl.ANSWER_NOT_FOUND;
 import static impl.AnswerResourceImpl.FAILED_TO_DELETE_ANSWER;
 import static impl.AnswerResourceImpl.FAILED_TO_GET_ANSWERS_FROM_DATABASE;
@@ -30,6 +31,7 @@ import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static rx.Observable.empty;
@@ -47,11 +49,13 @@ public class AnswerResourceImplTest {
     @Mock
     private AnswerVoteDao answerVoteDao;
 
+    @Mock
+    private InvalidationBus invalidationBus;
+
     @Before
     public void beforeEach() {
         initMocks(this);
-        ApplicationConfig applicationConfig = new ApplicationConfig();
-        answerResource = new AnswerResourceImpl(answerDao, mock(QuestionDao.class), mock(DaoTransactions.class), mock(SlackResource.class), mock(UserResource.class), applicationConfig, answerVoteDao);
+        answerResource = new AnswerResourceImpl(answerDao, mock(QuestionDao.class), mock(DaoTransactions.class), answerVoteDao, invalidationBus);
         auth = new Auth();
         auth.setUserId(123);
 
@@ -70,7 +74,7 @@ public class AnswerResourceImplTest {
     public void shouldThrowInternalServerErrorIfUpdateAnswerFails() {
         AnswerInternal answer = createAnswer();
         when(answerDao.updateAnswer(123,  123, answer)).thenReturn(error(new SQLException("poff")));
-        when(answerDao.getAnswerById(123)).thenReturn(just(answer));
+        when(answerDao.getAnswerReference(123)).thenReturn(just(createReference(answer.getUserId())));
 
         assertException(() -> answerResource.updateAnswer(auth, 123,answer).toBlocking().singleOrDefault(null),
             INTERNAL_SERVER_ERROR,
@@ -78,11 +82,21 @@ public class AnswerResourceImplTest {
     }
 
 
+    @Test
+    public void shouldInvalidateQuestionOfUpdatedAnswer() {
+        AnswerInternal answer = createAnswer();
+        when(answerDao.updateAnswer(123,  123, answer)).thenReturn(just(7L));
+
+        answerResource.updateAnswer(auth, 123, answer).toBlocking().singleOrDefault(null);
+
+        verify(invalidationBus).publish(QUESTION, 7L);
+    }
+
     @Test
     public void shouldThrowForbiddenIfAnswerIsNotCreatedByTheUpdater() {
         AnswerInternal answer = createAnswer(444);
-        when(answerDao.updateAnswer(123,  123, answer)).thenReturn(error(new SQLException("poff")));
-        when(answerDao.getAnswerById(123)).thenReturn(just(answer));
+        when(answerDao.updateAnswer(123,  123, answer)).thenReturn(empty());
+        when(answerDao.getAnswerReference(123)).thenReturn(just(createReference(answer.getUserId())));
 
         assertException(() -> answerResource.updateAnswer(auth, 123,answer).toBlocking().singleOrDefault(null),
             FORBIDDEN,
@@ -91,17 +105,19 @@ public class AnswerResourceImplTest {
 
     @Test
     public void shouldThrowNotFoundIfAnswerToUpdateCannotBeFound() {
-        when(answerDao.getAnswerById(123)).thenReturn(empty());
+        AnswerInternal answer = createAnswer();
+        when(answerDao.updateAnswer(123,  123, answer)).thenReturn(empty());
+        when(answerDao.getAnswerReference(123)).thenReturn(empty());
 
-        assertException(() -> answerResource.deleteAnswer(auth, 123).toBlocking().singleOrDefault(null),
+        assertException(() -> answerResource.updateAnswer(auth, 123, answer).toBlocking().singleOrDefault(null),
             NOT_FOUND,
             ANSWER_NOT_FOUND);
     }
 
     @Test
     public void shouldThrowForbiddenIfAnswerIsNotCreatedByTheDeleter() {
-        AnswerInternal answer = createAnswer(444);
-        when(answerDao.getAnswerById(123)).thenReturn(just(answer));
+        when(answerDao.deleteAnswer(123, 123)).thenReturn(empty());
+        when(answerDao.getAnswerReference(123)).thenReturn(just(createReference(444)));
 
         assertException(() -> answerResource.deleteAnswer(auth, 123).toBlocking().singleOrDefault(null),
             FORBIDDEN,
@@ -110,7 +126,8 @@ public class AnswerResourceImplTest {
 
     @Test
     public void shouldThrowNotFoundIfAnswerToDeleteCannotBeFound() {
-        when(answerDao.getAnswerById(123)).thenReturn(empty());
+        when(answerDao.deleteAnswer(123, 123)).thenReturn(empty());
+        when(answerDao.getAnswerReference(123)).thenReturn(empty());
 
         assertException(() -> answerResource.deleteAnswer(auth, 123).toBlocking().singleOrDefault(null),
             NOT_FOUND,
@@ -119,9 +136,7 @@ public class AnswerResourceImplTest {
 
     @Test
     public void shouldThrowInternalIfAnswerToDeleteCannotBeDeleted() {
-        AnswerInternal answer = createAnswer();
         when(answerDao.deleteAnswer(123,  123)).thenReturn(error(new SQLException("poff")));
-        when(answerDao.getAnswerById(123)).thenReturn(just(answer));
 
         assertException(() -> answerResource.deleteAnswer(auth, 123).toBlocking().singleOrDefault(null),
             INTERNAL_SERVER_ERROR,
@@ -130,7 +145,8 @@ public class AnswerResourceImplTest {
 
     @Test
     public void shouldThrowInternalIfAnswerToDeleteCannotBeFetchedFromDb() {
-        when(answerDao.getAnswerById(123)).thenReturn(error(new SQLException("poff")));
+        when(answerDao.deleteAnswer(123, 123)).thenReturn(empty());
+        when(answerDao.getAnswerReference(123)).thenReturn(error(new SQLException("poff")));
         Auth auth = new Auth();
         auth.setUserId(123);
 
@@ -154,6 +170,12 @@ public class AnswerResourceImplTest {
         return answer;
     }
 
+    private static PostReference createReference(long userId) {
+        PostReference reference = new PostReference();
+        reference.setUserId(userId);
+        return reference;
+    }
+
     private static AnswerInternal createAnswer() {
         return createAnswer(123);
     }
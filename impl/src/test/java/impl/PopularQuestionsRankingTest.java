@@ -0,0 +1,175 @@
+package impl;
+
+import api.Question;
+import cache.InvalidationBus;
+import dao.QuestionDao;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.stubbing.Answer;
+import rx.Observable;
+import se.fortnox.reactivewizard.CollectionOptions;
+import se.fortnox.reactivewizard.db.paging.CollectionOptionsWithResult;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static impl.PopularQuestionsRanking.DEFAULT_LIMIT;
+import static impl.PopularQuestionsRanking.MAX_LIMIT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static rx.Observable.from;
+
+public class PopularQuestionsRankingTest {
+
+    private QuestionDao             questionDao;
+    private PopularQuestionsConfig  config;
+    private PopularQuestionsRanking ranking;
+
+    @Before
+    public void beforeEach() {
+        questionDao = mock(QuestionDao.class);
+        config = new PopularQuestionsConfig();
+        ranking = new PopularQuestionsRanking(questionDao, config, mock(InvalidationBus.class));
+    }
+
+    @Test
+    public void shouldServeRepeatedRequestsFromMemory() {
+        when(questionDao.getPopularQuestions(any(CollectionOptions.class))).thenAnswer(listing(3));
+
+        assertThat(ids(ranking.getPopularQuestions(new CollectionOptions()).toList().toBlocking().single())).containsExactly(1L, 2L, 3L);
+        assertThat(ids(ranking.getPopularQuestions(new CollectionOptions()).toList().toBlocking().single())).containsExactly(1L, 2L, 3L);
+
+        verify(questionDao, times(1)).getPopularQuestions(any(CollectionOptions.class));
+    }
+
+    @Test
+    public void shouldReloadRankingWhenInvalidated() {
+        config.setMinRefreshIntervalSeconds(0);
+        when(questionDao.getPopularUnansweredQuestions(any(CollectionOptions.class))).thenAnswer(listing(3));
+
+        ranking.getPopularUnansweredQuestions(new CollectionOptions()).toBlocking().last();
+        ranking.invalidate();
+        ranking.getPopularUnansweredQuestions(new CollectionOptions()).toBlocking().last();
+
+        verify(questionDao, times(2)).getPopularUnansweredQuestions(any(CollectionOptions.class));
+        assertThat(ranking.getRefreshCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldReloadRankingAtMostOncePerRefreshInterval() {
+        when(questionDao.getPopularQuestions(any(CollectionOptions.class))).thenAnswer(listing(3));
+
+        ranking.getPopularQuestions(new CollectionOptions()).toBlocking().last();
+        ranking.invalidate();
+        ranking.getPopularQuestions(new CollectionOptions()).toBlocking().last();
+        ranking.invalidate();
+        ranking.getPopularQuestions(new CollectionOptions()).toBlocking().last();
+
+        verify(questionDao, times(1)).getPopularQuestions(any(CollectionOptions.class));
+    }
+
+    @Test
+    public void shouldReloadRankingWhenStale() {
+        config.setMaxStalenessSeconds(0);
+        config.setMinRefreshIntervalSeconds(0);
+        when(questionDao.getPopularQuestions(any(CollectionOptions.class))).thenAnswer(listing(3));
+
+        ranking.getPopularQuestions(new CollectionOptions()).toBlocking().last();
+        ranking.getPopularQuestions(new CollectionOptions()).toBlocking().last();
+
+        verify(questionDao, times(2)).getPopularQuestions(any(CollectionOptions.class));
+    }
+
+    @Test
+    public void shouldReturnOneMoreThanTheLimitLikeTheDao() {
+        when(questionDao.getPopularQuestions(any(CollectionOptions.class))).thenAnswer(listing(MAX_LIMIT + 5));
+        CollectionOptions options = new CollectionOptions();
+        options.setLimit(5);
+
+        assertThat(ids(ranking.getPopularQuestions(options).toList().toBlocking().single())).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+    }
+
+    @Test
+    public void shouldFetchPagesBeyondTheRankingFromTheDatabase() {
+        when(questionDao.getPopularQuestions(any(CollectionOptions.class))).thenAnswer(listing(MAX_LIMIT + 5));
+        CollectionOptions options = new CollectionOptions();
+        options.setOffset(MAX_LIMIT);
+
+        assertThat(ids(ranking.getPopularQuestions(options).toList().toBlocking().single())).containsExactly(51L, 52L, 53L, 54L, 55L);
+
+        verify(questionDao, times(1)).getPopularQuestions(options);
+        verify(questionDao, times(2)).getPopularQuestions(any(CollectionOptions.class));
+    }
+
+    @Test
+    public void shouldFetchTheEndOfAnIncompleteRankingFromTheDatabase() {
+        when(questionDao.getPopularQuestions(any(CollectionOptions.class))).thenAnswer(listing(MAX_LIMIT + 1));
+        CollectionOptionsWithResult options = new CollectionOptionsWithResult(10, MAX_LIMIT - 10, null, null);
+
+        assertThat(ranking.getPopularQuestions(options).toList().toBlocking().single()).hasSize(10);
+
+        assertThat(options.isLastRecord()).isFalse();
+        verify(questionDao, times(1)).getPopularQuestions(options);
+    }
+
+    @Test
+    public void shouldServeTheLastPageOfACompleteRankingFromMemory() {
+        when(questionDao.getPopularQuestions(any(CollectionOptions.class))).thenAnswer(listing(MAX_LIMIT));
+        CollectionOptionsWithResult options = new CollectionOptionsWithResult(10, MAX_LIMIT - 5, null, null);
+
+        assertThat(ids(ranking.getPopularQuestions(options).toList().toBlocking().single())).containsExactly(46L, 47L, 48L, 49L, 50L);
+
+        assertThat(options.isLastRecord()).isTrue();
+        verify(questionDao, times(1)).getPopularQuestions(any(CollectionOptions.class));
+    }
+
+    @Test
+    public void shouldQueryTheDatabaseWhenDisabled() {
+        config.setEnabled(false);
+        when(questionDao.getPopularQuestions(any(CollectionOptions.class))).thenAnswer(listing(3));
+
+        ranking.getPopularQuestions(new CollectionOptions()).toBlocking().last();
+        ranking.getPopularQuestions(new CollectionOptions()).toBlocking().last();
+
+        verify(questionDao, times(2)).getPopularQuestions(any(CollectionOptions.class));
+        assertThat(ranking.getRefreshCount()).isZero();
+    }
+
+    /**
+     * Pages a listing of the given number of questions like the dao, that fetches one more than the limit
+     * and tells if it was the last page through {@link CollectionOptionsWithResult}.
+     */
+    private static Answer<Observable<Question>> listing(int count) {
+        return invocation -> {
+            CollectionOptions options = (CollectionOptions)invocation.getArguments()[0];
+            int               limit   = options.getLimit() == null ? DEFAULT_LIMIT : Math.min(options.getLimit(), MAX_LIMIT);
+            int               offset  = options.getOffset() == null ? 0 : options.getOffset();
+            List<Question>    page    = questions(count).subList(Math.min(offset, count), Math.min(offset + limit + 1, count));
+
+            if (options instanceof CollectionOptionsWithResult) {
+                ((CollectionOptionsWithResult)options).setLastRecord(page.size() <= limit);
+                page = page.subList(0, Math.min(limit, page.size()));
+            }
+            return from(page);
+        };
+    }
+
+    private static List<Question> questions(int count) {
+        return LongStream.rangeClosed(1, count)
+            .mapToObj(id -> {
+                Question question = new Question();
+                question.setId(id);
+                return question;
+            })
+            .collect(Collectors.toList());
+    }
+
+    private static List<Long> ids(List<Question> questions) {
+        return questions.stream().map(Question::getId).collect(Collectors.toList());
+    }
+}
@@ -3,6 +3,11 @@ package impl;
 import api.Question;
 import api.QuestionResource;
 import api.auth.Auth;
+import cache.InvalidationBus;
+import cache.ResponseCache;
+import cache.ResponseCacheConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dao.PostReference;
 import dao.QuestionDao;
 import dao.QuestionVoteDao;
 import dao.TagDao;
@@ -10,14 +15,10 @@ import io.netty.handler.codec.http.HttpResponseStatus;
 import org.assertj.core.api.ThrowableAssert;
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.invocation.InvocationOnMock;
-import org.mockito.stubbing.Answer;
 import rx.Observable;
 import se.fortnox.reactivewizard.CollectionOptions;
 import se.fortnox.reactivewizard.db.transactions.DaoTransactions;
 import se.fortnox.reactivewizard.jaxrs.WebException;
-import slack.SlackConfig;
-import slack.SlackResource;
 
 import java.sql.SQLException;
 
@@ -31,15 +32,20 @@ import static impl.QuestionResourceImpl.FAILED_TO_GET_QUESTION_FROM_DATABASE;
 import static impl.QuestionResourceImpl.FAILED_TO_GET_RECENTLY_ACCEPTED_QUESTIONS;
 import static impl.QuestionResourceImpl.FAILED_TO_UPDATE_QUESTION_TO_DATABASE;
 import static impl.QuestionResourceImpl.NOT_OWNER_OF_QUESTION;
+import static impl.QuestionResourceImpl.QUESTION_NOT_FOUND;
 import static io.netty.handler.codec.http.HttpResponseStatus.FORBIDDEN;
 import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyList;
-import static org.mockito.Matchers.anyString;
-import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static rx.Observable.empty;
 import static rx.Observable.error;
@@ -50,7 +56,6 @@ public class QuestionResourceImplTest {
     private QuestionResource  questionResource;
     private QuestionDao       questionDao;
     private QuestionVoteDao   questionVoteDao;
-    private SlackResource     slackResource;
     private Question          question;
     private Auth              auth;
     private CollectionOptions options;
@@ -61,13 +66,14 @@ public class QuestionResourceImplTest {
     public void beforeEach() {
         questionDao = mock(QuestionDao.class);
         questionVoteDao = mock(QuestionVoteDao.class);
-        slackResource = mock(SlackResource.class);
         daoTransactions = mock(DaoTransactions.class);
         tagDao = mock(TagDao.class);
-        ApplicationConfig applicationConfig = new ApplicationConfig();
-        applicationConfig.setBaseUrl("duringtest.example.org");
-        when(slackResource.postMessageToSlack(anyString(), any())).thenReturn(empty());
-        questionResource = new QuestionResourceImpl(questionDao, questionVoteDao, slackResource, new SlackConfig(), applicationConfig, tagDao, daoTransactions);
+        when(tagDao.getTagIdsOfQuestion(anyLong())).thenReturn(empty());
+        PopularQuestionsConfig popularQuestionsConfig = new PopularQuestionsConfig();
+        popularQuestionsConfig.setEnabled(false);
+        questionResource = new QuestionResourceImpl(questionDao, questionVoteDao, tagDao, daoTransactions,
+            new PopularQuestionsRanking(questionDao, popularQuestionsConfig, mock(InvalidationBus.class)), mock(ResponseHeaderHolder.class), mock(InvalidationBus.class),
+            new ResponseCache(new ResponseCacheConfig(), new ObjectMapper(), mock(InvalidationBus.class)));
         auth = new Auth(123);
         question = createQuestion(123);
         options = new CollectionOptions();
@@ -103,7 +109,7 @@ public class QuestionResourceImplTest {
     public void shouldReturnInternalServerErrorWhenUpdateQuestionFails() {
         question = createQuestion(123, 2);
 
-        when(questionDao.getQuestion(2)).thenReturn(just(question));
+        when(questionDao.getQuestionReference(2)).thenReturn(just(createReference(123)));
         when(daoTransactions.executeTransaction(anyList())).thenReturn(error(new SQLException("poff")));
 
         assertException(() -> questionResource.updateQuestion(auth, question.getId(), question).toBlocking().singleOrDefault(null),
@@ -111,27 +117,23 @@ public class QuestionResourceImplTest {
             FAILED_TO_UPDATE_QUESTION_TO_DATABASE);
     }
 
+    @Test
+    public void shouldThrowNotFoundIfQuestionToUpdateCannotBeFound() {
+        question = createQuestion(123, 2);
+
+        when(questionDao.getQuestionReference(2)).thenReturn(empty());
+        when(daoTransactions.executeTransaction(anyList())).thenReturn(error(new SQLException("no rows affected")));
+
+        assertException(() -> questionResource.updateQuestion(auth, question.getId(), question).toBlocking().singleOrDefault(null),
+            NOT_FOUND,
+            QUESTION_NOT_FOUND);
+    }
+
     @Test
     public void shouldThrowInternalServerErrorIfQuestionCannotBeFetchedOnUpdate() {
         question = createQuestion(123, 2);
-        doAnswer(new Answer<Observable<Question>>() {
-            int invocationCounter = 0;
-
-            @Override
-            public Observable<Question> answer(InvocationOnMock invocation) {
-                if (invocationCounter == 0) {
-                    invocationCounter++;
-                    return just(question);
-
-                } else if (invocationCounter == 1) {
-                    invocationCounter++;
-                    return empty();
-                }
-                throw new RuntimeException("Did not expect more than " + invocationCounter + " invocations.");
-            }
-        })
-            .when(questionDao).getQuestion(question.getId());
 
+        when(questionDao.getQuestion(question.getId())).thenReturn(empty());
         when(daoTransactions.executeTransaction(anyList())).thenReturn(Observable.empty());
 
         assertException(() -> questionResource.updateQuestion(auth, question.getId(), question).toBlocking().singleOrDefault(null),
@@ -142,6 +144,7 @@ public class QuestionResourceImplTest {
     @Test
     public void shouldThrowInternalServerErrorIfQuestionCannotBeFetchedAfterUpdate() {
         when(questionDao.getQuestion(123)).thenReturn(error(new SQLException("poff")));
+        when(daoTransactions.executeTransaction(anyList())).thenReturn(empty());
 
         assertException(() -> questionResource.updateQuestion(auth, 123, question).toBlocking().singleOrDefault(null),
             INTERNAL_SERVER_ERROR,
@@ -150,8 +153,8 @@ public class QuestionResourceImplTest {
 
     @Test
     public void shouldThrowForbiddenIfQuestionIsNotCreatedByTheDeleter() {
-        Question question = createQuestion(444);
-        when(questionDao.getQuestion(123)).thenReturn(just(question));
+        when(questionDao.getQuestionReference(123)).thenReturn(just(createReference(444)));
+        when(daoTransactions.executeTransaction(anyList())).thenReturn(error(new SQLException("no rows affected")));
 
         assertException(() -> questionResource.deleteQuestion(auth, 123).toBlocking().singleOrDefault(null),
             FORBIDDEN,
@@ -167,6 +170,16 @@ public class QuestionResourceImplTest {
             FAILED_TO_GET_LATEST_QUESTIONS);
     }
 
+    @Test
+    public void shouldServeLatestQuestionsFromResponseCache() {
+        when(questionDao.getLatestQuestions(options)).thenReturn(just(question));
+
+        assertThat(questionResource.getLatestQuestions(options).toBlocking().single()).containsExactly(question);
+        assertThat(questionResource.getLatestQuestions(options).toBlocking().single()).containsExactly(question);
+
+        verify(questionDao, times(1)).getLatestQuestions(options);
+    }
+
     @Test
     public void shouldThrowInternalServerErrorIfPopularQuestionsCannotBeFetched() {
         when(questionDao.getPopularQuestions(any())).thenReturn(error(new SQLException("poff")));
@@ -196,7 +209,7 @@ public class QuestionResourceImplTest {
 
     @Test
     public void shouldThrowInternalIfQuestionToDeleteCannotBeDeleted() {
-        when(questionDao.getQuestion(123)).thenReturn(just(question));
+        when(questionDao.getQuestionReference(123)).thenReturn(just(createReference(123)));
         when(daoTransactions.executeTransaction(anyList())).thenReturn(error(new SQLException("poff")));
 
         assertException(() -> questionResource.deleteQuestion(auth, 123).toBlocking().singleOrDefault(null),
@@ -204,6 +217,16 @@ public class QuestionResourceImplTest {
             FAILED_TO_DELETE_QUESTION);
     }
 
+    @Test
+    public void shouldNotLookUpQuestionWhenDeleteSucceeds() {
+        when(daoTransactions.executeTransaction(anyList())).thenReturn(empty());
+
+        questionResource.deleteQuestion(auth, 123).toBlocking().singleOrDefault(null);
+
+        verify(questionDao, never()).getQuestionReference(123);
+        verify(questionDao, never()).getQuestion(123);
+    }
+
     private static void assertException(ThrowableAssert.ThrowingCallable observable, HttpResponseStatus responseStatus, String error) {
         assertThatExceptionOfType(WebException.class)
             .isThrownBy(observable)
@@ -219,6 +242,12 @@ public class QuestionResourceImplTest {
         return question;
     }
 
+    private PostReference createReference(long userId) {
+        PostReference reference = new PostReference();
+        reference.setUserId(userId);
+        return reference;
+    }
+
     private Question createQuestion(long userId, long id) {
         Question question = createQuestion(userId);
         question.setId(id);
@@ -28,4 +28,21 @@ public class QuestionSearchOptionsTest {
         assertThat(questionSearchOptions.getTags())
             .containsExactlyInAnyOrder("tag1", "tag2", "tag3");
     }
+
+    @Test
+    public void shouldBuildPrefixTextQuery() {
+        QuestionSearchOptions questionSearchOptions = QuestionSearchOptions.from("#tag1 How do I (re)start k8s?");
+        assertThat(questionSearchOptions.getTextQuery()).isEqualTo("How:* & do:* & I:* & re:* & start:* & k8s:*");
+    }
+
+    @Test
+    public void shouldBuildEmptyTextQueryWithoutWords() {
+        assertThat(QuestionSearchOptions.from("#tag1 ?! -").getTextQuery()).isEmpty();
+        assertThat(QuestionSearchOptions.from("#tag1").getTextQuery()).isEmpty();
+    }
+
+    @Test
+    public void shouldIgnoreDuplicateTags() {
+        assertThat(QuestionSearchOptions.from("#tag1 #tag1").getTags()).containsExactly("tag1");
+    }
 }
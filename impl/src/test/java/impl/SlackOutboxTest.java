@@ -0,0 +1,180 @@
+package impl;
+
+import api.Question;
+import api.User;
+import api.UserResource;
+import dao.AnswerDao;
+import dao.AnswerInternal;
+import dao.QuestionDao;
+import dao.SlackNotification;
+import dao.SlackOutboxDao;
+import org.junit.Before;
+import org.junit.Test;
+import slack.SlackConfig;
+import slack.SlackResource;
+
+import java.io.IOException;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static rx.Observable.empty;
+import static rx.Observable.error;
+import static rx.Observable.just;
+
+public class SlackOutboxTest {
+
+    private SlackOutboxConfig config;
+    private SlackOutboxDao    slackOutboxDao;
+    private QuestionDao       questionDao;
+    private AnswerDao         answerDao;
+    private UserResource      userResource;
+    private SlackResource     slackResource;
+    private SlackOutbox       slackOutbox;
+
+    @Before
+    public void beforeEach() {
+        config = new SlackOutboxConfig();
+        config.setEnabled(false);
+        slackOutboxDao = mock(SlackOutboxDao.class);
+        questionDao = mock(QuestionDao.class);
+        answerDao = mock(AnswerDao.class);
+        userResource = mock(UserResource.class);
+        slackResource = mock(SlackResource.class);
+        SlackConfig slackConfig = new SlackConfig();
+        slackConfig.setFeedChannel("rocket-fuel");
+        ApplicationConfig applicationConfig = new ApplicationConfig();
+        applicationConfig.setBaseUrl("duringtest.example.org");
+
+        when(slackOutboxDao.deleteNotifications(any())).thenReturn(just(1));
+        when(slackOutboxDao.retryNotificationLater(anyLong(), anyLong())).thenReturn(just(1));
+        when(questionDao.getQuestion(1)).thenReturn(just(question(1, 10)));
+        when(questionDao.getQuestion(2)).thenReturn(just(question(2, 10)));
+        when(slackResource.postMessageToSlack(eq("rocket-fuel"), any())).thenReturn(empty());
+
+        slackOutbox = new SlackOutbox(config, slackOutboxDao, questionDao, answerDao, userResource, slackResource, slackConfig, applicationConfig);
+    }
+
+    @Test
+    public void shouldDeleteSentNotificationsInOneBatch() {
+        when(slackOutboxDao.claimNotifications(config.getBatchSize(), config.getLeaseSeconds()))
+            .thenReturn(just(questionCreated(1, 1, 1), questionCreated(2, 2, 1)));
+
+        assertThat(slackOutbox.dispatch().toBlocking().single()).isEqualTo(2);
+
+        verify(slackOutboxDao).deleteNotifications(asList(1L, 2L));
+        verify(slackOutboxDao, never()).retryNotificationLater(anyLong(), anyLong());
+    }
+
+    @Test
+    public void shouldNotifyQuestionOwnerOfAnswer() {
+        AnswerInternal answer = new AnswerInternal();
+        answer.setId(5L);
+        answer.setQuestionId(1);
+        answer.setAnswer("100%");
+        User owner = new User();
+        owner.setEmail("owner@example.org");
+        SlackNotification notification = questionCreated(3, 1, 1);
+        notification.setKind(SlackNotification.ANSWER_CREATED);
+        notification.setAnswerId(5L);
+        when(slackOutboxDao.claimNotifications(config.getBatchSize(), config.getLeaseSeconds())).thenReturn(just(notification));
+        when(answerDao.getAnswerById(5)).thenReturn(just(answer));
+        when(userResource.getUserById(10)).thenReturn(just(owner));
+        when(slackResource.getUserId("owner@example.org")).thenReturn(just("U0G9QF9C6"));
+        when(slackResource.postMessageToSlackAsBotUser(eq("U0G9QF9C6"), any())).thenReturn(empty());
+
+        assertThat(slackOutbox.dispatch().toBlocking().single()).isEqualTo(1);
+
+        verify(slackResource).postMessageToSlackAsBotUser(eq("U0G9QF9C6"), any());
+        verify(slackOutboxDao).deleteNotifications(asList(3L));
+    }
+
+    @Test
+    public void shouldPostponeNotificationThatCouldNotBeSent() {
+        when(slackOutboxDao.claimNotifications(config.getBatchSize(), config.getLeaseSeconds()))
+            .thenReturn(just(questionCreated(1, 1, 3), questionCreated(2, 2, 1)));
+        when(questionDao.getQuestion(1)).thenReturn(error(new IOException("poff")));
+
+        assertThat(slackOutbox.dispatch().toBlocking().single()).isEqualTo(1);
+
+        verify(slackOutboxDao).retryNotificationLater(1, 20);
+        verify(slackOutboxDao).deleteNotifications(asList(2L));
+    }
+
+    @Test
+    public void shouldGiveUpOnNotificationThatSlackRefuses() {
+        when(slackOutboxDao.claimNotifications(config.getBatchSize(), config.getLeaseSeconds()))
+            .thenReturn(just(questionCreated(1, 1, 1)));
+        when(slackResource.postMessageToSlack(eq("rocket-fuel"), any())).thenReturn(error(new IllegalStateException("channel_not_found")));
+
+        assertThat(slackOutbox.dispatch().toBlocking().single()).isEqualTo(1);
+
+        verify(slackOutboxDao).deleteNotifications(asList(1L));
+        verify(slackOutboxDao, never()).retryNotificationLater(anyLong(), anyLong());
+    }
+
+    @Test
+    public void shouldGiveUpOnNotificationAfterLastAttempt() {
+        when(slackOutboxDao.claimNotifications(config.getBatchSize(), config.getLeaseSeconds()))
+            .thenReturn(just(questionCreated(1, 1, config.getMaxAttempts())));
+        when(questionDao.getQuestion(1)).thenReturn(error(new IOException("poff")));
+
+        assertThat(slackOutbox.dispatch().toBlocking().single()).isEqualTo(1);
+
+        verify(slackOutboxDao).deleteNotifications(asList(1L));
+        verify(slackOutboxDao, never()).retryNotificationLater(anyLong(), anyLong());
+    }
+
+    @Test
+    public void shouldDropNotificationOfQuestionThatIsGone() {
+        when(slackOutboxDao.claimNotifications(config.getBatchSize(), config.getLeaseSeconds()))
+            .thenReturn(just(questionCreated(1, 1, 1)));
+        when(questionDao.getQuestion(1)).thenReturn(empty());
+
+        assertThat(slackOutbox.dispatch().toBlocking().single()).isEqualTo(1);
+
+        verify(slackResource, never()).postMessageToSlack(any(), any());
+        verify(slackOutboxDao).deleteNotifications(asList(1L));
+    }
+
+    @Test
+    public void shouldNotDeleteAnythingWhenNothingIsDue() {
+        when(slackOutboxDao.claimNotifications(config.getBatchSize(), config.getLeaseSeconds())).thenReturn(empty());
+
+        assertThat(slackOutbox.dispatch().toBlocking().single()).isEqualTo(0);
+
+        verify(slackOutboxDao, never()).deleteNotifications(any());
+    }
+
+    @Test
+    public void shouldDoubleBackoffUpToMax() {
+        assertThat(slackOutbox.backoffSeconds(1)).isEqualTo(5);
+        assertThat(slackOutbox.backoffSeconds(2)).isEqualTo(10);
+        assertThat(slackOutbox.backoffSeconds(7)).isEqualTo(320);
+        assertThat(slackOutbox.backoffSeconds(8)).isEqualTo(600);
+        assertThat(slackOutbox.backoffSeconds(100)).isEqualTo(600);
+    }
+
+    private static SlackNotification questionCreated(long id, long questionId, int attempts) {
+        SlackNotification notification = new SlackNotification();
+        notification.setId(id);
+        notification.setKind(SlackNotification.QUESTION_CREATED);
+        notification.setQuestionId(questionId);
+        notification.setAttempts(attempts);
+        return notification;
+    }
+
+    private static Question question(long id, long userId) {
+        Question question = new Question();
+        question.setId(id);
+        question.setUserId(userId);
+        question.setTitle("title");
+        return question;
+    }
+}
@@ -0,0 +1,175 @@
+package impl;
+
+import api.Tag;
+import cache.InvalidationBus;
+import dao.TagDao;
+import dao.TagUsage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static rx.Observable.empty;
+import static rx.Observable.error;
+import static rx.Observable.just;
+
+public class TagIndexTest {
+
+    private TagDao         tagDao;
+    private TagIndexConfig config;
+
+    @Before
+    public void beforeEach() {
+        tagDao = mock(TagDao.class);
+        config = new TagIndexConfig();
+        when(tagDao.getTagUsages()).thenReturn(just(usage(1, "alpaca", 1), usage(2, "alpha", 5), usage(3, "beta", 3), usage(4, "ralph", 5)));
+    }
+
+    @Test
+    public void shouldLoadAtStartupAndServeLookupsFromMemory() {
+        TagIndex tagIndex = new TagIndex(tagDao, config, mock(InvalidationBus.class));
+
+        assertThat(labels(tagIndex, "alp")).containsExactly("alpha", "ralph", "alpaca");
+        assertThat(labels(tagIndex, "be")).containsExactly("beta");
+
+        verify(tagDao, times(1)).getTagUsages();
+        verify(tagDao, never()).getTagsMatching(anyString(), anyInt());
+    }
+
+    @Test
+    public void shouldReturnMostUsedTagsWithoutSearch() {
+        config.setMaxResults(2);
+        TagIndex tagIndex = new TagIndex(tagDao, config, mock(InvalidationBus.class));
+
+        assertThat(labels(tagIndex, null)).containsExactly("alpha", "ralph");
+    }
+
+    @Test
+    public void shouldCapResults() {
+        config.setMaxResults(1);
+        TagIndex tagIndex = new TagIndex(tagDao, config, mock(InvalidationBus.class));
+
+        assertThat(labels(tagIndex, "a")).containsExactly("alpha");
+    }
+
+    @Test
+    public void shouldIgnoreCase() {
+        TagIndex tagIndex = new TagIndex(tagDao, config, mock(InvalidationBus.class));
+
+        assertThat(labels(tagIndex, " BET ")).containsExactly("beta");
+    }
+
+    @Test
+    public void shouldReloadAfterInvalidation() {
+        TagIndex tagIndex = new TagIndex(tagDao, config, mock(InvalidationBus.class));
+        when(tagDao.getTagUsages()).thenReturn(just(usage(5, "gamma", 1)));
+
+        tagIndex.invalidate();
+
+        assertThat(labels(tagIndex, "a")).containsExactly("gamma");
+        verify(tagDao, times(2)).getTagUsages();
+    }
+
+    @Test
+    public void shouldFindTextAnywhereInLabels() {
+        TagIndex tagIndex = new TagIndex(tagDao, config, mock(InvalidationBus.class));
+
+        assertThat(labels(tagIndex, "a")).containsExactly("alpha", "ralph", "beta", "alpaca");
+        assertThat(labels(tagIndex, "lph")).containsExactly("alpha", "ralph");
+        assertThat(labels(tagIndex, "zeta")).isEmpty();
+    }
+
+    @Test
+    public void shouldIgnoreCaseOfLabels() {
+        when(tagDao.getTagUsages()).thenReturn(just(usage(1, "Delta", 1)));
+        TagIndex tagIndex = new TagIndex(tagDao, config, mock(InvalidationBus.class));
+
+        assertThat(labels(tagIndex, "del")).containsExactly("Delta");
+    }
+
+    @Test
+    public void shouldLoadChangedTagsWithoutReloading() {
+        TagIndex tagIndex = new TagIndex(tagDao, config, mock(InvalidationBus.class));
+        when(tagDao.getTagUsagesByIds(anyList())).thenReturn(just(usage(1, "alpaca", 9), usage(6, "alps", 2)));
+
+        tagIndex.update(1);
+        tagIndex.update(6);
+
+        assertThat(labels(tagIndex, "alp")).containsExactly("alpaca", "alpha", "ralph", "alps");
+        assertThat(labels(tagIndex, "alp")).containsExactly("alpaca", "alpha", "ralph", "alps");
+        verify(tagDao, times(1)).getTagUsages();
+        verify(tagDao, times(1)).getTagUsagesByIds(anyList());
+    }
+
+    @Test
+    public void shouldRemoveDeletedTagsWithoutReloading() {
+        TagIndex tagIndex = new TagIndex(tagDao, config, mock(InvalidationBus.class));
+        when(tagDao.getTagUsagesByIds(List.of(2L))).thenReturn(empty());
+
+        tagIndex.update(2);
+
+        assertThat(labels(tagIndex, "alp")).containsExactly("ralph", "alpaca");
+        verify(tagDao, times(1)).getTagUsages();
+    }
+
+    @Test
+    public void shouldLoadChangedTagsAgainWhenTheyCannotBeLoaded() {
+        TagIndex tagIndex = new TagIndex(tagDao, config, mock(InvalidationBus.class));
+        when(tagDao.getTagUsagesByIds(List.of(2L))).thenReturn(error(new RuntimeException("db down")), empty());
+        when(tagDao.getTagsMatching("%alp%", 20)).thenReturn(just(new Tag("alpha")));
+
+        tagIndex.update(2);
+
+        assertThat(labels(tagIndex, "alp")).containsExactly("alpha");
+        assertThat(labels(tagIndex, "alp")).containsExactly("ralph", "alpaca");
+    }
+
+    @Test
+    public void shouldFallBackToDatabaseWhenIndexCannotBeLoaded() {
+        when(tagDao.getTagUsages()).thenReturn(error(new RuntimeException("db down")));
+        when(tagDao.getTagsMatching("%tag\\_1%", 20)).thenReturn(just(new Tag("tag_1")));
+        TagIndex tagIndex = new TagIndex(tagDao, config, mock(InvalidationBus.class));
+
+        assertThat(labels(tagIndex, "tag_1")).containsExactly("tag_1");
+    }
+
+    @Test
+    public void shouldUseDatabaseWhenDisabled() {
+        config.setEnabled(false);
+        when(tagDao.getTagsMatching("%alp%", 20)).thenReturn(just(new Tag("alpha")));
+        TagIndex tagIndex = new TagIndex(tagDao, config, mock(InvalidationBus.class));
+
+        assertThat(labels(tagIndex, "alp")).containsExactly("alpha");
+        verify(tagDao, never()).getTagUsages();
+    }
+
+    @Test
+    public void shouldEscapeLikePattern() {
+        assertThat(TagIndex.escapeLikePattern("a_b%c\\d")).isEqualTo("a\\_b\\%c\\\\d");
+    }
+
+    private static List<String> labels(TagIndex tagIndex, String search) {
+        return tagIndex.getTagsContaining(search)
+            .map(Tag::getLabel)
+            .toList()
+            .toBlocking()
+            .single();
+    }
+
+    private static TagUsage usage(long id, String label, int usages) {
+        TagUsage tagUsage = new TagUsage();
+        tagUsage.setId(id);
+        tagUsage.setLabel(label);
+        tagUsage.setUsages(usages);
+        return tagUsage;
+    }
+}
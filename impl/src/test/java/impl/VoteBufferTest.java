@@ -0,0 +1,199 @@
+package impl;
+
+import cache.InvalidationBus;
+import dao.AnswerVoteDao;
+import dao.QuestionVoteDao;
+import org.junit.Before;
+import org.junit.Test;
+import rx.observers.AssertableSubscriber;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static cache.InvalidationBus.Topic.VOTE;
+import static impl.VoteBufferConfig.Durability.BUFFERED;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static rx.Observable.empty;
+import static rx.Observable.error;
+import static rx.Observable.just;
+
+public class VoteBufferTest {
+
+    private QuestionVoteDao  questionVoteDao;
+    private AnswerVoteDao    answerVoteDao;
+    private InvalidationBus  invalidationBus;
+    private VoteBufferConfig config;
+
+    @Before
+    public void beforeEach() {
+        questionVoteDao = mock(QuestionVoteDao.class);
+        answerVoteDao = mock(AnswerVoteDao.class);
+        invalidationBus = mock(InvalidationBus.class);
+        config = new VoteBufferConfig();
+        config.setEnabled(true);
+        config.setFlushIntervalMillis(3600000);
+        when(questionVoteDao.applyVotes(any(), any(), any(), any(), any())).thenReturn(empty());
+        when(answerVoteDao.applyVotes(any(), any(), any(), any(), any())).thenReturn(empty());
+    }
+
+    @Test
+    public void shouldStoreBufferedVotesInOneBatch() {
+        VoteBuffer voteBuffer = new VoteBuffer(questionVoteDao, answerVoteDao, invalidationBus, config);
+
+        voteBuffer.voteOnQuestion(1, 10, 1);
+        voteBuffer.voteOnQuestion(2, 10, -1);
+        voteBuffer.voteOnAnswer(1, 20, 1);
+        voteBuffer.flush().test().awaitTerminalEvent().assertNoErrors();
+
+        verify(questionVoteDao).applyVotes(asList(1L, 2L), asList(10L, 10L), asList(1, -1), asList(-1, -1), asList(1, 1));
+        verify(answerVoteDao).applyVotes(asList(1L), asList(20L), asList(1), asList(-1), asList(1));
+    }
+
+    @Test
+    public void shouldStoreVotesThatCancelOutInTheOrderTheyWereCast() {
+        VoteBuffer voteBuffer = new VoteBuffer(questionVoteDao, answerVoteDao, invalidationBus, config);
+
+        voteBuffer.voteOnQuestion(1, 10, 1);
+        voteBuffer.voteOnQuestion(1, 10, -1);
+        voteBuffer.flush().test().awaitTerminalEvent().assertNoErrors();
+
+        // an up vote already stored is removed, like the votes cast one at a time would
+        verify(questionVoteDao).applyVotes(asList(1L), asList(10L), asList(0), asList(-1), asList(0));
+        verify(answerVoteDao, never()).applyVotes(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void shouldCombineVotesLikeCastingThemOneAtATime() {
+        List<List<Integer>> sequences = new ArrayList<>();
+        sequences.add(new ArrayList<>());
+        for (int length = 1; length <= 4; length++) {
+            List<List<Integer>> longer = new ArrayList<>();
+            for (List<Integer> sequence : sequences) {
+                for (int value : new int[]{-1, 1}) {
+                    List<Integer> next = new ArrayList<>(sequence);
+                    next.add(value);
+                    longer.add(next);
+                }
+            }
+            sequences = longer;
+
+            for (List<Integer> sequence : sequences) {
+                VoteBuffer.Change combined = VoteBuffer.Change.of(sequence.get(0));
+                for (int value : sequence.subList(1, sequence.size())) {
+                    combined = combined.then(VoteBuffer.Change.of(value));
+                }
+                for (int stored = -1; stored <= 1; stored++) {
+                    int vote = stored;
+                    for (int value : sequence) {
+                        vote = Math.max(-1, Math.min(1, vote + value));
+                    }
+                    assertThat(combined.applyTo(stored)).as("%s on %s", sequence, stored).isEqualTo(vote);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldAcknowledgeVotesWhenStored() {
+        VoteBuffer voteBuffer = new VoteBuffer(questionVoteDao, answerVoteDao, invalidationBus, config);
+
+        AssertableSubscriber<Void> vote = voteBuffer.voteOnQuestion(1, 10, 1).test();
+        vote.assertNotCompleted();
+
+        voteBuffer.flush().test().awaitTerminalEvent();
+        vote.assertCompleted();
+    }
+
+    @Test
+    public void shouldAcknowledgeVotesWhenBufferedIfConfigured() {
+        config.setDurability(BUFFERED);
+        VoteBuffer voteBuffer = new VoteBuffer(questionVoteDao, answerVoteDao, invalidationBus, config);
+
+        voteBuffer.voteOnQuestion(1, 10, 1).test().assertCompleted();
+    }
+
+    @Test
+    public void shouldStoreVotesThatCouldNotBeStoredWithTheNextFlush() {
+        when(questionVoteDao.applyVotes(any(), any(), any(), any(), any())).thenReturn(error(new RuntimeException("db down")), empty());
+        VoteBuffer voteBuffer = new VoteBuffer(questionVoteDao, answerVoteDao, invalidationBus, config);
+
+        AssertableSubscriber<Void> vote = voteBuffer.voteOnQuestion(1, 10, 1).test();
+        voteBuffer.flush().test().awaitTerminalEvent();
+        vote.assertNoTerminalEvent();
+
+        voteBuffer.voteOnQuestion(1, 10, -1);
+        voteBuffer.flush().test().awaitTerminalEvent().assertNoErrors();
+
+        vote.assertCompleted();
+        verify(questionVoteDao).applyVotes(asList(1L), asList(10L), asList(1), asList(-1), asList(1));
+        verify(questionVoteDao).applyVotes(asList(1L), asList(10L), asList(0), asList(-1), asList(0));
+    }
+
+    @Test
+    public void shouldNotStoreVotesAgainThatWereStoredByAFailedFlush() {
+        when(answerVoteDao.applyVotes(any(), any(), any(), any(), any())).thenReturn(error(new RuntimeException("db down")), empty());
+        VoteBuffer voteBuffer = new VoteBuffer(questionVoteDao, answerVoteDao, invalidationBus, config);
+
+        voteBuffer.voteOnQuestion(1, 10, 1);
+        voteBuffer.voteOnAnswer(1, 20, 1);
+        voteBuffer.flush().test().awaitTerminalEvent();
+        voteBuffer.flush().test().awaitTerminalEvent().assertNoErrors();
+
+        verify(questionVoteDao, times(1)).applyVotes(any(), any(), any(), any(), any());
+        verify(answerVoteDao, times(2)).applyVotes(asList(1L), asList(20L), asList(1), asList(-1), asList(1));
+    }
+
+    @Test
+    public void shouldFailVotesThatCouldNotBeStoredWhenTooManyAreBuffered() {
+        when(questionVoteDao.applyVotes(any(), any(), any(), any(), any())).thenReturn(error(new RuntimeException("db down")));
+        config.setEnabled(false);
+        config.setMaxPendingVotes(1);
+        VoteBuffer voteBuffer = new VoteBuffer(questionVoteDao, answerVoteDao, invalidationBus, config);
+
+        AssertableSubscriber<Void> vote = voteBuffer.voteOnQuestion(1, 10, 1).test();
+        voteBuffer.voteOnQuestion(2, 10, 1);
+        voteBuffer.flush().test().awaitTerminalEvent();
+
+        vote.assertError(RuntimeException.class);
+    }
+
+    @Test
+    public void shouldStoreBufferedVotesWhenClosed() {
+        VoteBuffer voteBuffer = new VoteBuffer(questionVoteDao, answerVoteDao, invalidationBus, config);
+
+        AssertableSubscriber<Void> vote = voteBuffer.voteOnQuestion(1, 10, 1).test();
+        voteBuffer.close().test().awaitTerminalEvent().assertCompleted();
+
+        vote.assertCompleted();
+        verify(questionVoteDao).applyVotes(asList(1L), asList(10L), asList(1), asList(-1), asList(1));
+    }
+
+    @Test
+    public void shouldFailVotesThatCouldNotBeStoredWhenClosed() {
+        when(questionVoteDao.applyVotes(any(), any(), any(), any(), any())).thenReturn(error(new RuntimeException("db down")));
+        VoteBuffer voteBuffer = new VoteBuffer(questionVoteDao, answerVoteDao, invalidationBus, config);
+
+        AssertableSubscriber<Void> vote = voteBuffer.voteOnQuestion(1, 10, 1).test();
+        voteBuffer.close().test().awaitTerminalEvent().assertCompleted();
+
+        vote.assertError(RuntimeException.class);
+    }
+
+    @Test
+    public void shouldInvalidateQuestionsChangedByTheBatch() {
+        when(questionVoteDao.applyVotes(any(), any(), any(), any(), any())).thenReturn(just(10L));
+        VoteBuffer voteBuffer = new VoteBuffer(questionVoteDao, answerVoteDao, invalidationBus, config);
+
+        voteBuffer.voteOnQuestion(1, 10, 1);
+        voteBuffer.flush().test().awaitTerminalEvent();
+
+        verify(invalidationBus).publish(VOTE, 10L);
+    }
+}
@@ -0,0 +1,76 @@
+package metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static metrics.Metric.DAO_CALLS;
+import static metrics.Metric.HTTP_REQUESTS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetricsTest {
+
+    @Test
+    public void shouldWriteCumulativeHistograms() {
+        Metrics metrics = new Metrics();
+        Timer   timer   = metrics.timer(HTTP_REQUESTS, "QuestionResource.getLatestQuestions");
+        timer.record(TimeUnit.MICROSECONDS.toNanos(800));
+        timer.record(TimeUnit.MILLISECONDS.toNanos(20));
+        timer.record(TimeUnit.SECONDS.toNanos(20));
+
+        assertThat(metrics.scrape()).contains(
+            "# TYPE http_server_requests_seconds histogram\n",
+            "http_server_requests_seconds_bucket{resource=\"QuestionResource.getLatestQuestions\",le=\"0.001\"} 1\n",
+            "http_server_requests_seconds_bucket{resource=\"QuestionResource.getLatestQuestions\",le=\"0.01\"} 1\n",
+            "http_server_requests_seconds_bucket{resource=\"QuestionResource.getLatestQuestions\",le=\"0.025\"} 2\n",
+            "http_server_requests_seconds_bucket{resource=\"QuestionResource.getLatestQuestions\",le=\"10.0\"} 2\n",
+            "http_server_requests_seconds_bucket{resource=\"QuestionResource.getLatestQuestions\",le=\"+Inf\"} 3\n",
+            "http_server_requests_seconds_sum{resource=\"QuestionResource.getLatestQuestions\"} 20.020800\n",
+            "http_server_requests_seconds_count{resource=\"QuestionResource.getLatestQuestions\"} 3\n");
+    }
+
+    @Test
+    public void shouldKeepCountingAfterScrape() {
+        Metrics metrics = new Metrics();
+        Timer   timer   = metrics.timer(DAO_CALLS, "QuestionDao.getQuestion");
+        timer.record(TimeUnit.MILLISECONDS.toNanos(1));
+        metrics.scrape();
+        timer.record(TimeUnit.MILLISECONDS.toNanos(1));
+
+        assertThat(metrics.scrape()).contains("dao_calls_seconds_count{method=\"QuestionDao.getQuestion\"} 2\n");
+    }
+
+    @Test
+    public void shouldCountErrorsByKind() {
+        Metrics metrics = new Metrics();
+        Timer   timer   = metrics.timer(HTTP_REQUESTS, "AnswerResource.getAnswers");
+        timer.error("404");
+        timer.error("404");
+        timer.error("500");
+
+        assertThat(metrics.scrape()).contains(
+            "# TYPE http_server_requests_errors_total counter\n",
+            "http_server_requests_errors_total{resource=\"AnswerResource.getAnswers\",error=\"404\"} 2\n",
+            "http_server_requests_errors_total{resource=\"AnswerResource.getAnswers\",error=\"500\"} 1\n");
+    }
+
+    @Test
+    public void shouldWriteSecondsCounterFromMillis() {
+        StringBuilder text = new StringBuilder();
+
+        Metrics.writeSecondsCounter(text, "popular_questions_refresh_seconds_total", "Time spent", 1234);
+
+        assertThat(text.toString()).isEqualTo(
+            "# HELP popular_questions_refresh_seconds_total Time spent\n" +
+            "# TYPE popular_questions_refresh_seconds_total counter\n" +
+            "popular_questions_refresh_seconds_total 1.234\n");
+    }
+
+    @Test
+    public void shouldReturnTheSameTimerForTheSameLabel() {
+        Metrics metrics = new Metrics();
+
+        assertThat(metrics.timer(DAO_CALLS, "TagDao.getTagUsages")).isSameAs(metrics.timer(DAO_CALLS, "TagDao.getTagUsages"));
+        assertThat(metrics.timer(DAO_CALLS, "TagDao.getTagUsages")).isNotSameAs(metrics.timer(HTTP_REQUESTS, "TagDao.getTagUsages"));
+    }
+}
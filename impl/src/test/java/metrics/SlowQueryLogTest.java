@@ -0,0 +1,48 @@
+package metrics;
+
+import org.junit.Test;
+import se.fortnox.reactivewizard.CollectionOptions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SlowQueryLogTest {
+
+    @Test
+    public void shouldOnlyTreatCallsAboveTheThresholdAsSlow() {
+        SlowQueryConfig config = new SlowQueryConfig();
+        config.setThresholdMillis(100);
+        SlowQueryLog slowQueryLog = new SlowQueryLog(config);
+
+        assertThat(slowQueryLog.isSlow(TimeUnit.MILLISECONDS.toNanos(99))).isFalse();
+        assertThat(slowQueryLog.isSlow(TimeUnit.MILLISECONDS.toNanos(100))).isTrue();
+    }
+
+    @Test
+    public void shouldNotTreatAnyCallAsSlowWhenDisabled() {
+        SlowQueryConfig config = new SlowQueryConfig();
+        config.setEnabled(false);
+        SlowQueryLog slowQueryLog = new SlowQueryLog(config);
+
+        assertThat(slowQueryLog.isSlow(TimeUnit.MINUTES.toNanos(1))).isFalse();
+    }
+
+    @Test
+    public void shouldDescribeParametersByShapeRatherThanValue() {
+        CollectionOptions options = new CollectionOptions(10, 20);
+
+        String shapes = SlowQueryLog.shapes(new Object[]{42L, "secret@example.com", Arrays.asList("a", "b"), Collections.singleton(1),
+            new long[3], options, null, true});
+
+        assertThat(shapes).isEqualTo("Long, String(18), List(2), Collection(1), long[3], CollectionOptions(limit=10, offset=20), null, Boolean");
+        assertThat(shapes).doesNotContain("secret");
+    }
+
+    @Test
+    public void shouldDescribeCallsWithoutParameters() {
+        assertThat(SlowQueryLog.shapes(null)).isEmpty();
+    }
+}
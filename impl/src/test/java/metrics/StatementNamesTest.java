@@ -0,0 +1,55 @@
+package metrics;
+
+import org.junit.Test;
+import rx.Observable;
+import se.fortnox.reactivewizard.CollectionOptions;
+import se.fortnox.reactivewizard.db.Query;
+import se.fortnox.reactivewizard.db.Update;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StatementNamesTest {
+
+    private final StatementNames statementNames = new StatementNames(Dao.class);
+
+    @Test
+    public void shouldNameStatementAfterDaoMethod() {
+        assertThat(statementNames.nameOf("SELECT id, title FROM question WHERE id = ?")).isEqualTo("Dao.getQuestion");
+        assertThat(statementNames.nameOf("UPDATE question SET title=? WHERE question.id=? AND question.user_id=?")).isEqualTo("Dao.updateTitle");
+    }
+
+    @Test
+    public void shouldNamePagedStatementAfterTheLongestQueryItStartsWith() {
+        assertThat(statementNames.nameOf("SELECT id, title FROM question ORDER BY votes DESC LIMIT 11 OFFSET 20")).isEqualTo("Dao.getPopularQuestions");
+        assertThat(statementNames.nameOf("SELECT id, title FROM question LIMIT 11")).isEqualTo("Dao.getQuestions");
+    }
+
+    @Test
+    public void shouldKeepCastsThatAreNotParameters() {
+        assertThat(statementNames.nameOf("SELECT id FROM question WHERE id = ANY(CAST(? AS BIGINT[])) AND votes::INTEGER > 0")).isEqualTo("Dao.getVotedQuestions");
+    }
+
+    @Test
+    public void shouldNameOtherStatementsUnknown() {
+        assertThat(statementNames.nameOf("SELECT 1")).isEqualTo(StatementNames.UNKNOWN);
+    }
+
+    interface Dao {
+        @Query("SELECT id, title FROM question WHERE id = :questionId")
+        Observable<Object> getQuestion(long questionId);
+
+        @Query("SELECT id, title FROM question")
+        Observable<Object> getQuestions(CollectionOptions options);
+
+        @Query("SELECT id, title FROM question ORDER BY votes DESC")
+        Observable<Object> getPopularQuestions(CollectionOptions options);
+
+        @Query("SELECT id FROM question WHERE id = ANY(CAST(:ids AS BIGINT[])) AND votes::INTEGER > 0")
+        Observable<Object> getVotedQuestions(long[] ids);
+
+        @Update("UPDATE question " +
+            "SET title=:title " +
+            "WHERE question.id=:questionId AND question.user_id=:userId")
+        Observable<Integer> updateTitle(long userId, long questionId, String title);
+    }
+}
@@ -0,0 +1,125 @@
+package metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observable;
+import se.fortnox.reactivewizard.db.ConnectionProvider;
+import se.fortnox.reactivewizard.db.Query;
+import se.fortnox.reactivewizard.db.Update;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static metrics.Metric.DAO_CALLS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TimedConnectionProviderTest {
+
+    private static final String SELECT = "SELECT id FROM question WHERE title = ?";
+    private static final String UPDATE = "UPDATE question SET votes = 0 WHERE id = ?";
+
+    private final List<String> logged = new ArrayList<>();
+
+    private Metrics           metrics;
+    private Connection        connection;
+    private PreparedStatement statement;
+    private Connection        timedConnection;
+
+    @Before
+    public void beforeEach() throws SQLException {
+        metrics = new Metrics();
+        connection = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        SlowQueryConfig config = new SlowQueryConfig();
+        config.setThresholdMillis(0);
+        SlowQueryLog slowQueryLog = new SlowQueryLog(config) {
+            @Override
+            public void record(String method, Object[] args, long nanos, long rows) {
+                logged.add(method + SlowQueryLog.shapes(args) + ":" + rows);
+            }
+        };
+        ConnectionProvider connectionProvider = mock(ConnectionProvider.class);
+        when(connectionProvider.get()).thenReturn(connection);
+        when(connection.prepareStatement(SELECT)).thenReturn(statement);
+        when(connection.prepareStatement(UPDATE)).thenReturn(statement);
+
+        timedConnection = new TimedConnectionProvider(connectionProvider, metrics, slowQueryLog, new StatementNames(Dao.class)).get();
+    }
+
+    @Test
+    public void shouldTimeQueryUntilItsRowsAreRead() throws SQLException {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+
+        PreparedStatement timedStatement = timedConnection.prepareStatement(SELECT);
+        timedStatement.setString(1, "title");
+        ResultSet timedResultSet = timedStatement.executeQuery();
+        while (timedResultSet.next()) {
+            timedResultSet.getLong(1);
+        }
+        assertThat(metrics.scrape()).contains("dao_calls_seconds_count{method=\"Dao.findByTitle\"} 0\n");
+
+        timedResultSet.close();
+        timedStatement.close();
+
+        assertThat(logged).containsExactly("Dao.findByTitleString(5):2");
+        assertThat(metrics.scrape()).contains(
+            "dao_calls_seconds_count{method=\"Dao.findByTitle\"} 1\n",
+            "dao_calls_rows_total{method=\"Dao.findByTitle\"} 2\n");
+        verify(resultSet).close();
+        verify(statement).close();
+    }
+
+    @Test
+    public void shouldCountUpdatedRows() throws SQLException {
+        when(statement.executeUpdate()).thenReturn(3);
+
+        PreparedStatement timedStatement = timedConnection.prepareStatement(UPDATE);
+        timedStatement.setLong(1, 42L);
+        assertThat(timedStatement.executeUpdate()).isEqualTo(3);
+
+        assertThat(logged).containsExactly("Dao.resetVotesLong:3");
+        assertThat(metrics.scrape()).contains(
+            "dao_calls_seconds_count{method=\"Dao.resetVotes\"} 1\n",
+            "dao_calls_rows_total{method=\"Dao.resetVotes\"} 3\n");
+    }
+
+    @Test
+    public void shouldCountFailedStatementsByException() throws SQLException {
+        when(statement.executeUpdate()).thenThrow(new SQLException("deadlock detected"));
+
+        PreparedStatement timedStatement = timedConnection.prepareStatement(UPDATE);
+        assertThatExceptionOfType(SQLException.class).isThrownBy(timedStatement::executeUpdate);
+
+        assertThat(metrics.scrape()).contains(
+            "dao_calls_seconds_count{method=\"Dao.resetVotes\"} 1\n",
+            "dao_calls_errors_total{method=\"Dao.resetVotes\",error=\"SQLException\"} 1\n");
+    }
+
+    @Test
+    public void shouldPassOnEverythingElse() throws SQLException {
+        timedConnection.setAutoCommit(false);
+        timedConnection.commit();
+
+        verify(connection).setAutoCommit(false);
+        verify(connection).commit();
+        assertThat(metrics.scrape()).doesNotContain("dao_calls_seconds_count");
+    }
+
+    interface Dao {
+        @Query("SELECT id FROM question WHERE title = :title")
+        Observable<Long> findByTitle(String title);
+
+        @Update("UPDATE question SET votes = 0 WHERE id = :questionId")
+        Observable<Integer> resetVotes(long questionId);
+    }
+}
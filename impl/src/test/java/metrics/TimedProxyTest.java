@@ -0,0 +1,119 @@
+package metrics;
+
+import org.junit.Test;
+import rx.Observable;
+import rx.observers.AssertableSubscriber;
+import rx.subjects.PublishSubject;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static metrics.Metric.DAO_CALLS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static rx.Observable.error;
+import static rx.Observable.just;
+
+public class TimedProxyTest {
+
+    private final PublishSubject<String> result = PublishSubject.create();
+
+    @Test
+    public void shouldTimeCallsFromSubscribeUntilCompleted() {
+        Metrics metrics = new Metrics();
+        Dao     dao     = TimedProxy.create(Dao.class, new DaoImpl(), metrics, DAO_CALLS);
+
+        Observable<String> call = dao.get();
+        assertThat(metrics.scrape()).contains("dao_calls_seconds_count{method=\"Dao.get\"} 0\n");
+
+        AssertableSubscriber<String> subscriber = call.test();
+        assertThat(metrics.scrape()).contains("dao_calls_seconds_count{method=\"Dao.get\"} 0\n");
+
+        result.onNext("result");
+        result.onCompleted();
+        subscriber.assertValue("result");
+        assertThat(metrics.scrape()).contains("dao_calls_seconds_count{method=\"Dao.get\"} 1\n");
+    }
+
+    @Test
+    public void shouldTimeCallsThatAreUnsubscribedFrom() {
+        Metrics metrics = new Metrics();
+        Dao     dao     = TimedProxy.create(Dao.class, new DaoImpl(), metrics, DAO_CALLS);
+
+        dao.get().test().unsubscribe();
+
+        assertThat(metrics.scrape()).contains("dao_calls_seconds_count{method=\"Dao.get\"} 1\n");
+    }
+
+    @Test
+    public void shouldCountFailedCallsByException() {
+        Metrics metrics = new Metrics();
+        Dao     dao     = TimedProxy.create(Dao.class, new DaoImpl(), metrics, DAO_CALLS);
+
+        dao.fail().test().assertError(SQLException.class);
+
+        assertThat(metrics.scrape()).contains(
+            "dao_calls_seconds_count{method=\"Dao.fail\"} 1\n",
+            "dao_calls_errors_total{method=\"Dao.fail\",error=\"SQLException\"} 1\n");
+    }
+
+    @Test
+    public void shouldCountRowsAndReportEveryCallToTheSlowQueryLog() {
+        Metrics         metrics = new Metrics();
+        SlowQueryConfig config  = new SlowQueryConfig();
+        config.setThresholdMillis(0);
+        List<String> logged = new ArrayList<>();
+        SlowQueryLog slowQueryLog = new SlowQueryLog(config) {
+            @Override
+            public void record(String method, Object[] args, long nanos, long rows) {
+                logged.add(method + SlowQueryLog.shapes(args) + ":" + rows);
+            }
+        };
+        Dao dao = TimedProxy.create(Dao.class, new DaoImpl(), metrics, DAO_CALLS, slowQueryLog);
+
+        dao.find("word").test().assertValueCount(3);
+        dao.find("other").test().assertValueCount(3);
+
+        assertThat(logged).containsExactly("Dao.findString(4):3", "Dao.findString(5):3");
+        assertThat(metrics.scrape()).contains("dao_calls_rows_total{method=\"Dao.find\"} 6\n");
+    }
+
+    @Test
+    public void shouldPassOnOtherResults() {
+        Dao dao = TimedProxy.create(Dao.class, new DaoImpl(), new Metrics(), DAO_CALLS);
+
+        assertThat(dao.count()).isEqualTo(42);
+    }
+
+    interface Dao {
+        Observable<String> get();
+
+        Observable<String> fail();
+
+        Observable<String> find(String text);
+
+        int count();
+    }
+
+    private class DaoImpl implements Dao {
+        @Override
+        public Observable<String> get() {
+            return result;
+        }
+
+        @Override
+        public Observable<String> fail() {
+            return error(new SQLException("failed"));
+        }
+
+        @Override
+        public Observable<String> find(String text) {
+            return just(text, text, text);
+        }
+
+        @Override
+        public int count() {
+            return 42;
+        }
+    }
+}
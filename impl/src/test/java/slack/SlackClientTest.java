@@ -0,0 +1,123 @@
+package slack;
+
+import com.github.seratch.jslack.api.methods.response.users.UsersInfoResponse;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static slack.SlackMethod.USERS_INFO;
+
+public class SlackClientTest {
+
+    private static final String USER = "{\"ok\": true, \"user\": {\"id\": \"U1\", \"profile\": {\"email\": \"user@example.com\"}}}";
+
+    private HttpServer          slack;
+    private AtomicInteger       requests;
+    private volatile int        rateLimited;
+    private volatile int        status;
+    private volatile String     authorization;
+    private volatile String     form;
+    private SlackConfig         slackConfig;
+    private Map<String, Object> parameters;
+
+    @Before
+    public void beforeEach() throws IOException {
+        requests = new AtomicInteger();
+        rateLimited = 0;
+        status = 200;
+
+        slack = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        slack.createContext("/api/users.info", exchange -> {
+            requests.incrementAndGet();
+            authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            try (InputStream inputStream = exchange.getRequestBody()) {
+                form = new String(inputStream.readAllBytes(), UTF_8);
+            }
+            byte[] body = USER.getBytes(UTF_8);
+            if (rateLimited > 0) {
+                rateLimited--;
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                exchange.sendResponseHeaders(429, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        slack.start();
+
+        slackConfig = new SlackConfig();
+        slackConfig.setApiUrl("http://localhost:" + slack.getAddress().getPort() + "/api/");
+        parameters = new LinkedHashMap<>();
+        parameters.put("user", "U1");
+        parameters.put("include_locale", null);
+    }
+
+    @After
+    public void afterEach() {
+        slack.stop(0);
+    }
+
+    @Test
+    public void shouldPostParametersWithToken() {
+        UsersInfoResponse response = new SlackClient(slackConfig).call(USERS_INFO, "token", parameters, UsersInfoResponse.class)
+            .toBlocking()
+            .single();
+
+        assertThat(response.isOk()).isTrue();
+        assertThat(response.getUser().getProfile().getEmail()).isEqualTo("user@example.com");
+        assertThat(authorization).isEqualTo("Bearer token");
+        assertThat(form).isEqualTo("user=U1");
+    }
+
+    @Test
+    public void shouldCallAgainAfterRetryAfterWhenRateLimited() {
+        rateLimited = 1;
+        long startMillis = System.currentTimeMillis();
+
+        UsersInfoResponse response = new SlackClient(slackConfig).call(USERS_INFO, "token", parameters, UsersInfoResponse.class)
+            .toBlocking()
+            .single();
+
+        assertThat(response.isOk()).isTrue();
+        assertThat(requests.get()).isEqualTo(2);
+        assertThat(System.currentTimeMillis() - startMillis).isGreaterThanOrEqualTo(1000);
+    }
+
+    @Test
+    public void shouldGiveUpWhenRateLimitedMoreThanMaxRetries() {
+        rateLimited = 2;
+        slackConfig.setMaxRetries(1);
+        SlackClient slackClient = new SlackClient(slackConfig);
+
+        assertThatExceptionOfType(SlackClient.RateLimitedException.class)
+            .isThrownBy(() -> slackClient.call(USERS_INFO, "token", parameters, UsersInfoResponse.class).toBlocking().single());
+        assertThat(requests.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldFailOnUnexpectedStatus() {
+        status = 500;
+        SlackClient slackClient = new SlackClient(slackConfig);
+
+        assertThatExceptionOfType(RuntimeException.class)
+            .isThrownBy(() -> slackClient.call(USERS_INFO, "token", parameters, UsersInfoResponse.class).toBlocking().single())
+            .withCauseInstanceOf(IOException.class);
+        assertThat(requests.get()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,125 @@
+package slack;
+
+import api.User;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observable;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static rx.Observable.error;
+import static rx.Observable.just;
+
+public class SlackIdentityCacheTest {
+
+    private SlackIdentityCacheConfig config;
+    private AtomicInteger            lookups;
+
+    @Before
+    public void beforeEach() {
+        config = new SlackIdentityCacheConfig();
+        lookups = new AtomicInteger();
+    }
+
+    @Test
+    public void shouldLookUpEmailOnce() {
+        SlackIdentityCache slackIdentityCache = new SlackIdentityCache(config);
+
+        assertThat(getEmail(slackIdentityCache, "U1", just("user@example.com"))).isEqualTo("user@example.com");
+        assertThat(getEmail(slackIdentityCache, "U1", just("other@example.com"))).isEqualTo("user@example.com");
+
+        assertThat(lookups.get()).isEqualTo(1);
+        assertThat(slackIdentityCache.getStats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCacheEmailAndSlackUserIdBothWays() {
+        SlackIdentityCache slackIdentityCache = new SlackIdentityCache(config);
+
+        getEmail(slackIdentityCache, "U1", just("user@example.com"));
+        getSlackUserId(slackIdentityCache, "other@example.com", just("U2"));
+
+        assertThat(getSlackUserId(slackIdentityCache, "user@example.com", just("U3"))).isEqualTo("U1");
+        assertThat(getEmail(slackIdentityCache, "U2", just("third@example.com"))).isEqualTo("other@example.com");
+        assertThat(lookups.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldRememberLookupsThatSlackAnsweredWithError() {
+        SlackIdentityCache slackIdentityCache = new SlackIdentityCache(config);
+        Observable<String> notFound = error(new IllegalStateException("Could not get user by email from slack: users_not_found"));
+
+        assertThatExceptionOfType(IllegalStateException.class)
+            .isThrownBy(() -> getSlackUserId(slackIdentityCache, "user@example.com", notFound));
+        assertThatExceptionOfType(IllegalStateException.class)
+            .isThrownBy(() -> getSlackUserId(slackIdentityCache, "user@example.com", just("U1")))
+            .withMessage("Could not get user by email from slack: users_not_found");
+
+        assertThat(lookups.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotRememberLookupsThatCouldNotBeMade() {
+        SlackIdentityCache slackIdentityCache = new SlackIdentityCache(config);
+
+        assertThatExceptionOfType(RuntimeException.class)
+            .isThrownBy(() -> getSlackUserId(slackIdentityCache, "user@example.com", error(new IOException("unreachable"))));
+
+        assertThat(getSlackUserId(slackIdentityCache, "user@example.com", just("U1"))).isEqualTo("U1");
+        assertThat(lookups.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldForgetFailedLookupWhenIdentityIsPut() {
+        SlackIdentityCache slackIdentityCache = new SlackIdentityCache(config);
+        assertThatExceptionOfType(IllegalStateException.class)
+            .isThrownBy(() -> getEmail(slackIdentityCache, "U1", error(new IllegalStateException("user_not_found"))));
+
+        slackIdentityCache.put("U1", "user@example.com");
+
+        assertThat(getEmail(slackIdentityCache, "U1", just("other@example.com"))).isEqualTo("user@example.com");
+        assertThat(getSlackUserId(slackIdentityCache, "user@example.com", just("U2"))).isEqualTo("U1");
+        assertThat(lookups.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldLoadUserOnce() {
+        SlackIdentityCache slackIdentityCache = new SlackIdentityCache(config);
+        User               user               = new User();
+        user.setId(1L);
+
+        slackIdentityCache.getUser("user@example.com", () -> lookup(just(user))).toBlocking().single();
+        User cached = slackIdentityCache.getUser("user@example.com", () -> lookup(just(new User()))).toBlocking().single();
+
+        assertThat(cached).isSameAs(user);
+        assertThat(lookups.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldLookUpEveryTimeWhenDisabled() {
+        config.setEnabled(false);
+        SlackIdentityCache slackIdentityCache = new SlackIdentityCache(config);
+
+        getEmail(slackIdentityCache, "U1", just("user@example.com"));
+        slackIdentityCache.put("U1", "user@example.com");
+        getEmail(slackIdentityCache, "U1", just("user@example.com"));
+
+        assertThat(lookups.get()).isEqualTo(2);
+    }
+
+    private String getEmail(SlackIdentityCache slackIdentityCache, String slackUserId, Observable<String> email) {
+        return slackIdentityCache.getEmail(slackUserId, () -> lookup(email)).toBlocking().single();
+    }
+
+    private String getSlackUserId(SlackIdentityCache slackIdentityCache, String email, Observable<String> slackUserId) {
+        return slackIdentityCache.getSlackUserId(email, () -> lookup(slackUserId)).toBlocking().single();
+    }
+
+    private <T> Observable<T> lookup(Observable<T> result) {
+        lookups.incrementAndGet();
+        return result;
+    }
+}
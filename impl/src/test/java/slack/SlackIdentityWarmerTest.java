@@ -0,0 +1,70 @@
+package slack;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static rx.Observable.just;
+
+public class SlackIdentityWarmerTest {
+
+    private static final String FIRST_PAGE  = "{\"ok\": true, \"members\": ["
+        + "{\"id\": \"U1\", \"profile\": {\"email\": \"first@example.com\"}},"
+        + "{\"id\": \"B1\", \"profile\": {}}"
+        + "], \"response_metadata\": {\"next_cursor\": \"page2\"}}";
+    private static final String SECOND_PAGE = "{\"ok\": true, \"members\": ["
+        + "{\"id\": \"U2\", \"profile\": {\"email\": \"second@example.com\"}},"
+        + "{\"id\": \"U3\", \"deleted\": true, \"profile\": {\"email\": \"deleted@example.com\"}}"
+        + "], \"response_metadata\": {\"next_cursor\": \"\"}}";
+
+    private HttpServer               slack;
+    private SlackConfig              slackConfig;
+    private SlackIdentityCacheConfig config;
+
+    @Before
+    public void beforeEach() throws IOException {
+        slack = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        slack.createContext("/api/users.list", exchange -> {
+            String form;
+            try (InputStream inputStream = exchange.getRequestBody()) {
+                form = new String(inputStream.readAllBytes(), UTF_8);
+            }
+            byte[] body = (form.contains("cursor=page2") ? SECOND_PAGE : FIRST_PAGE).getBytes(UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        slack.start();
+
+        slackConfig = new SlackConfig();
+        slackConfig.setApiUrl("http://localhost:" + slack.getAddress().getPort() + "/api/");
+        config = new SlackIdentityCacheConfig();
+    }
+
+    @After
+    public void afterEach() {
+        slack.stop(0);
+    }
+
+    @Test
+    public void shouldCacheEmailsOfAllPagesOfUsers() {
+        SlackIdentityCache  slackIdentityCache  = new SlackIdentityCache(config);
+        SlackIdentityWarmer slackIdentityWarmer = new SlackIdentityWarmer(new SlackClient(slackConfig), slackConfig, config, slackIdentityCache);
+
+        assertThat(slackIdentityWarmer.warm().toBlocking().single()).isEqualTo(2);
+
+        assertThat(slackIdentityCache.getEmail("U1", () -> just("unexpected")).toBlocking().single()).isEqualTo("first@example.com");
+        assertThat(slackIdentityCache.getSlackUserId("second@example.com", () -> just("unexpected")).toBlocking().single()).isEqualTo("U2");
+        assertThat(slackIdentityCache.getSlackUserId("deleted@example.com", () -> just("unknown")).toBlocking().single()).isEqualTo("unknown");
+    }
+}
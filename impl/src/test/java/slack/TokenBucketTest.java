@@ -0,0 +1,60 @@
+package slack;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenBucketTest {
+
+    private long now;
+
+    @Before
+    public void beforeEach() {
+        now = 1000000;
+    }
+
+    @Test
+    public void shouldAllowBurstAtOnce() {
+        TokenBucket tokenBucket = new TokenBucket(60, 3, () -> now);
+
+        assertThat(tokenBucket.reserve()).isZero();
+        assertThat(tokenBucket.reserve()).isZero();
+        assertThat(tokenBucket.reserve()).isZero();
+    }
+
+    @Test
+    public void shouldDelayCallsBeyondBurstToTheRate() {
+        TokenBucket tokenBucket = new TokenBucket(60, 1, () -> now);
+        tokenBucket.reserve();
+
+        assertThat(tokenBucket.reserve()).isEqualTo(1000);
+        assertThat(tokenBucket.reserve()).isEqualTo(2000);
+    }
+
+    @Test
+    public void shouldRefillOverTime() {
+        TokenBucket tokenBucket = new TokenBucket(60, 2, () -> now);
+        tokenBucket.reserve();
+        tokenBucket.reserve();
+
+        now += 1000;
+        assertThat(tokenBucket.reserve()).isZero();
+
+        now += 60000;
+        assertThat(tokenBucket.reserve()).isZero();
+        assertThat(tokenBucket.reserve()).isZero();
+        assertThat(tokenBucket.reserve()).isEqualTo(1000);
+    }
+
+    @Test
+    public void shouldDelayCallsWhilePaused() {
+        TokenBucket tokenBucket = new TokenBucket(60, 5, () -> now);
+
+        tokenBucket.pause(30000);
+
+        assertThat(tokenBucket.reserve()).isEqualTo(30000);
+        now += 30000;
+        assertThat(tokenBucket.reserve()).isZero();
+    }
+}
@@ -35,6 +35,7 @@ import static impl.AnswerResourceImpl.ANSWER_NOT_FOUND;
 import static impl.AnswerResourceImpl.ERROR_ANSWER_NOT_CREATED;
 import static impl.AnswerResourceImpl.ERROR_NOT_OWNER_OF_QUESTION;
 import static impl.AnswerResourceImpl.INVALID_VOTE;
+import static impl.QuestionResourceImpl.QUESTION_NOT_FOUND;
 import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
 import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
 import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
@@ -73,6 +74,8 @@ public class AnswerResourceTest {
     private static UserResource        userResource;
     private static SlackResource       mockedSlackResource;
     private static AnswerVoteDao       answerVoteDao;
+    private static AnswerDao           answerDao;
+    private static SlackOutbox         slackOutbox;
 
     @BeforeClass
     public static void before() {
@@ -90,6 +93,8 @@ public class AnswerResourceTest {
         userResource = testSetup.getInjector().getInstance(UserResource.class);
         mockedSlackResource = testSetup.getInjector().getInstance(SlackResource.class);
         answerVoteDao = testSetup.getInjector().getInstance(AnswerVoteDao.class);
+        answerDao = testSetup.getInjector().getInstance(AnswerDao.class);
+        slackOutbox = testSetup.getInjector().getInstance(SlackOutbox.class);
     }
 
     @After
@@ -123,6 +128,9 @@ public class AnswerResourceTest {
         Answer returnedAnswer = answerResource.createAnswer(answerer, answer, returnedQuestion.getId()).toBlocking().singleOrDefault(null);
         assertThat(returnedAnswer).isNotNull();
 
+        // and the notifications of the question and the answer are sent
+        assertThat(slackOutbox.dispatch().toBlocking().single()).isEqualTo(2);
+
         //Verify slack notification is send to the user who created the question
         verify(mockedSlackResource).getUserId(questioner.getEmail());
         verify(mockedSlackResource).postMessageToSlackAsBotUser(eq(SLACK_USER_ID), matches(layoutBlocks -> {
@@ -175,7 +183,10 @@ public class AnswerResourceTest {
         Answer returnedAnswer = answerResource.createAnswer(questioner, answer, returnedQuestion.getId()).toBlocking().singleOrDefault(null);
         assertThat(returnedAnswer).isNotNull();
 
-        //Verify slack notification is send to the user who created the question
+        // and only the notification of the question is sent
+        assertThat(slackOutbox.dispatch().toBlocking().single()).isEqualTo(1);
+
+        //Verify slack notification is not sent to the user who created the question
         verify(mockedSlackResource, never()).getUserId(questioner.getEmail());
         verify(mockedSlackResource, never()).postMessageToSlackAsBotUser(anyString(), anyListOf(LayoutBlock.class));
     }
@@ -210,9 +221,7 @@ public class AnswerResourceTest {
             answerDaoMock,
             null,
             testSetup.getInjector().getInstance(DaoTransactions.class),
-            mockedSlackResource,
-            userResource,
-            new ApplicationConfig(),
+            null,
             null);
 
         // when the answer is going to be persisted, exception is returned
@@ -225,6 +234,16 @@ public class AnswerResourceTest {
             });
     }
 
+    @Test
+    public void shouldReturnNotFoundWhenAnsweringMissingQuestion() {
+        assertThatExceptionOfType(WebException.class)
+            .isThrownBy(() -> answerResource.createAnswer(newUser(), newAnswer(), Long.MAX_VALUE).toBlocking().singleOrDefault(null))
+            .satisfies(e -> {
+                assertThat(e.getStatus()).isEqualTo(NOT_FOUND);
+                assertThat(e.getError()).isEqualTo(QUESTION_NOT_FOUND);
+            });
+    }
+
     @Test
     public void shouldReturnAnswerByIdWithCorrectVotes() {
 
@@ -238,6 +257,7 @@ public class AnswerResourceTest {
         assertAnswerById(answer, -1);
 
         answerVoteDao.deleteVote(user.getUserId(), answer.getId()).test().awaitTerminalEvent().assertNoErrors();
+        reconcileVotes();
         assertAnswerById(answer, 0);
 
         addVote(user, answer, 1);
@@ -540,6 +560,14 @@ public class AnswerResourceTest {
 
     private void addVote(Auth auth, Answer answer, int value) {
         answerVoteDao.createVote(new AnswerVote(auth.getUserId(), answer.getId(), value)).test().awaitTerminalEvent().assertNoErrors();
+        reconcileVotes();
+    }
+
+    /**
+     * Votes written directly to answer_vote bypass the denormalized counter, so bring it back in sync.
+     */
+    private void reconcileVotes() {
+        testSetup.getInjector().getInstance(VoteReconciliationJob.class).reconcile().test().awaitTerminalEvent().assertNoErrors();
     }
 
     private void assertVotesByQuestionId(Auth auth, Question question, Tuple ... votesAndUserVote) {
@@ -0,0 +1,93 @@
+package impl;
+
+import cache.InvalidationBus;
+import cache.InvalidationBusConfig;
+import dao.InvalidationDao;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import se.fortnox.reactivewizard.db.config.DatabaseConfig;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static cache.InvalidationBus.Topic.QUESTION;
+import static cache.InvalidationBus.Topic.TAG;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InvalidationBusTest {
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    @ClassRule
+    public static PostgreSQLContainer postgreSQLContainer = new PostgreSQLContainer();
+
+    private static TestSetup testSetup;
+
+    private InvalidationBus first;
+    private InvalidationBus second;
+
+    @BeforeClass
+    public static void before() {
+        testSetup = new TestSetup(postgreSQLContainer);
+    }
+
+    @Before
+    public void beforeEach() throws Exception {
+        testSetup.setupDatabase();
+        first = newInvalidationBus();
+        second = newInvalidationBus();
+        await(first::isListening);
+        await(second::isListening);
+    }
+
+    @After
+    public void afterEach() throws Exception {
+        first.stop();
+        second.stop();
+        testSetup.clearDatabase();
+    }
+
+    @Test
+    public void shouldDeliverChangesToOtherReplicas() throws InterruptedException {
+        List<Long> receivedByFirst  = new CopyOnWriteArrayList<>();
+        List<Long> receivedBySecond = new CopyOnWriteArrayList<>();
+        first.subscribe(QUESTION, receivedByFirst::add);
+        second.subscribe(QUESTION, receivedBySecond::add);
+
+        first.publish(QUESTION, 17L);
+        await(() -> receivedBySecond.size() == 1);
+
+        assertThat(receivedBySecond).containsExactly(17L);
+        assertThat(receivedByFirst).containsExactly(17L);
+    }
+
+    @Test
+    public void shouldDeliverChangesOfAnyEntityAsNull() throws InterruptedException {
+        List<Long> received = new CopyOnWriteArrayList<>();
+        second.subscribe(TAG, received::add);
+
+        first.publish(TAG, null);
+        await(() -> received.size() == 1);
+
+        assertThat(received).containsNull();
+    }
+
+    private static InvalidationBus newInvalidationBus() {
+        return new InvalidationBus(new InvalidationBusConfig(),
+            testSetup.getInjector().getInstance(DatabaseConfig.class),
+            testSetup.getInjector().getInstance(InvalidationDao.class));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package impl;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.ClassPath;
+import dao.SlackNotification;
+import datagen.DatasetConfig;
+import datagen.PostgresLoader;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import se.fortnox.reactivewizard.CollectionOptions;
+import se.fortnox.reactivewizard.db.Query;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Explains every {@link Query} of the daos against a generated database, and fails if any of them
+ * reads a table with a sequential scan. Catches queries that lose their index before they reach
+ * production, where the tables are large enough for it to matter.
+ */
+public class QueryPlanTest {
+
+    private static final Pattern PARAMETER = Pattern.compile("(?<![:\\w]):([a-zA-Z_][\\w.]*)");
+
+    /**
+     * Notifications waiting to be sent to Slack, as if it had been down for a while. The generated dataset has none.
+     */
+    private static final int OUTBOX_BACKLOG = 10000;
+
+    /**
+     * Literals standing in for the parameters of the queries, chosen to match the generated rows.
+     */
+    private static final Map<String, String> PARAMETER_VALUES = ImmutableMap.<String, String>builder()
+        .put("id", "42")
+        .put("userId", "42")
+        .put("questionId", "42")
+        .put("answerId", "42")
+        .put("vote.userId", "42")
+        .put("vote.questionId", "42")
+        .put("vote.answerId", "42")
+        .put("vote.value", "1")
+        .put("userIds", "ARRAY[42]")
+        .put("questionIds", "ARRAY[42]")
+        .put("answerIds", "ARRAY[42]")
+        .put("ids", "ARRAY[42]")
+        .put("deltas", "ARRAY[1]")
+        .put("floors", "ARRAY[-1]")
+        .put("ceilings", "ARRAY[1]")
+        .put("slackId", "'question42'")
+        .put("email", "'user42@example.com'")
+        .put("pattern", "'%tag42%'")
+        .put("limit", "10")
+        .put("labels", "ARRAY['tag42']")
+        .put("cursor.votes", "3")
+        .put("cursor.createdAt", "1500000000000000")
+        .put("cursor.id", "42")
+        .put("questionSearchOptions.textQuery", "'word42:*'")
+        .put("questionSearchOptions.tags", "CAST(ARRAY['tag42'] AS VARCHAR[])")
+        .put("question.question", "'question'")
+        .put("question.title", "'title'")
+        .put("question.bounty", "0")
+        .put("question.slackId", "'slack'")
+        .put("answer.answer", "'answer'")
+        .put("answer.slackId", "'slack'")
+        .put("answer.acceptedAt", "NOW()")
+        .put("channel", "'channel'")
+        .put("payload", "'payload'")
+        .put("lockKey", "1")
+        .put("leaseSeconds", "60")
+        .build();
+
+    /**
+     * Queries that read a whole table on purpose, with the reason why.
+     */
+    private static final Map<String, String> FULL_SCANS = ImmutableMap.<String, String>builder()
+        .put("TagDao.getTagUsages", "loads every tag into the in-memory tag index")
+        .put("QuestionDao.lockDriftingVotes", "compares the votes counter of every question to its votes, in the hourly reconciliation")
+        .put("AnswerDao.lockDriftingVotes", "compares the votes counter of every answer to its votes, in the hourly reconciliation")
+        .build();
+
+    @ClassRule
+    public static PostgreSQLContainer postgreSQLContainer = new PostgreSQLContainer();
+
+    private static TestSetup testSetup;
+
+    @BeforeClass
+    public static void before() throws Exception {
+        testSetup = new TestSetup(postgreSQLContainer);
+        testSetup.setupDatabase();
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            PostgresLoader.load(connection, new DatasetConfig());
+            statement.execute("INSERT INTO slack_outbox (kind, question_id) " +
+                "SELECT '" + SlackNotification.QUESTION_CREATED + "', id FROM question WHERE id <= " + OUTBOX_BACKLOG);
+            statement.execute("ANALYZE slack_outbox");
+        }
+    }
+
+    @AfterClass
+    public static void after() throws Exception {
+        testSetup.clearDatabase();
+    }
+
+    @Test
+    public void shouldNotScanWholeTables() throws Exception {
+        List<String> sequentialScans = new ArrayList<>();
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            for (Method method : queryMethods()) {
+                String name = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+                if (FULL_SCANS.containsKey(name)) {
+                    continue;
+                }
+                for (String line : explain(statement, sql(method))) {
+                    if (line.contains("Seq Scan")) {
+                        sequentialScans.add(name + Arrays.toString(method.getParameterTypes()) + ": " + line.trim());
+                    }
+                }
+            }
+        }
+        assertThat(sequentialScans).isEmpty();
+    }
+
+    private static List<Method> queryMethods() throws Exception {
+        List<Method> methods = new ArrayList<>();
+        for (ClassPath.ClassInfo classInfo : ClassPath.from(QueryPlanTest.class.getClassLoader()).getTopLevelClasses("dao")) {
+            for (Method method : classInfo.load().getDeclaredMethods()) {
+                if (method.isAnnotationPresent(Query.class)) {
+                    methods.add(method);
+                }
+            }
+        }
+        assertThat(methods).isNotEmpty();
+        return methods;
+    }
+
+    /**
+     * Binds the parameters of the query to literals, and limits it the way a paged call would.
+     */
+    private static String sql(Method method) {
+        Query   query   = method.getAnnotation(Query.class);
+        Matcher matcher = PARAMETER.matcher(query.value());
+        StringBuffer sql = new StringBuffer();
+        while (matcher.find()) {
+            String value = PARAMETER_VALUES.get(matcher.group(1));
+            assertThat(value)
+                .as("value for parameter :%s of %s, add one to PARAMETER_VALUES", matcher.group(1), method)
+                .isNotNull();
+            matcher.appendReplacement(sql, Matcher.quoteReplacement(value));
+        }
+        matcher.appendTail(sql);
+        if (Arrays.asList(method.getParameterTypes()).contains(CollectionOptions.class)) {
+            sql.append(" LIMIT ").append(query.defaultLimit() + 1);
+        }
+        return sql.toString();
+    }
+
+    private static List<String> explain(Statement statement, String sql) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        try (ResultSet resultSet = statement.executeQuery("EXPLAIN " + sql)) {
+            while (resultSet.next()) {
+                plan.add(resultSet.getString(1));
+            }
+        }
+        return plan;
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(postgreSQLContainer.getJdbcUrl(), postgreSQLContainer.getUsername(), postgreSQLContainer.getPassword());
+    }
+}
@@ -8,13 +8,19 @@ import api.Tag;
 import api.User;
 import api.UserResource;
 import api.auth.Auth;
+import cache.InvalidationBus;
+import cache.ResponseCache;
 import com.github.seratch.jslack.api.model.block.SectionBlock;
 import com.github.seratch.jslack.api.model.block.composition.MarkdownTextObject;
 import dao.AnswerDao;
+import dao.QuestionCursor;
 import dao.QuestionDao;
+import dao.QuestionVote;
 import dao.QuestionVoteDao;
+import dao.SlackOutboxDao;
 import dao.TagDao;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import jaxrs.CursorCollectionOptions;
 import org.apache.log4j.Appender;
 import org.assertj.core.internal.bytebuddy.utility.RandomString;
 import org.jetbrains.annotations.NotNull;
@@ -27,8 +33,8 @@ import org.mockito.ArgumentCaptor;
 import org.testcontainers.containers.PostgreSQLContainer;
 import rx.Observable;
 import rx.observers.AssertableSubscriber;
+import rx.schedulers.Schedulers;
 import se.fortnox.reactivewizard.CollectionOptions;
-import se.fortnox.reactivewizard.db.GeneratedKey;
 import se.fortnox.reactivewizard.db.Update;
 import se.fortnox.reactivewizard.db.transactions.DaoTransactions;
 import se.fortnox.reactivewizard.jaxrs.WebException;
@@ -44,12 +50,15 @@ import java.util.function.BiFunction;
 import java.util.function.Function;
 
 import static impl.QuestionResourceImpl.FAILED_TO_SEARCH_FOR_QUESTIONS;
+import static impl.QuestionResourceImpl.INVALID_CURSOR;
 import static impl.QuestionResourceImpl.INVALID_VOTE;
+import static impl.QuestionResourceImpl.NOT_OWNER_OF_QUESTION;
 import static impl.QuestionResourceImpl.QUESTION_NOT_FOUND;
 import static impl.TestSetup.getAnswer;
 import static impl.TestSetup.getQuestion;
 import static impl.TestSetup.insertUser;
 import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
+import static io.netty.handler.codec.http.HttpResponseStatus.FORBIDDEN;
 import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
 import static java.time.LocalDateTime.now;
 import static java.util.Arrays.asList;
@@ -82,9 +91,9 @@ public class QuestionResourceTest {
     private static AnswerResource   answerResource;
     private static UserResource     userResource;
     private static QuestionVoteDao  questionVoteDao;
-    private static SlackResource    slackResource;
     private static QuestionDao      questionDao;
     private static AnswerDao        answerDao;
+    private static SlackOutboxDao   slackOutboxDao;
     private static TestDao          testDao;
     private static TagDao           tagDao;
 
@@ -97,6 +106,10 @@ public class QuestionResourceTest {
 
     private CollectionOptions collectionOptions;
     private static DaoTransactions daoTransactions;
+    private static PopularQuestionsRanking popularQuestionsRanking;
+    private static ResponseHeaderHolder responseHeaderHolder;
+    private static InvalidationBus invalidationBus;
+    private static ResponseCache responseCache;
 
     @BeforeClass
     public static void before() {
@@ -107,10 +120,14 @@ public class QuestionResourceTest {
         questionVoteDao = testSetup.getInjector().getInstance(QuestionVoteDao.class);
         questionDao = testSetup.getInjector().getInstance(QuestionDao.class);
         answerDao = testSetup.getInjector().getInstance(AnswerDao.class);
+        slackOutboxDao = testSetup.getInjector().getInstance(SlackOutboxDao.class);
         testDao = testSetup.getInjector().getInstance(TestDao.class);
         tagDao = testSetup.getInjector().getInstance(TagDao.class);
         daoTransactions = testSetup.getInjector().getInstance(DaoTransactions.class);
-        slackResource = mock(SlackResource.class);
+        popularQuestionsRanking = testSetup.getInjector().getInstance(PopularQuestionsRanking.class);
+        responseHeaderHolder = testSetup.getInjector().getInstance(ResponseHeaderHolder.class);
+        invalidationBus = testSetup.getInjector().getInstance(InvalidationBus.class);
+        responseCache = testSetup.getInjector().getInstance(ResponseCache.class);
         applicationConfig = new ApplicationConfig();
         applicationConfig.setBaseUrl("duringtest.example.org");
     }
@@ -132,7 +149,7 @@ public class QuestionResourceTest {
     @Test
     public void shouldThrowErrorWhenServerIsDown() {
         QuestionDao          questionDao      = mock(QuestionDao.class);
-        QuestionResourceImpl questionResource = new QuestionResourceImpl(questionDao, questionVoteDao, slackResource, new SlackConfig(), applicationConfig, tagDao, daoTransactions);
+        QuestionResourceImpl questionResource = new QuestionResourceImpl(questionDao, questionVoteDao, tagDao, daoTransactions, popularQuestionsRanking, responseHeaderHolder, invalidationBus, responseCache);
         when(questionDao.getLatestQuestions(any())).thenReturn(error(new SQLException()));
 
         try {
@@ -272,6 +289,28 @@ public class QuestionResourceTest {
         assertThat(questions.get(0).getTitle()).isEqualTo(question.getTitle());
     }
 
+    @Test
+    public void shouldSearchByWordPrefix() {
+        Auth mockAuth = createUserAndAuth();
+        Question question = createQuestion(mockAuth, "Deploying to kubernetes", "How?");
+
+        List<Question> questions = questionResource.getQuestionsBySearchQuery("kube deploy", null).toBlocking().single();
+
+        assertThat(questions).extracting(Question::getTitle).containsExactly(question.getTitle());
+    }
+
+    @Test
+    public void shouldRankTitleMatchesBeforeAnswerMatches() {
+        Auth mockAuth = createUserAndAuth();
+        Question answered = createQuestion(mockAuth, "Unrelated title", "Unrelated body");
+        createAnswer(mockAuth, answered.getId(), "Use flyway");
+        Question titled = createQuestion(mockAuth, "Flyway or liquibase", "Which one?");
+
+        List<Question> questions = questionResource.getQuestionsBySearchQuery("flyway", null).toBlocking().single();
+
+        assertThat(questions).extracting(Question::getTitle).containsExactly(titled.getTitle(), answered.getTitle());
+    }
+
     private Question createQuestionAndAnswer(Auth mockAuth) {
         // given a question
         Question question = createQuestion(mockAuth, "Question title", "Question");
@@ -366,7 +405,7 @@ public class QuestionResourceTest {
         // given that the query will fail
         QuestionDao questionDao = mock(QuestionDao.class);
         when(questionDao.getQuestions(any(QuestionSearchOptions.class), any())).thenReturn(error(new WebException()));
-        QuestionResource questionResource = new QuestionResourceImpl(questionDao, questionVoteDao, slackResource, new SlackConfig(), applicationConfig, tagDao, daoTransactions);
+        QuestionResource questionResource = new QuestionResourceImpl(questionDao, questionVoteDao, tagDao, daoTransactions, popularQuestionsRanking, responseHeaderHolder, invalidationBus, responseCache);
 
         // when searching
         Observable<List<Question>> questions = questionResource.getQuestionsBySearchQuery("explode", null);
@@ -450,6 +489,27 @@ public class QuestionResourceTest {
         assertEquals(createdUser.getId(), updatedQuestion.getUserId());
     }
 
+    @Test
+    public void shouldNotUpdateQuestionOfOtherUser() {
+        Auth     owner    = new MockAuth(insertUser(userResource).getId());
+        Auth     other    = new MockAuth(insertUser(userResource).getId());
+        Question question = questionResource.createQuestion(owner, getQuestion("my question title", "my question", List.of("tag1"))).toBlocking().single();
+
+        // when another user tries to update the question and its tags
+        Question update = getQuestion("new title", "new question body", List.of("tag2"));
+        assertThatExceptionOfType(WebException.class)
+            .isThrownBy(() -> questionResource.updateQuestion(other, question.getId(), update).toBlocking().single())
+            .satisfies(e -> {
+                assertEquals(FORBIDDEN, e.getStatus());
+                assertEquals(NOT_OWNER_OF_QUESTION, e.getError());
+            });
+
+        // then neither the question nor its tags are changed
+        Question storedQuestion = questionResource.getQuestion(owner, question.getId()).toBlocking().single();
+        assertEquals("my question title", storedQuestion.getTitle());
+        assertThat(storedQuestion.getTags()).extracting(Tag::getLabel).containsExactly("tag1");
+    }
+
     @Test
     public void shouldOnyReturnQuestionsForTheSpecifiedUser() {
 
@@ -533,23 +593,27 @@ public class QuestionResourceTest {
     }
 
     @Test
-    public void shouldLogThatWeCouldNotSendSlackNotificationWhenQuestionIsCreated() {
+    public void shouldLogThatWeCouldNotSendSlackNotificationWhenQuestionIsCreated() throws Exception {
         // given bad slack config
         Auth     auth     = new Auth();
         Question question = getQuestion("title", "body");
+        SlackResource slackResource = mock(SlackResource.class);
         when(slackResource.postMessageToSlack(eq("rocket-fuel"), any())).thenReturn(error(new SQLException("poff")));
-        SlackConfig      slackConfig      = new SlackConfig();
-        slackConfig.setEnabled(true);
-        QuestionResource questionResource = new QuestionResourceImpl(questionDao, questionVoteDao, slackResource, slackConfig, applicationConfig, tagDao, daoTransactions);
+        Appender slackOutboxAppender = LoggingMockUtil.createMockedLogAppender(SlackOutbox.class);
 
-        // when we try to add the question to rocket fuel
-        questionResource.createQuestion(auth, question).toBlocking().single();
-
-        // it shall log that we could notify by slack that the question was added
-        verify(appender).doAppend(matches(log -> {
-            assertThat(log.getLevel().toString()).isEqualTo("ERROR");
-            assertThat(log.getMessage().toString()).contains("failed to notify by slack that question has been added");
-        }));
+        try {
+            // when we add the question to rocket fuel, which does not wait for slack
+            questionResource.createQuestion(auth, question).toBlocking().single();
+            slackOutbox(slackResource).dispatch().toBlocking().single();
+
+            // it shall log that we could not notify by slack that the question was added, and try again later
+            verify(slackOutboxAppender).doAppend(matches(log -> {
+                assertThat(log.getLevel().toString()).isEqualTo("WARN");
+                assertThat(log.getMessage().toString()).contains("Failed to send Slack notification");
+            }));
+        } finally {
+            LoggingMockUtil.destroyMockedAppender(slackOutboxAppender, SlackOutbox.class);
+        }
     }
 
     @Test
@@ -557,13 +621,12 @@ public class QuestionResourceTest {
         // given that we have a question that we want to save
         Auth     auth     = new Auth();
         Question question = getQuestion("title of question?", "who does one do?");
+        SlackResource slackResource = mock(SlackResource.class);
         when(slackResource.postMessageToSlack(eq("rocket-fuel"), any())).thenReturn(empty());
-        SlackConfig      slackConfig      = new SlackConfig();
-        slackConfig.setEnabled(true);
-        QuestionResource questionResource = new QuestionResourceImpl(questionDao, questionVoteDao, slackResource, slackConfig, applicationConfig, tagDao, daoTransactions);
 
-        // when we add the the question to rocket fuel
+        // when we add the the question to rocket fuel and the slack outbox is dispatched
         questionResource.createQuestion(auth, question).toBlocking().single();
+        assertThat(slackOutbox(slackResource).dispatch().toBlocking().single()).isEqualTo(1);
         ArgumentCaptor<List> mapArgumentCaptor = ArgumentCaptor.forClass(List.class);
 
         // then a message shall be sent through slack that a new question has been submitted.
@@ -576,6 +639,16 @@ public class QuestionResourceTest {
         assertThat(headerText).isEqualTo("A new question: *title of question?* was submitted.");
         assertThat(contentText).isEqualTo("Head over to <duringtest.example.org/question/1|rocket-fuel> to view the question.");
 
+        // and the notification shall be sent only once
+        assertThat(slackOutbox(slackResource).dispatch().toBlocking().single()).isEqualTo(0);
+    }
+
+    private SlackOutbox slackOutbox(SlackResource slackResource) {
+        SlackOutboxConfig slackOutboxConfig = new SlackOutboxConfig();
+        slackOutboxConfig.setEnabled(false);
+        SlackConfig slackConfig = new SlackConfig();
+        slackConfig.setEnabled(true);
+        return new SlackOutbox(slackOutboxConfig, slackOutboxDao, questionDao, answerDao, userResource, slackResource, slackConfig, applicationConfig);
     }
 
     @Test
@@ -615,6 +688,36 @@ public class QuestionResourceTest {
         voteAndAssertFailure(questionResource::upVoteQuestion, auth, question);
     }
 
+    @Test
+    public void shouldCountConcurrentVotesOfTheSameUserOnce() {
+        Question question = questionResource.createQuestion(newAuth(), getQuestion("my question title", "my question")).toBlocking().singleOrDefault(null);
+        Auth     voter    = newAuth();
+
+        // when the same user votes many times at once
+        Observable.range(0, 10)
+            .flatMap(i -> questionResource.upVoteQuestion(voter, question.getId())
+                .subscribeOn(Schedulers.io())
+                .onErrorResumeNext(throwable -> empty()))
+            .toBlocking()
+            .lastOrDefault(null);
+
+        // then only one vote is counted
+        assertThat(questionVoteDao.findVote(voter.getUserId(), question.getId()).toList().toBlocking().single())
+            .extracting(QuestionVote::getValue)
+            .containsExactly(1);
+        assertThat(questionResource.getQuestionById(question.getId()).toBlocking().single().getVotes()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReturnNotFoundWhenVotingOnMissingQuestion() {
+        assertThatExceptionOfType(WebException.class)
+            .isThrownBy(() -> questionResource.upVoteQuestion(newAuth(), 4711).toBlocking().singleOrDefault(null))
+            .satisfies(e -> {
+                assertEquals(NOT_FOUND, e.getStatus());
+                assertEquals(QUESTION_NOT_FOUND, e.getError());
+            });
+    }
+
     @Test
     public void shouldListLatest5Questions() {
         int limit               = 5;
@@ -654,6 +757,21 @@ public class QuestionResourceTest {
         assertOrder(questionResource::getPopularQuestions, inExpectedOrder);
     }
 
+    @Test
+    public void shouldPagePopularQuestionsBeyondTheRanking() {
+        generateQuestions(PopularQuestionsRanking.MAX_LIMIT + 5);
+
+        collectionOptions.setLimit(PopularQuestionsRanking.MAX_LIMIT);
+        List<Question> firstPage = questionResource.getPopularQuestions(collectionOptions).toBlocking().single();
+        collectionOptions.setOffset(PopularQuestionsRanking.MAX_LIMIT);
+        List<Question> secondPage = questionResource.getPopularQuestions(collectionOptions).toBlocking().single();
+
+        // the first page has one more question, because CollectionOptionsQueryPart adds one to see if there are more
+        assertThat(firstPage).hasSize(PopularQuestionsRanking.MAX_LIMIT + 1);
+        assertThat(secondPage).hasSize(5);
+        assertThat(secondPage.get(0).getId()).isEqualTo(firstPage.get(PopularQuestionsRanking.MAX_LIMIT).getId());
+    }
+
     @Test
     public void shouldSortPopularUnansweredQuestions() {
         List<Long> inExpectedOrder = asList(
@@ -686,6 +804,39 @@ public class QuestionResourceTest {
         assertOrder(questionResource::getRecentlyAcceptedQuestions, inExpectedOrder);
     }
 
+    @Test
+    public void shouldListQuestionWithSeveralAcceptedAnswersOnce() {
+        Auth mockAuth = createUserAndAuth();
+        Question question = createQuestion(mockAuth, "Question title", "Question");
+        Answer first = createAnswer(mockAuth, question.getId(), "first");
+        Answer second = createAnswer(mockAuth, question.getId(), "second");
+        assertThat(answerResource.markAsAcceptedAnswer(mockAuth, first.getId())).isEmpty();
+        assertThat(answerResource.markAsAcceptedAnswer(mockAuth, second.getId())).isEmpty();
+
+        assertThatList(questionResource.getRecentlyAcceptedQuestions(collectionOptions))
+            .hasExactlyOne()
+            .extracting(Question::getId)
+            .containsExactly(question.getId());
+    }
+
+    @Test
+    public void shouldListQuestionAsUnansweredWhenItsAnswerIsDeleted() {
+        Auth mockAuth = createUserAndAuth();
+        Question question = createQuestion(mockAuth, "Question title", "Question");
+        Answer answer = createAnswer(mockAuth, question.getId(), "Answer body");
+
+        assertThatList(questionResource.getPopularUnansweredQuestions(collectionOptions))
+            .hasExactlyOne()
+            .isEmpty();
+
+        assertThat(answerResource.deleteAnswer(mockAuth, answer.getId())).isEmpty();
+
+        assertThatList(questionResource.getPopularUnansweredQuestions(collectionOptions))
+            .hasExactlyOne()
+            .extracting(Question::getId)
+            .containsExactly(question.getId());
+    }
+
     @Test
     public void shouldSortUsersQuestionsByCreated() {
         Auth user = new MockAuth(insertUser(userResource).getId());
@@ -696,6 +847,34 @@ public class QuestionResourceTest {
         assertOrder(options -> questionResource.getQuestions(user.getUserId(), options), asList(current, old, oldest));
     }
 
+    @Test
+    public void shouldPageLatestQuestionsWithCursor() {
+        long newest = createQuestionWithoutVotes(CURRENT);
+        long middle = createQuestionWithoutVotes(A_DAY_AGO);
+        long oldest = createQuestionWithoutVotes(A_MONTH_AGO);
+
+        List<Question> firstPage = questionResource.getLatestQuestions(new CursorCollectionOptions(2, null, null, null, null))
+            .toBlocking().single();
+        assertThat(firstPage).extracting(Question::getId).containsExactly(newest, middle);
+
+        String cursor = QuestionCursor.of(firstPage.get(1), false).encode();
+        assertThatList(questionResource.getLatestQuestions(new CursorCollectionOptions(2, null, null, null, cursor)))
+            .hasExactlyOne()
+            .extracting(Question::getId)
+            .containsExactly(oldest);
+    }
+
+    @Test
+    public void shouldReturnBadRequestForInvalidCursor() {
+        assertThatExceptionOfType(WebException.class)
+            .isThrownBy(() -> questionResource.getLatestQuestions(new CursorCollectionOptions(2, null, null, null, "not-a-cursor"))
+                .toBlocking().single())
+            .satisfies(e -> {
+                assertEquals(BAD_REQUEST, e.getStatus());
+                assertEquals(INVALID_CURSOR, e.getError());
+            });
+    }
+
     private void assertOrder(Function<CollectionOptions, Observable<List<Question>>> method, List<Long> inExpectedOrder) {
         assertThatList(method.apply(collectionOptions))
             .hasExactlyOne()
@@ -730,7 +909,6 @@ public class QuestionResourceTest {
     private Long createQuestion(Auth user, String title, LocalDateTime created, LocalDateTime accepted, int votes, boolean createUnAcceptedAnswer) {
 
         Question question = questionDao.addQuestion(user.getUserId(), getQuestion(title, RandomString.make()))
-              .map(GeneratedKey::getKey)
               .flatMap(questionDao::getQuestion)
               .toBlocking().single();
         testDao.setCreatedAt(question, created).toBlocking().single();
@@ -750,7 +928,7 @@ public class QuestionResourceTest {
         if (nonNull(accepted)) {
             Answer acceptedAnswer = answerResource.createAnswer(user, getAnswer(RandomString.make()), question.getId()).toBlocking().firstOrDefault(null);
             acceptedAnswer.setAcceptedAt(accepted);
-            assertThat(answerDao.updateAnswer(user.getUserId(), acceptedAnswer.getId(), acceptedAnswer)).isEmpty();
+            assertThat(answerDao.updateAnswer(user.getUserId(), acceptedAnswer.getId(), acceptedAnswer)).hasExactlyOne();
         }
         return question.getId();
     }
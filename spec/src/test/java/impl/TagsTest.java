@@ -6,6 +6,8 @@ import api.Tag;
 import api.TagResource;
 import api.User;
 import api.UserResource;
+import cache.InvalidationBus;
+import cache.ResponseCache;
 import dao.QuestionDao;
 import dao.QuestionVoteDao;
 import dao.TagDao;
@@ -23,8 +25,6 @@ import se.fortnox.reactivewizard.db.Update;
 import se.fortnox.reactivewizard.db.transactions.DaoTransactions;
 import se.fortnox.reactivewizard.test.LoggingMockUtil;
 import se.fortnox.reactivewizard.validation.ValidationFailedException;
-import slack.SlackConfig;
-import slack.SlackResource;
 
 import java.util.Collections;
 import java.util.List;
@@ -44,7 +44,6 @@ public class TagsTest {
 
     private static TestSetup         testSetup;
     private static Appender          appender;
-    private static ApplicationConfig applicationConfig;
     private        MockAuth          mockAuth;
 
     @BeforeClass
@@ -55,8 +54,6 @@ public class TagsTest {
         testDao = testSetup.getInjector().getInstance(TestDao.class);
         tagResource = testSetup.getInjector().getInstance(TagResource.class);
 
-        applicationConfig = new ApplicationConfig();
-        applicationConfig.setBaseUrl("duringtest.example.org");
     }
 
     @Before
@@ -227,13 +224,15 @@ public class TagsTest {
     @Test
     public void shouldStoreLowercaseTags() {
         // Given we are not validating request data
-        QuestionDao      questionDao                   = testSetup.getInjector().getInstance(QuestionDao.class);
-        QuestionVoteDao  questionVoteDao               = testSetup.getInjector().getInstance(QuestionVoteDao.class);
-        SlackResource    slackResource                 = testSetup.getInjector().getInstance(SlackResource.class);
-        SlackConfig      slackConfig                   = testSetup.getInjector().getInstance(SlackConfig.class);
-        TagDao           tagDao                        = testSetup.getInjector().getInstance(TagDao.class);
-        DaoTransactions  daoTransactions               = testSetup.getInjector().getInstance(DaoTransactions.class);
-        QuestionResource nonValidatingQuestionResource = new QuestionResourceImpl(questionDao, questionVoteDao, slackResource, slackConfig, applicationConfig, tagDao, daoTransactions);
+        QuestionDao             questionDao                   = testSetup.getInjector().getInstance(QuestionDao.class);
+        QuestionVoteDao         questionVoteDao               = testSetup.getInjector().getInstance(QuestionVoteDao.class);
+        TagDao                  tagDao                        = testSetup.getInjector().getInstance(TagDao.class);
+        DaoTransactions         daoTransactions               = testSetup.getInjector().getInstance(DaoTransactions.class);
+        PopularQuestionsRanking popularQuestionsRanking       = testSetup.getInjector().getInstance(PopularQuestionsRanking.class);
+        ResponseHeaderHolder    responseHeaderHolder          = testSetup.getInjector().getInstance(ResponseHeaderHolder.class);
+        InvalidationBus         invalidationBus               = testSetup.getInjector().getInstance(InvalidationBus.class);
+        ResponseCache           responseCache                 = testSetup.getInjector().getInstance(ResponseCache.class);
+        QuestionResource        nonValidatingQuestionResource = new QuestionResourceImpl(questionDao, questionVoteDao, tagDao, daoTransactions, popularQuestionsRanking, responseHeaderHolder, invalidationBus, responseCache);
 
         // when a request is made to create a question with mixed case tags
         Question question       = TestSetup.getQuestion("my question title", "my question", List.of("Tag1", "tAG2"));
@@ -260,6 +259,61 @@ public class TagsTest {
             });
     }
 
+    @Test
+    public void shouldKeepTagUsagesInSyncWithQuestions() {
+        // given questions sharing tags
+        Question first  = questionResource.createQuestion(mockAuth, TestSetup.getQuestion("first", "first", List.of("tag1", "tag2"))).toBlocking().single();
+        Question second = questionResource.createQuestion(mockAuth, TestSetup.getQuestion("second", "second", List.of("tag1", "tag3"))).toBlocking().single();
+        assertThat(tagResource.getPopularTags().toBlocking().single())
+            .extracting(Tag::getLabel)
+            .containsExactly("tag1", "tag2", "tag3");
+
+        // when one question is retagged and the other deleted
+        questionResource.updateQuestion(mockAuth, first.getId(), TestSetup.getQuestion("first", "first", List.of("tag3"))).toBlocking().single();
+        questionResource.deleteQuestion(mockAuth, second.getId()).toBlocking().singleOrDefault(null);
+
+        // then the usages should match the remaining associations
+        assertThat(testDao.countTagsWithDriftingUsages().toBlocking().single()).isZero();
+        assertThat(tagResource.getPopularTags().toBlocking().single())
+            .extracting(Tag::getLabel)
+            .containsExactly("tag3");
+    }
+
+    @Test
+    public void shouldReplaceTagsOnQuestionInOneStatement() {
+        // given a question with tags
+        TagDao   tagDao         = testSetup.getInjector().getInstance(TagDao.class);
+        Question storedQuestion = questionResource.createQuestion(mockAuth, TestSetup.getQuestion("title", "body", List.of("tag1", "tag2"))).toBlocking().single();
+
+        // when the tags are replaced
+        Integer changed = tagDao.replaceTagsOnQuestion(storedQuestion.getId(), List.of("tag2", "tag3", "tag3")).toBlocking().single();
+
+        // then one tag should have been removed and one added
+        assertThat(changed).isEqualTo(2);
+        assertThat(questionResource.getQuestion(mockAuth, storedQuestion.getId()).toBlocking().single().getTags())
+            .extracting(Tag::getLabel)
+            .containsExactlyInAnyOrder("tag2", "tag3");
+        assertThat(testDao.countTagsWithDriftingUsages().toBlocking().single()).isZero();
+
+        // and replacing them with the same tags should change nothing
+        assertThat(tagDao.replaceTagsOnQuestion(storedQuestion.getId(), List.of("tag2", "tag3")).toBlocking().single()).isZero();
+    }
+
+    @Test
+    public void shouldCountUsagesOfExistingTagsOnlyWhenAdded() {
+        // given a tag used by one question
+        TagDao   tagDao = testSetup.getInjector().getInstance(TagDao.class);
+        questionResource.createQuestion(mockAuth, TestSetup.getQuestion("first", "first", List.of("tag1"))).toBlocking().single();
+        Question second = questionResource.createQuestion(mockAuth, TestSetup.getQuestion("second", "second", List.of("tag2"))).toBlocking().single();
+
+        // when another question is tagged with it, twice
+        assertThat(tagDao.replaceTagsOnQuestion(second.getId(), List.of("tag1", "tag2")).toBlocking().single()).isEqualTo(1);
+        assertThat(tagDao.replaceTagsOnQuestion(second.getId(), List.of("tag1", "tag2")).toBlocking().single()).isZero();
+
+        // then the usages should match the associations
+        assertThat(testDao.countTagsWithDriftingUsages().toBlocking().single()).isZero();
+    }
+
     private interface TestDao {
         @Update("INSERT INTO tag (label) VALUES (:label) RETURNING id")
         Observable<GeneratedKey<Long>> createTag(String label);
@@ -269,5 +323,8 @@ public class TagsTest {
 
         @Query("SELECT id, label FROM tag")
         Observable<Tag> getAllTags();
+
+        @Query("SELECT COUNT(*) FROM tag WHERE usages != (SELECT COUNT(*) FROM question_tag WHERE question_tag.tag_id = tag.id)")
+        Observable<Integer> countTagsWithDriftingUsages();
     }
 }
@@ -5,8 +5,10 @@ import api.Question;
 import api.Tag;
 import api.User;
 import api.UserResource;
-import auth.JwkResource;
 import auth.application.ApplicationTokenConfig;
+import auth.openid.JwksKeyStore;
+import cache.QuestionCache;
+import cache.ResponseCache;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -60,7 +62,7 @@ public class TestSetup {
                     SlackRTMClient slackRTMClient = mock(SlackRTMClient.class);
                     binder().bind(SlackRTMClient.class).toInstance(slackRTMClient);
                     binder().bind(SlackResource.class).toInstance(slackResource);
-                    binder().bind(JwkResource.class).toProvider(() -> mock(JwkResource.class));
+                    binder().bind(JwksKeyStore.class).toInstance(mock(JwksKeyStore.class));
                 }
             })));
     }
@@ -94,6 +96,10 @@ public class TestSetup {
                 ServerConfig serverConfig = configFactory.get(ServerConfig.class);
                 serverConfig.setEnabled(false);
                 bind(ServerConfig.class).toInstance(serverConfig);
+                // the specs dispatch the Slack outbox themselves, when they expect notifications to be sent
+                SlackOutboxConfig slackOutboxConfig = configFactory.get(SlackOutboxConfig.class);
+                slackOutboxConfig.setEnabled(false);
+                bind(SlackOutboxConfig.class).toInstance(slackOutboxConfig);
             }
         };
     }
@@ -112,6 +118,11 @@ public class TestSetup {
         ConfigFactory configFactory = spy(new ConfigFactory((String) null));
         when(configFactory.get(DatabaseConfig.class)).thenReturn(databaseConfig);
         when(configFactory.get(LiquibaseConfig.class)).thenReturn(databaseConfig);
+
+        // the tests expect the popular questions to change as soon as they have changed a question
+        PopularQuestionsConfig popularQuestionsConfig = new PopularQuestionsConfig();
+        popularQuestionsConfig.setMinRefreshIntervalSeconds(0);
+        when(configFactory.get(PopularQuestionsConfig.class)).thenReturn(popularQuestionsConfig);
         configFactory.get(LoggingFactory.class).init();
         return configFactory;
     }
@@ -134,6 +145,9 @@ public class TestSetup {
 
     public void clearDatabase() throws Exception {
         this.migrator.forceDrop();
+        // ids are reused once the database is recreated
+        injector.getInstance(QuestionCache.class).invalidateAll();
+        injector.getInstance(ResponseCache.class).invalidateAll();
     }
 
     @NotNull
@@ -82,7 +82,7 @@ public class ThreadMessageHandlerTest {
         message.setTs(questionId);
         message.setText("a clever question");
 
-        when(slackResourceMock.getUserEmail("user_id")).thenReturn(just(user.getEmail()));
+        when(slackResourceMock.getUserBySlackId("user_id")).thenReturn(just(user));
         when(slackResourceMock.getUserEmail("original_message_user")).thenReturn(just(originalMessageUser.getEmail()));
         when(slackResourceMock.getMessageFromSlack(eq("channel"), eq(message.getTs()))).thenReturn(just(message));
         when(slackResourceMock.getUser(any()))